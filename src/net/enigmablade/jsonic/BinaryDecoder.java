@@ -0,0 +1,168 @@
+package net.enigmablade.jsonic;
+
+import java.io.*;
+import java.util.*;
+import net.enigmablade.jsonic.ValueUtil.*;
+
+/**
+ * <p>Non-public base for decoders of binary formats.</p>
+ * <p>Decoders create objects and arrays whose decoding is delayed until they're used,
+ * the same way delayed parsing works for JSON strings.
+ * A delayed element only keeps a reference to the decoder and the offset of the element in the data.</p>
+ * 
+ * @author Enigma
+ */
+public abstract class BinaryDecoder
+{
+	/**
+	 * The deepest objects and arrays can be nested in formats read from other programs.
+	 * Decoding and writing nested elements is recursive, so deeper data could overflow the stack.
+	 */
+	protected static final int MAX_DEPTH = 1000;
+	
+	/**
+	 * The binary data being decoded.
+	 */
+	protected final byte[] data;
+	/**
+	 * Whether or not decoding of nested elements is delayed until they're used.
+	 */
+	protected final boolean delayed;
+	
+	/**
+	 * Creates a new decoder for the given data.
+	 * @param data The binary data
+	 * @param delayed Whether or not decoding of nested elements is delayed
+	 */
+	protected BinaryDecoder(byte[] data, boolean delayed)
+	{
+		this.data = data;
+		this.delayed = delayed;
+	}
+	
+	/**
+	 * Returns the offset of the root element in the data.
+	 * @return The offset of the root element
+	 * @throws JsonParseException if the data is invalid
+	 */
+	protected abstract int getRoot() throws JsonParseException;
+	
+	/**
+	 * Returns the type of container at the given offset.
+	 * @param offset The offset of the value
+	 * @return '{' for objects, '[' for arrays, otherwise 0
+	 */
+	protected abstract char getOpeningChar(int offset);
+	
+	/**
+	 * Returns whether or not the object at the given offset keeps its keys in order.
+	 * Formats that don't record it decode unordered objects.
+	 * @param offset The offset of the object
+	 * @return <code>true</code> if the object is ordered, otherwise <code>false</code>
+	 */
+	protected boolean isOrdered(int offset)
+	{
+		return false;
+	}
+	
+	/**
+	 * Decodes the object at the given offset into the map.
+	 * Nested objects and arrays should be created with {@link #createElementValue(int)}.
+	 * @param offset The offset of the object
+	 * @param values The map to add the object's values to
+	 * @throws JsonParseException if the data is invalid
+	 */
+	protected abstract void decodeObject(int offset, Map<String, Value> values) throws JsonParseException;
+	
+	/**
+	 * Decodes the array at the given offset into the list.
+	 * Nested objects and arrays should be created with {@link #createElementValue(int)}.
+	 * @param offset The offset of the array
+	 * @param values The list to add the array's values to
+	 * @throws JsonParseException if the data is invalid
+	 */
+	protected abstract void decodeArray(int offset, List<Value> values) throws JsonParseException;
+	
+	/**
+	 * Creates the delayed element at the given offset.
+	 * @param offset The offset of the element
+	 * @return The object or array, or <code>null</code> if the value at the offset isn't either
+	 */
+	protected JsonElement createElement(int offset)
+	{
+		switch(getOpeningChar(offset))
+		{
+			case ParserUtil.OBJECT_OPEN: return new JsonObject(this, offset);
+			case ParserUtil.ARRAY_OPEN: return new JsonArray(this, offset);
+			default: return null;
+		}
+	}
+	
+	/**
+	 * Creates the value for the delayed element at the given offset.
+	 * @param offset The offset of the element
+	 * @return The object or array value
+	 * @throws JsonParseException if the value at the offset isn't an object or array
+	 */
+	protected Value createElementValue(int offset) throws JsonParseException
+	{
+		switch(getOpeningChar(offset))
+		{
+			case ParserUtil.OBJECT_OPEN: return ValueUtil.createValue(new JsonObject(this, offset));
+			case ParserUtil.ARRAY_OPEN: return ValueUtil.createValue(new JsonArray(this, offset));
+			default: throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, offset);
+		}
+	}
+	
+	/**
+	 * Decodes the nested elements in the given values unless decoding is delayed.
+	 * Called once an element has finished decoding its own values.
+	 * @param values The decoded values
+	 * @throws JsonParseException if the data is invalid
+	 */
+	protected void decodeNested(Collection<Value> values) throws JsonParseException
+	{
+		if(delayed)
+			return;
+		
+		for(Value value : values)
+			if(value.value instanceof JsonElement)
+				((JsonElement)value.value).verifyParseState();
+	}
+	
+	/**
+	 * Reads the entire input stream.
+	 * @param in The stream to read
+	 * @return The bytes read from the stream
+	 * @throws IOException if the input stream couldn't be read
+	 */
+	protected static byte[] readAll(InputStream in) throws IOException
+	{
+		ParserBuffers buffers = ParserBuffers.acquire(null);
+		try
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buf = buffers.getBytes();
+			for(int read; (read = in.read(buf)) > 0;)
+				bytes.write(buf, 0, read);
+			return bytes.toByteArray();
+		}
+		finally
+		{
+			buffers.release();
+		}
+	}
+	
+	/**
+	 * Returns the root element of the data.
+	 * @return The object or array, or <code>null</code> if the root isn't either
+	 * @throws JsonParseException if the data is invalid
+	 */
+	protected JsonElement getRootElement() throws JsonParseException
+	{
+		JsonElement element = createElement(getRoot());
+		if(element != null && !delayed)
+			element.verifyParseState();
+		return element;
+	}
+}
@@ -0,0 +1,89 @@
+package net.enigmablade.jsonic;
+
+import java.io.*;
+import java.nio.charset.*;
+
+/**
+ * Non-public growable byte buffer used by the binary encoders.
+ * Previously written ints can be changed, so sizes can be written before the contents they describe.
+ * 
+ * @author Enigma
+ */
+public class BinaryOutput extends ByteArrayOutputStream
+{
+	protected static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	protected BinaryOutput()
+	{
+		super(256);
+	}
+	
+	//Variable-length numbers
+	
+	protected void writeVarint(int i)
+	{
+		writeVarlong(i & 0xFFFFFFFFL);
+	}
+	
+	protected void writeVarlong(long l)
+	{
+		while((l & ~0x7FL) != 0)
+		{
+			write((int)((l & 0x7F) | 0x80));
+			l >>>= 7;
+		}
+		write((int)l);
+	}
+	
+	//Big-endian numbers
+	
+	protected void writeShort(int i)
+	{
+		write(i >>> 8);
+		write(i);
+	}
+	
+	protected void writeInt(int i)
+	{
+		write(i >>> 24);
+		write(i >>> 16);
+		write(i >>> 8);
+		write(i);
+	}
+	
+	protected void writeLong(long l)
+	{
+		for(int shift = 56; shift >= 0; shift -= 8)
+			write((int)(l >>> shift));
+	}
+	
+	//Blocks
+	
+	protected void writeBlock(byte[] bytes)
+	{
+		writeVarint(bytes.length);
+		write(bytes, 0, bytes.length);
+	}
+	
+	protected void writeString(String str)
+	{
+		writeBlock(str.getBytes(UTF_8));
+	}
+	
+	//Reserved space
+	
+	protected int reserveInt()
+	{
+		int index = count;
+		writeInt(0);
+		return index;
+	}
+	
+	protected void patchInt(int index, int i)
+	{
+		buf[index] = (byte)(i >>> 24);
+		buf[index+1] = (byte)(i >>> 16);
+		buf[index+2] = (byte)(i >>> 8);
+		buf[index+3] = (byte)i;
+	}
+}
@@ -0,0 +1,366 @@
+package net.enigmablade.jsonic;
+
+import java.util.*;
+import net.enigmablade.jsonic.ValueUtil.*;
+
+/**
+ * <p>Non-public map used by ordered objects, which keeps its keys in the order they were added.</p>
+ * <p>Entries are kept in two parallel arrays in insertion order instead of as linked nodes like a LinkedHashMap,
+ * so each entry takes two array slots instead of an object with five references.
+ * Small maps, like most JSON objects, are searched linearly. Larger ones also keep an open addressing table
+ * of indices into the arrays, which is rebuilt when the arrays grow.</p>
+ * <p>Removing a key shifts the entries after it down, so it takes time proportional to the size of the map.</p>
+ * 
+ * @author Enigma
+ */
+public class CompactMap extends AbstractMap<String, Value> implements Cloneable
+{
+	//Maps with this many entries or fewer are searched linearly
+	private static final int LINEAR_LIMIT = 8;
+	private static final int INITIAL_CAPACITY = 4;
+	
+	//Entries in insertion order
+	private String[] keys;
+	private Value[] values;
+	private int size;
+	
+	//The index+1 of each entry by the hash of its key, or null while the map is small
+	private int[] table;
+	
+	/**
+	 * Creates a new empty map.
+	 */
+	protected CompactMap()
+	{
+		keys = new String[INITIAL_CAPACITY];
+		values = new Value[INITIAL_CAPACITY];
+	}
+	
+	/***************
+	 * Map methods *
+	 ***************/
+	
+	@Override
+	public int size()
+	{
+		return size;
+	}
+	
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return indexOf(key) >= 0;
+	}
+	
+	@Override
+	public Value get(Object key)
+	{
+		int index = indexOf(key);
+		return index < 0 ? null : values[index];
+	}
+	
+	@Override
+	public Value put(String key, Value value)
+	{
+		int index = indexOf(key);
+		if(index >= 0)
+		{
+			Value old = values[index];
+			values[index] = value;
+			return old;
+		}
+		
+		if(size == keys.length)
+		{
+			keys = Arrays.copyOf(keys, size*2);
+			values = Arrays.copyOf(values, size*2);
+			if(table != null)
+				rebuild();
+		}
+		keys[size] = key;
+		values[size] = value;
+		size++;
+		
+		if(table != null)
+			insert(size-1);
+		else if(size > LINEAR_LIMIT)
+			rebuild();
+		return null;
+	}
+	
+	@Override
+	public Value remove(Object key)
+	{
+		int index = indexOf(key);
+		if(index < 0)
+			return null;
+		
+		Value old = values[index];
+		removeAt(index);
+		return old;
+	}
+	
+	@Override
+	public void clear()
+	{
+		Arrays.fill(keys, 0, size, null);
+		Arrays.fill(values, 0, size, null);
+		size = 0;
+		table = null;
+	}
+	
+	@Override
+	public Set<Map.Entry<String, Value>> entrySet()
+	{
+		return new AbstractSet<Map.Entry<String, Value>>()
+		{
+			@Override
+			public Iterator<Map.Entry<String, Value>> iterator()
+			{
+				return new Cursor<Map.Entry<String, Value>>()
+				{
+					@Override
+					protected Map.Entry<String, Value> get(int index)
+					{
+						return new Entry(index);
+					}
+				};
+			}
+			
+			@Override
+			public int size()
+			{
+				return size;
+			}
+			
+			@Override
+			public void clear()
+			{
+				CompactMap.this.clear();
+			}
+		};
+	}
+	
+	@Override
+	public Set<String> keySet()
+	{
+		return new AbstractSet<String>()
+		{
+			@Override
+			public Iterator<String> iterator()
+			{
+				return new Cursor<String>()
+				{
+					@Override
+					protected String get(int index)
+					{
+						return keys[index];
+					}
+				};
+			}
+			
+			@Override
+			public int size()
+			{
+				return size;
+			}
+			
+			@Override
+			public boolean contains(Object key)
+			{
+				return containsKey(key);
+			}
+			
+			@Override
+			public void clear()
+			{
+				CompactMap.this.clear();
+			}
+		};
+	}
+	
+	@Override
+	public Collection<Value> values()
+	{
+		return new AbstractCollection<Value>()
+		{
+			@Override
+			public Iterator<Value> iterator()
+			{
+				return new Cursor<Value>()
+				{
+					@Override
+					protected Value get(int index)
+					{
+						return values[index];
+					}
+				};
+			}
+			
+			@Override
+			public int size()
+			{
+				return size;
+			}
+			
+			@Override
+			public void clear()
+			{
+				CompactMap.this.clear();
+			}
+		};
+	}
+	
+	/**
+	 * Returns a copy of this map with the same entries in the same order.
+	 * @return The copy
+	 */
+	@Override
+	public CompactMap clone()
+	{
+		try
+		{
+			CompactMap map = (CompactMap)super.clone();
+			map.keys = keys.clone();
+			map.values = values.clone();
+			map.table = table == null ? null : table.clone();
+			return map;
+		}
+		catch(CloneNotSupportedException e)
+		{
+			throw new InternalError(e.toString());
+		}
+	}
+	
+	/***********
+	 * Helpers *
+	 ***********/
+	
+	/**
+	 * Returns the index of the entry with the given key, or -1 if there isn't one.
+	 */
+	private int indexOf(Object key)
+	{
+		if(table == null)
+		{
+			for(int n = 0; n < size; n++)
+				if(Objects.equals(keys[n], key))
+					return n;
+			return -1;
+		}
+		
+		int mask = table.length-1;
+		for(int slot = hash(key) & mask; ; slot = (slot+1) & mask)
+		{
+			int entry = table[slot];
+			if(entry == 0)
+				return -1;
+			if(Objects.equals(keys[entry-1], key))
+				return entry-1;
+		}
+	}
+	
+	private void removeAt(int index)
+	{
+		System.arraycopy(keys, index+1, keys, index, size-index-1);
+		System.arraycopy(values, index+1, values, index, size-index-1);
+		size--;
+		keys[size] = null;
+		values[size] = null;
+		
+		if(table != null)
+			rebuild();
+	}
+	
+	/**
+	 * Rebuilds the table for the current entries, which is kept at most half full.
+	 */
+	private void rebuild()
+	{
+		if(size <= LINEAR_LIMIT)
+		{
+			table = null;
+			return;
+		}
+		
+		int length = 16;
+		while(length < keys.length*2)
+			length <<= 1;
+		table = new int[length];
+		for(int n = 0; n < size; n++)
+			insert(n);
+	}
+	
+	private void insert(int index)
+	{
+		int mask = table.length-1;
+		int slot = hash(keys[index]) & mask;
+		while(table[slot] != 0)
+			slot = (slot+1) & mask;
+		table[slot] = index+1;
+	}
+	
+	private static int hash(Object key)
+	{
+		int h = key == null ? 0 : key.hashCode();
+		return h ^ (h >>> 16);
+	}
+	
+	/**
+	 * Iterates over the entries in insertion order, allowing the last one returned to be removed.
+	 */
+	private abstract class Cursor<T> implements Iterator<T>
+	{
+		private int next = 0, last = -1;
+		
+		@Override
+		public boolean hasNext()
+		{
+			return next < size;
+		}
+		
+		@Override
+		public T next()
+		{
+			if(next >= size)
+				throw new NoSuchElementException();
+			last = next++;
+			return get(last);
+		}
+		
+		@Override
+		public void remove()
+		{
+			if(last < 0)
+				throw new IllegalStateException();
+			removeAt(last);
+			next = last;
+			last = -1;
+		}
+		
+		protected abstract T get(int index);
+	}
+	
+	/**
+	 * An entry whose value can be set through to the map.
+	 */
+	private class Entry extends AbstractMap.SimpleEntry<String, Value>
+	{
+		private static final long serialVersionUID = 5184328201377468215L;
+		
+		private final int index;
+		
+		private Entry(int index)
+		{
+			super(keys[index], values[index]);
+			this.index = index;
+		}
+		
+		@Override
+		public Value setValue(Value value)
+		{
+			values[index] = value;
+			return super.setValue(value);
+		}
+	}
+}
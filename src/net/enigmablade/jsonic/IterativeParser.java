@@ -0,0 +1,259 @@
+package net.enigmablade.jsonic;
+
+import java.util.*;
+import net.enigmablade.jsonic.ValueUtil.*;
+
+/**
+ * <p>Non-public utilities used by the parser when resource limits are set, for parsing untrusted input.</p>
+ * <p>Objects and arrays are normally parsed recursively, so deeply nested input can overflow the stack.
+ * The iterative parser keeps the open objects and arrays on its own stack instead, and checks every limit
+ * as it reads: nesting depth, input length, string length, number length, and the number of members in each object or array.
+ * Anything over a limit throws a {@link JsonParseException} as soon as it's seen, before the rest of the input is read.</p>
+ * <p>It accepts the same dialect as the recursive parser (or only standard JSON in strict mode).
+ * Parsing is never delayed, since delayed elements would later be parsed recursively without the limits.</p>
+ * 
+ * @author Enigma
+ */
+public class IterativeParser
+{
+	/*******************
+	 * Parsing methods *
+	 *******************/
+	
+	/**
+	 * Parses the object starting at the given index.
+	 * @param json The JSON
+	 * @param startIndex The index of the opening brace
+	 * @param settings The parser settings, including the limits
+	 * @return The object
+	 * @throws JsonParseException if the JSON isn't an object, or it's over a limit
+	 */
+	protected static JsonObject parseObject(String json, int startIndex, ParserSettings settings) throws JsonParseException
+	{
+		if(ParserUtil.charAt(json, startIndex) != ParserUtil.OBJECT_OPEN)
+			throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, startIndex);
+		return (JsonObject)parse(json, startIndex, settings);
+	}
+	
+	/**
+	 * Parses the array starting at the given index.
+	 * @param json The JSON
+	 * @param startIndex The index of the opening bracket
+	 * @param settings The parser settings, including the limits
+	 * @return The array
+	 * @throws JsonParseException if the JSON isn't an array, or it's over a limit
+	 */
+	protected static JsonArray parseArray(String json, int startIndex, ParserSettings settings) throws JsonParseException
+	{
+		if(ParserUtil.charAt(json, startIndex) != ParserUtil.ARRAY_OPEN)
+			throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, startIndex);
+		return (JsonArray)parse(json, startIndex, settings);
+	}
+	
+	/**
+	 * Verifies the length of the input is within the limit.
+	 * @param length The length of the input, or of the part read so far
+	 * @param settings The parser settings
+	 * @throws JsonParseException if the input is too long
+	 */
+	protected static void checkLength(int length, ParserSettings settings) throws JsonParseException
+	{
+		if(length > settings.maxLength)
+			throw new JsonParseException(JsonParseException.Type.LIMIT_EXCEEDED, settings.maxLength, "input longer than "+settings.maxLength+" characters");
+	}
+	
+	private static JsonElement parse(String json, int startIndex, ParserSettings settings) throws JsonParseException
+	{
+		checkLength(json.length(), settings);
+		
+		boolean strict = settings.strict;
+		ArrayList<Frame> stack = new ArrayList<>();
+		Frame frame = open(json, startIndex, stack, settings);
+		int index = startIndex+1;
+		
+		while(true)
+		{
+			index = skipWhitespace(json, index, strict);
+			char c = charAt(json, index);
+			
+			//End of the current object or array
+			if(c == frame.closingChar)
+			{
+				index++;
+				frame.element.setRawLength(index-frame.start);
+				stack.remove(stack.size()-1);
+				if(stack.isEmpty())
+				{
+					if(strict)
+						StrictParser.verifyEnd(json, index);
+					return frame.element;
+				}
+				
+				Frame parent = stack.get(stack.size()-1);
+				parent.add(ParserUtil.createValue(frame.object != null ? ValueType.OBJECT : ValueType.ARRAY, frame.element, settings));
+				frame = parent;
+				continue;
+			}
+			
+			//Separator between members, which the recursive parsers also skip before the first member
+			if(c == ParserUtil.SPLIT && (frame.size > 0 || !strict))
+			{
+				index = skipWhitespace(json, index+1, strict);
+				c = charAt(json, index);
+			}
+			else if(frame.size > 0)
+			{
+				//The same errors as the recursive parsers
+				if(strict)
+					throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, index);
+				throw new JsonParseException(JsonParseException.Type.INVALID_CHAR, index, c);
+			}
+			if(frame.size >= settings.maxMembers)
+				throw new JsonParseException(JsonParseException.Type.LIMIT_EXCEEDED, index, "more than "+settings.maxMembers+" members");
+			
+			//Key
+			if(frame.object != null)
+			{
+				int end;
+				String key;
+				if(c == ParserUtil.STRING_1 || !strict && c == ParserUtil.STRING_2)
+				{
+					end = stringEnd(json, index, settings);
+					key = ParserUtil.decodeString(json, index+1, end++);
+				}
+				else if(strict)
+				{
+					throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, index);
+				}
+				else
+				{
+					end = ParserUtil.getUnknownBlockEnd(json, index);
+					if(end == index)
+						throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, index);
+					checkStringLength(index, end, settings);
+					key = json.substring(index, end);
+				}
+				frame.key = settings.interner != null ? settings.interner.intern(key) : key;
+				
+				index = skipWhitespace(json, end, strict);
+				if(charAt(json, index) != ParserUtil.OBJECT_MAP)
+					throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, index);
+				index = skipWhitespace(json, index+1, strict);
+				c = charAt(json, index);
+			}
+			
+			//Value
+			if(c == ParserUtil.OBJECT_OPEN || c == ParserUtil.ARRAY_OPEN)
+			{
+				frame = open(json, index, stack, settings);
+				index++;
+			}
+			else if(c == ParserUtil.STRING_1 || !strict && c == ParserUtil.STRING_2)
+			{
+				int end = stringEnd(json, index, settings);
+				frame.add(ParserUtil.getStringValue(json, index, end, settings));
+				index = end+1;
+			}
+			else
+			{
+				int end = strict ? StrictParser.valueEnd(json, index) : ParserUtil.getUnknownBlockEnd(json, index);
+				if(end == index)
+					throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, index);
+				if(end-index > settings.maxNumberLength)
+					throw new JsonParseException(JsonParseException.Type.LIMIT_EXCEEDED, index, "number longer than "+settings.maxNumberLength+" characters");
+				frame.add(strict ? StrictParser.createValue(json, index, end, settings) : ParserUtil.getUnknownValue(json, index, end, settings));
+				index = end;
+			}
+		}
+	}
+	
+	/*******************
+	 * Parsing helpers *
+	 *******************/
+	
+	/**
+	 * An object or array that's still being parsed.
+	 */
+	private static class Frame
+	{
+		private final JsonElement element;
+		private final char closingChar;
+		private final int start;
+		
+		//The members, only one of which is used
+		private final Map<String, Value> object;
+		private final List<Value> array;
+		
+		//The key of the member being parsed, and the number of members so far
+		private String key;
+		private int size;
+		
+		private Frame(JsonObject element, int start)
+		{
+			this.element = element;
+			this.closingChar = ParserUtil.OBJECT_CLOSE;
+			this.start = start;
+			object = element.getValues();
+			array = null;
+		}
+		
+		private Frame(JsonArray element, int start)
+		{
+			this.element = element;
+			this.closingChar = ParserUtil.ARRAY_CLOSE;
+			this.start = start;
+			object = null;
+			array = element.getValues();
+		}
+		
+		private void add(Value value)
+		{
+			if(object != null)
+				object.put(key, value);
+			else
+				array.add(value);
+			size++;
+		}
+	}
+	
+	/**
+	 * Starts the object or array opening at the given index and pushes it onto the stack.
+	 */
+	private static Frame open(String json, int index, ArrayList<Frame> stack, ParserSettings settings) throws JsonParseException
+	{
+		if(stack.size() >= settings.maxDepth)
+			throw new JsonParseException(JsonParseException.Type.LIMIT_EXCEEDED, index, "nesting deeper than "+settings.maxDepth);
+		
+		Frame frame = json.charAt(index) == ParserUtil.OBJECT_OPEN ? new Frame(new JsonObject(settings.ordered), index) : new Frame(new JsonArray(), index);
+		stack.add(frame);
+		return frame;
+	}
+	
+	/**
+	 * Returns the index of the quote closing the string that starts at the given index, verifying its length.
+	 */
+	private static int stringEnd(String json, int index, ParserSettings settings) throws JsonParseException
+	{
+		int end = settings.strict ? StrictParser.stringEnd(json, index) : ParserUtil.getStringBlockEnd(json, index);
+		checkStringLength(index+1, end, settings);
+		return end;
+	}
+	
+	private static void checkStringLength(int start, int end, ParserSettings settings) throws JsonParseException
+	{
+		if(end-start > settings.maxStringLength)
+			throw new JsonParseException(JsonParseException.Type.LIMIT_EXCEEDED, start, "string longer than "+settings.maxStringLength+" characters");
+	}
+	
+	private static int skipWhitespace(String json, int index, boolean strict)
+	{
+		return strict ? StrictParser.skipWhitespace(json, index) : ParserUtil.nextNonWhitespace(json, index);
+	}
+	
+	private static char charAt(String json, int index) throws JsonParseException
+	{
+		if(index >= json.length())
+			throw new JsonParseException(JsonParseException.Type.BAD_END, index);
+		return json.charAt(index);
+	}
+}
@@ -0,0 +1,216 @@
+package net.enigmablade.jsonic;
+
+import java.util.*;
+import net.enigmablade.jsonic.ValueUtil.*;
+
+/**
+ * <p>An arena that parsed objects, arrays and values are taken from and recycled back into.</p>
+ * <p>Everything parsed with an arena belongs to it until the arena is reset,
+ * at which point all of it is freed at once and reused by the following parses.
+ * Objects and arrays keep their backing maps and lists, so once an arena has seen a few documents
+ * the parsing of similar documents allocates little more than the strings and numbers in them.</p>
+ * <p>This is meant for request-scoped parsing where the parsed tree is thrown away at the end of the request:</p>
+ * <pre>
+ * JsonObject request = arena.parseObject(json);
+ * handle(request);
+ * arena.reset();
+ * </pre>
+ * <p>Elements and values from an arena must not be used or kept after the arena is reset,
+ * as they'll be reused for other documents. Copy anything that needs to outlive the reset,
+ * for example with {@link JsonObject#JsonObject(JsonObject)}.
+ * Delayed elements that are parsed after the reset are taken from the arena's next generation.</p>
+ * <p>An arena isn't thread-safe and should be owned by a single thread, such as one per request worker.</p>
+ * 
+ * @author Enigma
+ */
+public class JsonArena
+{
+	private final ParserSettings settings;
+	
+	//Pooled nodes, those before the counts are in use
+	private final List<JsonObject> objects = new ArrayList<>();
+	private final List<JsonArray> arrays = new ArrayList<>();
+	private final List<Value> values = new ArrayList<>();
+	private int objectCount, arrayCount, valueCount;
+	
+	/**
+	 * Creates a new arena for non-delayed parsing.
+	 */
+	public JsonArena()
+	{
+		this(ParserSettings.DEFAULT);
+	}
+	
+	/**
+	 * Creates a new arena that parses using the options of the given parser, including its limits, strict mode and schema.
+	 * With limits set, objects and arrays are created by the limited parser instead of being reused, while values still are.
+	 * Later changes to the parser don't affect the arena.
+	 * @param parser The parser to take the options from
+	 */
+	public JsonArena(JsonParser parser)
+	{
+		this(parser.getSettings());
+	}
+	
+	/**
+	 * Creates a new arena that parses using a copy of the given settings.
+	 * @param settings The parser settings
+	 */
+	protected JsonArena(ParserSettings settings)
+	{
+		this.settings = settings.copy();
+		this.settings.arena = this;
+		this.settings.interner = null;
+	}
+	
+	/*******************
+	 * Parsing methods *
+	 *******************/
+	
+	/**
+	 * Parses the given JSON using nodes from the arena.
+	 * @param json The JSON
+	 * @return A generic JSON element, or <code>null</code> if a JSON object or array was not given.
+	 * @throws JsonParseException if an exception occurred during parsing
+	 */
+	public JsonElement parse(String json) throws JsonParseException
+	{
+		return JsonParser.parse(json, settings);
+	}
+	
+	/**
+	 * Parses the given JSON as an object using nodes from the arena.
+	 * @param json The JSON
+	 * @return A JSON object
+	 * @throws JsonParseException if the JSON string doesn't represent an object, or an exception occurred during parsing
+	 */
+	public JsonObject parseObject(String json) throws JsonParseException
+	{
+		if(json == null)
+			throw new IllegalArgumentException("JSON string cannot be null");
+		return JsonParser.parseObject(json, settings);
+	}
+	
+	/**
+	 * Parses the given JSON as an array using nodes from the arena.
+	 * @param json The JSON
+	 * @return A JSON array
+	 * @throws JsonParseException if the JSON string doesn't represent an array, or an exception occurred during parsing
+	 */
+	public JsonArray parseArray(String json) throws JsonParseException
+	{
+		if(json == null)
+			throw new IllegalArgumentException("JSON string cannot be null");
+		return JsonParser.parseArray(json, settings);
+	}
+	
+	/**********************
+	 * Allocation methods *
+	 **********************/
+	
+	/**
+	 * Frees everything parsed since the last reset so it can be reused.
+	 * Nothing taken from the arena before the reset may be used afterwards.
+	 */
+	public void reset()
+	{
+		objectCount = 0;
+		arrayCount = 0;
+		valueCount = 0;
+	}
+	
+	/**
+	 * Frees everything and drops all pooled nodes, releasing their memory.
+	 * Nothing taken from the arena before the call may be used afterwards.
+	 */
+	public void clear()
+	{
+		reset();
+		objects.clear();
+		arrays.clear();
+		values.clear();
+	}
+	
+	/**
+	 * Returns the number of objects, arrays and values held by the arena, whether they're in use or free.
+	 * @return The number of pooled nodes
+	 */
+	public int getPooledCount()
+	{
+		return objects.size()+arrays.size()+values.size();
+	}
+	
+	/**
+	 * Returns the number of objects, arrays and values in use since the last reset.
+	 * @return The number of nodes in use
+	 */
+	public int getUsedCount()
+	{
+		return objectCount+arrayCount+valueCount;
+	}
+	
+	/**
+	 * Returns an object parsed from the string, reusing a free object if there is one.
+	 * @param json The JSON
+	 * @param startIndex The index of the opening brace
+	 * @param settings The parser settings
+	 * @return The object
+	 * @throws JsonParseException if there was an error when parsing the object
+	 */
+	protected JsonObject createObject(String json, int startIndex, ParserSettings settings) throws JsonParseException
+	{
+		//Claimed before parsing so nested objects don't take the same one
+		JsonObject object;
+		if(objectCount < objects.size())
+			object = objects.get(objectCount);
+		else
+			objects.add(object = new JsonObject());
+		objectCount++;
+		
+		object.init(json, startIndex, settings);
+		return object;
+	}
+	
+	/**
+	 * Returns an array parsed from the string, reusing a free array if there is one.
+	 * @param json The JSON
+	 * @param startIndex The index of the opening bracket
+	 * @param settings The parser settings
+	 * @return The array
+	 * @throws JsonParseException if there was an error when parsing the array
+	 */
+	protected JsonArray createArray(String json, int startIndex, ParserSettings settings) throws JsonParseException
+	{
+		JsonArray array;
+		if(arrayCount < arrays.size())
+			array = arrays.get(arrayCount);
+		else
+			arrays.add(array = new JsonArray());
+		arrayCount++;
+		
+		array.init(json, startIndex, settings);
+		return array;
+	}
+	
+	/**
+	 * Returns a value, reusing a free value if there is one.
+	 * @param type The value type
+	 * @param value The value
+	 * @return The value
+	 */
+	protected Value createValue(ValueType type, Object value)
+	{
+		if(valueCount < values.size())
+		{
+			Value v = values.get(valueCount++);
+			v.type = type;
+			v.value = value;
+			return v;
+		}
+		
+		Value v = new Value(type, value);
+		values.add(v);
+		valueCount = values.size();
+		return v;
+	}
+}
@@ -1,5 +1,6 @@
 package net.enigmablade.jsonic;
 
+import java.math.*;
 import java.util.*;
 import java.util.function.*;
 import net.enigmablade.jsonic.ValueUtil.*;
@@ -71,7 +72,29 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 	 */
 	protected JsonArray(String arrayStr, int startIndex, boolean delayed) throws JsonParseException
 	{
-		super(arrayStr, startIndex, delayed, ParserUtil.ARRAY_OPEN, ParserUtil.ARRAY_CLOSE);
+		this(arrayStr, startIndex, ParserSettings.get(delayed));
+	}
+	
+	/**
+	 * Creates a new JsonArray and parses the string immediately if not delayed.
+	 * @param arrayStr The string to parse
+	 * @param startIndex The starting index of the element in the string
+	 * @param settings The parser settings
+	 * @throws JsonParseException if there was an error when parsing the string
+	 */
+	protected JsonArray(String arrayStr, int startIndex, ParserSettings settings) throws JsonParseException
+	{
+		super(arrayStr, startIndex, settings, ParserUtil.ARRAY_OPEN, ParserUtil.ARRAY_CLOSE);
+	}
+	
+	/**
+	 * Creates a new JsonArray whose decoding from a binary format is delayed until it's used.
+	 * @param decoder The decoder holding the binary data
+	 * @param offset The offset of the array in the binary data
+	 */
+	protected JsonArray(BinaryDecoder decoder, int offset)
+	{
+		super(decoder, offset, ParserUtil.ARRAY_OPEN, ParserUtil.ARRAY_CLOSE);
 	}
 	
 	/*******************
@@ -86,22 +109,35 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 		values = new ArrayList<>(initialCapacity);
 	}
 	
+	/**
+	 * Empties the array before parsing, keeping the existing list if the array is being reused.
+	 */
+	private void prepare()
+	{
+		if(values == null)
+			setup(INITIAL_CAPACITY);
+		else
+			values.clear();
+	}
+	
 	/**
 	 * Parses the string that represents this object.
 	 * @param json The string
 	 * @param startIndex The starting index of the element in the string
-	 * @param delayed Whether or not the parsing was delayed
+	 * @param settings The parser settings
 	 * @throws JsonParseException if there was an error when parsing the string
 	 */
 	@Override
-	protected int parse(String json, int startIndex, boolean delayed) throws JsonParseException
+	protected int parse(String json, int startIndex, ParserSettings settings) throws JsonParseException
 	{
 		//Verify all required data structures exist
-		setup(INITIAL_CAPACITY);
+		prepare();
+		if(settings.strict)
+			return StrictParser.parseArray(json, startIndex, settings, values);
 		
 		//Verify what is being parsed is indeed an array
-		if(json.charAt(startIndex) != ParserUtil.ARRAY_OPEN)
-			throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, 0);
+		if(ParserUtil.charAt(json, startIndex) != ParserUtil.ARRAY_OPEN)
+			throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, startIndex);
 		
 		int index = startIndex+1;
 		boolean seenElement = false;
@@ -111,14 +147,14 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 			index = ParserUtil.nextNonWhitespace(json, index);
 			
 			//Get information on the value type
-			char startChar = json.charAt(index);
+			char startChar = ParserUtil.charAt(json, index);
 			
 			//Make sure it's an allowable character
 			//--Separation point (','), skip to start of next element
 			if(startChar == ParserUtil.SPLIT)
 			{
 				index = ParserUtil.nextNonWhitespace(json, index+1);
-				startChar = json.charAt(index);
+				startChar = ParserUtil.charAt(json, index);
 			}
 			//--End of array (']'), stop parsing
 			else if(startChar == ParserUtil.ARRAY_CLOSE)
@@ -139,15 +175,15 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 				//String
 				case ParserUtil.STRING_1:
 				case ParserUtil.STRING_2:
-					String str = ParserUtil.getStringBlock(json, index);
-					value = ValueUtil.createValue(str);
-					index += str.length()+2;
+					int end = ParserUtil.getStringBlockEnd(json, index);
+					value = ParserUtil.getStringValue(json, index, end, settings);
+					index = end+1;
 					break;
 				
 				//Object
 				case ParserUtil.OBJECT_OPEN:
-					JsonObject object = new JsonObject(json, index, delayed);
-					value = ValueUtil.createValue(object);
+					JsonObject object = ParserUtil.createObject(json, index, settings);
+					value = ParserUtil.createValue(ValueType.OBJECT, object, settings);
 					if((len = object.getRawLength()) < 2)
 						throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, index);
 					index += len;
@@ -158,8 +194,8 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 				
 				//Array
 				case ParserUtil.ARRAY_OPEN:
-					JsonArray array = new JsonArray(json, index, delayed);
-					value = ValueUtil.createValue(array);
+					JsonArray array = ParserUtil.createArray(json, index, settings);
+					value = ParserUtil.createValue(ValueType.ARRAY, array, settings);
 					if((len = array.getRawLength()) < 2)
 						throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, index);
 					index += len;
@@ -167,9 +203,9 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 				
 				//Unknown: boolean, number, or null
 				default:
-					String valueStr = ParserUtil.getUnknownBlock(json, index);
-					value = ParserUtil.parseUnknown(valueStr);
-					index += valueStr.length();
+					int valueEnd = ParserUtil.getUnknownBlockEnd(json, index);
+					value = ParserUtil.getUnknownValue(json, index, valueEnd, settings);
+					index = valueEnd;
 			}
 			
 			//Add the value
@@ -179,12 +215,26 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 		}while(index < json.length()-1);
 		
 		//Check the very last character to make sure the object was closed
-		if(json.charAt(index) != ParserUtil.ARRAY_CLOSE)
+		if(ParserUtil.charAt(json, index) != ParserUtil.ARRAY_CLOSE)
 			throw new JsonParseException(JsonParseException.Type.BAD_END, index);
 		
 		return index-startIndex+1;
 	}
 	
+	/**
+	 * Decodes the binary representation of this array.
+	 * @param decoder The decoder holding the binary data
+	 * @param offset The offset of the array in the binary data
+	 * @throws JsonParseException if there was an error when decoding
+	 */
+	@Override
+	protected void decode(BinaryDecoder decoder, int offset) throws JsonParseException
+	{
+		prepare();
+		decoder.decodeArray(offset, values);
+		decoder.decodeNested(values);
+	}
+	
 	/********************
 	 * Accessor methods *
 	 ********************/
@@ -207,8 +257,9 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 	 */
 	public void add(Object value)
 	{
-		verifyParseState();
+		verifyMutable();
 		values.add(ValueUtil.createValue(value));
+		invalidate();
 	}
 	
 	/**
@@ -219,8 +270,9 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 	 */
 	public void add(JsonObject value)
 	{
-		verifyParseState();
+		verifyMutable();
 		values.add(ValueUtil.createValue(value));
+		invalidate();
 	}
 	
 	/**
@@ -231,8 +283,9 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 	 */
 	public void add(JsonArray value)
 	{
-		verifyParseState();
+		verifyMutable();
 		values.add(ValueUtil.createValue(value));
+		invalidate();
 	}
 	
 	/**
@@ -243,8 +296,9 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 	 */
 	public void add(String value)
 	{
-		verifyParseState();
+		verifyMutable();
 		values.add(ValueUtil.createValue(value));
+		invalidate();
 	}
 	
 	/**
@@ -255,8 +309,9 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 	 */
 	public void add(long value)
 	{
-		verifyParseState();
+		verifyMutable();
 		values.add(ValueUtil.createValue(value));
+		invalidate();
 	}
 	
 	/**
@@ -267,8 +322,9 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 	 */
 	public void add(int value)
 	{
-		verifyParseState();
+		verifyMutable();
 		values.add(ValueUtil.createValue(value));
+		invalidate();
 	}
 	
 	/**
@@ -279,8 +335,9 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 	 */
 	public void add(double value)
 	{
-		verifyParseState();
+		verifyMutable();
 		values.add(ValueUtil.createValue(value));
+		invalidate();
 	}
 	
 	/**
@@ -291,8 +348,35 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 	 */
 	public void add(float value)
 	{
-		verifyParseState();
+		verifyMutable();
+		values.add(ValueUtil.createValue(value));
+		invalidate();
+	}
+	
+	/**
+	 * Adds a value to the array, parsing the array if required.<br>
+	 * This method is for convenience and a <i>slight</i> speed gain.
+	 * @param value The BigInteger to add
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public void add(BigInteger value)
+	{
+		verifyMutable();
+		values.add(ValueUtil.createValue(value));
+		invalidate();
+	}
+	
+	/**
+	 * Adds a value to the array, parsing the array if required.<br>
+	 * This method is for convenience and a <i>slight</i> speed gain.
+	 * @param value The BigDecimal to add
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public void add(BigDecimal value)
+	{
+		verifyMutable();
 		values.add(ValueUtil.createValue(value));
+		invalidate();
 	}
 	
 	/**
@@ -303,8 +387,9 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 	 */
 	public void add(boolean value)
 	{
-		verifyParseState();
+		verifyMutable();
 		values.add(ValueUtil.createValue(value));
+		invalidate();
 	}
 	
 	/**
@@ -320,7 +405,7 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 		Value value = values.get(index);
 		if(value == null)
 			return null;
-		return value.value;
+		return value.get();
 	}
 	
 	/**
@@ -377,7 +462,7 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 			return null;
 		if(value.type != ValueType.STRING)
 			throw new JsonTypeException(value.value.getClass(), String.class);
-		return (String)value.value;
+		return (String)value.get();
 	}
 	
 	/**
@@ -396,7 +481,7 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 			return null;
 		if(value.type != ValueType.LONG)
 			throw new JsonTypeException(value.value.getClass(), Long.class);
-		return (Long)value.value;
+		return (Long)value.get();
 	}
 	
 	/**
@@ -431,7 +516,7 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 			return null;
 		if(value.type != ValueType.DOUBLE)
 			throw new JsonTypeException(value.value.getClass(), Double.class);
-		return (Double)value.value;
+		return (Double)value.get();
 	}
 	
 	/**
@@ -450,6 +535,40 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 		return d.floatValue();
 	}
 	
+	/**
+	 * Returns the value at the specified index in the array.<br>
+	 * This method is for convenience. Longs are also returned as BigIntegers.
+	 * @param index The index in the array
+	 * @return The BigInteger value
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public BigInteger getBigInteger(int index)
+	{
+		verifyParseState();
+		
+		Value value = values.get(index);
+		if(value == null || value.value == null)
+			return null;
+		return ValueUtil.toBigInteger(value);
+	}
+	
+	/**
+	 * Returns the value at the specified index in the array.<br>
+	 * This method is for convenience. All finite numbers are also returned as BigDecimals.
+	 * @param index The index in the array
+	 * @return The BigDecimal value
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public BigDecimal getBigDecimal(int index)
+	{
+		verifyParseState();
+		
+		Value value = values.get(index);
+		if(value == null || value.value == null)
+			return null;
+		return ValueUtil.toBigDecimal(value);
+	}
+	
 	/**
 	 * Returns the value at the specified index in the array.<br>
 	 * This method is for convenience.
@@ -478,8 +597,10 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 	 */
 	public Object remove(int index)
 	{
-		verifyParseState();
-		return values.remove(index);
+		verifyMutable();
+		Value removed = values.remove(index);
+		changed(removed);
+		return removed;
 	}
 	
 	/**
@@ -487,7 +608,12 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 	 */
 	public void clear()
 	{
+		verifyMutable();
+		for(Value value : values)
+			if(value != null && value.value instanceof JsonElement)
+				((JsonElement)value.value).detach(this);
 		values.clear();
+		invalidate();
 	}
 	
 	/**
@@ -500,32 +626,61 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 		return new JsonIterator(this);
 	}
 	
+	/**
+	 * Returns the value wrappers stored by this array, parsing it if required.
+	 * Changes to the returned collection are reflected in this array, and must be followed by {@link #changed(Object)}.
+	 * @return The values
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	protected List<Value> getValues()
+	{
+		verifyParseState();
+		return values;
+	}
+	
+	/**
+	 * Returns the value wrappers stored by this array, parsing it if required.
+	 * @return The values
+	 * @throws JsonException if an exception occurred during parsing
+	 * @see JsonElement#freeze()
+	 */
+	@Override
+	protected Collection<Value> getContents()
+	{
+		verifyParseState();
+		return values;
+	}
+	
 	/**************************
 	 * Object to JSON methods *
 	 **************************/
 	
 	/**
-	 * Returns this array and its contents in JSON format.
-	 * @return The JSON formatted array
+	 * Appends this array and its contents in JSON format.
+	 * @param json The builder to append to
+	 * @param output The array the whole JSON is stored in once it's written
+	 * @return <code>true</code> if the JSON can be cached, otherwise <code>false</code>
 	 */
 	@Override
-	protected String toJSON()
+	protected boolean toJSON(StringBuilder json, String[] output)
 	{
-		StringBuilder json = new StringBuilder();
 		json.append(ParserUtil.ARRAY_OPEN);
+		boolean cacheable = true;
 		for(int n = 0; n < values.size(); n++)
 		{
+			if(n > 0)
+				json.append(ParserUtil.SPLIT);
+			
 			Value value = values.get(n);
 			if(value == null)
 				json.append("null");
+			else if(value.value instanceof JsonElement)
+				cacheable &= ((JsonElement)value.value).appendJSON(json, this, output);
 			else
 				json.append(value.toString());
-			
-			if(n < values.size()-1)
-				json.append(ParserUtil.SPLIT);
 		}
 		json.append(ParserUtil.ARRAY_CLOSE);
-		return json.toString();
+		return cacheable;
 	}
 	
 	/********************
@@ -533,35 +688,22 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 	 ********************/
 	
 	/**
-	 * Checks whether this array and and its contents are equal.
-	 * If parsing is delayed, uses the same method as in JsonElement.
-	 * 
-	 * @param o The array to check against.
-	 * @return <code>true</code> if the two arrays are equal, otherwise <code>false</code>.
-	 * 
-	 * @see JsonElement#equals(Object)
-	 */
-	@Override
-	public boolean equals(Object o)
-	{
-		if(o == null || !(o instanceof JsonArray))
-			return false;
-		
-		JsonArray a = (JsonArray)o;
-		return values.equals(a.values);
-	}
-	
-	/**
-	 * Returns the hash code of this JSON array using the method defined in List.
-	 * 
-	 * @returns This object's hash code.
-	 * 
+	 * Returns the hash code of the values of this array using the method defined in List.
+	 * @return The hash code, with any flags from @link #hashValue(ValueUtil.Value) set
 	 * @see List#hashCode()
 	 */
 	@Override
-	public int hashCode()
+	protected long hashContents()
 	{
-		return values.hashCode();
+		long flags = 0;
+		int hash = 1;
+		for(Value value : values)
+		{
+			long valueHash = hashValue(value);
+			flags |= valueHash;
+			hash = 31*hash + (int)valueHash;
+		}
+		return (flags & ~0xffffffffL) | (hash & 0xffffffffL);
 	}
 	
 	/**
@@ -580,13 +722,13 @@ public class JsonArray extends JsonElement implements Iterable<Object>, Cloneabl
 		newArray.values = (ArrayList<Value>)values.clone();
 		return newArray;
 	}
-
+	
 	@Override
 	public void forEach(Consumer<? super Object> c)
 	{
 		values.forEach(c);
 	}
-
+	
 	@Override
 	public Spliterator<Object> spliterator()
 	{
@@ -0,0 +1,602 @@
+package net.enigmablade.jsonic;
+
+import java.io.*;
+import java.math.*;
+import java.util.*;
+import net.enigmablade.jsonic.ValueUtil.*;
+
+/**
+ * <p>Reads and writes elements in the CBOR format (RFC 8949).</p>
+ * <p>Objects and arrays read from CBOR are decoded as they're used, the same as delayed parsing.
+ * Values without a JSON equivalent are converted when read: byte strings become base64 strings,
+ * undefined becomes null, non-string keys are converted to strings, and unknown tags are ignored.</p>
+ * 
+ * @author Enigma
+ */
+public class JsonCbor
+{
+	//Major types
+	private static final int UNSIGNED = 0, NEGATIVE = 1, BYTES = 2, TEXT = 3, ARRAY = 4, MAP = 5, TAG = 6, SIMPLE = 7;
+	
+	//Additional information
+	private static final int ONE_BYTE = 24, TWO_BYTES = 25, FOUR_BYTES = 26, EIGHT_BYTES = 27, INDEFINITE = 31;
+	
+	//Simple values
+	private static final int FALSE = 0xF4, TRUE = 0xF5, NULL = 0xF6, UNDEFINED = 0xF7;
+	private static final int HALF = 0xF9, FLOAT = 0xFA, DOUBLE = 0xFB, BREAK = 0xFF;
+	
+	//Tags
+	private static final int POSITIVE_BIGNUM = 2, NEGATIVE_BIGNUM = 3, DECIMAL_FRACTION = 4;
+	
+	/*****************
+	 * Write methods *
+	 *****************/
+	
+	/**
+	 * Writes the element to the stream.
+	 * @param element The element
+	 * @param out The output stream
+	 * @throws IOException if the stream couldn't be written to
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public static void writeTo(JsonElement element, OutputStream out) throws IOException
+	{
+		out.write(toBytes(element));
+	}
+	
+	/**
+	 * Returns the CBOR encoding of the element.
+	 * @param element The element
+	 * @return The encoded element
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public static byte[] toBytes(JsonElement element)
+	{
+		if(element == null)
+			throw new IllegalArgumentException("The element cannot be null");
+		
+		BinaryOutput out = new BinaryOutput();
+		writeElement(out, element);
+		return out.toByteArray();
+	}
+	
+	private static void writeElement(BinaryOutput out, JsonElement element)
+	{
+		if(element instanceof JsonObject)
+		{
+			Map<String, Value> values = ((JsonObject)element).getValues();
+			writeHeader(out, MAP, values.size());
+			for(Map.Entry<String, Value> entry : values.entrySet())
+			{
+				writeText(out, entry.getKey());
+				writeValue(out, entry.getValue());
+			}
+		}
+		else
+		{
+			List<Value> values = ((JsonArray)element).getValues();
+			writeHeader(out, ARRAY, values.size());
+			for(Value value : values)
+				writeValue(out, value);
+		}
+	}
+	
+	private static void writeValue(BinaryOutput out, Value value)
+	{
+		if(value == null)
+		{
+			out.write(NULL);
+			return;
+		}
+		
+		switch(value.type)
+		{
+			case OBJECT:
+			case ARRAY:
+				writeElement(out, (JsonElement)value.value);
+				break;
+			
+			case STRING:
+				writeText(out, (String)value.get());
+				break;
+			
+			case LONG:
+				writeLong(out, ((Number)value.get()).longValue());
+				break;
+			
+			case DOUBLE:
+				double d = ((Number)value.get()).doubleValue();
+				if((float)d == d || Double.isNaN(d))
+				{
+					out.write(FLOAT);
+					out.writeInt(Float.floatToIntBits((float)d));
+				}
+				else
+				{
+					out.write(DOUBLE);
+					out.writeLong(Double.doubleToLongBits(d));
+				}
+				break;
+			
+			case BIG_INTEGER:
+				writeBigInteger(out, (BigInteger)value.get());
+				break;
+			
+			case BIG_DECIMAL:
+				BigDecimal decimal = (BigDecimal)value.get();
+				writeHeader(out, TAG, DECIMAL_FRACTION);
+				writeHeader(out, ARRAY, 2);
+				writeLong(out, -(long)decimal.scale());
+				writeBigInteger(out, decimal.unscaledValue());
+				break;
+			
+			case BOOLEAN:
+				out.write((Boolean)value.value ? TRUE : FALSE);
+				break;
+			
+			default:
+				out.write(NULL);
+		}
+	}
+	
+	private static void writeLong(BinaryOutput out, long l)
+	{
+		if(l >= 0)
+			writeHeader(out, UNSIGNED, l);
+		else
+			writeHeader(out, NEGATIVE, -1-l);
+	}
+	
+	private static void writeBigInteger(BinaryOutput out, BigInteger i)
+	{
+		if(i.bitLength() < 64)
+		{
+			writeLong(out, i.longValue());
+			return;
+		}
+		
+		boolean negative = i.signum() < 0;
+		byte[] bytes = (negative ? i.not() : i).toByteArray();
+		int start = bytes[0] == 0 ? 1 : 0;
+		
+		writeHeader(out, TAG, negative ? NEGATIVE_BIGNUM : POSITIVE_BIGNUM);
+		writeHeader(out, BYTES, bytes.length-start);
+		out.write(bytes, start, bytes.length-start);
+	}
+	
+	private static void writeText(BinaryOutput out, String str)
+	{
+		byte[] bytes = str.getBytes(BinaryOutput.UTF_8);
+		writeHeader(out, TEXT, bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+	
+	/**
+	 * Writes the initial byte and argument, with the argument treated as unsigned.
+	 */
+	private static void writeHeader(BinaryOutput out, int major, long argument)
+	{
+		major <<= 5;
+		if(argument >= 0 && argument < ONE_BYTE)
+		{
+			out.write(major | (int)argument);
+		}
+		else if(argument >= 0 && argument <= 0xFF)
+		{
+			out.write(major | ONE_BYTE);
+			out.write((int)argument);
+		}
+		else if(argument >= 0 && argument <= 0xFFFF)
+		{
+			out.write(major | TWO_BYTES);
+			out.writeShort((int)argument);
+		}
+		else if(argument >= 0 && argument <= 0xFFFFFFFFL)
+		{
+			out.write(major | FOUR_BYTES);
+			out.writeInt((int)argument);
+		}
+		else
+		{
+			out.write(major | EIGHT_BYTES);
+			out.writeLong(argument);
+		}
+	}
+	
+	/****************
+	 * Read methods *
+	 ****************/
+	
+	/**
+	 * Reads a CBOR object or array from the stream, which is read until the end of the stream is reached.
+	 * The contents of the element are decoded as they're used.
+	 * @param in The input stream
+	 * @return The element
+	 * @throws IOException if the stream couldn't be read from
+	 * @throws JsonParseException if the data is invalid or isn't an object or array
+	 */
+	public static JsonElement readFrom(InputStream in) throws IOException
+	{
+		return fromBytes(BinaryDecoder.readAll(in));
+	}
+	
+	/**
+	 * Reads a CBOR object or array, decoding the contents of the element as they're used.
+	 * The data must not be modified afterwards.
+	 * @param data The CBOR data
+	 * @return The element
+	 * @throws JsonParseException if the data is invalid or isn't an object or array
+	 */
+	public static JsonElement fromBytes(byte[] data)
+	{
+		return fromBytes(data, true);
+	}
+	
+	/**
+	 * Reads a CBOR object or array.
+	 * @param data The CBOR data
+	 * @param delayed Whether or not decoding of the contents is delayed until they're used
+	 * @return The element
+	 * @throws JsonParseException if the data is invalid or isn't an object or array
+	 */
+	public static JsonElement fromBytes(byte[] data, boolean delayed)
+	{
+		JsonElement element = new Decoder(data, delayed).getRootElement();
+		if(element == null)
+			throw new JsonParseException(JsonParseException.Type.BAD_START, 0);
+		return element;
+	}
+	
+	/**
+	 * Decodes CBOR data.
+	 */
+	private static class Decoder extends BinaryDecoder
+	{
+		//Position of the last read
+		private int position;
+		
+		public Decoder(byte[] data, boolean delayed)
+		{
+			super(data, delayed);
+		}
+		
+		@Override
+		protected int getRoot()
+		{
+			return skipTags(0);
+		}
+		
+		@Override
+		protected char getOpeningChar(int offset)
+		{
+			if(offset >= data.length)
+				return 0;
+			
+			switch((data[offset] & 0xFF) >>> 5)
+			{
+				case MAP: return ParserUtil.OBJECT_OPEN;
+				case ARRAY: return ParserUtil.ARRAY_OPEN;
+				default: return 0;
+			}
+		}
+		
+		@Override
+		protected synchronized void decodeObject(int offset, Map<String, Value> values)
+		{
+			position = offset;
+			long count = readHeader(MAP);
+			for(long n = 0; count < 0 ? !readBreak() : n < count; n++)
+			{
+				Value key = readValue();
+				values.put(key.type == ValueType.STRING ? (String)key.value : String.valueOf(key.get()), readValue());
+			}
+		}
+		
+		@Override
+		protected synchronized void decodeArray(int offset, List<Value> values)
+		{
+			position = offset;
+			long count = readHeader(ARRAY);
+			for(long n = 0; count < 0 ? !readBreak() : n < count; n++)
+				values.add(readValue());
+		}
+		
+		private Value readValue()
+		{
+			position = skipTags(position);
+			check(1);
+			int offset = position;
+			int initial = data[position] & 0xFF;
+			switch(initial >>> 5)
+			{
+				case UNSIGNED:
+					long u = readArgument();
+					return u >= 0 ? ValueUtil.createValue(u) : ValueUtil.createValue(unsigned(u));
+				
+				case NEGATIVE:
+					long n = readArgument();
+					return n >= 0 ? ValueUtil.createValue(-1-n) : ValueUtil.createValue(unsigned(n).not());
+				
+				case BYTES:
+					return ValueUtil.createValue(Base64.getEncoder().encodeToString(readBlock(BYTES)));
+				
+				case TEXT:
+					return ValueUtil.createValue(new String(readBlock(TEXT), BinaryOutput.UTF_8));
+				
+				//Skip over nested elements, they're decoded when used
+				case MAP:
+				case ARRAY:
+					position = skip(position);
+					return createElementValue(offset);
+				
+				case TAG:
+					return readTagged();
+				
+				default:
+					return readSimple();
+			}
+		}
+		
+		/**
+		 * Reads the tags that have JSON equivalents, any others would have been skipped.
+		 */
+		private Value readTagged()
+		{
+			long tag = readArgument();
+			check(1);
+			
+			if(tag == POSITIVE_BIGNUM || tag == NEGATIVE_BIGNUM)
+			{
+				BigInteger i = new BigInteger(1, readBlock(BYTES));
+				return ValueUtil.createValue(tag == POSITIVE_BIGNUM ? i : i.not());
+			}
+			
+			//Decimal fraction: [exponent, mantissa]
+			if(readHeader(ARRAY) != 2)
+				throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, position);
+			int start = position;
+			Value exponent = readValue();
+			Value mantissa = readValue();
+			
+			//The exponent has to be an integer that fits the scale, and the mantissa any integer
+			if(exponent.type != ValueType.LONG || mantissa.type != ValueType.LONG && mantissa.type != ValueType.BIG_INTEGER)
+				throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, start);
+			long e = ((Number)exponent.get()).longValue();
+			if(e < -Integer.MAX_VALUE || e > -(long)Integer.MIN_VALUE)
+				throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, start);
+			BigInteger unscaled = mantissa.type == ValueType.BIG_INTEGER ? (BigInteger)mantissa.get() : BigInteger.valueOf(((Number)mantissa.get()).longValue());
+			return ValueUtil.createValue(new BigDecimal(unscaled, (int)-e));
+		}
+		
+		private Value readSimple()
+		{
+			int initial = data[position++] & 0xFF;
+			switch(initial)
+			{
+				case FALSE: return ValueUtil.createValue(false);
+				case TRUE: return ValueUtil.createValue(true);
+				case NULL:
+				case UNDEFINED: return ValueUtil.createNullValue();
+				
+				case HALF:
+					check(2);
+					int half = ((data[position] & 0xFF) << 8) | (data[position+1] & 0xFF);
+					position += 2;
+					return ValueUtil.createValue(halfToDouble(half));
+				case FLOAT:
+					check(4);
+					position -= 1;
+					return ValueUtil.createValue((double)Float.intBitsToFloat((int)readArgument()));
+				case DOUBLE:
+					check(8);
+					position -= 1;
+					return ValueUtil.createValue(Double.longBitsToDouble(readArgument()));
+				
+				default:
+					throw new JsonParseException(JsonParseException.Type.UNKNOWN_VALUE_TYPE, position-1, initial);
+			}
+		}
+		
+		//Structure
+		
+		/**
+		 * Returns the offset of the value after any tags that don't have JSON equivalents.
+		 */
+		private int skipTags(int offset)
+		{
+			int saved = position;
+			position = offset;
+			while(position < data.length && (data[position] & 0xFF) >>> 5 == TAG)
+			{
+				int start = position;
+				long tag = readArgument();
+				if(tag == POSITIVE_BIGNUM || tag == NEGATIVE_BIGNUM || tag == DECIMAL_FRACTION)
+				{
+					position = start;
+					break;
+				}
+			}
+			offset = position;
+			position = saved;
+			return offset;
+		}
+		
+		/**
+		 * Returns the offset after the value at the given offset without decoding it.
+		 * Nested items are skipped without recursion, keeping the number of items left in each open container.
+		 */
+		private int skip(int offset)
+		{
+			position = offset;
+			
+			//Items left in each open array, map or indefinite length string, or -1 if it ends with a break
+			long[] left = new long[8];
+			int depth = 0;
+			left[0] = 1;
+			while(depth >= 0)
+			{
+				if(left[depth] == 0 || left[depth] < 0 && readBreak())
+				{
+					depth--;
+					continue;
+				}
+				if(left[depth] > 0)
+					left[depth]--;
+				
+				//Tags belong to the item after them
+				check(1);
+				while((data[position] & 0xFF) >>> 5 == TAG)
+				{
+					readArgument();
+					check(1);
+				}
+				
+				int major = (data[position] & 0xFF) >>> 5;
+				long count;
+				switch(major)
+				{
+					case UNSIGNED:
+					case NEGATIVE:
+						readArgument();
+						continue;
+					
+					case BYTES:
+					case TEXT:
+						count = readLength();
+						if(count < 0)
+							break;
+						check(count);
+						position += (int)count;
+						continue;
+					
+					case ARRAY:
+					case MAP:
+						count = readLength();
+						if(count > 0 && major == MAP)
+							count *= 2;
+						break;
+					
+					default:
+						int initial = data[position] & 0xFF;
+						if(initial == BREAK || (initial & 0x1F) == INDEFINITE)
+							throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, position);
+						readArgument();
+						continue;
+				}
+				
+				if(++depth > MAX_DEPTH)
+					throw new JsonParseException(JsonParseException.Type.LIMIT_EXCEEDED, position, "nesting deeper than "+MAX_DEPTH);
+				if(depth == left.length)
+					left = Arrays.copyOf(left, depth*2);
+				left[depth] = count;
+			}
+			return position;
+		}
+		
+		//Primitive reads
+		
+		private void check(long length)
+		{
+			if(position+length > data.length || length < 0)
+				throw new JsonParseException(JsonParseException.Type.BAD_END, position);
+		}
+		
+		/**
+		 * Reads the argument of the initial byte at the current position.
+		 * @return The argument, which should be treated as unsigned
+		 */
+		private long readArgument()
+		{
+			check(1);
+			int info = data[position++] & 0x1F;
+			if(info < ONE_BYTE)
+				return info;
+			if(info > EIGHT_BYTES)
+				throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, position-1);
+			
+			int length = 1 << (info-ONE_BYTE);
+			check(length);
+			long argument = 0;
+			for(int n = 0; n < length; n++)
+				argument = (argument << 8) | (data[position++] & 0xFF);
+			return argument;
+		}
+		
+		/**
+		 * Reads the length or count of the initial byte at the current position.
+		 * @return The length, or -1 for an indefinite length
+		 */
+		private long readLength()
+		{
+			check(1);
+			if((data[position] & 0x1F) == INDEFINITE)
+			{
+				position++;
+				return -1;
+			}
+			
+			long length = readArgument();
+			if(length < 0 || length > Integer.MAX_VALUE)
+				throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, position);
+			return length;
+		}
+		
+		private long readHeader(int major)
+		{
+			check(1);
+			if((data[position] & 0xFF) >>> 5 != major)
+				throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, position);
+			return readLength();
+		}
+		
+		private boolean readBreak()
+		{
+			check(1);
+			if((data[position] & 0xFF) != BREAK)
+				return false;
+			position++;
+			return true;
+		}
+		
+		/**
+		 * Reads a byte or text string, joining the chunks of indefinite length strings.
+		 */
+		private byte[] readBlock(int major)
+		{
+			long length = readHeader(major);
+			if(length >= 0)
+			{
+				check(length);
+				byte[] bytes = Arrays.copyOfRange(data, position, position+(int)length);
+				position += (int)length;
+				return bytes;
+			}
+			
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			while(!readBreak())
+			{
+				byte[] chunk = readBlock(major);
+				bytes.write(chunk, 0, chunk.length);
+			}
+			return bytes.toByteArray();
+		}
+		
+		private BigInteger unsigned(long l)
+		{
+			return BigInteger.valueOf(l >>> 1).shiftLeft(1).or(BigInteger.valueOf(l & 1));
+		}
+		
+		private static double halfToDouble(int half)
+		{
+			int exponent = (half >>> 10) & 0x1F, mantissa = half & 0x3FF;
+			double value;
+			if(exponent == 0)
+				value = mantissa * Math.pow(2, -24);
+			else if(exponent == 31)
+				value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+			else
+				value = (mantissa + 1024) * Math.pow(2, exponent-25);
+			return (half & 0x8000) != 0 ? -value : value;
+		}
+	}
+}
@@ -0,0 +1,231 @@
+package net.enigmablade.jsonic;
+
+import java.util.*;
+import net.enigmablade.jsonic.ValueUtil.*;
+
+/**
+ * <p>Computes the differences between two elements as a JSON Patch (RFC 6902).</p>
+ * <pre>
+ * JsonPatch patch = JsonDiff.diff(oldDocument, newDocument);
+ * patch.apply(copyOfOldDocument);
+ * </pre>
+ * <p>Subtrees that are known to be identical are skipped without being compared, which is the case for the same
+ * element in both documents, delayed elements with identical strings, and elements with identical cached JSON.
+ * Delayed elements that are skipped are never parsed.</p>
+ * <p>Arrays have their common start and end trimmed, and the rest is compared with a longest common subsequence
+ * so insertions and removals produce single operations. Very long arrays that don't fit within the comparison limit
+ * are compared by position instead, which is still a correct patch but not always the smallest.</p>
+ * 
+ * @author Enigma
+ */
+public class JsonDiff
+{
+	/**
+	 * The largest number of element pairs compared when diffing the changed part of two arrays.
+	 */
+	protected static final int MAX_ARRAY_COMPARISONS = 1 << 20;
+	
+	private final JsonArray operations = new JsonArray();
+	private final StringBuilder path = new StringBuilder();
+	
+	private JsonDiff()
+	{
+	}
+	
+	/**
+	 * Returns a patch that changes the source element into the target element.
+	 * @param source The original element
+	 * @param target The changed element
+	 * @return The patch, which is empty if the elements are equal
+	 * @throws JsonException if an exception occurred during parsing
+	 * @throws IllegalArgumentException if either element is <code>null</code>
+	 */
+	public static JsonPatch diff(JsonElement source, JsonElement target)
+	{
+		if(source == null || target == null)
+			throw new IllegalArgumentException("Elements cannot be null");
+		
+		JsonDiff diff = new JsonDiff();
+		diff.diff(toValue(source), toValue(target));
+		return new JsonPatch(diff.operations);
+	}
+	
+	/***********
+	 * Diffing *
+	 ***********/
+	
+	private void diff(Value source, Value target)
+	{
+		if(isSame(source, target))
+			return;
+		
+		if(source.type == ValueType.OBJECT && target.type == ValueType.OBJECT)
+			diffObjects((JsonObject)source.value, (JsonObject)target.value);
+		else if(source.type == ValueType.ARRAY && target.type == ValueType.ARRAY)
+			diffArrays((JsonArray)source.value, (JsonArray)target.value);
+		else if(!ValueUtil.deepEquals(source, target))
+			addOperation("replace", target);
+	}
+	
+	private void diffObjects(JsonObject source, JsonObject target)
+	{
+		Map<String, Value> sourceValues = source.getValues(), targetValues = target.getValues();
+		int length = path.length();
+		
+		for(Map.Entry<String, Value> entry : sourceValues.entrySet())
+		{
+			JsonPatch.appendToken(path, entry.getKey());
+			if(targetValues.containsKey(entry.getKey()))
+				diff(nonNull(entry.getValue()), nonNull(targetValues.get(entry.getKey())));
+			else
+				addOperation("remove", null);
+			path.setLength(length);
+		}
+		
+		for(Map.Entry<String, Value> entry : targetValues.entrySet())
+		{
+			if(!sourceValues.containsKey(entry.getKey()))
+			{
+				JsonPatch.appendToken(path, entry.getKey());
+				addOperation("add", nonNull(entry.getValue()));
+				path.setLength(length);
+			}
+		}
+	}
+	
+	private void diffArrays(JsonArray sourceArray, JsonArray targetArray)
+	{
+		List<Value> source = sourceArray.getValues(), target = targetArray.getValues();
+		int sourceEnd = source.size(), targetEnd = target.size();
+		
+		//Common start and end
+		int start = 0;
+		while(start < sourceEnd && start < targetEnd && isEqual(source.get(start), target.get(start)))
+			start++;
+		while(sourceEnd > start && targetEnd > start && isEqual(source.get(sourceEnd-1), target.get(targetEnd-1)))
+		{
+			sourceEnd--;
+			targetEnd--;
+		}
+		
+		int n = sourceEnd-start, m = targetEnd-start;
+		if((long)n*m <= MAX_ARRAY_COMPARISONS)
+			diffSubsequence(source, target, start, n, m);
+		else
+			diffPositions(source, target, start, n, m);
+	}
+	
+	/**
+	 * Diffs the changed part of two arrays using their longest common subsequence.
+	 */
+	private void diffSubsequence(List<Value> source, List<Value> target, int start, int n, int m)
+	{
+		//Length of the longest common subsequence of the remaining elements
+		int[][] lengths = new int[n+1][m+1];
+		for(int i = n-1; i >= 0; i--)
+			for(int j = m-1; j >= 0; j--)
+				lengths[i][j] = isEqual(source.get(start+i), target.get(start+j)) ? lengths[i+1][j+1]+1 : Math.max(lengths[i+1][j], lengths[i][j+1]);
+		
+		//Index in the array as it's being patched
+		int index = start;
+		int i = 0, j = 0;
+		while(i < n || j < m)
+		{
+			if(i < n && j < m && isEqual(source.get(start+i), target.get(start+j)))
+			{
+				i++;
+				j++;
+				index++;
+			}
+			//Changed in place
+			else if(i < n && j < m && lengths[i][j] == lengths[i+1][j+1])
+			{
+				diffIndex(index++, source.get(start+i++), target.get(start+j++));
+			}
+			else if(j < m && (i == n || lengths[i][j+1] >= lengths[i+1][j]))
+			{
+				addIndexOperation(index++, "add", target.get(start+j++));
+			}
+			else
+			{
+				addIndexOperation(index, "remove", null);
+				i++;
+			}
+		}
+	}
+	
+	/**
+	 * Diffs the changed part of two arrays position by position.
+	 */
+	private void diffPositions(List<Value> source, List<Value> target, int start, int n, int m)
+	{
+		int common = Math.min(n, m);
+		for(int i = 0; i < common; i++)
+			diffIndex(start+i, source.get(start+i), target.get(start+i));
+		for(int i = common; i < m; i++)
+			addIndexOperation(start+i, "add", target.get(start+i));
+		for(int i = common; i < n; i++)
+			addIndexOperation(start+common, "remove", null);
+	}
+	
+	private void diffIndex(int index, Value source, Value target)
+	{
+		int length = path.length();
+		path.append('/').append(index);
+		diff(nonNull(source), nonNull(target));
+		path.setLength(length);
+	}
+	
+	/**************
+	 * Operations *
+	 **************/
+	
+	private void addIndexOperation(int index, String op, Value value)
+	{
+		int length = path.length();
+		path.append('/').append(index);
+		addOperation(op, value);
+		path.setLength(length);
+	}
+	
+	private void addOperation(String op, Value value)
+	{
+		JsonObject operation = new JsonObject();
+		operation.put("op", op);
+		operation.put("path", path.toString());
+		if(value != null)
+			operation.getValues().put("value", ValueUtil.copyValue(nonNull(value)));
+		operations.getValues().add(ValueUtil.createValue(operation));
+	}
+	
+	/***********
+	 * Helpers *
+	 ***********/
+	
+	/**
+	 * Returns whether or not the values are known to be identical without comparing their contents.
+	 */
+	private static boolean isSame(Value source, Value target)
+	{
+		if(source.value instanceof JsonElement && target.value instanceof JsonElement)
+			return ((JsonElement)source.value).isSameJSON((JsonElement)target.value);
+		return source == target;
+	}
+	
+	private static boolean isEqual(Value source, Value target)
+	{
+		source = nonNull(source);
+		target = nonNull(target);
+		return isSame(source, target) || ValueUtil.deepEquals(source, target);
+	}
+	
+	private static Value nonNull(Value value)
+	{
+		return value == null ? ValueUtil.createNullValue() : value;
+	}
+	
+	private static Value toValue(JsonElement element)
+	{
+		return new Value(element instanceof JsonObject ? ValueType.OBJECT : ValueType.ARRAY, element);
+	}
+}
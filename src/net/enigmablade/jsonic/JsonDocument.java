@@ -0,0 +1,858 @@
+package net.enigmablade.jsonic;
+
+import java.nio.*;
+import java.util.*;
+import net.enigmablade.jsonic.ValueUtil.*;
+
+/**
+ * <p>A read-only parsed document stored as a flat table of nodes instead of a tree of objects.</p>
+ * <p>Every value in the document, including nested objects and arrays, is a node identified by its index.
+ * Nodes are stored in document order, so the first child of an object or array is the node right after it,
+ * and each node links to its parent and next sibling. Strings and keys are kept as offsets into the JSON and
+ * only decoded when read, and numbers, booleans and nulls are stored directly without boxing.</p>
+ * <p>Documents are navigated through {@link JsonNode} views, which have the same accessors as objects and arrays:</p>
+ * <pre>
+ * JsonDocument doc = JsonDocument.parse(json);
+ * JsonNode root = doc.getRoot();
+ * String name = root.getString("name");
+ * for(JsonNode tag : root.getArray("tags"))
+ * 	...
+ * </pre>
+ * <p>Looking up a key scans the members of the object, so it's best suited to traversing documents rather than
+ * repeated random access into large objects. Documents are immutable and can be read from multiple threads.</p>
+ * <p>Documents can also be stored off-heap in direct memory with {@link #parseOffHeap(String)} or {@link #toOffHeap()},
+ * which keeps large, long-lived documents out of the garbage collector's view at the cost of decoding strings
+ * from UTF-8 when they're read.</p>
+ * 
+ * @author Enigma
+ */
+public abstract class JsonDocument
+{
+	/**
+	 * The index of the root node.
+	 */
+	protected static final int ROOT = 0;
+	
+	/**
+	 * Used for missing nodes and links.
+	 */
+	protected static final int NONE = -1;
+	
+	/**
+	 * The value types by ordinal, for storage that keeps types as numbers.
+	 */
+	protected static final ValueType[] TYPES = ValueType.values();
+	
+	/******************
+	 * Public methods *
+	 ******************/
+	
+	/**
+	 * Parses the given JSON into a document.
+	 * @param json The JSON
+	 * @return The document
+	 * @throws JsonParseException if the JSON isn't an object or array, or an exception occurred during parsing
+	 */
+	public static JsonDocument parse(String json) throws JsonParseException
+	{
+		if(json == null)
+			throw new IllegalArgumentException("JSON string cannot be null");
+		return new HeapDocument(json);
+	}
+	
+	/**
+	 * Parses the given JSON into a document stored off-heap.
+	 * The JSON is parsed on the heap first, then copied into direct memory.
+	 * @param json The JSON
+	 * @return The off-heap document
+	 * @throws JsonParseException if the JSON isn't an object or array, or an exception occurred during parsing
+	 * @throws IllegalArgumentException if the document is too large to store in direct buffers
+	 * @see #toOffHeap()
+	 */
+	public static JsonDocument parseOffHeap(String json) throws JsonParseException
+	{
+		return parse(json).toOffHeap();
+	}
+	
+	/**
+	 * Returns a copy of this document stored off-heap in direct memory, or this document if it already is.
+	 * The memory is released when the returned document is garbage collected.
+	 * @return The off-heap document
+	 * @throws IllegalArgumentException if the document is too large to store in direct buffers
+	 */
+	public JsonDocument toOffHeap()
+	{
+		return new DirectDocument(this);
+	}
+	
+	/**
+	 * Returns whether or not the document is stored off-heap.
+	 * @return <code>true</code> if the document is in direct memory, otherwise <code>false</code>
+	 */
+	public boolean isOffHeap()
+	{
+		return false;
+	}
+	
+	/**
+	 * Returns the root object or array of the document.
+	 * @return The root node
+	 */
+	public JsonNode getRoot()
+	{
+		return new JsonNode(this, ROOT);
+	}
+	
+	/**
+	 * Returns the number of nodes in the document, which is the number of values including the root.
+	 * @return The number of nodes
+	 */
+	public int getNodeCount()
+	{
+		return getCount();
+	}
+	
+	/**
+	 * Returns the document in JSON format.
+	 * @return The JSON formatted document
+	 */
+	@Override
+	public String toString()
+	{
+		return getRoot().toString();
+	}
+	
+	/******************
+	 * Node accessors *
+	 ******************/
+	
+	/**
+	 * Returns the number of nodes.
+	 * @return The number of nodes
+	 */
+	protected abstract int getCount();
+	
+	/**
+	 * Returns the type of the node.
+	 * @param node The node index
+	 * @return The type
+	 */
+	protected abstract ValueType getType(int node);
+	
+	/**
+	 * Returns the object or array containing the node.
+	 * @param node The node index
+	 * @return The parent node, or {@link #NONE} for the root
+	 */
+	protected abstract int getParent(int node);
+	
+	/**
+	 * Returns the next node in the same object or array.
+	 * @param node The node index
+	 * @return The next sibling, or {@link #NONE} for the last node
+	 */
+	protected abstract int getNextSibling(int node);
+	
+	/**
+	 * Returns the number of values in an object or array node.
+	 * @param node The node index
+	 * @return The number of children, or 0 if the node isn't an object or array
+	 */
+	protected abstract int getSize(int node);
+	
+	/**
+	 * Returns the numeric payload of the node: the value of LONG nodes, the bits of DOUBLE nodes,
+	 * and 1 or 0 for BOOLEAN nodes.
+	 * @param node The node index
+	 * @return The payload
+	 */
+	protected abstract long getPayload(int node);
+	
+	/**
+	 * Returns the decoded value of a STRING node.
+	 * @param node The node index
+	 * @return The string
+	 */
+	protected abstract String getString(int node);
+	
+	/**
+	 * Returns the raw text of a BIG_INTEGER or BIG_DECIMAL node.
+	 * @param node The node index
+	 * @return The number as it appeared in the JSON
+	 */
+	protected abstract String getNumberText(int node);
+	
+	/**
+	 * Returns the decoded key of an object member.
+	 * @param node The node index
+	 * @return The key, or <code>null</code> if the node isn't in an object
+	 */
+	protected abstract String getKey(int node);
+	
+	/**
+	 * Returns whether or not the key of an object member is equal to the given key, without decoding it if possible.
+	 * @param node The node index
+	 * @param key The key
+	 * @return <code>true</code> if the keys are equal, otherwise <code>false</code>
+	 */
+	protected boolean isKey(int node, String key)
+	{
+		return key.equals(getKey(node));
+	}
+	
+	/************************
+	 * Navigation utilities *
+	 ************************/
+	
+	/**
+	 * Returns the first value in an object or array node.
+	 * @param node The node index
+	 * @return The first child, or {@link #NONE} if the node is empty or isn't an object or array
+	 */
+	protected int getFirstChild(int node)
+	{
+		return getSize(node) > 0 ? node+1 : NONE;
+	}
+	
+	/**
+	 * Returns the member of an object node with the given key.
+	 * If the key appears more than once the last member is returned, the same as when parsing into an object.
+	 * @param node The object node index
+	 * @param key The key
+	 * @return The member node, or {@link #NONE} if there isn't one
+	 */
+	protected int findMember(int node, String key)
+	{
+		int found = NONE;
+		for(int child = getFirstChild(node); child != NONE; child = getNextSibling(child))
+			if(isKey(child, key))
+				found = child;
+		return found;
+	}
+	
+	/**
+	 * Returns the value in an array node at the given index.
+	 * @param node The array node index
+	 * @param index The index in the array
+	 * @return The child node
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	protected int getElement(int node, int index)
+	{
+		if(index < 0 || index >= getSize(node))
+			throw new IndexOutOfBoundsException("Index: "+index+", Size: "+getSize(node));
+		
+		int child = getFirstChild(node);
+		for(int n = 0; n < index; n++)
+			child = getNextSibling(child);
+		return child;
+	}
+	
+	/**
+	 * Returns the value of the node, with objects and arrays as nodes.
+	 * @param node The node index
+	 * @return The value
+	 */
+	protected Value getValue(int node)
+	{
+		ValueType type = getType(node);
+		switch(type)
+		{
+			case OBJECT:
+			case ARRAY: return new Value(type, new JsonNode(this, node));
+			case STRING: return new Value(type, getString(node));
+			case LONG: return new Value(type, getPayload(node));
+			case DOUBLE: return new Value(type, Double.longBitsToDouble(getPayload(node)));
+			case BOOLEAN: return new Value(type, getPayload(node) != 0);
+			case BIG_INTEGER:
+			case BIG_DECIMAL: return ParserUtil.parseNumber(getNumberText(node));
+			default: return ValueUtil.createNullValue();
+		}
+	}
+	
+	/**
+	 * Appends the node in JSON format.
+	 * @param node The node index
+	 * @param json The builder to append to
+	 */
+	protected void appendJSON(int node, StringBuilder json)
+	{
+		ValueType type = getType(node);
+		switch(type)
+		{
+			case OBJECT:
+			case ARRAY:
+				boolean object = type == ValueType.OBJECT;
+				json.append(object ? ParserUtil.OBJECT_OPEN : ParserUtil.ARRAY_OPEN);
+				for(int child = getFirstChild(node); child != NONE; child = getNextSibling(child))
+				{
+					if(child != node+1)
+						json.append(ParserUtil.SPLIT);
+					if(object)
+					{
+						ParserUtil.appendString(json, getKey(child));
+						json.append(ParserUtil.OBJECT_MAP);
+					}
+					appendJSON(child, json);
+				}
+				json.append(object ? ParserUtil.OBJECT_CLOSE : ParserUtil.ARRAY_CLOSE);
+				break;
+			
+			case BIG_INTEGER:
+			case BIG_DECIMAL:
+				json.append(getValue(node).value);
+				break;
+			
+			default:
+				json.append(getValue(node));
+		}
+	}
+	
+	/****************
+	 * Heap storage *
+	 ****************/
+	
+	/**
+	 * A document whose nodes are stored in arrays on the heap, with strings kept as offsets into the JSON.
+	 */
+	private static class HeapDocument extends JsonDocument
+	{
+		private static final int INITIAL_CAPACITY = 16;
+		
+		private final String source;
+		private int count;
+		
+		//Node table, with the payloads of numbers and booleans split across the starts and ends they don't need
+		private byte[] types;
+		private int[] parents, nexts, sizes;
+		private int[] starts, ends;
+		private int[] keyStarts, keyEnds;
+		
+		//Last child added to each open container, by depth
+		private int[] lastChildren = new int[INITIAL_CAPACITY];
+		
+		public HeapDocument(String json) throws JsonParseException
+		{
+			source = json;
+			allocate(Math.max(INITIAL_CAPACITY, json.length()/8));
+			try
+			{
+				parse();
+			}
+			catch(JsonParseException e)
+			{
+				throw e.setInput(json);
+			}
+			lastChildren = null;
+			
+			//Don't keep the room left over from doubling the capacity
+			if(count < types.length)
+				allocate(count);
+		}
+		
+		//Parsing
+		
+		private void parse() throws JsonParseException
+		{
+			String s = source;
+			int len = s.length();
+			int i = ParserUtil.nextNonWhitespace(s, 0);
+			if(i >= len || (s.charAt(i) != ParserUtil.OBJECT_OPEN && s.charAt(i) != ParserUtil.ARRAY_OPEN))
+				throw new JsonParseException(JsonParseException.Type.BAD_START, i);
+			
+			//The current container and whether a value was just read in it
+			int current = NONE, depth = 0;
+			boolean afterValue = false;
+			int keyStart = NONE, keyEnd = NONE;
+			
+			do
+			{
+				if(current != NONE)
+				{
+					i = nextToken(s, i);
+					char c = s.charAt(i);
+					boolean object = types[current] == ValueType.OBJECT.ordinal();
+					
+					//End of the container
+					if(c == (object ? ParserUtil.OBJECT_CLOSE : ParserUtil.ARRAY_CLOSE))
+					{
+						ends[current] = ++i;
+						current = parents[current];
+						depth--;
+						afterValue = true;
+						continue;
+					}
+					
+					//Separator
+					if(afterValue)
+					{
+						if(c != ParserUtil.SPLIT)
+							throw new JsonParseException(JsonParseException.Type.INVALID_CHAR, i, c);
+						i = nextToken(s, i+1);
+						c = s.charAt(i);
+					}
+					
+					//Key
+					if(object)
+					{
+						if(ParserUtil.isStringChar(c))
+						{
+							keyEnd = ParserUtil.getStringBlockEnd(s, i);
+							keyStart = i+1;
+							i = keyEnd+1;
+						}
+						else
+						{
+							keyEnd = ParserUtil.getUnknownBlockEnd(s, i);
+							if(keyEnd == i)
+								throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, i);
+							keyStart = i;
+							i = keyEnd;
+						}
+						
+						i = nextToken(s, i);
+						if(s.charAt(i) != ParserUtil.OBJECT_MAP)
+							throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, i);
+						i = nextToken(s, i+1);
+					}
+				}
+				
+				//Value
+				char c = s.charAt(i);
+				int node;
+				switch(c)
+				{
+					case ParserUtil.STRING_1:
+					case ParserUtil.STRING_2:
+						int end = ParserUtil.getStringBlockEnd(s, i);
+						node = add(ValueType.STRING, current, depth, keyStart, keyEnd, i+1, end);
+						i = end+1;
+						afterValue = true;
+						break;
+					
+					case ParserUtil.OBJECT_OPEN:
+					case ParserUtil.ARRAY_OPEN:
+						node = add(c == ParserUtil.OBJECT_OPEN ? ValueType.OBJECT : ValueType.ARRAY, current, depth, keyStart, keyEnd, i, NONE);
+						current = node;
+						if(++depth == lastChildren.length)
+							lastChildren = Arrays.copyOf(lastChildren, depth*2);
+						lastChildren[depth] = NONE;
+						i++;
+						afterValue = false;
+						break;
+					
+					case ParserUtil.OBJECT_CLOSE:
+					case ParserUtil.ARRAY_CLOSE:
+					case ParserUtil.OBJECT_MAP:
+					case ParserUtil.SPLIT:
+						throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, i);
+					
+					default:
+						end = ParserUtil.getUnknownBlockEnd(s, i);
+						node = add(ValueType.NULL, current, depth, keyStart, keyEnd, i, end);
+						setUnknown(node, s, i, end);
+						i = end;
+						afterValue = true;
+				}
+				keyStart = keyEnd = NONE;
+			}while(current != NONE);
+		}
+		
+		/**
+		 * Returns the index of the next non-whitespace character, which must exist.
+		 */
+		private static int nextToken(String s, int i) throws JsonParseException
+		{
+			i = ParserUtil.nextNonWhitespace(s, i);
+			if(i >= s.length())
+				throw new JsonParseException(JsonParseException.Type.BAD_END, i);
+			return i;
+		}
+		
+		/**
+		 * Sets the type and payload of a boolean, null, or number node.
+		 */
+		private void setUnknown(int node, String s, int start, int end) throws JsonParseException
+		{
+			//Standard numbers don't need the block copied out
+			ValueType type = ParserUtil.getNumberType(s, start, end);
+			if(type == ValueType.LONG)
+			{
+				boolean negated = s.charAt(start) == ParserUtil.NEGATION;
+				long total = 0;
+				for(int n = negated ? start+1 : start; n < end; n++)
+					total = total*10 - (s.charAt(n)-'0');
+				setValue(node, type, negated ? total : -total);
+				return;
+			}
+			if(type == ValueType.BIG_INTEGER)
+			{
+				setValue(node, type, 0);
+				return;
+			}
+			
+			Value value;
+			try
+			{
+				value = ParserUtil.parseUnknown(s.substring(start, end));
+			}
+			catch(JsonParseException e)
+			{
+				throw e.setLocation(start);
+			}
+			switch(value.type)
+			{
+				case LONG: setValue(node, value.type, (Long)value.value); break;
+				case DOUBLE: setValue(node, value.type, Double.doubleToRawLongBits((Double)value.value)); break;
+				case BOOLEAN: setValue(node, value.type, (Boolean)value.value ? 1 : 0); break;
+				default: setValue(node, value.type, 0);
+			}
+		}
+		
+		private int add(ValueType type, int parent, int depth, int keyStart, int keyEnd, int start, int end)
+		{
+			if(count == types.length)
+				allocate(count*2);
+			
+			int node = count++;
+			types[node] = (byte)type.ordinal();
+			parents[node] = parent;
+			nexts[node] = NONE;
+			keyStarts[node] = keyStart;
+			keyEnds[node] = keyEnd;
+			starts[node] = start;
+			ends[node] = end;
+			
+			//Link into the parent
+			if(parent != NONE)
+			{
+				sizes[parent]++;
+				if(lastChildren[depth] != NONE)
+					nexts[lastChildren[depth]] = node;
+				lastChildren[depth] = node;
+			}
+			return node;
+		}
+		
+		private void setValue(int node, ValueType type, long payload)
+		{
+			types[node] = (byte)type.ordinal();
+			
+			//Big numbers keep their range to be parsed from
+			if(type != ValueType.BIG_INTEGER && type != ValueType.BIG_DECIMAL)
+			{
+				starts[node] = (int)(payload >>> 32);
+				ends[node] = (int)payload;
+			}
+		}
+		
+		private void allocate(int capacity)
+		{
+			if(types == null)
+			{
+				types = new byte[capacity];
+				parents = new int[capacity];
+				nexts = new int[capacity];
+				sizes = new int[capacity];
+				starts = new int[capacity];
+				ends = new int[capacity];
+				keyStarts = new int[capacity];
+				keyEnds = new int[capacity];
+			}
+			else
+			{
+				types = Arrays.copyOf(types, capacity);
+				parents = Arrays.copyOf(parents, capacity);
+				nexts = Arrays.copyOf(nexts, capacity);
+				sizes = Arrays.copyOf(sizes, capacity);
+				starts = Arrays.copyOf(starts, capacity);
+				ends = Arrays.copyOf(ends, capacity);
+				keyStarts = Arrays.copyOf(keyStarts, capacity);
+				keyEnds = Arrays.copyOf(keyEnds, capacity);
+			}
+		}
+		
+		//Accessors
+		
+		@Override
+		protected int getCount()
+		{
+			return count;
+		}
+		
+		@Override
+		protected ValueType getType(int node)
+		{
+			return TYPES[types[node]];
+		}
+		
+		@Override
+		protected int getParent(int node)
+		{
+			return parents[node];
+		}
+		
+		@Override
+		protected int getNextSibling(int node)
+		{
+			return nexts[node];
+		}
+		
+		@Override
+		protected int getSize(int node)
+		{
+			return sizes[node];
+		}
+		
+		@Override
+		protected long getPayload(int node)
+		{
+			return (long)starts[node] << 32 | ends[node] & 0xFFFFFFFFL;
+		}
+		
+		@Override
+		protected String getString(int node)
+		{
+			return ParserUtil.decodeString(source, starts[node], ends[node]);
+		}
+		
+		@Override
+		protected String getNumberText(int node)
+		{
+			return source.substring(starts[node], ends[node]);
+		}
+		
+		@Override
+		protected String getKey(int node)
+		{
+			if(keyStarts[node] == NONE)
+				return null;
+			return ParserUtil.decodeString(source, keyStarts[node], keyEnds[node]);
+		}
+		
+		@Override
+		protected boolean isKey(int node, String key)
+		{
+			int start = keyStarts[node], length = keyEnds[node]-start;
+			if(start == NONE)
+				return false;
+			
+			//Keys without escapes can be compared in place
+			if(ParserUtil.nextEscape(source, start, start+length) < 0)
+				return length == key.length() && source.regionMatches(start, key, 0, length);
+			return super.isKey(node, key);
+		}
+		
+		@Override
+		protected void appendJSON(int node, StringBuilder json)
+		{
+			//Strings without escapes are copied from the JSON without being decoded
+			if(types[node] == ValueType.STRING.ordinal() && ParserUtil.nextEscape(source, starts[node], ends[node]) < 0)
+				ParserUtil.appendString(json, source, starts[node], ends[node]);
+			else
+				super.appendJSON(node, json);
+		}
+	}
+	
+	/********************
+	 * Off-heap storage *
+	 ********************/
+	
+	/**
+	 * A document whose nodes are stored in a direct buffer as fixed-size records,
+	 * with strings, keys and big numbers stored after them as length-prefixed UTF-8.
+	 */
+	private static class DirectDocument extends JsonDocument
+	{
+		//Node record layout
+		private static final int TYPE = 0, PARENT = 4, NEXT = 8, SIZE = 12, TEXT = 16, KEY = 20, PAYLOAD = 24;
+		private static final int NODE_SIZE = 32;
+		
+		private static final int INITIAL_DATA_CAPACITY = 256;
+		
+		private final int count;
+		private final ByteBuffer nodes;
+		private ByteBuffer data;
+		
+		public DirectDocument(JsonDocument document)
+		{
+			count = document.getCount();
+			if((long)count*NODE_SIZE > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("Document has too many nodes to store off-heap: "+count);
+			
+			nodes = ByteBuffer.allocateDirect(count*NODE_SIZE).order(ByteOrder.nativeOrder());
+			data = ByteBuffer.allocateDirect(Math.max(INITIAL_DATA_CAPACITY, count*8)).order(ByteOrder.nativeOrder());
+			
+			//Records usually repeat the same keys, so they're only stored once
+			Map<String, Integer> keys = new HashMap<>();
+			
+			for(int node = 0; node < count; node++)
+			{
+				int record = node*NODE_SIZE;
+				ValueType type = document.getType(node);
+				nodes.put(record+TYPE, (byte)type.ordinal());
+				nodes.putInt(record+PARENT, document.getParent(node));
+				nodes.putInt(record+NEXT, document.getNextSibling(node));
+				nodes.putInt(record+SIZE, document.getSize(node));
+				
+				int text = NONE;
+				long payload = 0;
+				switch(type)
+				{
+					case STRING: text = putText(document.getString(node)); break;
+					case BIG_INTEGER:
+					case BIG_DECIMAL: text = putText(document.getNumberText(node)); break;
+					case LONG:
+					case DOUBLE:
+					case BOOLEAN: payload = document.getPayload(node); break;
+					default:
+				}
+				nodes.putInt(record+TEXT, text);
+				nodes.putLong(record+PAYLOAD, payload);
+				
+				String key = document.getKey(node);
+				int keyOffset = NONE;
+				if(key != null)
+				{
+					Integer existing = keys.get(key);
+					if(existing == null)
+						keys.put(key, keyOffset = putText(key));
+					else
+						keyOffset = existing;
+				}
+				nodes.putInt(record+KEY, keyOffset);
+			}
+			
+			//Release the unused part of the data buffer
+			if(data.position() < data.capacity())
+			{
+				data.flip();
+				data = ByteBuffer.allocateDirect(data.limit()).order(ByteOrder.nativeOrder()).put(data);
+			}
+		}
+		
+		/**
+		 * Stores a string and returns its offset.
+		 */
+		private int putText(String str)
+		{
+			byte[] bytes = str.getBytes(BinaryOutput.UTF_8);
+			
+			int required = 4+bytes.length;
+			if(data.remaining() < required)
+			{
+				long capacity = Math.max((long)data.capacity()*2, (long)data.position()+required);
+				if((long)data.position()+required > Integer.MAX_VALUE)
+					throw new IllegalArgumentException("Document has too much text to store off-heap");
+				
+				data.flip();
+				data = ByteBuffer.allocateDirect((int)Math.min(capacity, Integer.MAX_VALUE)).order(ByteOrder.nativeOrder()).put(data);
+			}
+			
+			int offset = data.position();
+			data.putInt(bytes.length).put(bytes);
+			return offset;
+		}
+		
+		/**
+		 * Reads the string at the offset.
+		 */
+		private String getText(int offset)
+		{
+			int length = data.getInt(offset);
+			byte[] bytes = new byte[length];
+			
+			//Positions aren't shared between threads, so read through a view
+			ByteBuffer view = data.duplicate();
+			view.position(offset+4);
+			view.get(bytes);
+			return new String(bytes, BinaryOutput.UTF_8);
+		}
+		
+		//Accessors
+		
+		@Override
+		public JsonDocument toOffHeap()
+		{
+			return this;
+		}
+		
+		@Override
+		public boolean isOffHeap()
+		{
+			return true;
+		}
+		
+		@Override
+		protected int getCount()
+		{
+			return count;
+		}
+		
+		@Override
+		protected ValueType getType(int node)
+		{
+			return TYPES[nodes.get(node*NODE_SIZE+TYPE)];
+		}
+		
+		@Override
+		protected int getParent(int node)
+		{
+			return nodes.getInt(node*NODE_SIZE+PARENT);
+		}
+		
+		@Override
+		protected int getNextSibling(int node)
+		{
+			return nodes.getInt(node*NODE_SIZE+NEXT);
+		}
+		
+		@Override
+		protected int getSize(int node)
+		{
+			return nodes.getInt(node*NODE_SIZE+SIZE);
+		}
+		
+		@Override
+		protected long getPayload(int node)
+		{
+			return nodes.getLong(node*NODE_SIZE+PAYLOAD);
+		}
+		
+		@Override
+		protected String getString(int node)
+		{
+			return getText(nodes.getInt(node*NODE_SIZE+TEXT));
+		}
+		
+		@Override
+		protected String getNumberText(int node)
+		{
+			return getText(nodes.getInt(node*NODE_SIZE+TEXT));
+		}
+		
+		@Override
+		protected String getKey(int node)
+		{
+			int offset = nodes.getInt(node*NODE_SIZE+KEY);
+			return offset == NONE ? null : getText(offset);
+		}
+		
+		@Override
+		protected boolean isKey(int node, String key)
+		{
+			int offset = nodes.getInt(node*NODE_SIZE+KEY);
+			if(offset == NONE)
+				return false;
+			
+			//Keys with the same number of bytes as chars can only match if they're ASCII, so they're compared without decoding
+			int length = data.getInt(offset);
+			if(length != key.length())
+				return length > key.length() && super.isKey(node, key);
+			for(int n = 0; n < length; n++)
+				if(data.get(offset+4+n) != key.charAt(n))
+					return false;
+			return true;
+		}
+	}
+}
@@ -1,25 +1,42 @@
 package net.enigmablade.jsonic;
 
 import java.io.*;
+import java.util.*;
 
 /**
  * A basic parsable JSON element for which the parsing can be delayed.
  * 
  * @author Enigma
  */
-public abstract class JsonElement implements Cloneable, Serializable
+public abstract class JsonElement implements Cloneable, Externalizable
 {
 	private static final long serialVersionUID = 8291596876632597802L;
 	
 	//Parsing info
 	private String delayedString = null;
 	private int delayedIndex = -1;
+	private ParserSettings delayedSettings = null;
+	private BinaryDecoder delayedDecoder = null;
 	
 	private char openingChar, closingChar;
 	
 	//Other info
 	private int length = -1;
 	
+	//Serialization cache, as a range of the last JSON written that contained this element
+	private static final int CACHE_THRESHOLD = 256;
+	private CachedJSON cachedJSON = null;
+	private JsonElement container = null;
+	private boolean shared = false;
+	
+	//Structural hash cache, with the hash in the lower 32 bits so it's read and written at once
+	private static final long UNCACHEABLE = 1L << 32;
+	private static final long HASHED = 1L << 33;
+	private volatile long hash = 0;
+	
+	//Sharing
+	private volatile boolean frozen = false;
+	
 	/*********************************
 	 * Constructors for JSON Creation*
 	 *********************************/
@@ -49,6 +66,8 @@ public abstract class JsonElement implements Cloneable, Serializable
 		
 		delayedString = e.delayedString;
 		delayedIndex = e.delayedIndex;
+		delayedSettings = e.delayedSettings;
+		delayedDecoder = e.delayedDecoder;
 		
 		openingChar = e.openingChar;
 		closingChar = e.closingChar;
@@ -62,56 +81,128 @@ public abstract class JsonElement implements Cloneable, Serializable
 	 * Creates a new JsonElement and parses the string immediately if not delayed.
 	 * @param str The string to parse
 	 * @param startIndex The starting index of the element in the string
-	 * @param delayed Whether or not the parsing is delayed
+	 * @param settings The parser settings
 	 * @param openChar The first char of the element
 	 * @param closingChar The last char of the element
 	 * @throws JsonParseException if there was an error when parsing the string
 	 * @throws IllegalArgumentException if the string is null
 	 */
-	protected JsonElement(String str, int startIndex, boolean delayed, char openChar, char closingChar) throws JsonParseException
+	protected JsonElement(String str, int startIndex, ParserSettings settings, char openChar, char closingChar) throws JsonParseException
+	{
+		this(openChar, closingChar);
+		init(str, startIndex, settings);
+	}
+	
+	/**
+	 * Creates a new JsonElement whose decoding from a binary format is delayed until it's used.
+	 * @param decoder The decoder holding the binary data
+	 * @param offset The offset of the element in the binary data
+	 * @param openChar The first char of the element
+	 * @param closingChar The last char of the element
+	 */
+	protected JsonElement(BinaryDecoder decoder, int offset, char openChar, char closingChar)
 	{
 		this(openChar, closingChar);
 		
+		delayedDecoder = decoder;
+		delayedIndex = offset;
+	}
+	
+	/*******************
+	 * Parsing methods *
+	 *******************/
+	
+	/**
+	 * Replaces the contents of this element by parsing the string immediately if not delayed.
+	 * Used to reuse elements instead of creating new ones.
+	 * @param str The string to parse
+	 * @param startIndex The starting index of the element in the string
+	 * @param settings The parser settings
+	 * @throws JsonParseException if there was an error when parsing the string
+	 * @throws IllegalArgumentException if the string is null
+	 * @see JsonArena
+	 */
+	protected void init(String str, int startIndex, ParserSettings settings) throws JsonParseException
+	{
 		if(str == null)
 			throw new IllegalArgumentException("The JSON string cannot be null");
 		
+		delayedDecoder = null;
+		length = -1;
+		cachedJSON = null;
+		container = null;
+		shared = false;
+		hash = 0;
+		frozen = false;
+		
 		//The parsing is delayed, so store it
-		if(delayed)
+		if(settings.delayed)
 		{
 			delayedString = str;
 			delayedIndex = startIndex;
+			delayedSettings = settings;
 		}
 		//Otherwise parse the string
 		else
 		{
-			length = parse(str, startIndex, false);
+			delayedString = null;
+			delayedIndex = -1;
+			delayedSettings = null;
+			try
+			{
+				length = parse(str, startIndex, settings);
+			}
+			catch(JsonParseException e)
+			{
+				throw e.setInput(str);
+			}
 		}
 	}
 	
-	/*******************
-	 * Parsing methods *
-	 *******************/
-	
 	/**
 	 * Parses the string that represents this object.
 	 * @param json The string
 	 * @param startIndex The starting index of the element in the string
-	 * @param delayed Whether or not the parsing was delayed
+	 * @param settings The parser settings
 	 * @throws JsonParseException if there was an error when parsing
 	 */
-	protected abstract int parse(String json, int startIndex, boolean delayed) throws JsonParseException;
+	protected abstract int parse(String json, int startIndex, ParserSettings settings) throws JsonParseException;
+	
+	/**
+	 * Decodes the binary representation of this object.
+	 * @param decoder The decoder holding the binary data
+	 * @param offset The offset of the element in the binary data
+	 * @throws JsonParseException if there was an error when decoding
+	 */
+	protected abstract void decode(BinaryDecoder decoder, int offset) throws JsonParseException;
 	
 	/**
-	 * Parses the stored delayed string representation of this object.
+	 * Parses the stored delayed string or binary representation of this object.
 	 * @throws JsonParseException if there was an error when parsing
 	 */
 	private void parseDelayed() throws JsonParseException
 	{
-		length = parse(delayedString, delayedIndex, true);
+		if(delayedDecoder != null)
+		{
+			decode(delayedDecoder, delayedIndex);
+		}
+		else
+		{
+			try
+			{
+				length = parse(delayedString, delayedIndex, delayedSettings);
+			}
+			catch(JsonParseException e)
+			{
+				throw e.setInput(delayedString);
+			}
+		}
 		
 		//Parsing no longer delayed
 		delayedString = null;
 		delayedIndex = -1;
+		delayedSettings = null;
+		delayedDecoder = null;
 	}
 	
 	/**************************
@@ -129,6 +220,16 @@ public abstract class JsonElement implements Cloneable, Serializable
 		return length;
 	}
 	
+	/**
+	 * Sets the raw length of this element, for elements that were filled in by another parser.
+	 * @param length The raw length
+	 * @see IterativeParser
+	 */
+	protected void setRawLength(int length)
+	{
+		this.length = length;
+	}
+	
 	/**
 	 * Returns the raw (character) length of the object, starting at the starting index.
 	 * @param json The JSON being checked
@@ -171,6 +272,38 @@ public abstract class JsonElement implements Cloneable, Serializable
 			parseDelayed();
 	}
 	
+	/**
+	 * Verifies this element is parsed and can be changed.
+	 * @throws JsonParseException if there was an error when parsing
+	 * @throws UnsupportedOperationException if this element is frozen
+	 * @see #freeze()
+	 */
+	protected void verifyMutable() throws JsonParseException
+	{
+		verifyParseState();
+		if(frozen)
+			throw new UnsupportedOperationException("Frozen elements cannot be changed");
+	}
+	
+	/**
+	 * Returns whether or not this element is known to have the same JSON as the given element without comparing their contents.
+	 * That's the case when both are delayed with identical strings, or both have identical cached JSON.
+	 * @param e The other element
+	 * @return <code>true</code> if the elements are known to be the same, otherwise <code>false</code>
+	 */
+	protected boolean isSameJSON(JsonElement e)
+	{
+		if(e == this)
+			return true;
+		if(delayedString != null && e.delayedString != null)
+		{
+			int length = getRawLength(), otherLength = e.getRawLength();
+			return length > 0 && length == otherLength && delayedString.regionMatches(delayedIndex, e.delayedString, e.delayedIndex, length);
+		}
+		CachedJSON cached = cachedJSON, other = e.cachedJSON;
+		return cached != null && other != null && cached.matches(other);
+	}
+	
 	/**
 	 * Returns whether or not the parsing of this object is delayed.
 	 * Once an object is parse, even after a delayed parse, it is no longer delayed.
@@ -178,7 +311,7 @@ public abstract class JsonElement implements Cloneable, Serializable
 	 */
 	public boolean isParsingDelayed()
 	{
-		return delayedString != null;
+		return delayedString != null || delayedDecoder != null;
 	}
 	
 	/**
@@ -187,7 +320,7 @@ public abstract class JsonElement implements Cloneable, Serializable
 	 */
 	protected String getDelayedString()
 	{
-		if(isParsingDelayed())
+		if(delayedString != null)
 			return delayedString.substring(delayedIndex, delayedIndex+getRawLength(delayedString, delayedIndex));
 		return null;
 	}
@@ -209,66 +342,398 @@ public abstract class JsonElement implements Cloneable, Serializable
 	
 	/**
 	 * Returns this element and its contents in JSON format.<br>
-	 * Equivalent to @link #toString().
+	 * Equivalent to @link #toString().<br>
+	 * The JSON of parsed elements is cached until they or one of their contents is changed,
+	 * so unchanged parts of a document are copied rather than written again.
 	 * @return The JSON formatted element
 	 */
 	public String getJSON()
 	{
-		if(isParsingDelayed())
+		if(delayedString != null)
 			return getDelayedString();
-		else
-			return toJSON();
+		
+		verifyParseState();
+		CachedJSON cached = cachedJSON;
+		String json = cached == null ? null : cached.get();
+		if(json == null)
+		{
+			String[] output = new String[1];
+			StringBuilder builder = new StringBuilder();
+			boolean cacheable = toJSON(builder, output);
+			json = output[0] = builder.toString();
+			if(cacheable)
+				cachedJSON = new CachedJSON(output, 0, json.length());
+		}
+		return json;
 	}
 	
 	/**
-	 * Returns this element and its contents in JSON format.<br>
+	 * Appends this element and its contents in JSON format as part of the JSON of the given container.
+	 * Large elements remember where they are in the output so they can be copied from it the next time the container is written.
+	 * Only the output is kept rather than a copy for each element, and elements copied from an older output move to the new one.
+	 * @param json The builder to append to
+	 * @param container The object or array containing this element
+	 * @param output The array the whole JSON is stored in once it's written
+	 * @return <code>true</code> if the container can cache JSON containing this element, otherwise <code>false</code>
+	 */
+	protected boolean appendJSON(StringBuilder json, JsonElement container, String[] output)
+	{
+		link(container);
+		if(delayedString != null)
+		{
+			json.append(delayedString, delayedIndex, delayedIndex+getRawLength());
+			return !shared;
+		}
+		
+		verifyParseState();
+		int start = json.length();
+		CachedJSON cached = cachedJSON;
+		if(cached != null && cached.appendTo(json))
+		{
+			cachedJSON = new CachedJSON(output, start, json.length());
+			return !shared;
+		}
+		
+		boolean cacheable = toJSON(json, output);
+		if(cacheable && json.length()-start >= CACHE_THRESHOLD)
+			cachedJSON = new CachedJSON(output, start, json.length());
+		return cacheable && !shared;
+	}
+	
+	/**
+	 * Appends this element and its contents in JSON format.<br>
 	 * To be overridden by subclasses for use in @link #getJSON() and @link #toString().
-	 * Implementations should ignore the delayed state of the element.
-	 * @return The JSON formatted element
+	 * Implementations should ignore the delayed state of the element, and append nested elements
+	 * with @link #appendJSON(StringBuilder, JsonElement, String[]).
+	 * @param json The builder to append to
+	 * @param output The array the whole JSON is stored in once it's written
+	 * @return <code>true</code> if the JSON can be cached, otherwise <code>false</code>
+	 */
+	protected abstract boolean toJSON(StringBuilder json, String[] output);
+	
+	/**
+	 * Clears the cached JSON and hash of this element and every element containing it.
+	 * Must be called whenever the contents of the element are changed.
+	 */
+	protected void invalidate()
+	{
+		for(JsonElement e = this; e != null; e = e.container)
+		{
+			e.cachedJSON = null;
+			e.hash = 0;
+		}
+	}
+	
+	/**
+	 * The range of an output string that holds the JSON of an element.
+	 * The output is only set once it's completely written, so the range is ignored until then.
+	 */
+	private static class CachedJSON
+	{
+		private final String[] output;
+		private final int start, end;
+		
+		private CachedJSON(String[] output, int start, int end)
+		{
+			this.output = output;
+			this.start = start;
+			this.end = end;
+		}
+		
+		/**
+		 * Returns the JSON, or <code>null</code> if the output hasn't been written yet.
+		 */
+		private String get()
+		{
+			String json = output[0];
+			if(json == null)
+				return null;
+			return start == 0 && end == json.length() ? json : json.substring(start, end);
+		}
+		
+		/**
+		 * Appends the JSON to the builder if the output has been written.
+		 */
+		private boolean appendTo(StringBuilder builder)
+		{
+			String json = output[0];
+			if(json == null)
+				return false;
+			builder.append(json, start, end);
+			return true;
+		}
+		
+		private boolean matches(CachedJSON other)
+		{
+			String json = output[0], otherJSON = other.output[0];
+			return json != null && otherJSON != null && end-start == other.end-other.start && json.regionMatches(start, otherJSON, other.start, end-start);
+		}
+	}
+	
+	/**
+	 * Passes changes to this element up to the given container from now on, unless this element is in more than one.
+	 * Containers can only cache information about their contents while none of them are shared.
+	 * @param container The object or array containing this element
+	 */
+	private void link(JsonElement container)
+	{
+		//Frozen elements never change, so they can be in any number of containers
+		if(frozen)
+			return;
+		if(this.container == null)
+			this.container = container;
+		else if(this.container != container)
+			shared = true;
+	}
+	
+	/**
+	 * Stops passing changes up to the given container, after this element has been removed from it.
+	 * @param container The object or array this element was removed from
 	 */
-	protected abstract String toJSON();
+	protected void detach(JsonElement container)
+	{
+		if(this.container == container)
+		{
+			this.container = null;
+			
+			//The cache refers to the container's output
+			cachedJSON = null;
+		}
+	}
+	
+	/**
+	 * Detaches the value if it's an element that was removed from this element, and clears the cached JSON.
+	 * @param removed The value that was removed or replaced, or <code>null</code> if there wasn't one
+	 */
+	protected void changed(Object removed)
+	{
+		if(removed instanceof ValueUtil.Value && ((ValueUtil.Value)removed).value instanceof JsonElement)
+			((JsonElement)((ValueUtil.Value)removed).value).detach(this);
+		invalidate();
+	}
 	
 	/********************
 	 * Object overrides *
 	 ********************/
 	
 	/**
-	 * Checks whether this element and the given element are equal.
-	 * Two elements are equal if and only if they are delayed and represented by identical delayed strings.
-	 * Other element states cannot reliably be used to determine equality.
+	 * Checks whether this element and the given element are structurally equal.
+	 * Objects are equal if they have the same keys with equal values, and arrays if they have equal values in the same order.
+	 * Delayed elements with identical strings are equal without being parsed, and elements with different cached hashes
+	 * are unequal without being compared.
 	 * 
 	 * @param o The element to check against.
 	 * @return <code>true</code> if the two elements are equal, otherwise <code>false</code>.
+	 * @throws JsonException if an exception occurred during parsing
 	 * 
-	 * @see #getDelayedString()
+	 * @see ValueUtil#deepEquals(ValueUtil.Value, ValueUtil.Value)
 	 */
 	@Override
 	public boolean equals(Object o)
 	{
+		if(o == this)
+			return true;
 		if(o == null || !(o instanceof JsonElement))
 			return false;
-		
-		JsonElement e = (JsonElement)o;
-		if(isParsingDelayed() && e.isParsingDelayed())
-			return getDelayedString().equals(e.getDelayedString());
-		return false;
+		return ValueUtil.deepEquals(ValueUtil.createValue((Object)this), ValueUtil.createValue(o));
 	}
 	
 	/**
-	 * If this element is delayed, returns the hash code of its delayed string.
-	 * Otherwise the default hash code method is used.
+	 * Returns the structural hash code of this element, which is consistent with @link #equals(Object).
+	 * The hash is cached until this element or one of its contents is changed, so hashing an unchanged element again is free.
 	 * 
 	 * @return The element's hash code.
-	 * 
-	 * @see #getDelayedString()
-	 * @see String#hashCode()
-	 * @see Object#hashCode()
+	 * @throws JsonException if an exception occurred during parsing
 	 */
 	@Override
 	public int hashCode()
 	{
-		if(isParsingDelayed())
-			return getDelayedString().hashCode();
-		return super.hashCode();
+		return (int)hash(null);
+	}
+	
+	/**
+	 * Returns the hash code of this element as part of the hash of the given container.
+	 * @param container The object or array containing this element, or <code>null</code>
+	 * @return The hash code in the lower 32 bits, with {@link #UNCACHEABLE} set if the container can't cache its hash
+	 */
+	private long hash(JsonElement container)
+	{
+		if(container != null)
+			link(container);
+		long uncacheable = container != null && shared ? UNCACHEABLE : 0;
+		long cached = hash;
+		if(cached != 0)
+			return (cached & 0xffffffffL) | uncacheable;
+		
+		verifyParseState();
+		long result = hashContents();
+		if((result & UNCACHEABLE) == 0)
+			hash = (result & 0xffffffffL) | HASHED;
+		return result | uncacheable;
+	}
+	
+	/**
+	 * Returns the hash code of the contents of this element.<br>
+	 * To be overridden by subclasses for use in @link #hashCode(), hashing nested values with @link #hashValue(ValueUtil.Value).
+	 * @return The hash code in the lower 32 bits, with any of the flags returned by @link #hashValue(ValueUtil.Value) set
+	 */
+	protected abstract long hashContents();
+	
+	/**
+	 * Returns the hash code of a value in this element.
+	 * @param value The value, or <code>null</code>
+	 * @return The hash code in the lower 32 bits, with a flag set in the upper bits if this element can't cache its hash
+	 */
+	protected long hashValue(ValueUtil.Value value)
+	{
+		if(value != null && value.value instanceof JsonElement)
+			return ((JsonElement)value.value).hash(this);
+		return ValueUtil.hashScalar(value) & 0xffffffffL;
+	}
+	
+	/**
+	 * Returns whether or not this element and the given element both have cached hashes that are different,
+	 * in which case they can't be equal.
+	 * @param e The other element
+	 * @return <code>true</code> if the elements are known to be different, otherwise <code>false</code>
+	 */
+	protected boolean isHashDifferent(JsonElement e)
+	{
+		long a = hash, b = e.hash;
+		return a != 0 && b != 0 && a != b;
+	}
+	
+	/**
+	 * Clones this element without its cached JSON and hash, since the clone shares its contents with this element.
+	 * 
+	 * @return The cloned element.
+	 * 
+	 * @see Object#clone()
+	 */
+	@Override
+	protected Object clone() throws CloneNotSupportedException
+	{
+		JsonElement e = (JsonElement)super.clone();
+		e.cachedJSON = null;
+		e.container = null;
+		e.shared = false;
+		e.hash = 0;
+		e.frozen = false;
+		return e;
+	}
+	
+	/***********
+	 * Sharing *
+	 ***********/
+	
+	/**
+	 * Makes this element and everything in it read-only, so it can be safely shared between threads.
+	 * Delayed elements are parsed first, since parsing changes them, and changing a frozen element
+	 * throws an {@link UnsupportedOperationException}.<br>
+	 * Frozen elements can still be copied and changed with @link JsonPatch#applyCopy(JsonElement),
+	 * which only copies the parts of the element that are changed.
+	 * @return This element
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public JsonElement freeze()
+	{
+		if(!frozen)
+		{
+			verifyParseState();
+			for(ValueUtil.Value value : getContents())
+				if(value != null && value.value instanceof JsonElement)
+					((JsonElement)value.value).freeze();
+			container = null;
+			shared = false;
+			frozen = true;
+		}
+		return this;
+	}
+	
+	/**
+	 * Returns whether or not this element is frozen and can't be changed.
+	 * @return <code>true</code> if this element is frozen, otherwise <code>false</code>
+	 * @see #freeze()
+	 */
+	public boolean isFrozen()
+	{
+		return frozen;
+	}
+	
+	/**
+	 * Returns the value wrappers stored by this element, parsing it if required.
+	 * To be overridden by subclasses for use in @link #freeze().
+	 * @return The values
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	protected abstract Collection<ValueUtil.Value> getContents();
+	
+	/*****************
+	 * Serialization *
+	 *****************/
+	
+	/**
+	 * Writes this element and its contents to the stream in the binary snapshot format.
+	 * @param out The output stream
+	 * @throws IOException if the stream couldn't be written to
+	 * @throws JsonException if an exception occurred during parsing
+	 * @see JsonSnapshot
+	 */
+	public void writeTo(OutputStream out) throws IOException
+	{
+		JsonSnapshot.writeTo(this, out);
+	}
+	
+	/**
+	 * Reads an element written in the binary snapshot format.
+	 * The contents of the element are decoded as they're used.
+	 * @param in The input stream, which is read until the end of the stream is reached
+	 * @return The element
+	 * @throws IOException if the stream couldn't be read from
+	 * @throws JsonParseException if the stream isn't a valid snapshot
+	 * @see JsonSnapshot
+	 */
+	public static JsonElement readFrom(InputStream in) throws IOException
+	{
+		return JsonSnapshot.readFrom(in);
+	}
+	
+	/**
+	 * Writes this element using the binary snapshot format instead of default serialization.
+	 * @param out The output
+	 * @throws IOException if the output couldn't be written to
+	 * @see JsonSnapshot
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException
+	{
+		byte[] data = JsonSnapshot.toBytes(this);
+		out.writeInt(data.length);
+		out.write(data);
+	}
+	
+	/**
+	 * Reads this element from the binary snapshot format.
+	 * The contents of the element are decoded from the snapshot as they're used.
+	 * @param in The input
+	 * @throws IOException if the input couldn't be read from
+	 * @throws JsonParseException if the snapshot is invalid or doesn't contain this type of element
+	 * @see JsonSnapshot
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException
+	{
+		byte[] data = new byte[in.readInt()];
+		in.readFully(data);
+		
+		BinaryDecoder decoder = JsonSnapshot.createDecoder(data, true);
+		int root = decoder.getRoot();
+		if(decoder.getOpeningChar(root) != openingChar)
+			throw new JsonParseException(JsonParseException.Type.BAD_START, root);
+		
+		delayedString = null;
+		delayedSettings = null;
+		delayedDecoder = decoder;
+		delayedIndex = root;
 	}
 }
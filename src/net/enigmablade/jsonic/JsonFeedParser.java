@@ -0,0 +1,344 @@
+package net.enigmablade.jsonic;
+
+import java.nio.*;
+import java.util.*;
+
+/**
+ * <p>A non-blocking parser that is fed UTF-8 input in chunks as it arrives, such as from a non-blocking channel.</p>
+ * <p>The parser keeps its state between chunks and only holds on to the bytes of the value currently being read.
+ * Once an object or array has been completely fed, it's available from {@link #next()}.
+ * Any number of values can be fed one after another, optionally separated by whitespace.</p>
+ * <p>Feeding only scans the input for the end of each value, the value itself is parsed when it's taken from the parser.
+ * The length and nesting depth limits of the parser are checked while scanning, so a value over either limit
+ * is rejected before it's buffered.</p>
+ * <p>Invalid input doesn't stop the parser: the rest of a value over a limit is skipped up to its end, as is anything
+ * between values that isn't whitespace, and the first error is thrown once the whole chunk has been read.
+ * Values before and after the error are still available, so the parser can keep being fed without a {@link #reset()}.</p>
+ * <p>A feed parser isn't thread-safe, but it doesn't block and so can be used from a single event loop thread.</p>
+ * 
+ * <pre>
+ * JsonFeedParser parser = new JsonFeedParser();
+ * while(channel.read(buffer) > 0)
+ * {
+ * 	buffer.flip();
+ * 	parser.feed(buffer);
+ * 	buffer.clear();
+ * 	while(parser.hasNext())
+ * 		handle(parser.next());
+ * }
+ * </pre>
+ * 
+ * @author Enigma
+ */
+public class JsonFeedParser
+{
+	private static final int INITIAL_BUFFER = 256, MAX_IDLE_BUFFER = 65536;
+	
+	private final ParserSettings settings;
+	
+	//Bytes of the value being read, starting at index 0
+	private byte[] buffer;
+	private int length;
+	
+	//Bytes copied out of direct buffers
+	private byte[] scratch;
+	
+	//Scanning state, with the number of characters in the value being read and whether it's over a limit
+	private int depth, chars;
+	private byte quote;
+	private boolean escaped, skipping;
+	private long position;
+	
+	//Completed values waiting to be parsed
+	private final Deque<String> completed = new ArrayDeque<>();
+	
+	/**
+	 * Creates a new non-delayed feed parser.
+	 */
+	public JsonFeedParser()
+	{
+		this(false);
+	}
+	
+	/**
+	 * Creates a new feed parser that can be delayed.
+	 * @param delayed Whether or not parsing of the values is delayed
+	 */
+	public JsonFeedParser(boolean delayed)
+	{
+		this(ParserSettings.get(delayed));
+	}
+	
+	/**
+	 * Creates a new feed parser that uses the options of the given parser.
+	 * Later changes to the parser don't affect the feed parser.
+	 * @param parser The parser to take the options from
+	 */
+	public JsonFeedParser(JsonParser parser)
+	{
+		this(parser.getSettings());
+	}
+	
+	/**
+	 * Creates a new feed parser using the given settings.
+	 * @param settings The parser settings
+	 */
+	protected JsonFeedParser(ParserSettings settings)
+	{
+		this.settings = settings;
+		buffer = new byte[INITIAL_BUFFER];
+	}
+	
+	/*****************
+	 * Input methods *
+	 *****************/
+	
+	/**
+	 * Feeds the remaining bytes in the buffer to the parser.
+	 * The buffer's position is moved to its limit, even if the input is invalid.
+	 * @param chunk The input
+	 * @throws JsonParseException if the input contains something other than objects and arrays, or a value is over a limit
+	 */
+	public void feed(ByteBuffer chunk) throws JsonParseException
+	{
+		if(chunk.hasArray())
+		{
+			int remaining = chunk.remaining();
+			chunk.position(chunk.position()+remaining);
+			feed(chunk.array(), chunk.arrayOffset()+chunk.position()-remaining, remaining);
+		}
+		else
+		{
+			if(scratch == null)
+				scratch = new byte[8192];
+			
+			JsonParseException error = null;
+			while(chunk.hasRemaining())
+			{
+				int read = Math.min(chunk.remaining(), scratch.length);
+				chunk.get(scratch, 0, read);
+				try
+				{
+					feed(scratch, 0, read);
+				}
+				catch(JsonParseException e)
+				{
+					if(error == null)
+						error = e;
+				}
+			}
+			if(error != null)
+				throw error;
+		}
+	}
+	
+	/**
+	 * Feeds the bytes to the parser.
+	 * @param bytes The input
+	 * @throws JsonParseException if the input contains something other than objects and arrays, or a value is over a limit
+	 */
+	public void feed(byte[] bytes) throws JsonParseException
+	{
+		feed(bytes, 0, bytes.length);
+	}
+	
+	/**
+	 * Feeds part of the byte array to the parser.
+	 * @param bytes The input
+	 * @param offset The index of the first byte to feed
+	 * @param count The number of bytes to feed
+	 * @throws JsonParseException if the input contains something other than objects and arrays, or a value is over a limit
+	 */
+	public void feed(byte[] bytes, int offset, int count) throws JsonParseException
+	{
+		int end = offset+count;
+		int start = depth > 0 && !skipping ? offset : -1;
+		JsonParseException error = null;
+		
+		for(int n = offset; n < end; n++, position++)
+		{
+			byte b = bytes[n];
+			
+			//Between values
+			if(depth == 0)
+			{
+				if(b == ParserUtil.OBJECT_OPEN || b == ParserUtil.ARRAY_OPEN)
+				{
+					depth = 1;
+					chars = 1;
+					start = n;
+				}
+				else if(!isSkippable(b) && error == null)
+				{
+					error = new JsonParseException(JsonParseException.Type.BAD_START, (int)Math.min(position, Integer.MAX_VALUE));
+				}
+				continue;
+			}
+			
+			//Inside a value, counting the UTF-16 characters each UTF-8 sequence decodes to
+			if(!skipping && (b & 0xC0) != 0x80)
+			{
+				chars += (b & 0xF8) == 0xF0 ? 2 : 1;
+				if(chars > settings.maxLength)
+				{
+					start = skip();
+					if(error == null)
+						error = new JsonParseException(JsonParseException.Type.LIMIT_EXCEEDED, (int)Math.min(position, Integer.MAX_VALUE), "input longer than "+settings.maxLength+" characters");
+				}
+			}
+			
+			if(quote != 0)
+			{
+				if(escaped)
+					escaped = false;
+				else if(b == ParserUtil.ESCAPE)
+					escaped = true;
+				else if(b == quote)
+					quote = 0;
+			}
+			else if(b == ParserUtil.STRING_1 || b == ParserUtil.STRING_2)
+			{
+				quote = b;
+			}
+			else if(b == ParserUtil.OBJECT_OPEN || b == ParserUtil.ARRAY_OPEN)
+			{
+				if(++depth > settings.maxDepth && !skipping)
+				{
+					start = skip();
+					if(error == null)
+						error = new JsonParseException(JsonParseException.Type.LIMIT_EXCEEDED, (int)Math.min(position, Integer.MAX_VALUE), "nesting deeper than "+settings.maxDepth);
+				}
+			}
+			else if((b == ParserUtil.OBJECT_CLOSE || b == ParserUtil.ARRAY_CLOSE) && --depth == 0)
+			{
+				//The value over a limit has been skipped
+				if(skipping)
+					skipping = false;
+				
+				//Values within a single chunk don't need to be buffered
+				else if(length == 0)
+				{
+					completed.add(new String(bytes, start, n+1-start, BinaryOutput.UTF_8));
+				}
+				else
+				{
+					append(bytes, start, n+1-start);
+					completed.add(new String(buffer, 0, length, BinaryOutput.UTF_8));
+					length = 0;
+					
+					//Don't hold on to the memory of a large value between values
+					if(buffer.length > MAX_IDLE_BUFFER)
+						buffer = new byte[INITIAL_BUFFER];
+				}
+				start = -1;
+			}
+		}
+		
+		//Keep the incomplete value for the next chunk
+		if(start >= 0)
+			append(bytes, start, end-start);
+		if(error != null)
+			throw error;
+	}
+	
+	/**
+	 * Signals that there's no more input.
+	 * @throws JsonParseException if the input ended in the middle of a value
+	 */
+	public void endOfInput() throws JsonParseException
+	{
+		if(depth > 0)
+			throw new JsonParseException(JsonParseException.Type.BAD_END, (int)Math.min(position, Integer.MAX_VALUE));
+	}
+	
+	/**
+	 * Discards any partially read value and completed values that haven't been taken yet.
+	 * The parser can then be used for new input.
+	 */
+	public void reset()
+	{
+		buffer = new byte[INITIAL_BUFFER];
+		length = 0;
+		depth = 0;
+		chars = 0;
+		quote = 0;
+		escaped = false;
+		skipping = false;
+		position = 0;
+		completed.clear();
+	}
+	
+	/******************
+	 * Output methods *
+	 ******************/
+	
+	/**
+	 * Returns whether or not a completed value is available.
+	 * @return <code>true</code> if {@link #next()} will return a value, otherwise <code>false</code>
+	 */
+	public boolean hasNext()
+	{
+		return !completed.isEmpty();
+	}
+	
+	/**
+	 * Parses and returns the next completed value.
+	 * @return The object or array
+	 * @throws NoSuchElementException if there isn't a completed value
+	 * @throws JsonParseException if an exception occurred during parsing
+	 */
+	public JsonElement next() throws JsonParseException
+	{
+		String json = completed.remove();
+		return JsonParser.parse(json, settings);
+	}
+	
+	/**
+	 * Returns whether or not the parser is in the middle of reading a value.
+	 * @return <code>true</code> if part of a value has been fed, otherwise <code>false</code>
+	 */
+	public boolean isReading()
+	{
+		return depth > 0;
+	}
+	
+	/**
+	 * Returns the number of bytes being held for the value currently being read.
+	 * @return The number of bytes
+	 */
+	public int getBufferedSize()
+	{
+		return length;
+	}
+	
+	/******************
+	 * Helper methods *
+	 ******************/
+	
+	/**
+	 * Discards the value being read, which is skipped up to its end.
+	 * @return The start of the value in the chunk, which is no longer kept
+	 */
+	private int skip()
+	{
+		skipping = true;
+		length = 0;
+		if(buffer.length > MAX_IDLE_BUFFER)
+			buffer = new byte[INITIAL_BUFFER];
+		return -1;
+	}
+	
+	private void append(byte[] bytes, int offset, int count)
+	{
+		if(length+count > buffer.length)
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length*2, length+count));
+		System.arraycopy(bytes, offset, buffer, length, count);
+		length += count;
+	}
+	
+	private static boolean isSkippable(byte b)
+	{
+		//Whitespace, and the bytes of a UTF-8 byte order mark
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == (byte)0xEF || b == (byte)0xBB || b == (byte)0xBF;
+	}
+}
@@ -0,0 +1,205 @@
+package net.enigmablade.jsonic;
+
+import java.util.*;
+import net.enigmablade.jsonic.ValueUtil.*;
+
+/**
+ * <p>Deduplicates parsed values so identical strings, keys, objects and arrays share one instance in memory.
+ * Documents made of many similar records, like reference catalogues, can take several times less memory.</p>
+ * <pre>
+ * JsonParser parser = new JsonParser();
+ * parser.setInterner(new JsonInterner());
+ * JsonObject catalogue = parser.processObject(json);
+ * </pre>
+ * <p>Identical subtrees are found bottom-up while parsing: since the contents of an object or array have already been
+ * deduplicated, two of them are identical when they hold the same instances, so they're compared without recursing.
+ * Numbers are only identical if they have the same type, so <code>1</code> and <code>1.0</code> are kept apart.</p>
+ * <p>Objects and arrays inside a deduplicated document can be shared, so they're frozen and can't be changed,
+ * while the document itself can. Lazy strings and numbers, and delayed elements, aren't deduplicated.</p>
+ * <p>An interner keeps everything it has seen, so documents parsed later share instances with earlier ones,
+ * until it's cleared. It isn't thread-safe and should only be used by one parser at a time.</p>
+ * 
+ * @author Enigma
+ */
+public class JsonInterner
+{
+	private static final Object NULL_KEY = new Object();
+	
+	private final HashMap<Object, Value> values = new HashMap<>();
+	private long duplicates = 0;
+	
+	/**
+	 * Creates a new empty interner.
+	 */
+	public JsonInterner()
+	{
+	}
+	
+	/*************
+	 * Interning *
+	 *************/
+	
+	/**
+	 * Returns the shared instance of the given string.
+	 * @param s The string
+	 * @return The shared string equal to the given string
+	 */
+	public String intern(String s)
+	{
+		return (String)intern(ValueType.STRING, s).value;
+	}
+	
+	/**
+	 * Returns the shared value wrapper for the given value, freezing objects and arrays the first time they're seen.
+	 * @param type The value type
+	 * @param value The value, whose contents must already be deduplicated if it's an object or array
+	 * @return The shared value wrapper
+	 */
+	protected Value intern(ValueType type, Object value)
+	{
+		Object key;
+		switch(type)
+		{
+			case OBJECT:
+			case ARRAY:
+				if(((JsonElement)value).isParsingDelayed())
+					return new Value(type, value);
+				key = new Shape(type, (JsonElement)value);
+				break;
+			case NULL:
+				key = NULL_KEY;
+				break;
+			default:
+				if(value instanceof LazyString || value instanceof LazyNumber)
+					return new Value(type, value);
+				key = value;
+		}
+		
+		Value canonical = values.get(key);
+		if(canonical != null)
+		{
+			duplicates++;
+			return canonical;
+		}
+		
+		if(value instanceof JsonElement)
+			((JsonElement)value).freeze();
+		canonical = new Value(type, value);
+		values.put(key, canonical);
+		return canonical;
+	}
+	
+	/**************
+	 * Statistics *
+	 **************/
+	
+	/**
+	 * Returns the number of distinct values held by the interner.
+	 * @return The number of values
+	 */
+	public int size()
+	{
+		return values.size();
+	}
+	
+	/**
+	 * Returns the number of values that were replaced by a shared instance.
+	 * @return The number of duplicates
+	 */
+	public long getDuplicateCount()
+	{
+		return duplicates;
+	}
+	
+	/**
+	 * Forgets all shared values, so documents parsed afterwards don't share instances with earlier ones.
+	 */
+	public void clear()
+	{
+		values.clear();
+		duplicates = 0;
+	}
+	
+	/***********
+	 * Helpers *
+	 ***********/
+	
+	/**
+	 * An object or array compared by the identity of its already deduplicated contents.
+	 */
+	private static class Shape
+	{
+		private final ValueType type;
+		private final JsonElement element;
+		private final int hash;
+		
+		private Shape(ValueType type, JsonElement element)
+		{
+			this.type = type;
+			this.element = element;
+			
+			int h = type.ordinal();
+			if(type == ValueType.OBJECT)
+			{
+				//Order independent, since equal objects can iterate in different orders
+				for(Map.Entry<String, Value> entry : ((JsonObject)element).getValues().entrySet())
+					h += entry.getKey().hashCode() ^ System.identityHashCode(entry.getValue());
+			}
+			else
+			{
+				for(Value value : ((JsonArray)element).getValues())
+					h = 31*h + System.identityHashCode(value);
+			}
+			hash = h;
+		}
+		
+		@Override
+		public boolean equals(Object o)
+		{
+			if(!(o instanceof Shape))
+				return false;
+			Shape s = (Shape)o;
+			if(hash != s.hash || type != s.type)
+				return false;
+			
+			if(type == ValueType.OBJECT)
+			{
+				Map<String, Value> a = ((JsonObject)element).getValues(), b = ((JsonObject)s.element).getValues();
+				if(a.size() != b.size() || a.getClass() != b.getClass())
+					return false;
+				
+				//Ordered objects also need their keys in the same order
+				if(a instanceof CompactMap)
+				{
+					Iterator<Map.Entry<String, Value>> other = b.entrySet().iterator();
+					for(Map.Entry<String, Value> entry : a.entrySet())
+					{
+						Map.Entry<String, Value> next = other.next();
+						if(!entry.getKey().equals(next.getKey()) || entry.getValue() != next.getValue())
+							return false;
+					}
+					return true;
+				}
+				
+				for(Map.Entry<String, Value> entry : a.entrySet())
+					if(b.get(entry.getKey()) != entry.getValue())
+						return false;
+				return true;
+			}
+			
+			List<Value> a = ((JsonArray)element).getValues(), b = ((JsonArray)s.element).getValues();
+			if(a.size() != b.size())
+				return false;
+			for(int n = 0; n < a.size(); n++)
+				if(a.get(n) != b.get(n))
+					return false;
+			return true;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+	}
+}
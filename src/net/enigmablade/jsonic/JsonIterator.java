@@ -1,5 +1,6 @@
 package net.enigmablade.jsonic;
 
+import java.math.*;
 import java.util.*;
 import java.util.function.*;
 
@@ -67,6 +68,16 @@ public class JsonIterator implements Iterator<Object>
 		return array.getFloat(counter++);
 	}
 	
+	public BigInteger nextBigInteger()
+	{
+		return array.getBigInteger(counter++);
+	}
+	
+	public BigDecimal nextBigDecimal()
+	{
+		return array.getBigDecimal(counter++);
+	}
+	
 	public Boolean nextBoolean()
 	{
 		return array.getBoolean(counter++);
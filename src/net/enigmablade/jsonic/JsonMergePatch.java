@@ -0,0 +1,135 @@
+package net.enigmablade.jsonic;
+
+import java.util.*;
+import net.enigmablade.jsonic.ValueUtil.*;
+
+/**
+ * <p>A JSON Merge Patch (RFC 7396) that can be applied to objects and arrays any number of times.</p>
+ * <p>Members of the patch replace the members of the target with the same keys, nested objects are merged,
+ * and <code>null</code> members remove them:</p>
+ * <pre>
+ * JsonMergePatch patch = JsonMergePatch.parse("{\"a\":{\"b\":1},\"c\":null}");
+ * patch.apply(document);
+ * </pre>
+ * <p>As with {@link JsonPatch}, only the objects the patch merges into are parsed, and applying onto a copy
+ * only copies those objects and shares everything else with the original.</p>
+ * 
+ * @author Enigma
+ */
+public class JsonMergePatch
+{
+	private final Value patch;
+	
+	/**
+	 * Creates a merge patch from the given object or array.
+	 * Patching with an array replaces the target with a copy of it.
+	 * @param patch The patch
+	 * @throws IllegalArgumentException if the patch is <code>null</code>
+	 */
+	public JsonMergePatch(JsonElement patch)
+	{
+		if(patch == null)
+			throw new IllegalArgumentException("Patch cannot be null");
+		this.patch = new Value(patch instanceof JsonObject ? ValueType.OBJECT : ValueType.ARRAY, patch);
+	}
+	
+	/**
+	 * Parses the given merge patch.
+	 * @param json The patch
+	 * @return The merge patch
+	 * @throws JsonParseException if the patch isn't a valid JSON object or array
+	 */
+	public static JsonMergePatch parse(String json)
+	{
+		return new JsonMergePatch(JsonParser.parse(json));
+	}
+	
+	/**
+	 * Returns the patch in JSON format.
+	 * @return The JSON formatted patch
+	 */
+	@Override
+	public String toString()
+	{
+		return patch.toString();
+	}
+	
+	/************
+	 * Applying *
+	 ************/
+	
+	/**
+	 * Applies the patch to the element, changing it in place.
+	 * @param target The element, or <code>null</code> to create a new one from the patch
+	 * @return The patched element, which is the target unless the patch replaced it
+	 * @throws JsonException if an exception occurred during parsing
+	 * @throws UnsupportedOperationException if an object that's merged into is frozen
+	 */
+	public JsonElement apply(JsonElement target)
+	{
+		return (JsonElement)merge(toValue(target), patch, false).value;
+	}
+	
+	/**
+	 * Applies the patch onto a copy of the element, leaving the element untouched.
+	 * Objects and arrays that the patch doesn't change are shared between the copy and the original.
+	 * @param target The element, or <code>null</code> to create a new one from the patch
+	 * @return The patched copy
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public JsonElement applyCopy(JsonElement target)
+	{
+		return (JsonElement)merge(toValue(target), patch, true).value;
+	}
+	
+	private static Value merge(Value target, Value patch, boolean copy)
+	{
+		if(patch.type != ValueType.OBJECT)
+			return ValueUtil.copyValue(patch);
+		
+		JsonObject object;
+		if(target == null || target.type != ValueType.OBJECT)
+		{
+			object = new JsonObject(((JsonObject)patch.value).isOrdered());
+		}
+		else if(copy)
+		{
+			object = new JsonObject(((JsonObject)target.value).isOrdered());
+			object.getValues().putAll(((JsonObject)target.value).getValues());
+		}
+		else
+		{
+			object = (JsonObject)target.value;
+			object.verifyMutable();
+		}
+		
+		Map<String, Value> values = object.getValues();
+		for(Map.Entry<String, Value> entry : ((JsonObject)patch.value).getValues().entrySet())
+		{
+			Value value = entry.getValue();
+			if(value == null || value.type == ValueType.NULL)
+			{
+				if(values.containsKey(entry.getKey()))
+					object.changed(values.remove(entry.getKey()));
+				continue;
+			}
+			
+			//Objects merged in place stay in the same entry
+			Value existing = values.get(entry.getKey());
+			Value merged = merge(existing, value, copy);
+			if(merged != existing)
+				object.changed(values.put(entry.getKey(), merged));
+		}
+		
+		if(target != null && target.value == object)
+			return target;
+		return ValueUtil.createValue(object);
+	}
+	
+	private static Value toValue(JsonElement element)
+	{
+		if(element == null)
+			return null;
+		return new Value(element instanceof JsonObject ? ValueType.OBJECT : ValueType.ARRAY, element);
+	}
+}
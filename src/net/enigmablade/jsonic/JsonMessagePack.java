@@ -0,0 +1,525 @@
+package net.enigmablade.jsonic;
+
+import java.io.*;
+import java.math.*;
+import java.util.*;
+import net.enigmablade.jsonic.ValueUtil.*;
+
+/**
+ * <p>Reads and writes elements in the MessagePack format.</p>
+ * <p>Objects and arrays read from MessagePack are decoded as they're used, the same as delayed parsing.
+ * Values without a JSON equivalent are converted when read: binary values become base64 strings
+ * and non-string keys are converted to strings. Extension types aren't supported.</p>
+ * <p>MessagePack has no big number types, so integers outside the range of a 64-bit integer and
+ * big decimals that can't be stored exactly as a double are written as strings.</p>
+ * 
+ * @author Enigma
+ */
+public class JsonMessagePack
+{
+	//Formats
+	private static final int NIL = 0xC0, FALSE = 0xC2, TRUE = 0xC3;
+	private static final int BIN8 = 0xC4, BIN16 = 0xC5, BIN32 = 0xC6;
+	private static final int FLOAT32 = 0xCA, FLOAT64 = 0xCB;
+	private static final int UINT8 = 0xCC, UINT16 = 0xCD, UINT32 = 0xCE, UINT64 = 0xCF;
+	private static final int INT8 = 0xD0, INT16 = 0xD1, INT32 = 0xD2, INT64 = 0xD3;
+	private static final int STR8 = 0xD9, STR16 = 0xDA, STR32 = 0xDB;
+	private static final int ARRAY16 = 0xDC, ARRAY32 = 0xDD, MAP16 = 0xDE, MAP32 = 0xDF;
+	private static final int FIXMAP = 0x80, FIXARRAY = 0x90, FIXSTR = 0xA0, NEGATIVE_FIXINT = 0xE0;
+	
+	/*****************
+	 * Write methods *
+	 *****************/
+	
+	/**
+	 * Writes the element to the stream.
+	 * @param element The element
+	 * @param out The output stream
+	 * @throws IOException if the stream couldn't be written to
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public static void writeTo(JsonElement element, OutputStream out) throws IOException
+	{
+		out.write(toBytes(element));
+	}
+	
+	/**
+	 * Returns the MessagePack encoding of the element.
+	 * @param element The element
+	 * @return The encoded element
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public static byte[] toBytes(JsonElement element)
+	{
+		if(element == null)
+			throw new IllegalArgumentException("The element cannot be null");
+		
+		BinaryOutput out = new BinaryOutput();
+		writeElement(out, element);
+		return out.toByteArray();
+	}
+	
+	private static void writeElement(BinaryOutput out, JsonElement element)
+	{
+		if(element instanceof JsonObject)
+		{
+			Map<String, Value> values = ((JsonObject)element).getValues();
+			writeHeader(out, values.size(), FIXMAP, 15, MAP16, MAP32);
+			for(Map.Entry<String, Value> entry : values.entrySet())
+			{
+				writeString(out, entry.getKey());
+				writeValue(out, entry.getValue());
+			}
+		}
+		else
+		{
+			List<Value> values = ((JsonArray)element).getValues();
+			writeHeader(out, values.size(), FIXARRAY, 15, ARRAY16, ARRAY32);
+			for(Value value : values)
+				writeValue(out, value);
+		}
+	}
+	
+	private static void writeValue(BinaryOutput out, Value value)
+	{
+		if(value == null)
+		{
+			out.write(NIL);
+			return;
+		}
+		
+		switch(value.type)
+		{
+			case OBJECT:
+			case ARRAY:
+				writeElement(out, (JsonElement)value.value);
+				break;
+			
+			case STRING:
+				writeString(out, (String)value.get());
+				break;
+			
+			case LONG:
+				writeLong(out, ((Number)value.get()).longValue());
+				break;
+			
+			case DOUBLE:
+				writeDouble(out, ((Number)value.get()).doubleValue());
+				break;
+			
+			case BIG_INTEGER:
+				BigInteger i = (BigInteger)value.get();
+				if(i.bitLength() < 64)
+				{
+					writeLong(out, i.longValue());
+				}
+				else if(i.signum() > 0 && i.bitLength() == 64)
+				{
+					out.write(UINT64);
+					out.writeLong(i.longValue());
+				}
+				else
+				{
+					writeString(out, i.toString());
+				}
+				break;
+			
+			case BIG_DECIMAL:
+				BigDecimal decimal = (BigDecimal)value.get();
+				double d = decimal.doubleValue();
+				if(!Double.isInfinite(d) && new BigDecimal(d).compareTo(decimal) == 0)
+					writeDouble(out, d);
+				else
+					writeString(out, decimal.toString());
+				break;
+			
+			case BOOLEAN:
+				out.write((Boolean)value.value ? TRUE : FALSE);
+				break;
+			
+			default:
+				out.write(NIL);
+		}
+	}
+	
+	private static void writeLong(BinaryOutput out, long l)
+	{
+		if(l >= -32 && l <= 127)
+		{
+			out.write((int)l & 0xFF);
+		}
+		else if(l >= 0)
+		{
+			if(l <= 0xFF)
+			{
+				out.write(UINT8);
+				out.write((int)l);
+			}
+			else if(l <= 0xFFFF)
+			{
+				out.write(UINT16);
+				out.writeShort((int)l);
+			}
+			else if(l <= 0xFFFFFFFFL)
+			{
+				out.write(UINT32);
+				out.writeInt((int)l);
+			}
+			else
+			{
+				out.write(UINT64);
+				out.writeLong(l);
+			}
+		}
+		else
+		{
+			if(l >= Byte.MIN_VALUE)
+			{
+				out.write(INT8);
+				out.write((int)l & 0xFF);
+			}
+			else if(l >= Short.MIN_VALUE)
+			{
+				out.write(INT16);
+				out.writeShort((int)l);
+			}
+			else if(l >= Integer.MIN_VALUE)
+			{
+				out.write(INT32);
+				out.writeInt((int)l);
+			}
+			else
+			{
+				out.write(INT64);
+				out.writeLong(l);
+			}
+		}
+	}
+	
+	private static void writeDouble(BinaryOutput out, double d)
+	{
+		if((float)d == d || Double.isNaN(d))
+		{
+			out.write(FLOAT32);
+			out.writeInt(Float.floatToIntBits((float)d));
+		}
+		else
+		{
+			out.write(FLOAT64);
+			out.writeLong(Double.doubleToLongBits(d));
+		}
+	}
+	
+	private static void writeString(BinaryOutput out, String str)
+	{
+		byte[] bytes = str.getBytes(BinaryOutput.UTF_8);
+		if(bytes.length <= 31)
+		{
+			out.write(FIXSTR | bytes.length);
+		}
+		else if(bytes.length <= 0xFF)
+		{
+			out.write(STR8);
+			out.write(bytes.length);
+		}
+		else
+		{
+			writeHeader(out, bytes.length, -1, -1, STR16, STR32);
+		}
+		out.write(bytes, 0, bytes.length);
+	}
+	
+	/**
+	 * Writes the format and size of a container or string.
+	 */
+	private static void writeHeader(BinaryOutput out, int size, int fixFormat, int fixMax, int format16, int format32)
+	{
+		if(size <= fixMax)
+		{
+			out.write(fixFormat | size);
+		}
+		else if(size <= 0xFFFF)
+		{
+			out.write(format16);
+			out.writeShort(size);
+		}
+		else
+		{
+			out.write(format32);
+			out.writeInt(size);
+		}
+	}
+	
+	/****************
+	 * Read methods *
+	 ****************/
+	
+	/**
+	 * Reads a MessagePack map or array from the stream, which is read until the end of the stream is reached.
+	 * The contents of the element are decoded as they're used.
+	 * @param in The input stream
+	 * @return The element
+	 * @throws IOException if the stream couldn't be read from
+	 * @throws JsonParseException if the data is invalid or isn't a map or array
+	 */
+	public static JsonElement readFrom(InputStream in) throws IOException
+	{
+		return fromBytes(BinaryDecoder.readAll(in));
+	}
+	
+	/**
+	 * Reads a MessagePack map or array, decoding the contents of the element as they're used.
+	 * The data must not be modified afterwards.
+	 * @param data The MessagePack data
+	 * @return The element
+	 * @throws JsonParseException if the data is invalid or isn't a map or array
+	 */
+	public static JsonElement fromBytes(byte[] data)
+	{
+		return fromBytes(data, true);
+	}
+	
+	/**
+	 * Reads a MessagePack map or array.
+	 * @param data The MessagePack data
+	 * @param delayed Whether or not decoding of the contents is delayed until they're used
+	 * @return The element
+	 * @throws JsonParseException if the data is invalid or isn't a map or array
+	 */
+	public static JsonElement fromBytes(byte[] data, boolean delayed)
+	{
+		JsonElement element = new Decoder(data, delayed).getRootElement();
+		if(element == null)
+			throw new JsonParseException(JsonParseException.Type.BAD_START, 0);
+		return element;
+	}
+	
+	/**
+	 * Decodes MessagePack data.
+	 */
+	private static class Decoder extends BinaryDecoder
+	{
+		//Position of the last read
+		private int position;
+		
+		public Decoder(byte[] data, boolean delayed)
+		{
+			super(data, delayed);
+		}
+		
+		@Override
+		protected int getRoot()
+		{
+			return 0;
+		}
+		
+		@Override
+		protected char getOpeningChar(int offset)
+		{
+			if(offset >= data.length)
+				return 0;
+			
+			int format = data[offset] & 0xFF;
+			if((format & 0xF0) == FIXMAP || format == MAP16 || format == MAP32)
+				return ParserUtil.OBJECT_OPEN;
+			if((format & 0xF0) == FIXARRAY || format == ARRAY16 || format == ARRAY32)
+				return ParserUtil.ARRAY_OPEN;
+			return 0;
+		}
+		
+		@Override
+		protected synchronized void decodeObject(int offset, Map<String, Value> values)
+		{
+			position = offset;
+			int format = readByte();
+			int count = (format & 0xF0) == FIXMAP ? format & 0x0F : readSize(format == MAP16 ? 2 : 4);
+			for(int n = 0; n < count; n++)
+			{
+				Value key = readValue();
+				values.put(key.type == ValueType.STRING ? (String)key.value : String.valueOf(key.get()), readValue());
+			}
+		}
+		
+		@Override
+		protected synchronized void decodeArray(int offset, List<Value> values)
+		{
+			position = offset;
+			int format = readByte();
+			int count = (format & 0xF0) == FIXARRAY ? format & 0x0F : readSize(format == ARRAY16 ? 2 : 4);
+			for(int n = 0; n < count; n++)
+				values.add(readValue());
+		}
+		
+		private Value readValue()
+		{
+			int offset = position;
+			int format = readByte();
+			
+			//Fixed formats
+			if(format <= 0x7F)
+				return ValueUtil.createValue((long)format);
+			if(format >= NEGATIVE_FIXINT)
+				return ValueUtil.createValue((long)(byte)format);
+			if((format & 0xE0) == FIXSTR)
+				return readString(format & 0x1F);
+			
+			switch(format)
+			{
+				case NIL: return ValueUtil.createNullValue();
+				case FALSE: return ValueUtil.createValue(false);
+				case TRUE: return ValueUtil.createValue(true);
+				
+				case UINT8: return ValueUtil.createValue(readNumber(1));
+				case UINT16: return ValueUtil.createValue(readNumber(2));
+				case UINT32: return ValueUtil.createValue(readNumber(4));
+				case UINT64:
+					long u = readNumber(8);
+					return u >= 0 ? ValueUtil.createValue(u) : ValueUtil.createValue(BigInteger.valueOf(u).add(BigInteger.ONE.shiftLeft(64)));
+				
+				case INT8: return ValueUtil.createValue((long)(byte)readNumber(1));
+				case INT16: return ValueUtil.createValue((long)(short)readNumber(2));
+				case INT32: return ValueUtil.createValue((long)(int)readNumber(4));
+				case INT64: return ValueUtil.createValue(readNumber(8));
+				
+				case FLOAT32: return ValueUtil.createValue((double)Float.intBitsToFloat((int)readNumber(4)));
+				case FLOAT64: return ValueUtil.createValue(Double.longBitsToDouble(readNumber(8)));
+				
+				case STR8: return readString(readSize(1));
+				case STR16: return readString(readSize(2));
+				case STR32: return readString(readSize(4));
+				
+				case BIN8: return readBinary(readSize(1));
+				case BIN16: return readBinary(readSize(2));
+				case BIN32: return readBinary(readSize(4));
+			}
+			
+			//Skip over nested elements, they're decoded when used
+			if(getOpeningChar(offset) != 0)
+			{
+				position = skip(offset);
+				return createElementValue(offset);
+			}
+			
+			throw new JsonParseException(JsonParseException.Type.UNKNOWN_VALUE_TYPE, offset, "0x"+Integer.toHexString(format));
+		}
+		
+		private Value readString(int length)
+		{
+			check(length);
+			String str = new String(data, position, length, BinaryOutput.UTF_8);
+			position += length;
+			return ValueUtil.createValue(str);
+		}
+		
+		private Value readBinary(int length)
+		{
+			check(length);
+			String str = Base64.getEncoder().encodeToString(Arrays.copyOfRange(data, position, position+length));
+			position += length;
+			return ValueUtil.createValue(str);
+		}
+		
+		//Structure
+		
+		/**
+		 * Returns the offset after the value at the given offset without decoding it.
+		 * Nested values are skipped without recursion, keeping the number of values left in each open container.
+		 */
+		private int skip(int offset)
+		{
+			position = offset;
+			
+			long[] left = new long[8];
+			int depth = 0;
+			left[0] = 1;
+			while(depth >= 0)
+			{
+				if(left[depth] == 0)
+				{
+					depth--;
+					continue;
+				}
+				left[depth]--;
+				
+				int format = readByte();
+				long count;
+				if((format & 0xF0) == FIXMAP)
+					count = (format & 0x0F)*2;
+				else if((format & 0xF0) == FIXARRAY)
+					count = format & 0x0F;
+				else if(format == MAP16 || format == MAP32)
+					count = readSize(format == MAP16 ? 2 : 4)*2L;
+				else if(format == ARRAY16 || format == ARRAY32)
+					count = readSize(format == ARRAY16 ? 2 : 4);
+				else
+				{
+					position += getDataLength(format);
+					check(0);
+					continue;
+				}
+				
+				if(++depth > MAX_DEPTH)
+					throw new JsonParseException(JsonParseException.Type.LIMIT_EXCEEDED, position, "nesting deeper than "+MAX_DEPTH);
+				if(depth == left.length)
+					left = Arrays.copyOf(left, depth*2);
+				left[depth] = count;
+			}
+			return position;
+		}
+		
+		/**
+		 * Returns the length of the data following the format byte (and any size) of a scalar value.
+		 */
+		private int getDataLength(int format)
+		{
+			if(format <= 0x7F || format >= NEGATIVE_FIXINT || format == NIL || format == FALSE || format == TRUE)
+				return 0;
+			if((format & 0xE0) == FIXSTR)
+				return format & 0x1F;
+			
+			switch(format)
+			{
+				case UINT8: case INT8: return 1;
+				case UINT16: case INT16: return 2;
+				case UINT32: case INT32: case FLOAT32: return 4;
+				case UINT64: case INT64: case FLOAT64: return 8;
+				case STR8: case BIN8: return readSize(1);
+				case STR16: case BIN16: return readSize(2);
+				case STR32: case BIN32: return readSize(4);
+			}
+			
+			throw new JsonParseException(JsonParseException.Type.UNKNOWN_VALUE_TYPE, position-1, "0x"+Integer.toHexString(format));
+		}
+		
+		//Primitive reads
+		
+		private void check(long length)
+		{
+			if(position+length > data.length || length < 0)
+				throw new JsonParseException(JsonParseException.Type.BAD_END, position);
+		}
+		
+		private int readByte()
+		{
+			check(1);
+			return data[position++] & 0xFF;
+		}
+		
+		private long readNumber(int length)
+		{
+			check(length);
+			long number = 0;
+			for(int n = 0; n < length; n++)
+				number = (number << 8) | (data[position++] & 0xFF);
+			return number;
+		}
+		
+		private int readSize(int length)
+		{
+			long size = readNumber(length);
+			if(size > Integer.MAX_VALUE)
+				throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, position);
+			return (int)size;
+		}
+	}
+}
@@ -0,0 +1,589 @@
+package net.enigmablade.jsonic;
+
+import java.math.*;
+import java.util.*;
+import net.enigmablade.jsonic.ValueUtil.*;
+
+/**
+ * <p>A view of a single value in a {@link JsonDocument}.</p>
+ * <p>Object and array nodes have the same accessors as {@link JsonObject} and {@link JsonArray},
+ * except that nested objects and arrays are returned as nodes. Nodes can also be navigated like a cursor,
+ * moving to the first child, next sibling or parent node, and iterating over a node gives its children.</p>
+ * <p>Nodes are lightweight and only refer to their document, so they can be created and thrown away freely.
+ * Two nodes are equal if they're the same node of the same document.</p>
+ * 
+ * @author Enigma
+ */
+public class JsonNode implements Iterable<JsonNode>
+{
+	private final JsonDocument document;
+	private final int node;
+	
+	/**
+	 * Creates a view of a node.
+	 * @param document The document
+	 * @param node The node index
+	 */
+	protected JsonNode(JsonDocument document, int node)
+	{
+		this.document = document;
+		this.node = node;
+	}
+	
+	/*****************
+	 * Type checking *
+	 *****************/
+	
+	/**
+	 * Returns whether or not this node is an object.
+	 * @return <code>true</code> if it's an object, otherwise <code>false</code>
+	 */
+	public boolean isObject()
+	{
+		return document.getType(node) == ValueType.OBJECT;
+	}
+	
+	/**
+	 * Returns whether or not this node is an array.
+	 * @return <code>true</code> if it's an array, otherwise <code>false</code>
+	 */
+	public boolean isArray()
+	{
+		return document.getType(node) == ValueType.ARRAY;
+	}
+	
+	/**
+	 * Returns whether or not this node is a string.
+	 * @return <code>true</code> if it's a string, otherwise <code>false</code>
+	 */
+	public boolean isString()
+	{
+		return document.getType(node) == ValueType.STRING;
+	}
+	
+	/**
+	 * Returns whether or not this node is a number of any size.
+	 * @return <code>true</code> if it's a number, otherwise <code>false</code>
+	 */
+	public boolean isNumber()
+	{
+		switch(document.getType(node))
+		{
+			case LONG:
+			case DOUBLE:
+			case BIG_INTEGER:
+			case BIG_DECIMAL: return true;
+			default: return false;
+		}
+	}
+	
+	/**
+	 * Returns whether or not this node is a boolean.
+	 * @return <code>true</code> if it's a boolean, otherwise <code>false</code>
+	 */
+	public boolean isBoolean()
+	{
+		return document.getType(node) == ValueType.BOOLEAN;
+	}
+	
+	/**
+	 * Returns whether or not this node is null.
+	 * @return <code>true</code> if it's null, otherwise <code>false</code>
+	 */
+	public boolean isNull()
+	{
+		return document.getType(node) == ValueType.NULL;
+	}
+	
+	/**************
+	 * Navigation *
+	 **************/
+	
+	/**
+	 * Returns the document this node belongs to.
+	 * @return The document
+	 */
+	public JsonDocument getDocument()
+	{
+		return document;
+	}
+	
+	/**
+	 * Returns the key of this node if it's a member of an object.
+	 * @return The key, or <code>null</code> if the node isn't in an object
+	 */
+	public String getKey()
+	{
+		return document.getKey(node);
+	}
+	
+	/**
+	 * Returns the object or array containing this node.
+	 * @return The parent, or <code>null</code> if this is the root
+	 */
+	public JsonNode getParent()
+	{
+		return create(document.getParent(node));
+	}
+	
+	/**
+	 * Returns the first value in this object or array.
+	 * @return The first child, or <code>null</code> if this node is empty or isn't an object or array
+	 */
+	public JsonNode getFirstChild()
+	{
+		return create(document.getFirstChild(node));
+	}
+	
+	/**
+	 * Returns the next value in the object or array containing this node.
+	 * @return The next sibling, or <code>null</code> if this is the last one
+	 */
+	public JsonNode getNextSibling()
+	{
+		return create(document.getNextSibling(node));
+	}
+	
+	/**
+	 * Returns the number of values in this object or array.
+	 * @return The size, or 0 if this node isn't an object or array
+	 */
+	public int size()
+	{
+		return document.getSize(node);
+	}
+	
+	/**
+	 * Returns whether or not this object or array has no values.
+	 * @return <code>true</code> if it's empty, otherwise <code>false</code>
+	 */
+	public boolean isEmpty()
+	{
+		return size() == 0;
+	}
+	
+	/**
+	 * Returns an iterator over the values in this object or array.
+	 * @return The iterator
+	 */
+	@Override
+	public Iterator<JsonNode> iterator()
+	{
+		return new Iterator<JsonNode>()
+		{
+			private int next = document.getFirstChild(node);
+			
+			@Override
+			public boolean hasNext()
+			{
+				return next != JsonDocument.NONE;
+			}
+			
+			@Override
+			public JsonNode next()
+			{
+				if(next == JsonDocument.NONE)
+					throw new NoSuchElementException();
+				JsonNode child = new JsonNode(document, next);
+				next = document.getNextSibling(next);
+				return child;
+			}
+		};
+	}
+	
+	/**
+	 * Returns the keys of this object in document order.
+	 * @return The keys, which are empty if this node isn't an object
+	 */
+	public List<String> getKeys()
+	{
+		List<String> keys = new ArrayList<>(size());
+		if(isObject())
+			for(int child = document.getFirstChild(node); child != JsonDocument.NONE; child = document.getNextSibling(child))
+				keys.add(document.getKey(child));
+		return keys;
+	}
+	
+	/********************
+	 * Object accessors *
+	 ********************/
+	
+	/**
+	 * Returns whether or not this object contains the key.
+	 * @param key The key
+	 * @return <code>true</code> if it contains the key, otherwise <code>false</code>
+	 */
+	public boolean containsKey(String key)
+	{
+		return find(key) != JsonDocument.NONE;
+	}
+	
+	/**
+	 * Returns the member of this object with the given key.
+	 * @param key The key
+	 * @return The member, or <code>null</code> if there isn't one
+	 */
+	public JsonNode getNode(String key)
+	{
+		return create(find(key));
+	}
+	
+	/**
+	 * Returns the value associated with the given key.
+	 * Objects and arrays are returned as nodes.
+	 * @param key The key
+	 * @return The value, or <code>null</code> if there isn't one
+	 */
+	public Object get(String key)
+	{
+		int member = find(key);
+		return member == JsonDocument.NONE ? null : document.getValue(member).value;
+	}
+	
+	/**
+	 * Returns the object associated with the given key.
+	 * @param key The key
+	 * @return The object node, or <code>null</code> if there isn't one
+	 * @throws JsonTypeException if the value isn't an object
+	 */
+	public JsonNode getObject(String key)
+	{
+		return getContainer(find(key), ValueType.OBJECT);
+	}
+	
+	/**
+	 * Returns the array associated with the given key.
+	 * @param key The key
+	 * @return The array node, or <code>null</code> if there isn't one
+	 * @throws JsonTypeException if the value isn't an array
+	 */
+	public JsonNode getArray(String key)
+	{
+		return getContainer(find(key), ValueType.ARRAY);
+	}
+	
+	/**
+	 * Returns the String value associated with the given key.
+	 * @param key The key
+	 * @return The String value
+	 * @throws JsonTypeException if the value isn't a string
+	 */
+	public String getString(String key)
+	{
+		return readString(find(key));
+	}
+	
+	/**
+	 * Returns the long value associated with the given key.
+	 * @param key The key
+	 * @return The long value
+	 * @throws JsonTypeException if the value isn't an integer that fits in a long
+	 */
+	public Long getLong(String key)
+	{
+		return readLong(find(key));
+	}
+	
+	/**
+	 * Returns the double value associated with the given key.
+	 * @param key The key
+	 * @return The double value
+	 * @throws JsonTypeException if the value isn't a double
+	 */
+	public Double getDouble(String key)
+	{
+		return readDouble(find(key));
+	}
+	
+	/**
+	 * Returns the BigInteger value associated with the given key.
+	 * @param key The key
+	 * @return The BigInteger value
+	 * @throws JsonTypeException if the value isn't an integer
+	 */
+	public BigInteger getBigInteger(String key)
+	{
+		return readBigInteger(find(key));
+	}
+	
+	/**
+	 * Returns the BigDecimal value associated with the given key.
+	 * @param key The key
+	 * @return The BigDecimal value
+	 * @throws JsonTypeException if the value isn't a finite number
+	 */
+	public BigDecimal getBigDecimal(String key)
+	{
+		return readBigDecimal(find(key));
+	}
+	
+	/**
+	 * Returns the boolean value associated with the given key.
+	 * @param key The key
+	 * @return The boolean value
+	 * @throws JsonTypeException if the value isn't a boolean
+	 */
+	public Boolean getBoolean(String key)
+	{
+		return readBoolean(find(key));
+	}
+	
+	/*******************
+	 * Array accessors *
+	 *******************/
+	
+	/**
+	 * Returns the value of this array at the given index.
+	 * @param index The index
+	 * @return The node
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public JsonNode getNode(int index)
+	{
+		return new JsonNode(document, document.getElement(node, index));
+	}
+	
+	/**
+	 * Returns the value at the given index.
+	 * Objects and arrays are returned as nodes.
+	 * @param index The index
+	 * @return The value
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public Object get(int index)
+	{
+		return document.getValue(document.getElement(node, index)).value;
+	}
+	
+	/**
+	 * Returns the object at the given index.
+	 * @param index The index
+	 * @return The object node, or <code>null</code> if the value is null
+	 * @throws JsonTypeException if the value isn't an object
+	 */
+	public JsonNode getObject(int index)
+	{
+		return getContainer(document.getElement(node, index), ValueType.OBJECT);
+	}
+	
+	/**
+	 * Returns the array at the given index.
+	 * @param index The index
+	 * @return The array node, or <code>null</code> if the value is null
+	 * @throws JsonTypeException if the value isn't an array
+	 */
+	public JsonNode getArray(int index)
+	{
+		return getContainer(document.getElement(node, index), ValueType.ARRAY);
+	}
+	
+	/**
+	 * Returns the String value at the given index.
+	 * @param index The index
+	 * @return The String value
+	 * @throws JsonTypeException if the value isn't a string
+	 */
+	public String getString(int index)
+	{
+		return readString(document.getElement(node, index));
+	}
+	
+	/**
+	 * Returns the long value at the given index.
+	 * @param index The index
+	 * @return The long value
+	 * @throws JsonTypeException if the value isn't an integer that fits in a long
+	 */
+	public Long getLong(int index)
+	{
+		return readLong(document.getElement(node, index));
+	}
+	
+	/**
+	 * Returns the double value at the given index.
+	 * @param index The index
+	 * @return The double value
+	 * @throws JsonTypeException if the value isn't a double
+	 */
+	public Double getDouble(int index)
+	{
+		return readDouble(document.getElement(node, index));
+	}
+	
+	/**
+	 * Returns the BigInteger value at the given index.
+	 * @param index The index
+	 * @return The BigInteger value
+	 * @throws JsonTypeException if the value isn't an integer
+	 */
+	public BigInteger getBigInteger(int index)
+	{
+		return readBigInteger(document.getElement(node, index));
+	}
+	
+	/**
+	 * Returns the BigDecimal value at the given index.
+	 * @param index The index
+	 * @return The BigDecimal value
+	 * @throws JsonTypeException if the value isn't a finite number
+	 */
+	public BigDecimal getBigDecimal(int index)
+	{
+		return readBigDecimal(document.getElement(node, index));
+	}
+	
+	/**
+	 * Returns the boolean value at the given index.
+	 * @param index The index
+	 * @return The boolean value
+	 * @throws JsonTypeException if the value isn't a boolean
+	 */
+	public Boolean getBoolean(int index)
+	{
+		return readBoolean(document.getElement(node, index));
+	}
+	
+	/*******************
+	 * Value accessors *
+	 *******************/
+	
+	/**
+	 * Returns the value of this node.
+	 * Objects and arrays are returned as nodes.
+	 * @return The value
+	 */
+	public Object getValue()
+	{
+		return document.getValue(node).value;
+	}
+	
+	/********************
+	 * Object overrides *
+	 ********************/
+	
+	/**
+	 * Returns this node and its contents in JSON format.
+	 * @return The JSON formatted node
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder json = new StringBuilder();
+		document.appendJSON(node, json);
+		return json.toString();
+	}
+	
+	@Override
+	public boolean equals(Object o)
+	{
+		if(!(o instanceof JsonNode))
+			return false;
+		
+		JsonNode n = (JsonNode)o;
+		return document == n.document && node == n.node;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return System.identityHashCode(document)*31 + node;
+	}
+	
+	/******************
+	 * Helper methods *
+	 ******************/
+	
+	private JsonNode create(int index)
+	{
+		return index == JsonDocument.NONE ? null : new JsonNode(document, index);
+	}
+	
+	private int find(String key)
+	{
+		if(!isObject())
+			throw new JsonTypeException(getTypeClass(node), JsonObject.class);
+		return document.findMember(node, key);
+	}
+	
+	/**
+	 * Returns whether or not the node is missing or null, in which case accessors return <code>null</code>.
+	 */
+	private boolean isMissing(int index)
+	{
+		return index == JsonDocument.NONE || document.getType(index) == ValueType.NULL;
+	}
+	
+	private JsonNode getContainer(int index, ValueType type)
+	{
+		if(isMissing(index))
+			return null;
+		if(document.getType(index) != type)
+			throw new JsonTypeException(getTypeClass(index), type == ValueType.OBJECT ? JsonObject.class : JsonArray.class);
+		return new JsonNode(document, index);
+	}
+	
+	private String readString(int index)
+	{
+		if(isMissing(index))
+			return null;
+		if(document.getType(index) != ValueType.STRING)
+			throw new JsonTypeException(getTypeClass(index), String.class);
+		return document.getString(index);
+	}
+	
+	private Long readLong(int index)
+	{
+		if(isMissing(index))
+			return null;
+		if(document.getType(index) != ValueType.LONG)
+			throw new JsonTypeException(getTypeClass(index), Long.class);
+		return document.getPayload(index);
+	}
+	
+	private Double readDouble(int index)
+	{
+		if(isMissing(index))
+			return null;
+		if(document.getType(index) != ValueType.DOUBLE)
+			throw new JsonTypeException(getTypeClass(index), Double.class);
+		return Double.longBitsToDouble(document.getPayload(index));
+	}
+	
+	private BigInteger readBigInteger(int index)
+	{
+		return isMissing(index) ? null : ValueUtil.toBigInteger(document.getValue(index));
+	}
+	
+	private BigDecimal readBigDecimal(int index)
+	{
+		return isMissing(index) ? null : ValueUtil.toBigDecimal(document.getValue(index));
+	}
+	
+	private Boolean readBoolean(int index)
+	{
+		if(isMissing(index))
+			return null;
+		if(document.getType(index) != ValueType.BOOLEAN)
+			throw new JsonTypeException(getTypeClass(index), Boolean.class);
+		return document.getPayload(index) != 0;
+	}
+	
+	/**
+	 * Returns the class a node's value would have if it were returned, for type exceptions.
+	 */
+	private Class<?> getTypeClass(int index)
+	{
+		switch(document.getType(index))
+		{
+			case OBJECT: return JsonObject.class;
+			case ARRAY: return JsonArray.class;
+			case STRING: return String.class;
+			case LONG: return Long.class;
+			case DOUBLE: return Double.class;
+			case BIG_INTEGER: return BigInteger.class;
+			case BIG_DECIMAL: return BigDecimal.class;
+			case BOOLEAN: return Boolean.class;
+			default: return Void.class;
+		}
+	}
+}
@@ -1,10 +1,12 @@
 package net.enigmablade.jsonic;
 
+import java.math.*;
 import java.util.*;
 import net.enigmablade.jsonic.ValueUtil.*;
 
 /**
  * <p>An unordered collection or key-value pairings.<p>
+ * <p>Objects can instead keep their keys in the order they were added (or parsed), see {@link #JsonObject(boolean)}.</p>
  * <p>Basic format:</p>
  * <code>{ "key":"value", "required":"Hello World!" }</code>
  * <p>All access methods check the parse state of the object, so there is the possibility they may fail if parsing was delayed on invalid JSON.</p>
@@ -16,7 +18,7 @@ public class JsonObject extends JsonElement implements Cloneable
 	private static final long serialVersionUID = -212184197241566516L;
 	
 	//Object data
-	private HashMap<String, Value> values;
+	private Map<String, Value> values;
 	
 	/*********************************
 	 * Constructors for JSON Creation*
@@ -26,20 +28,31 @@ public class JsonObject extends JsonElement implements Cloneable
 	 * Creates a new empty JsonObject.
 	 */
 	public JsonObject()
+	{
+		this(false);
+	}
+	
+	/**
+	 * Creates a new empty JsonObject, which can keep its keys in the order they're added.
+	 * Ordered objects iterate and are written in that order, so their JSON is the same every time without sorting the keys.
+	 * Their entries are kept in compact arrays rather than linked nodes, but removing a key takes time proportional to the size of the object.
+	 * @param ordered Whether or not the keys are kept in the order they're added
+	 */
+	public JsonObject(boolean ordered)
 	{
 		super(ParserUtil.OBJECT_OPEN, ParserUtil.OBJECT_CLOSE);
-		setup();
+		setup(ordered);
 	}
 	
 	/**
-	 * Creates a new JsonObject with the same stored information as the given object.
+	 * Creates a new JsonObject with the same stored information as the given object, in the same order if it's ordered.
 	 * @param o The object to clone
 	 * @throws IllegalArgumentException if the object is <code>null</code>
 	 */
 	public JsonObject(JsonObject o)
 	{
 		super(o);
-		setup();
+		setup(o.values instanceof CompactMap);
 		
 		values.putAll(o.values);
 	}
@@ -57,7 +70,29 @@ public class JsonObject extends JsonElement implements Cloneable
 	 */
 	protected JsonObject(String objStr, int startIndex, boolean delayed) throws JsonParseException
 	{
-		super(objStr, startIndex, delayed, ParserUtil.OBJECT_OPEN, ParserUtil.OBJECT_CLOSE);
+		this(objStr, startIndex, ParserSettings.get(delayed));
+	}
+	
+	/**
+	 * Creates a new JsonObject and parses the string immediately if not delayed.
+	 * @param objStr The string to parse
+	 * @param startIndex The starting index of the element in the string
+	 * @param settings The parser settings
+	 * @throws JsonParseException if there was an error when parsing the string
+	 */
+	protected JsonObject(String objStr, int startIndex, ParserSettings settings) throws JsonParseException
+	{
+		super(objStr, startIndex, settings, ParserUtil.OBJECT_OPEN, ParserUtil.OBJECT_CLOSE);
+	}
+	
+	/**
+	 * Creates a new JsonObject whose decoding from a binary format is delayed until it's used.
+	 * @param decoder The decoder holding the binary data
+	 * @param offset The offset of the object in the binary data
+	 */
+	protected JsonObject(BinaryDecoder decoder, int offset)
+	{
+		super(decoder, offset, ParserUtil.OBJECT_OPEN, ParserUtil.OBJECT_CLOSE);
 	}
 	
 	/*******************
@@ -66,11 +101,12 @@ public class JsonObject extends JsonElement implements Cloneable
 	
 	/**
 	 * Sets up required data structures.
+	 * @param ordered Whether or not the keys are kept in the order they're added
 	 */
-	private void setup()
+	private void setup(boolean ordered)
 	{
-		if(values == null)
-			values = new HashMap<>();
+		if(values == null || values instanceof CompactMap != ordered)
+			values = ordered ? new CompactMap() : new HashMap<>();
 		else
 			values.clear();
 	}
@@ -79,18 +115,20 @@ public class JsonObject extends JsonElement implements Cloneable
 	 * Parses the string that represents this object.
 	 * @param json The string
 	 * @param startIndex The starting index of the element in the string
-	 * @param delayed Whether or not the parsing was delayed
+	 * @param settings The parser settings
 	 * @throws JsonParseException if there was an error when parsing the string
 	 */
 	@Override
-	protected int parse(String json, int startIndex, boolean delayed) throws JsonParseException
+	protected int parse(String json, int startIndex, ParserSettings settings) throws JsonParseException
 	{
 		//Verify all required data structures exist
-		setup();
+		setup(settings.ordered);
+		if(settings.strict)
+			return StrictParser.parseObject(json, startIndex, settings, values);
 		
 		//Verify what is being parsed is indeed an object
-		if(json.charAt(startIndex) != ParserUtil.OBJECT_OPEN)
-			throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, 0);
+		if(ParserUtil.charAt(json, startIndex) != ParserUtil.OBJECT_OPEN)
+			throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, startIndex);
 		
 		int index = startIndex+1;
 		boolean seenElement = false;
@@ -100,14 +138,14 @@ public class JsonObject extends JsonElement implements Cloneable
 			index = ParserUtil.nextNonWhitespace(json, index);
 			
 			//Get information on the key type
-			char startChar = json.charAt(index);
+			char startChar = ParserUtil.charAt(json, index);
 			
 			//Make sure it's an allowable character
 			//--Separation point (',')
 			if(startChar == ParserUtil.SPLIT)
 			{
 				index = ParserUtil.nextNonWhitespace(json, index+1);
-				startChar = json.charAt(index);
+				startChar = ParserUtil.charAt(json, index);
 			}
 			//--Or end of the object ('}')
 			else if(startChar == ParserUtil.OBJECT_CLOSE)
@@ -127,8 +165,9 @@ public class JsonObject extends JsonElement implements Cloneable
 			//--String type
 			if(ParserUtil.isStringChar(startChar))
 			{
-				key = ParserUtil.getStringBlock(json, index);
-				index += key.length()+2;
+				int end = ParserUtil.getStringBlockEnd(json, index);
+				key = ParserUtil.decodeString(json, index+1, end);
+				index = end+1;
 			}
 			//--Unknown type
 			else
@@ -138,16 +177,16 @@ public class JsonObject extends JsonElement implements Cloneable
 			}
 			
 			//Move to the start of the value
-			if(json.charAt(index) != ParserUtil.OBJECT_MAP)
+			if(ParserUtil.charAt(json, index) != ParserUtil.OBJECT_MAP)
 			{
 				index = ParserUtil.nextNonWhitespace(json, index+1);
-				if(json.charAt(index) != ParserUtil.OBJECT_MAP)
+				if(ParserUtil.charAt(json, index) != ParserUtil.OBJECT_MAP)
 					throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, index);
 			}
 			index = ParserUtil.nextNonWhitespace(json, index+1);
 			
 			//Get the value and store it
-			startChar = json.charAt(index);
+			startChar = ParserUtil.charAt(json, index);
 			
 			//Parse the value based on type
 			Value value = null;
@@ -157,15 +196,15 @@ public class JsonObject extends JsonElement implements Cloneable
 				//String
 				case ParserUtil.STRING_1: 
 				case ParserUtil.STRING_2: 
-					String str = ParserUtil.getStringBlock(json, index);
-					value = ValueUtil.createValue(str);
-					index += str.length()+2;
+					int end = ParserUtil.getStringBlockEnd(json, index);
+					value = ParserUtil.getStringValue(json, index, end, settings);
+					index = end+1;
 					break;
 				
 				//Object
 				case ParserUtil.OBJECT_OPEN: 
-					JsonObject object = new JsonObject(json, index, delayed);
-					value = ValueUtil.createValue(object);
+					JsonObject object = ParserUtil.createObject(json, index, settings);
+					value = ParserUtil.createValue(ValueType.OBJECT, object, settings);
 					if((len = object.getRawLength()) < 2)
 						throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, index);
 					index += len;
@@ -173,8 +212,8 @@ public class JsonObject extends JsonElement implements Cloneable
 				
 				//Array
 				case ParserUtil.ARRAY_OPEN: 
-					JsonArray array = new JsonArray(json, index, delayed);
-					value = ValueUtil.createValue(array);
+					JsonArray array = ParserUtil.createArray(json, index, settings);
+					value = ParserUtil.createValue(ValueType.ARRAY, array, settings);
 					if((len = array.getRawLength()) < 2)
 						throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, index);
 					index += len;
@@ -184,24 +223,40 @@ public class JsonObject extends JsonElement implements Cloneable
 				
 				//Unknown: boolean, number, or null
 				default: 
-					String valueStr = ParserUtil.getUnknownBlock(json, index);
-					value = ParserUtil.parseUnknown(valueStr);
-					index += valueStr.length();
+					int valueEnd = ParserUtil.getUnknownBlockEnd(json, index);
+					value = ParserUtil.getUnknownValue(json, index, valueEnd, settings);
+					index = valueEnd;
 			}
 			
 			//Add the value
+			if(settings.interner != null)
+				key = settings.interner.intern(key);
 			values.put(key, value);
 			seenElement = true;
 			
 		}while(index < json.length()-1);
 		
 		//Check the very last character to make sure the object was closed
-		if(json.charAt(index) != ParserUtil.OBJECT_CLOSE)
+		if(ParserUtil.charAt(json, index) != ParserUtil.OBJECT_CLOSE)
 			throw new JsonParseException(JsonParseException.Type.BAD_END, index);
 		
 		return index-startIndex+1;
 	}
 	
+	/**
+	 * Decodes the binary representation of this object.
+	 * @param decoder The decoder holding the binary data
+	 * @param offset The offset of the object in the binary data
+	 * @throws JsonParseException if there was an error when decoding
+	 */
+	@Override
+	protected void decode(BinaryDecoder decoder, int offset) throws JsonParseException
+	{
+		setup(decoder.isOrdered(offset));
+		decoder.decodeObject(offset, values);
+		decoder.decodeNested(values.values());
+	}
+	
 	/********************
 	 * Accessor methods *
 	 ********************/
@@ -218,6 +273,19 @@ public class JsonObject extends JsonElement implements Cloneable
 		return values.size();
 	}
 	
+	/**
+	 * Returns whether or not this object keeps its keys in the order they were added, parsing it if required.
+	 * @return <code>true</code> if the object is ordered, otherwise <code>false</code>
+	 * @throws JsonException if an exception occurred during parsing
+	 * @see #JsonObject(boolean)
+	 */
+	public boolean isOrdered()
+	{
+		verifyParseState();
+		
+		return values instanceof CompactMap;
+	}
+	
 	/**
 	 * Returns whether or not this object contains any keys or values.
 	 * @return <code>true</code> if it contains keys or values, otherwise <code>false</code>
@@ -230,7 +298,8 @@ public class JsonObject extends JsonElement implements Cloneable
 	}
 	
 	/**
-	 * Returns the set of keys stored by this object.
+	 * Returns the set of keys stored by this object, which can't be changed if this object is frozen.
+	 * Keys removed from the set are removed from this object.
 	 * @return The set of keys
 	 * @throws JsonException if an exception occurred during parsing
 	 * @see java.util.Map#keySet()
@@ -239,7 +308,74 @@ public class JsonObject extends JsonElement implements Cloneable
 	{
 		verifyParseState();
 		
-		return values.keySet();
+		if(isFrozen())
+			return Collections.unmodifiableSet(values.keySet());
+		return new KeySet();
+	}
+	
+	/**
+	 * A view of the keys that passes removals on to {@link #changed(Object)}, so the cached JSON and hash are cleared.
+	 */
+	private class KeySet extends AbstractSet<String>
+	{
+		@Override
+		public Iterator<String> iterator()
+		{
+			final Iterator<Map.Entry<String, Value>> entries = values.entrySet().iterator();
+			return new Iterator<String>()
+			{
+				private Value last;
+				
+				@Override
+				public boolean hasNext()
+				{
+					return entries.hasNext();
+				}
+				
+				@Override
+				public String next()
+				{
+					Map.Entry<String, Value> entry = entries.next();
+					last = entry.getValue();
+					return entry.getKey();
+				}
+				
+				@Override
+				public void remove()
+				{
+					verifyMutable();
+					entries.remove();
+					changed(last);
+				}
+			};
+		}
+		
+		@Override
+		public int size()
+		{
+			return values.size();
+		}
+		
+		@Override
+		public boolean contains(Object key)
+		{
+			return values.containsKey(key);
+		}
+		
+		@Override
+		public boolean remove(Object key)
+		{
+			return key instanceof String && JsonObject.this.remove((String)key) != null;
+		}
+		
+		@Override
+		public void clear()
+		{
+			verifyMutable();
+			for(Value value : values.values())
+				changed(value);
+			values.clear();
+		}
 	}
 	
 	/**
@@ -264,8 +400,8 @@ public class JsonObject extends JsonElement implements Cloneable
 	 */
 	public void put(String key, Object value)
 	{
-		verifyParseState();
-		values.put(key, ValueUtil.createValue(value));
+		verifyMutable();
+		changed(values.put(key, ValueUtil.createValue(value)));
 	}
 	
 	/**
@@ -278,8 +414,8 @@ public class JsonObject extends JsonElement implements Cloneable
 	 */
 	public void put(String key, JsonObject value)
 	{
-		verifyParseState();
-		values.put(key, ValueUtil.createValue(value));
+		verifyMutable();
+		changed(values.put(key, ValueUtil.createValue(value)));
 	}
 	
 	/**
@@ -292,8 +428,8 @@ public class JsonObject extends JsonElement implements Cloneable
 	 */
 	public void put(String key, JsonArray value)
 	{
-		verifyParseState();
-		values.put(key, ValueUtil.createValue(value));
+		verifyMutable();
+		changed(values.put(key, ValueUtil.createValue(value)));
 	}
 	
 	/**
@@ -306,8 +442,8 @@ public class JsonObject extends JsonElement implements Cloneable
 	 */
 	public void put(String key, String value)
 	{
-		verifyParseState();
-		values.put(key, ValueUtil.createValue(value));
+		verifyMutable();
+		changed(values.put(key, ValueUtil.createValue(value)));
 	}
 	
 	/**
@@ -320,8 +456,8 @@ public class JsonObject extends JsonElement implements Cloneable
 	 */
 	public void put(String key, long value)
 	{
-		verifyParseState();
-		values.put(key, ValueUtil.createValue(value));
+		verifyMutable();
+		changed(values.put(key, ValueUtil.createValue(value)));
 	}
 	
 	/**
@@ -334,8 +470,8 @@ public class JsonObject extends JsonElement implements Cloneable
 	 */
 	public void put(String key, int value)
 	{
-		verifyParseState();
-		values.put(key, ValueUtil.createValue(value));
+		verifyMutable();
+		changed(values.put(key, ValueUtil.createValue(value)));
 	}
 	
 	/**
@@ -348,8 +484,8 @@ public class JsonObject extends JsonElement implements Cloneable
 	 */
 	public void put(String key, double value)
 	{
-		verifyParseState();
-		values.put(key, ValueUtil.createValue(value));
+		verifyMutable();
+		changed(values.put(key, ValueUtil.createValue(value)));
 	}
 	
 	/**
@@ -362,8 +498,36 @@ public class JsonObject extends JsonElement implements Cloneable
 	 */
 	public void put(String key, float value)
 	{
-		verifyParseState();
-		values.put(key, ValueUtil.createValue(value));
+		verifyMutable();
+		changed(values.put(key, ValueUtil.createValue(value)));
+	}
+	
+	/**
+	 * Puts a BigInteger into this object mapped to the given key.<br>
+	 * This method is for convenience and a <i>slight</i> speed gain.
+	 * @param key The key
+	 * @param value The BigInteger value
+	 * @throws JsonException if an exception occurred during parsing
+	 * @see java.util.Map#put(Object, Object)
+	 */
+	public void put(String key, BigInteger value)
+	{
+		verifyMutable();
+		changed(values.put(key, ValueUtil.createValue(value)));
+	}
+	
+	/**
+	 * Puts a BigDecimal into this object mapped to the given key.<br>
+	 * This method is for convenience and a <i>slight</i> speed gain.
+	 * @param key The key
+	 * @param value The BigDecimal value
+	 * @throws JsonException if an exception occurred during parsing
+	 * @see java.util.Map#put(Object, Object)
+	 */
+	public void put(String key, BigDecimal value)
+	{
+		verifyMutable();
+		changed(values.put(key, ValueUtil.createValue(value)));
 	}
 	
 	/**
@@ -376,8 +540,8 @@ public class JsonObject extends JsonElement implements Cloneable
 	 */
 	public void put(String key, boolean value)
 	{
-		verifyParseState();
-		values.put(key, ValueUtil.createValue(value));
+		verifyMutable();
+		changed(values.put(key, ValueUtil.createValue(value)));
 	}
 	
 	/**
@@ -394,7 +558,7 @@ public class JsonObject extends JsonElement implements Cloneable
 		Value value = values.get(key);
 		if(value == null)
 			return null;
-		return value.value;
+		return value.get();
 	}
 	
 	/**
@@ -454,7 +618,7 @@ public class JsonObject extends JsonElement implements Cloneable
 			return null;
 		if(value.type != ValueType.STRING)
 			throw new JsonTypeException(value.value.getClass(), String.class);
-		return (String)value.value;
+		return (String)value.get();
 	}
 	
 	/**
@@ -474,7 +638,7 @@ public class JsonObject extends JsonElement implements Cloneable
 			return null;
 		if(value.type != ValueType.LONG)
 			throw new JsonTypeException(value.value.getClass(), Long.class);
-		return (Long)value.value;
+		return (Long)value.get();
 	}
 	
 	/**
@@ -510,7 +674,7 @@ public class JsonObject extends JsonElement implements Cloneable
 			return null;
 		if(value.type != ValueType.DOUBLE)
 			throw new JsonTypeException(value.value.getClass(), Double.class);
-		return (Double)value.value;
+		return (Double)value.get();
 	}
 	
 	/**
@@ -529,6 +693,42 @@ public class JsonObject extends JsonElement implements Cloneable
 		return d.floatValue();
 	}
 	
+	/**
+	 * Returns the BigInteger value associated with the given key.<br>
+	 * This method is for convenience. Longs are also returned as BigIntegers.
+	 * @param key The key
+	 * @return The BigInteger value
+	 * @throws JsonException if an exception occurred during parsing
+	 * @see java.util.Map#get(Object)
+	 */
+	public BigInteger getBigInteger(String key)
+	{
+		verifyParseState();
+		
+		Value value = values.get(key);
+		if(value == null || value.value == null)
+			return null;
+		return ValueUtil.toBigInteger(value);
+	}
+	
+	/**
+	 * Returns the BigDecimal value associated with the given key.<br>
+	 * This method is for convenience. All finite numbers are also returned as BigDecimals.
+	 * @param key The key
+	 * @return The BigDecimal value
+	 * @throws JsonException if an exception occurred during parsing
+	 * @see java.util.Map#get(Object)
+	 */
+	public BigDecimal getBigDecimal(String key)
+	{
+		verifyParseState();
+		
+		Value value = values.get(key);
+		if(value == null || value.value == null)
+			return null;
+		return ValueUtil.toBigDecimal(value);
+	}
+	
 	/**
 	 * Returns the boolean value associated with the given key.<br>
 	 * This method is for convenience.
@@ -557,9 +757,37 @@ public class JsonObject extends JsonElement implements Cloneable
 	 * @see java.util.Map#remove(Object)
 	 */
 	public Object remove(String key)
+	{
+		verifyMutable();
+		Value removed = values.remove(key);
+		if(removed != null)
+			changed(removed);
+		return removed;
+	}
+	
+	/**
+	 * Returns the value wrappers stored by this object, parsing it if required.
+	 * Changes to the returned collection are reflected in this object, and must be followed by {@link #changed(Object)}.
+	 * @return The values
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	protected Map<String, Value> getValues()
 	{
 		verifyParseState();
-		return values.remove(key);
+		return values;
+	}
+	
+	/**
+	 * Returns the value wrappers stored by this object, parsing it if required.
+	 * @return The values
+	 * @throws JsonException if an exception occurred during parsing
+	 * @see JsonElement#freeze()
+	 */
+	@Override
+	protected Collection<Value> getContents()
+	{
+		verifyParseState();
+		return values.values();
 	}
 	
 	/**************************
@@ -567,14 +795,22 @@ public class JsonObject extends JsonElement implements Cloneable
 	 **************************/
 	
 	/**
-	 * Returns this object and its unordered contents in JSON format.
-	 * @return The JSON formatted object
+	 * Appends this object and its contents in JSON format, in insertion order if the object is ordered.
+	 * @param json The builder to append to
+	 * @param output The array the whole JSON is stored in once it's written
+	 * @return <code>true</code> if the JSON can be cached, otherwise <code>false</code>
 	 * @see JsonElement#getJSON()
 	 */
 	@Override
-	protected String toJSON()
+	protected boolean toJSON(StringBuilder json, String[] output)
 	{
-		return getJSON(null);
+		json.append(ParserUtil.OBJECT_OPEN);
+		boolean cacheable = true;
+		int n = 0;
+		for(Map.Entry<String, Value> entry : values.entrySet())
+			cacheable &= appendValue(json, entry.getKey(), entry.getValue(), n++, output);
+		json.append(ParserUtil.OBJECT_CLOSE);
+		return cacheable;
 	}
 	
 	/**
@@ -585,56 +821,43 @@ public class JsonObject extends JsonElement implements Cloneable
 	 */
 	public String getJSON(Comparator<String> comparator)
 	{
-		if(isParsingDelayed())
-			return getDelayedString();
-		
-		StringBuilder json = new StringBuilder();
-		json.append(ParserUtil.OBJECT_OPEN);
 		if(comparator == null)
-			json.append(getJSONHelper());
-		else
-			json.append(getJSONSortedHelper(comparator));
-		json.append(ParserUtil.OBJECT_CLOSE);
-		return json.toString();
-	}
-	
-	//Helper methods for building the object string
-	
-	private StringBuilder getJSONHelper()
-	{
-		StringBuilder json = new StringBuilder();
-		int n = 0;
-		for(String key : values.keySet())
-			appendValue(json, key, n++);
-		return json;
-	}
-	
-	private StringBuilder getJSONSortedHelper(Comparator<String> comparator)
-	{
+			return getJSON();
+		
+		String delayed = getDelayedString();
+		if(delayed != null)
+			return delayed;
+		verifyParseState();
+		
 		List<String> keys = new ArrayList<>(values.keySet());
 		Collections.sort(keys, comparator);
 		
+		String[] output = new String[1];
 		StringBuilder json = new StringBuilder();
+		json.append(ParserUtil.OBJECT_OPEN);
 		for(int n = 0; n < keys.size(); n++)
-		{
-			appendValue(json, keys.get(n), n);
-		}
-		return json;
+			appendValue(json, keys.get(n), values.get(keys.get(n)), n, output);
+		json.append(ParserUtil.OBJECT_CLOSE);
+		return output[0] = json.toString();
 	}
 	
-	private void appendValue(StringBuilder json, String key, int index)
+	//Helper method for building the object string
+	
+	private boolean appendValue(StringBuilder json, String key, Value value, int index, String[] output)
 	{
-		json.append(ParserUtil.STRING_1).append(key).append(ParserUtil.STRING_1);
+		if(index > 0)
+			json.append(ParserUtil.SPLIT);
+		
+		ParserUtil.appendString(json, key);
 		json.append(ParserUtil.OBJECT_MAP);
 		
-		Value value = values.get(key);
 		if(value == null)
 			json.append("null");
+		else if(value.value instanceof JsonElement)
+			return ((JsonElement)value.value).appendJSON(json, this, output);
 		else
 			json.append(value.toString());
-		
-		if(index < values.size()-1)
-			json.append(ParserUtil.SPLIT);
+		return true;
 	}
 	
 	/********************
@@ -642,39 +865,26 @@ public class JsonObject extends JsonElement implements Cloneable
 	 ********************/
 	
 	/**
-	 * Checks whether this array and and its contents are equal.
-	 * If parsing is delayed, uses the same method as in JsonElement.
-	 * 
-	 * @param o The array to check against.
-	 * @return <code>true</code> if the two arrays are equal, otherwise <code>false</code>.
-	 * 
-	 * @see JsonElement#equals(Object)
-	 */
-	@Override
-	public boolean equals(Object o)
-	{
-		if(o == null || !(o instanceof JsonObject))
-			return false;
-		
-		JsonObject j = (JsonObject)o;
-		return values.equals(j.values);
-	}
-	
-	/**
-	 * Returns the hash code of this JSON object, which is equivalent to the sum of the hash codes of each entry.
-	 * 
-	 * @returns This object's hash code.
-	 * 
+	 * Returns the hash code of the entries of this object, which is the sum of the hash codes of each entry.
+	 * @return The hash code, with any flags from @link #hashValue(ValueUtil.Value) set
 	 * @see Map#hashCode()
 	 */
 	@Override
-	public int hashCode()
+	protected long hashContents()
 	{
-		return values.hashCode();
+		long flags = 0;
+		int hash = 0;
+		for(Map.Entry<String, Value> entry : values.entrySet())
+		{
+			long value = hashValue(entry.getValue());
+			flags |= value;
+			hash += entry.getKey().hashCode() ^ (int)value;
+		}
+		return (flags & ~0xffffffffL) | (hash & 0xffffffffL);
 	}
 	
 	/**
-	 * Clones this object based on HashMap's clone method.
+	 * Clones this object based on its map's clone method, keeping the order of ordered objects.
 	 * If parsed, the map will be "shallow copied".
 	 * 
 	 * @return The cloned object.
@@ -686,7 +896,10 @@ public class JsonObject extends JsonElement implements Cloneable
 	public Object clone() throws CloneNotSupportedException
 	{
 		JsonObject newArray = (JsonObject)super.clone();
-		newArray.values = (HashMap<String, Value>)values.clone();
+		if(values instanceof CompactMap)
+			newArray.values = ((CompactMap)values).clone();
+		else
+			newArray.values = (HashMap<String, Value>)((HashMap<String, Value>)values).clone();
 		return newArray;
 	}
 }
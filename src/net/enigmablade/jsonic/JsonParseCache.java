@@ -0,0 +1,289 @@
+package net.enigmablade.jsonic;
+
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * <p>A cache of parsed documents keyed by their content, for services that parse the same JSON over and over
+ * (configuration, schemas, repeated API responses).</p>
+ * <pre>
+ * JsonParseCache cache = new JsonParseCache(16 * 1024 * 1024);
+ * JsonElement config = cache.parse(json);
+ * </pre>
+ * <p>Inputs are looked up by a 64-bit hash of their content, which is confirmed by comparing the full content,
+ * so a hit costs a single pass over the input instead of a parse. Parsed elements are frozen before they're cached
+ * and the same instance is returned for every hit, so they can be read from any number of threads but not changed.
+ * Use @link JsonPatch#applyCopy(JsonElement) or @link JsonMergePatch#applyCopy(JsonElement) to change a copy,
+ * which only copies the parts that are changed.</p>
+ * <p>The cache is limited by weight, the total length of the cached inputs, and evicts the least recently used
+ * documents first. It's safe to use from multiple threads, and parsing happens outside of the lock.</p>
+ * 
+ * @author Enigma
+ */
+public class JsonParseCache
+{
+	//Hashing
+	private static final long HASH_START = 0xcbf29ce484222325L;
+	private static final long HASH_PRIME = 0x100000001b3L;
+	
+	//Cache
+	private final long maxWeight;
+	private final ParserSettings settings;
+	private final LinkedHashMap<Key, JsonElement> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long weight = 0;
+	
+	//Statistics
+	private long hits = 0, misses = 0, evictions = 0;
+	
+	/**
+	 * Creates a new cache that parses with the default settings.
+	 * @param maxWeight The largest total length of the cached inputs
+	 * @throws IllegalArgumentException if the weight is negative
+	 */
+	public JsonParseCache(long maxWeight)
+	{
+		this(maxWeight, new JsonParser());
+	}
+	
+	/**
+	 * Creates a new cache that parses with the given parser's settings.
+	 * Later changes to the parser don't affect the cache.
+	 * Delaying parsing has no effect, since cached elements are fully parsed when they're frozen.
+	 * An interner isn't thread-safe, so parses that use one are done one at a time while holding its lock.
+	 * @param maxWeight The largest total length of the cached inputs
+	 * @param parser The parser to take the options from
+	 * @throws IllegalArgumentException if the weight is negative or the parser is <code>null</code>
+	 */
+	public JsonParseCache(long maxWeight, JsonParser parser)
+	{
+		if(maxWeight < 0)
+			throw new IllegalArgumentException("The weight cannot be negative");
+		if(parser == null)
+			throw new IllegalArgumentException("The parser cannot be null");
+		
+		this.maxWeight = maxWeight;
+		this.settings = parser.getSettings().copy();
+	}
+	
+	/***********
+	 * Parsing *
+	 ***********/
+	
+	/**
+	 * Returns the frozen element for the given JSON, parsing it if it isn't cached.
+	 * @param json The JSON string
+	 * @return The frozen element, or <code>null</code> if a JSON object or array was not given
+	 * @throws JsonParseException if an exception occurred during parsing
+	 * @throws IllegalArgumentException if the string is <code>null</code>
+	 */
+	public JsonElement parse(String json) throws JsonParseException
+	{
+		if(json == null)
+			throw new IllegalArgumentException("The JSON string cannot be null");
+		
+		long hash = HASH_START;
+		for(int n = 0; n < json.length(); n++)
+			hash = (hash ^ json.charAt(n)) * HASH_PRIME;
+		
+		Key key = new Key(hash, json, json.length());
+		JsonElement element = get(key);
+		if(element != null)
+			return element;
+		return put(key, json);
+	}
+	
+	/**
+	 * Returns the frozen element for the given UTF-8 encoded JSON, parsing it if it isn't cached.
+	 * The bytes are only decoded if they aren't cached.
+	 * @param json The JSON bytes
+	 * @return The frozen element, or <code>null</code> if a JSON object or array was not given
+	 * @throws JsonParseException if an exception occurred during parsing
+	 * @throws IllegalArgumentException if the bytes are <code>null</code>
+	 */
+	public JsonElement parse(byte[] json) throws JsonParseException
+	{
+		if(json == null)
+			throw new IllegalArgumentException("The JSON bytes cannot be null");
+		
+		long hash = HASH_START;
+		for(int n = 0; n < json.length; n++)
+			hash = (hash ^ (json[n] & 0xff)) * HASH_PRIME;
+		
+		Key key = new Key(hash, json, json.length);
+		JsonElement element = get(key);
+		if(element != null)
+			return element;
+		
+		//Copied so the key can't be changed by the caller
+		return put(new Key(hash, Arrays.copyOf(json, json.length), json.length), new String(json, StandardCharsets.UTF_8));
+	}
+	
+	private synchronized JsonElement get(Key key)
+	{
+		JsonElement element = entries.get(key);
+		if(element != null)
+			hits++;
+		else
+			misses++;
+		return element;
+	}
+	
+	private JsonElement put(Key key, String json)
+	{
+		JsonElement element;
+		if(settings.interner == null)
+		{
+			element = JsonParser.parse(json, settings);
+		}
+		else
+		{
+			synchronized(settings.interner)
+			{
+				element = JsonParser.parse(json, settings);
+			}
+		}
+		if(element == null)
+			return null;
+		element.freeze();
+		
+		if(key.weight > maxWeight)
+			return element;
+		
+		synchronized(this)
+		{
+			//Another thread parsed the same input first
+			JsonElement existing = entries.get(key);
+			if(existing != null)
+				return existing;
+			
+			entries.put(key, element);
+			weight += key.weight;
+			
+			Iterator<Key> keys = entries.keySet().iterator();
+			while(weight > maxWeight)
+			{
+				weight -= keys.next().weight;
+				keys.remove();
+				evictions++;
+			}
+		}
+		return element;
+	}
+	
+	/**************
+	 * Statistics *
+	 **************/
+	
+	/**
+	 * Returns the number of inputs that were found in the cache.
+	 * @return The number of hits
+	 */
+	public synchronized long getHitCount()
+	{
+		return hits;
+	}
+	
+	/**
+	 * Returns the number of inputs that weren't found in the cache and were parsed.
+	 * @return The number of misses
+	 */
+	public synchronized long getMissCount()
+	{
+		return misses;
+	}
+	
+	/**
+	 * Returns the number of documents removed from the cache to make room for others.
+	 * @return The number of evictions
+	 */
+	public synchronized long getEvictionCount()
+	{
+		return evictions;
+	}
+	
+	/**
+	 * Returns the fraction of inputs that were found in the cache.
+	 * @return The hit rate between 0 and 1, or 0 if nothing has been parsed
+	 */
+	public synchronized double getHitRate()
+	{
+		long total = hits+misses;
+		return total == 0 ? 0 : (double)hits/total;
+	}
+	
+	/**
+	 * Returns the total length of the cached inputs.
+	 * @return The weight
+	 */
+	public synchronized long getWeight()
+	{
+		return weight;
+	}
+	
+	/**
+	 * Returns the largest total length of the cached inputs.
+	 * @return The maximum weight
+	 */
+	public long getMaxWeight()
+	{
+		return maxWeight;
+	}
+	
+	/**
+	 * Returns the number of cached documents.
+	 * @return The number of documents
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+	
+	/**
+	 * Removes all cached documents. The statistics are kept.
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+		weight = 0;
+	}
+	
+	/***********
+	 * Helpers *
+	 ***********/
+	
+	/**
+	 * An input identified by the hash of its content, which is only compared in full when the hashes match.
+	 */
+	private static class Key
+	{
+		private final long hash;
+		private final Object content;
+		private final int weight;
+		
+		private Key(long hash, Object content, int weight)
+		{
+			this.hash = hash;
+			this.content = content;
+			this.weight = weight;
+		}
+		
+		@Override
+		public boolean equals(Object o)
+		{
+			if(!(o instanceof Key))
+				return false;
+			Key k = (Key)o;
+			if(hash != k.hash || weight != k.weight || content.getClass() != k.content.getClass())
+				return false;
+			if(content instanceof String)
+				return content.equals(k.content);
+			return Arrays.equals((byte[])content, (byte[])k.content);
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return (int)(hash ^ (hash >>> 32));
+		}
+	}
+}
@@ -1,7 +1,12 @@
 package net.enigmablade.jsonic;
 
+import java.util.*;
+
 /**
- * An exception thrown if there was a problem during JSON parsing.
+ * <p>An exception thrown if there was a problem during JSON parsing.</p>
+ * <p>Errors are thrown with only the character offset where they happened. The line, column, and path to the element
+ * containing the error are worked out when they're first asked for, by rescanning the JSON up to the offset,
+ * so parsing that succeeds doesn't pay for them.</p>
  * 
  * @author Enigma
  */
@@ -13,13 +18,18 @@ public class JsonParseException extends JsonException
 	 * The types of possible parsing errors.
 	 * @author EnigmaBlade
 	 */
-	protected enum Type { BAD_START, BAD_END, INVALID_FORMAT, INVALID_CHAR, UNKNOWN_VALUE_TYPE };
+	protected enum Type { BAD_START, BAD_END, INVALID_FORMAT, INVALID_CHAR, INVALID_ESCAPE, UNKNOWN_VALUE_TYPE, LIMIT_EXCEEDED };
 	
 	//Message options
 	private Type type;
-	private int location;
+	private int location = -1;
 	private Object thing;
 	
+	//The JSON being parsed, and what was worked out from it
+	private transient String input;
+	private int line = -1, column = -1;
+	private String path;
+	
 	protected JsonParseException(Type type, int location)
 	{
 		this.type = type;
@@ -39,6 +49,75 @@ public class JsonParseException extends JsonException
 		this.thing = thing;
 	}
 	
+	/**
+	 * Sets the location of the error if it wasn't known when it was thrown.
+	 * @param location The character offset
+	 * @return This exception
+	 */
+	protected JsonParseException setLocation(int location)
+	{
+		if(this.location < 0)
+			this.location = location;
+		return this;
+	}
+	
+	/**
+	 * Sets the JSON that was being parsed, which the line, column and path are worked out from.
+	 * Only the first (innermost) JSON is kept, since that's what the location is in.
+	 * @param input The JSON
+	 * @return This exception
+	 */
+	protected JsonParseException setInput(String input)
+	{
+		if(this.input == null && line < 0)
+			this.input = input;
+		return this;
+	}
+	
+	/********************
+	 * Accessor methods *
+	 ********************/
+	
+	/**
+	 * Returns the character offset of the error in the JSON (or the byte offset in binary formats).
+	 * @return The offset, or -1 if it isn't known
+	 */
+	public int getLocation()
+	{
+		return location;
+	}
+	
+	/**
+	 * Returns the line of the error, starting at 1.
+	 * @return The line, or -1 if it isn't known
+	 */
+	public int getLine()
+	{
+		locate();
+		return line;
+	}
+	
+	/**
+	 * Returns the column of the error in its line, starting at 1.
+	 * @return The column, or -1 if it isn't known
+	 */
+	public int getColumn()
+	{
+		locate();
+		return column;
+	}
+	
+	/**
+	 * Returns the JSON pointer to the innermost element containing the error.
+	 * Keys and indices are included once the parser has reached their value.
+	 * @return The pointer, which is empty for the whole document, or <code>null</code> if it isn't known
+	 */
+	public String getPath()
+	{
+		locate();
+		return path;
+	}
+	
 	/**
 	 * Returns the message associated with the exception.
 	 * @return The exception message
@@ -46,15 +125,135 @@ public class JsonParseException extends JsonException
 	@Override
 	public String getMessage()
 	{
+		String message;
 		switch(type)
 		{
-			case BAD_START: return "Invalid element start at location "+location;
-			case BAD_END: return "Invalid element terminator at location "+location;
-			case INVALID_FORMAT: return "Invalid element format at location "+location;
-			case INVALID_CHAR: return "Invalid control character '"+thing+"' at location "+location;
-			case UNKNOWN_VALUE_TYPE: return "Unknown type of value \""+thing+"\"";
+			case BAD_START: message = "Invalid element start at location "+location; break;
+			case BAD_END: message = "Invalid element terminator at location "+location; break;
+			case INVALID_FORMAT: message = "Invalid element format at location "+location; break;
+			case INVALID_CHAR: message = "Invalid control character '"+thing+"' at location "+location; break;
+			case INVALID_ESCAPE: message = "Invalid escape sequence at location "+location; break;
+			case UNKNOWN_VALUE_TYPE: message = "Unknown type of value \""+thing+"\""+(location < 0 ? "" : " at location "+location); break;
+			case LIMIT_EXCEEDED: message = "Limit exceeded at location "+location+": "+thing; break;
 			
 			default: return null;
 		}
+		
+		locate();
+		if(line > 0)
+			message += " (line "+line+", column "+column+", path \""+path+"\")";
+		return message;
+	}
+	
+	/********************
+	 * Location helpers *
+	 ********************/
+	
+	/**
+	 * Works out the line, column and path of the error from the JSON if they haven't been yet.
+	 */
+	private void locate()
+	{
+		if(input == null || location < 0)
+			return;
+		
+		String json = input;
+		int end = Math.min(location, json.length());
+		input = null;
+		
+		//Line and column, counting "\r\n" as one line break
+		line = 1;
+		int lineStart = 0;
+		for(int n = 0; n < end; n++)
+		{
+			char c = json.charAt(n);
+			if(c == '\n' || c == '\r' && (n+1 >= json.length() || json.charAt(n+1) != '\n'))
+			{
+				line++;
+				lineStart = n+1;
+			}
+		}
+		column = end-lineStart+1;
+		
+		path = findPath(json, end);
+	}
+	
+	/**
+	 * Rescans the JSON up to the given offset, keeping track of the key or index of each open object and array.
+	 */
+	private static String findPath(String json, int end)
+	{
+		//Keys (null until the value is reached) for objects, indices for arrays
+		ArrayList<Object> stack = new ArrayList<>();
+		String token = null;
+		for(int n = 0; n < end; n++)
+		{
+			char c = json.charAt(n);
+			int top = stack.size()-1;
+			switch(c)
+			{
+				case ParserUtil.OBJECT_OPEN:
+					stack.add(null);
+					break;
+				case ParserUtil.ARRAY_OPEN:
+					stack.add(0);
+					break;
+				case ParserUtil.OBJECT_CLOSE:
+				case ParserUtil.ARRAY_CLOSE:
+					if(top >= 0)
+						stack.remove(top);
+					break;
+				case ParserUtil.SPLIT:
+					if(top >= 0)
+						stack.set(top, stack.get(top) instanceof Integer ? (Integer)stack.get(top)+1 : null);
+					break;
+				case ParserUtil.OBJECT_MAP:
+					if(top >= 0 && !(stack.get(top) instanceof Integer))
+						stack.set(top, token != null ? token : "");
+					break;
+				case ParserUtil.STRING_1:
+				case ParserUtil.STRING_2:
+					int close = n;
+					while((close = json.indexOf(c, close+1)) >= 0 && isEscaped(json, n, close));
+					if(close < 0)
+						close = json.length();
+					token = decode(json, n+1, close);
+					n = close;
+					break;
+				default:
+					if(!Character.isWhitespace(c))
+					{
+						int tokenEnd = ParserUtil.getUnknownBlockEnd(json, n);
+						token = json.substring(n, Math.max(tokenEnd, n+1));
+						n = Math.max(tokenEnd, n+1)-1;
+					}
+			}
+		}
+		
+		StringBuilder pointer = new StringBuilder();
+		for(Object key : stack)
+			if(key != null)
+				JsonPatch.appendToken(pointer, key.toString());
+		return pointer.toString();
+	}
+	
+	private static boolean isEscaped(String json, int start, int quote)
+	{
+		int slashes = 0;
+		for(int n = quote-1; n > start && json.charAt(n) == ParserUtil.ESCAPE; n--)
+			slashes++;
+		return (slashes & 1) == 1;
+	}
+	
+	private static String decode(String json, int start, int end)
+	{
+		try
+		{
+			return ParserUtil.decodeString(json, start, end);
+		}
+		catch(JsonParseException e)
+		{
+			return json.substring(start, end);
+		}
 	}
 }
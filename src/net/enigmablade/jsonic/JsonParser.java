@@ -1,7 +1,11 @@
 package net.enigmablade.jsonic;
 
 import java.io.*;
+import java.lang.reflect.*;
+import java.nio.*;
 import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
 
 /**
  * <p>The entry point for JSON parsing.<p>
@@ -18,6 +22,16 @@ public class JsonParser
 	
 	private boolean delayed;
 	private Charset charset;
+	private boolean lazyStrings;
+	private boolean lazyNumbers;
+	private boolean strict;
+	private boolean ordered;
+	private JsonInterner interner;
+	private JsonSchema schema;
+	private int maxDepth = Integer.MAX_VALUE, maxLength = Integer.MAX_VALUE, maxStringLength = Integer.MAX_VALUE, maxMembers = Integer.MAX_VALUE, maxNumberLength = Integer.MAX_VALUE;
+	
+	private ParserSettings settings;
+	private final ParserBuffers buffers = new ParserBuffers();
 	
 	//Constructors
 	
@@ -31,7 +45,7 @@ public class JsonParser
 	
 	/**
 	 * Creates a new instances of a parser that can be delayed.
-
+	
 	 * @param delayed Whether or not to delay parsing.
 	 */
 	public JsonParser(boolean delayed)
@@ -41,7 +55,7 @@ public class JsonParser
 	
 	/**
 	 * Creates a new instances of a parser that can be delayed and use the given charset.
-
+	
 	 * @param delayed Whether or not to delay parsing.
 	 * @param charset The charset to use in input stream decoding.
 	 */
@@ -55,7 +69,7 @@ public class JsonParser
 	
 	/**
 	 * Returns whether or not this parser is set to use the delayed parsing mode.
-
+	
 	 * @return <code>true</code> if parsing is set to be delayed, otherwise <code>false</code>.
 	 */
 	public boolean isDelayed()
@@ -71,6 +85,7 @@ public class JsonParser
 	public void setDelayed(boolean delayed)
 	{
 		this.delayed = delayed;
+		settings = null;
 	}
 	
 	/**
@@ -93,6 +108,305 @@ public class JsonParser
 		this.charset = charset;
 	}
 	
+	/**
+	 * Returns whether or not this parser keeps string values as references into the JSON until they're read.
+	 * 
+	 * @return <code>true</code> if strings are lazy, otherwise <code>false</code>.
+	 * @see LazyString
+	 */
+	public boolean isLazyStrings()
+	{
+		return lazyStrings;
+	}
+	
+	/**
+	 * Sets whether or not this parser should keep string values as references into the JSON until they're read.
+	 * Lazy strings aren't decoded unless they're accessed, and are written back out as they appeared in the JSON.
+	 * They do however keep the entire JSON string from being garbage collected.
+	 * 
+	 * @param lazyStrings <code>true</code> if strings should be lazy.
+	 * @see LazyString
+	 */
+	public void setLazyStrings(boolean lazyStrings)
+	{
+		this.lazyStrings = lazyStrings;
+		settings = null;
+	}
+	
+	/**
+	 * Returns whether or not this parser keeps number values as references into the JSON until they're read.
+	 * 
+	 * @return <code>true</code> if numbers are lazy, otherwise <code>false</code>.
+	 * @see LazyNumber
+	 */
+	public boolean isLazyNumbers()
+	{
+		return lazyNumbers;
+	}
+	
+	/**
+	 * Sets whether or not this parser should keep number values as references into the JSON until they're read.
+	 * Lazy numbers aren't converted unless they're accessed, and are written back out exactly as they appeared in the JSON.
+	 * Only standard JSON numbers are kept lazy, others are parsed immediately.
+	 * 
+	 * @param lazyNumbers <code>true</code> if numbers should be lazy.
+	 * @see LazyNumber
+	 */
+	public void setLazyNumbers(boolean lazyNumbers)
+	{
+		this.lazyNumbers = lazyNumbers;
+		settings = null;
+	}
+	
+	/**
+	 * Returns whether or not this parser only accepts standard JSON.
+	 * 
+	 * @return <code>true</code> if parsing is strict, otherwise <code>false</code>.
+	 * @see StrictParser
+	 */
+	public boolean isStrict()
+	{
+		return strict;
+	}
+	
+	/**
+	 * Sets whether or not this parser should only accept standard JSON (RFC 8259).
+	 * Strict parsing skips the checks for the lenient dialect (single-quoted strings, unquoted keys, number spacers and NaN)
+	 * and rejects them instead, along with anything else that isn't standard JSON.
+	 * 
+	 * @param strict <code>true</code> if parsing should be strict.
+	 * @see StrictParser
+	 */
+	public void setStrict(boolean strict)
+	{
+		this.strict = strict;
+		settings = null;
+	}
+	
+	/**
+	 * Returns whether or not parsed objects keep their keys in the order they appear in the JSON.
+	 * 
+	 * @return <code>true</code> if objects are ordered, otherwise <code>false</code>.
+	 * @see JsonObject#isOrdered()
+	 */
+	public boolean isOrdered()
+	{
+		return ordered;
+	}
+	
+	/**
+	 * Sets whether or not parsed objects should keep their keys in the order they appear in the JSON.
+	 * Ordered objects iterate and are written in that order, so the same JSON always produces the same output
+	 * without sorting keys when writing.
+	 * 
+	 * @param ordered <code>true</code> if objects should be ordered.
+	 * @see JsonObject#JsonObject(boolean)
+	 */
+	public void setOrdered(boolean ordered)
+	{
+		this.ordered = ordered;
+		settings = null;
+	}
+	
+	/**
+	 * Returns the interner this parser deduplicates values with.
+	 * 
+	 * @return The interner, or <code>null</code> if values aren't deduplicated.
+	 * @see JsonInterner
+	 */
+	public JsonInterner getInterner()
+	{
+		return interner;
+	}
+	
+	/**
+	 * Sets the interner this parser should deduplicate values with, so identical strings, objects and arrays share one instance.
+	 * Objects and arrays inside parsed documents are frozen, since they may be shared.
+	 * Values aren't deduplicated while parsing is delayed, or if they're lazy.
+	 * 
+	 * @param interner The interner, or <code>null</code> to keep every value.
+	 * @see JsonInterner
+	 */
+	public void setInterner(JsonInterner interner)
+	{
+		this.interner = interner;
+		settings = null;
+	}
+	
+	/**
+	 * Returns the schema this parser validates documents against.
+	 * 
+	 * @return The schema, or <code>null</code> if documents aren't validated.
+	 * @see JsonSchema
+	 */
+	public JsonSchema getSchema()
+	{
+		return schema;
+	}
+	
+	/**
+	 * Sets the schema this parser should validate documents against.
+	 * Documents are validated as they're read, before anything is built, unless the schema checks the whole document (like a root <code>allOf</code>),
+	 * in which case it's validated once it's parsed. Invalid documents throw a {@link JsonSchemaException}.
+	 * 
+	 * @param schema The schema, or <code>null</code> to not validate documents.
+	 * @see JsonSchema
+	 */
+	public void setSchema(JsonSchema schema)
+	{
+		this.schema = schema;
+		settings = null;
+	}
+	
+	/**
+	 * Returns the deepest objects and arrays can be nested, including the outermost one.
+	 * 
+	 * @return The maximum depth, or {@link Integer#MAX_VALUE} if it isn't limited.
+	 */
+	public int getMaxDepth()
+	{
+		return maxDepth;
+	}
+	
+	/**
+	 * Sets the deepest objects and arrays can be nested, including the outermost one.
+	 * Documents are parsed without recursion when any limit is set, so deeply nested input can't overflow the stack.
+	 * 
+	 * @param maxDepth The maximum depth, at least 1, or {@link Integer#MAX_VALUE} to not limit it.
+	 * @throws IllegalArgumentException if the depth is less than 1
+	 * @see IterativeParser
+	 */
+	public void setMaxDepth(int maxDepth)
+	{
+		this.maxDepth = checkLimit(maxDepth, 1);
+		settings = null;
+	}
+	
+	/**
+	 * Returns the longest input this parser accepts, in characters.
+	 * 
+	 * @return The maximum length, or {@link Integer#MAX_VALUE} if it isn't limited.
+	 */
+	public int getMaxLength()
+	{
+		return maxLength;
+	}
+	
+	/**
+	 * Sets the longest input this parser should accept, in characters.
+	 * Input streams stop being read as soon as they're over the limit.
+	 * 
+	 * @param maxLength The maximum length, or {@link Integer#MAX_VALUE} to not limit it.
+	 * @throws IllegalArgumentException if the length is negative
+	 * @see IterativeParser
+	 */
+	public void setMaxLength(int maxLength)
+	{
+		this.maxLength = checkLimit(maxLength, 0);
+		settings = null;
+	}
+	
+	/**
+	 * Returns the longest string (key or value) this parser accepts, in characters as they appear in the JSON.
+	 * 
+	 * @return The maximum length, or {@link Integer#MAX_VALUE} if it isn't limited.
+	 */
+	public int getMaxStringLength()
+	{
+		return maxStringLength;
+	}
+	
+	/**
+	 * Sets the longest string (key or value) this parser should accept, in characters as they appear in the JSON.
+	 * 
+	 * @param maxStringLength The maximum length, or {@link Integer#MAX_VALUE} to not limit it.
+	 * @throws IllegalArgumentException if the length is negative
+	 * @see IterativeParser
+	 */
+	public void setMaxStringLength(int maxStringLength)
+	{
+		this.maxStringLength = checkLimit(maxStringLength, 0);
+		settings = null;
+	}
+	
+	/**
+	 * Returns the most members an object or array can have.
+	 * 
+	 * @return The maximum number of members, or {@link Integer#MAX_VALUE} if it isn't limited.
+	 */
+	public int getMaxMembers()
+	{
+		return maxMembers;
+	}
+	
+	/**
+	 * Sets the most members an object or array can have.
+	 * 
+	 * @param maxMembers The maximum number of members, or {@link Integer#MAX_VALUE} to not limit it.
+	 * @throws IllegalArgumentException if the number is negative
+	 * @see IterativeParser
+	 */
+	public void setMaxMembers(int maxMembers)
+	{
+		this.maxMembers = checkLimit(maxMembers, 0);
+		settings = null;
+	}
+	
+	/**
+	 * Returns the longest number (or other unquoted value) this parser accepts, in characters.
+	 * 
+	 * @return The maximum length, or {@link Integer#MAX_VALUE} if it isn't limited.
+	 */
+	public int getMaxNumberLength()
+	{
+		return maxNumberLength;
+	}
+	
+	/**
+	 * Sets the longest number (or other unquoted value) this parser should accept, in characters.
+	 * Converting a number takes time proportional to its length and exponent, so long numbers can be used to waste time.
+	 * 
+	 * @param maxNumberLength The maximum length, at least 5 so <code>false</code> is accepted, or {@link Integer#MAX_VALUE} to not limit it.
+	 * @throws IllegalArgumentException if the length is less than 5
+	 * @see IterativeParser
+	 */
+	public void setMaxNumberLength(int maxNumberLength)
+	{
+		this.maxNumberLength = checkLimit(maxNumberLength, 5);
+		settings = null;
+	}
+	
+	/**
+	 * Returns the parser settings matching the current options.
+	 * 
+	 * @return The settings.
+	 */
+	protected ParserSettings getSettings()
+	{
+		if(settings == null)
+		{
+			ParserSettings s = ParserSettings.get(delayed).copy();
+			s.maxDepth = maxDepth;
+			s.maxLength = maxLength;
+			s.maxStringLength = maxStringLength;
+			s.maxMembers = maxMembers;
+			s.maxNumberLength = maxNumberLength;
+			
+			//Delayed elements would be parsed later without the limits
+			if(s.isLimited())
+				s.delayed = false;
+			
+			s.lazyStrings = lazyStrings;
+			s.lazyNumbers = lazyNumbers;
+			s.strict = strict;
+			s.ordered = ordered;
+			s.interner = s.delayed ? null : interner;
+			s.schema = schema;
+			settings = s;
+		}
+		return settings;
+	}
+	
 	//Basic load methods
 	
 	/**
@@ -104,7 +418,7 @@ public class JsonParser
 	 */
 	public JsonElement process(String json) throws JsonParseException
 	{
-		return parse(json, delayed);
+		return parse(json, getSettings());
 	}
 	
 	/**
@@ -118,7 +432,8 @@ public class JsonParser
 	 */
 	public JsonElement process(InputStream stream) throws JsonParseException, IOException
 	{
-		return parse(stream, charset, delayed);
+		ParserSettings settings = getSettings();
+		return parse(readStream(stream, charset, settings), settings);
 	}
 	
 	/**
@@ -133,7 +448,8 @@ public class JsonParser
 	 */
 	public JsonElement process(InputStream stream, Charset charset) throws JsonParseException, IOException
 	{
-		return parse(stream, charset, delayed);
+		ParserSettings settings = getSettings();
+		return parse(readStream(stream, charset, settings), settings);
 	}
 	
 	//Object load methods
@@ -147,7 +463,7 @@ public class JsonParser
 	 */
 	public JsonObject processObject(String json) throws JsonParseException
 	{
-		return parseObject(json, delayed);
+		return parseObject(json, getSettings());
 	}
 	
 	/**
@@ -161,7 +477,8 @@ public class JsonParser
 	 */
 	public JsonObject processObject(InputStream stream) throws JsonParseException, IOException
 	{
-		return parseObject(stream, charset, delayed);
+		ParserSettings settings = getSettings();
+		return parseObject(readStream(stream, charset, settings), settings);
 	}
 	
 	/**
@@ -176,24 +493,79 @@ public class JsonParser
 	 */
 	public JsonObject processObject(InputStream stream, Charset charset) throws JsonParseException, IOException
 	{
-		return parseObject(stream, charset, delayed);
+		ParserSettings settings = getSettings();
+		return parseObject(readStream(stream, charset, settings), settings);
 	}
 	
 	//Array load methods
 	
 	public JsonArray processArray(String json) throws JsonParseException
 	{
-		return parseArray(json, delayed);
+		return parseArray(json, getSettings());
 	}
 	
 	public JsonArray processArray(InputStream stream) throws JsonParseException, IOException
 	{
-		return parseArray(stream, charset, delayed);
+		ParserSettings settings = getSettings();
+		return parseArray(readStream(stream, charset, settings), settings);
 	}
 	
 	public JsonArray processArray(InputStream stream, Charset charset) throws JsonParseException, IOException
 	{
-		return parseArray(stream, charset, delayed);
+		ParserSettings settings = getSettings();
+		return parseArray(readStream(stream, charset, settings), settings);
+	}
+	
+	//Asynchronous load methods
+	
+	/**
+	 * Reads and parses the given file on the executor using the parser settings.
+	 * The parser settings are taken when the method is called.
+	 * 
+	 * @param path The JSON file
+	 * @param executor The executor to read and parse on
+	 * @return The future result of parsing, which completes with <code>null</code> if a JSON object or array was not given.
+	 */
+	public CompletableFuture<JsonElement> processAsync(Path path, Executor executor)
+	{
+		ParserSettings settings = getSettings();
+		Charset charset = this.charset;
+		
+		//Files are read in chunks when there's a length limit, so reading stops once the file is too long
+		if(settings.maxLength != Integer.MAX_VALUE)
+			return supplyAsync(() -> parse(readStream(Files.newInputStream(path), charset, settings), settings), executor);
+		return supplyAsync(() -> parse(new String(Files.readAllBytes(path), charset), settings), executor);
+	}
+	
+	/**
+	 * Reads and parses the given JSON input stream on the executor using the parser settings.
+	 * The input stream is read until the end of the stream is reached, and is then closed.
+	 * 
+	 * @param stream The JSON input stream
+	 * @param executor The executor to read and parse on
+	 * @return The future result of parsing, which completes with <code>null</code> if a JSON object or array was not given.
+	 */
+	public CompletableFuture<JsonElement> processAsync(InputStream stream, Executor executor)
+	{
+		ParserSettings settings = getSettings();
+		Charset charset = this.charset;
+		return supplyAsync(() -> parse(readStream(stream, charset, settings), settings), executor);
+	}
+	
+	/**
+	 * Decodes and parses the remaining bytes of the buffer on the executor using the parser settings.
+	 * The buffer's position isn't changed, and the buffer must not be modified until parsing is complete.
+	 * 
+	 * @param buffer The JSON bytes
+	 * @param executor The executor to decode and parse on
+	 * @return The future result of parsing, which completes with <code>null</code> if a JSON object or array was not given.
+	 */
+	public CompletableFuture<JsonElement> processAsync(ByteBuffer buffer, Executor executor)
+	{
+		ParserSettings settings = getSettings();
+		Charset charset = this.charset;
+		ByteBuffer bytes = buffer.duplicate();
+		return supplyAsync(() -> parse(charset.decode(bytes).toString(), settings), executor);
 	}
 	
 	/**************************
@@ -222,18 +594,34 @@ public class JsonParser
 	 * @throws JsonParseException if an exception occurred during parsing
 	 */
 	public static JsonElement parse(String json, boolean delayed) throws JsonParseException
+	{
+		return parse(json, ParserSettings.get(delayed));
+	}
+	
+	/**
+	 * Parses the given JSON using the given settings.
+	 * @param json The JSON
+	 * @param settings The parser settings
+	 * @return A generic JSON element, or <code>null</code> if a JSON object or array was not given.
+	 * @throws JsonParseException if an exception occurred during parsing
+	 */
+	protected static JsonElement parse(String json, ParserSettings settings) throws JsonParseException
 	{
 		if(json == null)
 			throw new IllegalArgumentException("JSON string cannot be null");
 		
-		json = json.trim();
+		//Leading whitespace is skipped instead of trimmed so error locations are in the original JSON
+		int start = 0;
+		for(; start < json.length() && json.charAt(start) <= ' '; start++);
+		if(start == json.length())
+			return null;
 		
-		switch(json.charAt(0))
+		switch(json.charAt(start))
 		{
 			//Object
-			case ParserUtil.OBJECT_OPEN: return parseObject(json, delayed);
+			case ParserUtil.OBJECT_OPEN: return parseObject(json, start, settings);
 			//Array
-			case ParserUtil.ARRAY_OPEN: return parseArray(json, delayed);
+			case ParserUtil.ARRAY_OPEN: return parseArray(json, start, settings);
 			//Invalid
 			default: return null;
 		}
@@ -278,7 +666,50 @@ public class JsonParser
 	
 	public static JsonObject parseObject(String json, boolean delayed) throws JsonParseException
 	{
-		return new JsonObject(json, 0, delayed);
+		return parseObject(json, ParserSettings.get(delayed));
+	}
+	
+	protected static JsonObject parseObject(String json, ParserSettings settings) throws JsonParseException
+	{
+		return parseObject(json, 0, settings);
+	}
+	
+	/**
+	 * Parses the object starting at the given index, after any leading whitespace.
+	 * @param json The JSON
+	 * @param start The index of the opening brace
+	 * @param settings The parser settings
+	 * @return The object
+	 * @throws JsonParseException if an exception occurred during parsing
+	 */
+	private static JsonObject parseObject(String json, int start, ParserSettings settings) throws JsonParseException
+	{
+		try
+		{
+			//Untrusted input is parsed without recursion, and only validated once it's known to be within the limits
+			if(settings.isLimited())
+			{
+				JsonObject element = IterativeParser.parseObject(json, start, settings);
+				if(settings.schema != null)
+					settings.schema.validate(element);
+				return element;
+			}
+			
+			boolean scan = settings.schema != null && settings.schema.isScannable();
+			if(scan)
+				settings.schema.validate(json, settings);
+			
+			JsonObject element = ParserUtil.createObject(json, start, settings);
+			if(settings.strict)
+				StrictParser.verifyEnd(json, start+element.getRawLength());
+			if(settings.schema != null && !scan)
+				settings.schema.validate(element);
+			return element;
+		}
+		catch(JsonParseException e)
+		{
+			throw e.setInput(json);
+		}
 	}
 	
 	public static JsonObject parseObject(File file) throws JsonParseException, IOException
@@ -315,12 +746,55 @@ public class JsonParser
 	
 	public static JsonArray parseArray(String json) throws JsonParseException
 	{
-		return new JsonArray(json, 0, false);
+		return parseArray(json, false);
 	}
 	
 	public static JsonArray parseArray(String json, boolean delayed) throws JsonParseException
 	{
-		return new JsonArray(json, 0, delayed);
+		return parseArray(json, ParserSettings.get(delayed));
+	}
+	
+	protected static JsonArray parseArray(String json, ParserSettings settings) throws JsonParseException
+	{
+		return parseArray(json, 0, settings);
+	}
+	
+	/**
+	 * Parses the array starting at the given index, after any leading whitespace.
+	 * @param json The JSON
+	 * @param start The index of the opening bracket
+	 * @param settings The parser settings
+	 * @return The array
+	 * @throws JsonParseException if an exception occurred during parsing
+	 */
+	private static JsonArray parseArray(String json, int start, ParserSettings settings) throws JsonParseException
+	{
+		try
+		{
+			//Untrusted input is parsed without recursion, and only validated once it's known to be within the limits
+			if(settings.isLimited())
+			{
+				JsonArray element = IterativeParser.parseArray(json, start, settings);
+				if(settings.schema != null)
+					settings.schema.validate(element);
+				return element;
+			}
+			
+			boolean scan = settings.schema != null && settings.schema.isScannable();
+			if(scan)
+				settings.schema.validate(json, settings);
+			
+			JsonArray element = ParserUtil.createArray(json, start, settings);
+			if(settings.strict)
+				StrictParser.verifyEnd(json, start+element.getRawLength());
+			if(settings.schema != null && !scan)
+				settings.schema.validate(element);
+			return element;
+		}
+		catch(JsonParseException e)
+		{
+			throw e.setInput(json);
+		}
 	}
 	
 	public static JsonArray parseArray(File file) throws JsonParseException, IOException
@@ -353,10 +827,156 @@ public class JsonParser
 		return parseArray(readString(stream, charset), delayed);
 	}
 	
+	//Asynchronous methods
+	
+	/**
+	 * Reads and parses the given file on the common fork-join pool.
+	 * @param path The JSON file
+	 * @return The future result of parsing, which completes with <code>null</code> if a JSON object or array was not given.
+	 */
+	public static CompletableFuture<JsonElement> parseAsync(Path path)
+	{
+		return parseAsync(path, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Reads and parses the given file on the executor.
+	 * Use {@link #getVirtualThreadExecutor()} to read and parse on a virtual thread.
+	 * @param path The JSON file
+	 * @param executor The executor to read and parse on
+	 * @return The future result of parsing, which completes with <code>null</code> if a JSON object or array was not given.
+	 */
+	public static CompletableFuture<JsonElement> parseAsync(Path path, Executor executor)
+	{
+		return new JsonParser().processAsync(path, executor);
+	}
+	
+	/**
+	 * Reads and parses the given JSON input stream on the executor.
+	 * The input stream is read until the end of the stream is reached, and is then closed.
+	 * @param stream The JSON input stream
+	 * @param executor The executor to read and parse on
+	 * @return The future result of parsing, which completes with <code>null</code> if a JSON object or array was not given.
+	 */
+	public static CompletableFuture<JsonElement> parseAsync(InputStream stream, Executor executor)
+	{
+		return new JsonParser().processAsync(stream, executor);
+	}
+	
+	/**
+	 * Decodes and parses the remaining bytes of the buffer on the executor.
+	 * The buffer's position isn't changed, and the buffer must not be modified until parsing is complete.
+	 * @param buffer The JSON bytes
+	 * @param executor The executor to decode and parse on
+	 * @return The future result of parsing, which completes with <code>null</code> if a JSON object or array was not given.
+	 */
+	public static CompletableFuture<JsonElement> parseAsync(ByteBuffer buffer, Executor executor)
+	{
+		return new JsonParser().processAsync(buffer, executor);
+	}
+	
+	/**
+	 * Returns a shared executor that runs each task on a new virtual thread.
+	 * Virtual threads are only available on Java 21 and later, on earlier versions the common fork-join pool is returned instead.
+	 * @return The executor
+	 */
+	public static Executor getVirtualThreadExecutor()
+	{
+		return VirtualThreads.EXECUTOR;
+	}
+	
 	/******************
 	 * Helper methods *
 	 ******************/
 	
+	/**
+	 * Verifies a resource limit isn't less than its minimum.
+	 * @param limit The limit
+	 * @param min The smallest allowed limit
+	 * @return The limit
+	 * @throws IllegalArgumentException if the limit is less than the minimum
+	 */
+	private static int checkLimit(int limit, int min)
+	{
+		if(limit < min)
+			throw new IllegalArgumentException("Limit cannot be less than "+min);
+		return limit;
+	}
+	
+	/**
+	 * A parsing task that can fail with an I/O exception.
+	 */
+	private interface AsyncTask
+	{
+		JsonElement run() throws IOException;
+	}
+	
+	/**
+	 * Runs the task on the executor.
+	 * The future is completed exceptionally with any exception thrown by the task, or if the executor rejects the task.
+	 * @param task The task
+	 * @param executor The executor
+	 * @return The future result of the task
+	 */
+	private static CompletableFuture<JsonElement> supplyAsync(AsyncTask task, Executor executor)
+	{
+		CompletableFuture<JsonElement> future = new CompletableFuture<>();
+		try
+		{
+			executor.execute(() ->
+			{
+				try
+				{
+					future.complete(task.run());
+				}
+				catch(Throwable e)
+				{
+					future.completeExceptionally(e);
+				}
+			});
+		}
+		catch(RejectedExecutionException e)
+		{
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+	
+	/**
+	 * Holds the virtual thread executor, which is looked up when first used.
+	 */
+	private static class VirtualThreads
+	{
+		private static final Executor EXECUTOR = create();
+		
+		private static Executor create()
+		{
+			try
+			{
+				Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+				return (Executor)method.invoke(null);
+			}
+			catch(ReflectiveOperationException e)
+			{
+				return ForkJoinPool.commonPool();
+			}
+		}
+	}
+	
+	/**
+	 * Reads the entire input stream into a string using this parser's buffers when they're free.
+	 * @param stream The stream to read
+	 * @param charset The character set to use
+	 * @param settings The parser settings, whose length limit stops reading early
+	 * @return The string read from the stream
+	 * @throws IOException if the input stream couldn't be read
+	 * @throws JsonParseException if the input stream is longer than the limit
+	 */
+	private String readStream(InputStream stream, Charset charset, ParserSettings settings) throws IOException
+	{
+		return readString(new InputStreamReader(stream, charset), buffers, settings);
+	}
+	
 	/**
 	 * Reads the entire input stream into a string.
 	 * @param stream The stream to read
@@ -366,15 +986,7 @@ public class JsonParser
 	 */
 	private static String readString(InputStream stream, Charset charset) throws IOException
 	{
-		StringBuilder json = new StringBuilder();
-		try(BufferedReader reader = new BufferedReader(new InputStreamReader(stream, charset)))
-		{
-			char[] buf = new char[512];
-			while(reader.read(buf) > 0)
-				json.append(buf);
-		}
-		System.out.println(json.toString());
-		return json.toString();
+		return readString(new InputStreamReader(stream, charset), null, ParserSettings.DEFAULT);
 	}
 	
 	/**
@@ -385,13 +997,35 @@ public class JsonParser
 	 */
 	private static String readString(File file) throws IOException
 	{
-		StringBuilder json = new StringBuilder();
-		try(BufferedReader reader = new BufferedReader(new FileReader(file)))
+		return readString(new FileReader(file), null, ParserSettings.DEFAULT);
+	}
+	
+	/**
+	 * Reads the entire reader into a string using reusable buffers, then closes the reader.
+	 * @param reader The reader to read
+	 * @param preferred The buffers to use if they're free, or <code>null</code> to use the current thread's buffers
+	 * @param settings The parser settings, whose length limit stops reading early
+	 * @return The string read from the reader
+	 * @throws IOException if the reader couldn't be read
+	 * @throws JsonParseException if the reader is longer than the limit
+	 */
+	private static String readString(Reader reader, ParserBuffers preferred, ParserSettings settings) throws IOException
+	{
+		ParserBuffers buffers = ParserBuffers.acquire(preferred);
+		try(Reader r = reader)
+		{
+			StringBuilder json = buffers.getText();
+			char[] buf = buffers.getChars();
+			for(int read; (read = r.read(buf)) > 0;)
+			{
+				json.append(buf, 0, read);
+				IterativeParser.checkLength(json.length(), settings);
+			}
+			return json.toString();
+		}
+		finally
 		{
-			char[] buf = new char[512];
-			while(reader.read(buf) > 0)
-				json.append(buf);
+			buffers.release();
 		}
-		return json.toString();
 	}
 }
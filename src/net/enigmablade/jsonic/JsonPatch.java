@@ -0,0 +1,542 @@
+package net.enigmablade.jsonic;
+
+import java.util.*;
+import net.enigmablade.jsonic.ValueUtil.*;
+
+/**
+ * <p>A compiled JSON Patch (RFC 6902) that can be applied to objects and arrays any number of times.</p>
+ * <p>Patches are compiled once, with their paths split into tokens, and then either applied in place or onto a copy:</p>
+ * <pre>
+ * JsonPatch patch = JsonPatch.parse("[{\"op\":\"replace\",\"path\":\"/a/b\",\"value\":1}]");
+ * patch.apply(document);
+ * JsonElement updated = patch.applyCopy(document);
+ * </pre>
+ * <p>Only the objects and arrays along a patch's paths are parsed, so delayed elements the patch doesn't touch stay delayed.
+ * Applying onto a copy only copies the objects and arrays along the paths and shares everything else with the original,
+ * so the original shouldn't be changed in place afterwards while the copy is in use.</p>
+ * <p>In-place application isn't atomic: if an operation fails, the operations before it have already been applied.
+ * Use {@link #applyCopy(JsonElement)} when the original must be left untouched on failure.</p>
+ * 
+ * @author Enigma
+ */
+public class JsonPatch
+{
+	/**
+	 * The supported operations.
+	 */
+	protected enum Op { ADD, REMOVE, REPLACE, MOVE, COPY, TEST };
+	
+	private static final String END = "-";
+	
+	private final List<Operation> operations;
+	
+	/******************
+	 * Initialization *
+	 ******************/
+	
+	/**
+	 * Compiles the given array of patch operations.
+	 * @param patch The patch
+	 * @throws JsonPatchException if an operation is invalid
+	 * @throws IllegalArgumentException if the patch is <code>null</code>
+	 */
+	public JsonPatch(JsonArray patch)
+	{
+		if(patch == null)
+			throw new IllegalArgumentException("Patch cannot be null");
+		
+		operations = new ArrayList<>(patch.size());
+		for(Value value : patch.getValues())
+		{
+			if(value == null || value.type != ValueType.OBJECT)
+				throw new JsonPatchException(JsonPatchException.Type.INVALID_OPERATION, value);
+			operations.add(compile((JsonObject)value.value));
+		}
+	}
+	
+	/**
+	 * Parses and compiles the given patch.
+	 * @param json The patch, a JSON array of operations
+	 * @return The compiled patch
+	 * @throws JsonParseException if the patch isn't a valid JSON array
+	 * @throws JsonPatchException if an operation is invalid
+	 */
+	public static JsonPatch parse(String json)
+	{
+		return new JsonPatch(JsonParser.parseArray(json));
+	}
+	
+	/**
+	 * Returns the number of operations in the patch.
+	 * @return The number of operations
+	 */
+	public int size()
+	{
+		return operations.size();
+	}
+	
+	/**
+	 * Returns the patch as a JSON array of operations.
+	 * @return The JSON formatted patch
+	 */
+	@Override
+	public String toString()
+	{
+		JsonArray patch = new JsonArray(operations.size());
+		for(Operation operation : operations)
+			patch.add(operation.toObject());
+		return patch.toString();
+	}
+	
+	/************
+	 * Applying *
+	 ************/
+	
+	/**
+	 * Applies the patch to the element, changing it in place.
+	 * @param target The element
+	 * @return The patched element, which is the target unless the patch replaced the whole document
+	 * @throws JsonPatchException if an operation couldn't be applied
+	 * @throws JsonException if an exception occurred during parsing
+	 * @throws UnsupportedOperationException if the element or a part of it that's changed is frozen
+	 */
+	public JsonElement apply(JsonElement target)
+	{
+		return apply(target, false);
+	}
+	
+	/**
+	 * Applies the patch onto a copy of the element, leaving the element untouched.
+	 * Objects and arrays that the patch doesn't change are shared between the copy and the original.
+	 * @param target The element
+	 * @return The patched copy
+	 * @throws JsonPatchException if an operation couldn't be applied
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public JsonElement applyCopy(JsonElement target)
+	{
+		return apply(target, true);
+	}
+	
+	private JsonElement apply(JsonElement target, boolean copy)
+	{
+		if(target == null)
+			throw new IllegalArgumentException("Target cannot be null");
+		
+		State state = new State(target, copy);
+		for(Operation operation : operations)
+			operation.apply(state);
+		
+		if(state.root == null || !(state.root.value instanceof JsonElement))
+			throw new JsonPatchException(JsonPatchException.Type.INVALID_TARGET, "");
+		return (JsonElement)state.root.value;
+	}
+	
+	/**************
+	 * Operations *
+	 **************/
+	
+	private static Operation compile(JsonObject object)
+	{
+		Op op;
+		try
+		{
+			op = Op.valueOf(object.getString("op").toUpperCase(Locale.ROOT));
+		}
+		catch(RuntimeException e)
+		{
+			throw new JsonPatchException(JsonPatchException.Type.INVALID_OPERATION, object);
+		}
+		
+		Operation operation = new Operation(op, getPointer(object, "path"));
+		switch(op)
+		{
+			case ADD:
+			case REPLACE:
+			case TEST:
+				if(!object.containsKey("value"))
+					throw new JsonPatchException(JsonPatchException.Type.INVALID_OPERATION, object);
+				operation.value = object.getValues().get("value");
+				if(operation.value == null)
+					operation.value = ValueUtil.createNullValue();
+				break;
+			
+			case MOVE:
+			case COPY:
+				operation.from = getPointer(object, "from");
+				break;
+			
+			default:
+		}
+		return operation;
+	}
+	
+	private static String[] getPointer(JsonObject object, String key)
+	{
+		Value value = object.getValues().get(key);
+		if(value == null || value.type != ValueType.STRING)
+			throw new JsonPatchException(JsonPatchException.Type.INVALID_OPERATION, object);
+		return parsePointer((String)value.get());
+	}
+	
+	/**
+	 * A single compiled operation.
+	 */
+	private static class Operation
+	{
+		private final Op op;
+		private final String[] path;
+		private String[] from;
+		private Value value;
+		
+		public Operation(Op op, String[] path)
+		{
+			this.op = op;
+			this.path = path;
+		}
+		
+		public void apply(State state)
+		{
+			switch(op)
+			{
+				case ADD:
+					state.add(path, ValueUtil.copyValue(value));
+					break;
+				
+				case REMOVE:
+					state.remove(path);
+					break;
+				
+				case REPLACE:
+					state.replace(path, ValueUtil.copyValue(value));
+					break;
+				
+				case MOVE:
+					if(isPrefix(from, path) && from.length < path.length)
+						throw new JsonPatchException(JsonPatchException.Type.INVALID_TARGET, formatPointer(path));
+					state.add(path, state.remove(from));
+					break;
+				
+				case COPY:
+					state.add(path, ValueUtil.copyValue(state.get(from)));
+					break;
+				
+				case TEST:
+					if(!ValueUtil.deepEquals(state.get(path), value))
+						throw new JsonPatchException(JsonPatchException.Type.TEST_FAILED, formatPointer(path));
+					break;
+			}
+		}
+		
+		public JsonObject toObject()
+		{
+			JsonObject object = new JsonObject();
+			object.put("op", op.name().toLowerCase(Locale.ROOT));
+			if(from != null)
+				object.put("from", formatPointer(from));
+			object.put("path", formatPointer(path));
+			if(value != null)
+				object.getValues().put("value", value);
+			return object;
+		}
+	}
+	
+	/**
+	 * The document being patched by a single application.
+	 */
+	private static class State
+	{
+		private Value root;
+		
+		//Objects and arrays copied for this application, which can be changed in place
+		private final Set<JsonElement> copies;
+		
+		public State(JsonElement target, boolean copy)
+		{
+			root = new Value(target instanceof JsonObject ? ValueType.OBJECT : ValueType.ARRAY, target);
+			copies = copy ? Collections.newSetFromMap(new IdentityHashMap<JsonElement, Boolean>()) : null;
+		}
+		
+		public Value get(String[] path)
+		{
+			Value current = root;
+			for(int n = 0; n < path.length; n++)
+			{
+				current = getChild(current, path, n);
+				if(current == null)
+					throw new JsonPatchException(JsonPatchException.Type.MISSING_PATH, formatPointer(path));
+			}
+			return current;
+		}
+		
+		public void add(String[] path, Value value)
+		{
+			if(path.length == 0)
+			{
+				root = value;
+				return;
+			}
+			
+			JsonElement parent = getParent(path);
+			String token = path[path.length-1];
+			if(parent instanceof JsonObject)
+			{
+				parent.changed(((JsonObject)parent).getValues().put(token, value));
+			}
+			else
+			{
+				List<Value> values = ((JsonArray)parent).getValues();
+				int index = END.equals(token) ? values.size() : getIndex(path, path.length-1, values.size()+1);
+				values.add(index, value);
+				parent.changed(null);
+			}
+		}
+		
+		public Value remove(String[] path)
+		{
+			if(path.length == 0)
+			{
+				Value removed = root;
+				root = null;
+				return removed;
+			}
+			
+			JsonElement parent = getParent(path);
+			String token = path[path.length-1];
+			Value removed;
+			if(parent instanceof JsonObject)
+			{
+				Map<String, Value> values = ((JsonObject)parent).getValues();
+				if(!values.containsKey(token))
+					throw new JsonPatchException(JsonPatchException.Type.MISSING_PATH, formatPointer(path));
+				removed = values.remove(token);
+			}
+			else
+			{
+				List<Value> values = ((JsonArray)parent).getValues();
+				removed = values.remove(getIndex(path, path.length-1, values.size()));
+			}
+			parent.changed(removed);
+			return removed == null ? ValueUtil.createNullValue() : removed;
+		}
+		
+		/**
+		 * Replaces the existing value at the path, keeping its place in ordered objects.
+		 */
+		public void replace(String[] path, Value value)
+		{
+			if(path.length == 0)
+			{
+				root = value;
+				return;
+			}
+			
+			JsonElement parent = getParent(path);
+			String token = path[path.length-1];
+			Value replaced;
+			if(parent instanceof JsonObject)
+			{
+				Map<String, Value> values = ((JsonObject)parent).getValues();
+				if(!values.containsKey(token))
+					throw new JsonPatchException(JsonPatchException.Type.MISSING_PATH, formatPointer(path));
+				replaced = values.put(token, value);
+			}
+			else
+			{
+				List<Value> values = ((JsonArray)parent).getValues();
+				replaced = values.set(getIndex(path, path.length-1, values.size()), value);
+			}
+			parent.changed(replaced);
+		}
+		
+		/**
+		 * Returns the object or array containing the last token of the path, copying it and everything above it if needed.
+		 */
+		private JsonElement getParent(String[] path)
+		{
+			root = own(root);
+			Value current = root;
+			for(int n = 0; n < path.length-1; n++)
+			{
+				Value child = getChild(current, path, n);
+				if(child == null)
+					throw new JsonPatchException(JsonPatchException.Type.MISSING_PATH, formatPointer(path));
+				
+				//Copied containers are changed in place, so copies of their children replace the originals
+				Value owned = own(child);
+				if(owned != child)
+				{
+					if(current.value instanceof JsonObject)
+						((JsonObject)current.value).getValues().put(path[n], owned);
+					else
+						((JsonArray)current.value).getValues().set(getIndex(path, n, Integer.MAX_VALUE), owned);
+				}
+				current = owned;
+			}
+			
+			if(!(current.value instanceof JsonElement))
+				throw new JsonPatchException(JsonPatchException.Type.INVALID_TARGET, formatPointer(path));
+			JsonElement parent = (JsonElement)current.value;
+			parent.verifyMutable();
+			return parent;
+		}
+		
+		/**
+		 * Returns a copy of the object or array that can be changed, or the value itself when patching in place.
+		 */
+		private Value own(Value value)
+		{
+			if(copies == null || value == null || !(value.value instanceof JsonElement) || copies.contains(value.value))
+				return value;
+			
+			JsonElement copy;
+			if(value.value instanceof JsonObject)
+			{
+				JsonObject object = new JsonObject(((JsonObject)value.value).isOrdered());
+				object.getValues().putAll(((JsonObject)value.value).getValues());
+				copy = object;
+			}
+			else
+			{
+				List<Value> values = ((JsonArray)value.value).getValues();
+				JsonArray array = new JsonArray(values.size());
+				array.getValues().addAll(values);
+				copy = array;
+			}
+			copies.add(copy);
+			return new Value(value.type, copy);
+		}
+		
+		private static Value getChild(Value value, String[] path, int n)
+		{
+			if(value == null)
+				return null;
+			if(value.value instanceof JsonObject)
+			{
+				Map<String, Value> values = ((JsonObject)value.value).getValues();
+				Value child = values.get(path[n]);
+				if(child == null && values.containsKey(path[n]))
+					return ValueUtil.createNullValue();
+				return child;
+			}
+			if(value.value instanceof JsonArray)
+			{
+				List<Value> values = ((JsonArray)value.value).getValues();
+				Value child = values.get(getIndex(path, n, values.size()));
+				return child == null ? ValueUtil.createNullValue() : child;
+			}
+			return null;
+		}
+		
+		/**
+		 * Returns the array index of the token, which must be less than the limit.
+		 */
+		private static int getIndex(String[] path, int n, int limit)
+		{
+			String token = path[n];
+			int length = token.length();
+			if(length == 0 || length > 10 || (length > 1 && token.charAt(0) == '0'))
+				throw new JsonPatchException(JsonPatchException.Type.MISSING_PATH, formatPointer(path));
+			
+			long index = 0;
+			for(int i = 0; i < length; i++)
+			{
+				char c = token.charAt(i);
+				if(c < '0' || c > '9')
+					throw new JsonPatchException(JsonPatchException.Type.MISSING_PATH, formatPointer(path));
+				index = index*10+(c-'0');
+			}
+			if(index >= limit)
+				throw new JsonPatchException(JsonPatchException.Type.MISSING_PATH, formatPointer(path));
+			return (int)index;
+		}
+	}
+	
+	/*****************
+	 * JSON pointers *
+	 *****************/
+	
+	/**
+	 * Splits a JSON pointer (RFC 6901) into its unescaped tokens.
+	 * @param pointer The pointer
+	 * @return The tokens, which are empty for the whole document
+	 * @throws JsonPatchException if the pointer is invalid
+	 */
+	protected static String[] parsePointer(String pointer)
+	{
+		if(pointer.isEmpty())
+			return new String[0];
+		if(pointer.charAt(0) != '/')
+			throw new JsonPatchException(JsonPatchException.Type.INVALID_POINTER, pointer);
+		
+		List<String> tokens = new ArrayList<>();
+		StringBuilder token = new StringBuilder();
+		for(int n = 1; n <= pointer.length(); n++)
+		{
+			char c = n < pointer.length() ? pointer.charAt(n) : '/';
+			if(c == '/')
+			{
+				tokens.add(token.toString());
+				token.setLength(0);
+			}
+			else if(c == '~')
+			{
+				char next = ++n < pointer.length() ? pointer.charAt(n) : 0;
+				if(next == '0')
+					token.append('~');
+				else if(next == '1')
+					token.append('/');
+				else
+					throw new JsonPatchException(JsonPatchException.Type.INVALID_POINTER, pointer);
+			}
+			else
+			{
+				token.append(c);
+			}
+		}
+		return tokens.toArray(new String[tokens.size()]);
+	}
+	
+	/**
+	 * Joins tokens into a JSON pointer, escaping them.
+	 * @param tokens The tokens
+	 * @return The pointer
+	 */
+	protected static String formatPointer(String[] tokens)
+	{
+		StringBuilder pointer = new StringBuilder();
+		for(String token : tokens)
+			appendToken(pointer, token);
+		return pointer.toString();
+	}
+	
+	/**
+	 * Appends a token to a JSON pointer, escaping it.
+	 * @param pointer The pointer being built
+	 * @param token The token
+	 */
+	protected static void appendToken(StringBuilder pointer, String token)
+	{
+		pointer.append('/');
+		for(int n = 0; n < token.length(); n++)
+		{
+			char c = token.charAt(n);
+			if(c == '~')
+				pointer.append("~0");
+			else if(c == '/')
+				pointer.append("~1");
+			else
+				pointer.append(c);
+		}
+	}
+	
+	private static boolean isPrefix(String[] prefix, String[] path)
+	{
+		if(prefix.length > path.length)
+			return false;
+		for(int n = 0; n < prefix.length; n++)
+			if(!prefix[n].equals(path[n]))
+				return false;
+		return true;
+	}
+}
@@ -0,0 +1,46 @@
+package net.enigmablade.jsonic;
+
+/**
+ * An exception thrown if a patch is invalid or couldn't be applied.
+ * 
+ * @author Enigma
+ */
+public class JsonPatchException extends JsonException
+{
+	private static final long serialVersionUID = 6094735284610946623L;
+	
+	/**
+	 * The types of possible patch errors.
+	 * @author EnigmaBlade
+	 */
+	protected enum Type { INVALID_OPERATION, INVALID_POINTER, MISSING_PATH, INVALID_TARGET, TEST_FAILED };
+	
+	//Message options
+	private Type type;
+	private Object thing;
+	
+	protected JsonPatchException(Type type, Object thing)
+	{
+		this.type = type;
+		this.thing = thing;
+	}
+	
+	/**
+	 * Returns the message associated with the exception.
+	 * @return The exception message
+	 */
+	@Override
+	public String getMessage()
+	{
+		switch(type)
+		{
+			case INVALID_OPERATION: return "Invalid patch operation "+thing;
+			case INVALID_POINTER: return "Invalid JSON pointer \""+thing+"\"";
+			case MISSING_PATH: return "No value at path \""+thing+"\"";
+			case INVALID_TARGET: return "Path \""+thing+"\" can't be used as a target";
+			case TEST_FAILED: return "Test failed at path \""+thing+"\"";
+			
+			default: return null;
+		}
+	}
+}
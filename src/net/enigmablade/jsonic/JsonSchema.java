@@ -0,0 +1,1012 @@
+package net.enigmablade.jsonic;
+
+import java.math.*;
+import java.util.*;
+import java.util.regex.*;
+import net.enigmablade.jsonic.ValueUtil.*;
+
+/**
+ * <p>A compiled JSON Schema that validates parsed elements, or JSON strings without parsing them into elements.</p>
+ * <pre>
+ * JsonSchema schema = JsonSchema.parse(schemaJson);
+ * schema.validate(json);
+ * JsonObject request = JsonParser.parseObject(json);
+ * </pre>
+ * <p>Validating a string walks the JSON once, checking each value as it's reached and stopping at the first one
+ * that doesn't match, so invalid input is rejected without building anything. Only the parts of the schema that need
+ * a whole value at once (<code>enum</code>, <code>const</code>, <code>uniqueItems</code>, and the combinations
+ * <code>allOf</code>, <code>anyOf</code>, <code>oneOf</code> and <code>not</code>) parse that value first.
+ * A parser can also validate everything it parses with @link JsonParser#setSchema(JsonSchema).</p>
+ * <p>Supported keywords are <code>type</code>, <code>enum</code>, <code>const</code>, <code>properties</code>,
+ * <code>required</code>, <code>additionalProperties</code>, <code>minProperties</code>, <code>maxProperties</code>,
+ * <code>items</code>, <code>additionalItems</code>, <code>minItems</code>, <code>maxItems</code>, <code>uniqueItems</code>,
+ * <code>minLength</code>, <code>maxLength</code>, <code>pattern</code>, <code>minimum</code>, <code>maximum</code>,
+ * <code>exclusiveMinimum</code>, <code>exclusiveMaximum</code>, <code>multipleOf</code>, the combinations,
+ * and <code>$ref</code> to pointers within the same schema. Other keywords are ignored.</p>
+ * <p>Compiled schemas can't be changed and can be used from multiple threads.</p>
+ * 
+ * @author Enigma
+ */
+public class JsonSchema
+{
+	//Type flags
+	private static final int OBJECT = 1, ARRAY = 2, STRING = 4, NUMBER = 8, INTEGER = 16, BOOLEAN = 32, NULL = 64;
+	private static final String[] TYPE_NAMES = {"object", "array", "string", "number", "integer", "boolean", "null"};
+	
+	//Schemas that accept everything and nothing
+	private static final Node ANY = new Node();
+	private static final Node NOTHING = new Node();
+	static
+	{
+		NOTHING.nothing = true;
+	}
+	
+	private final Node root;
+	
+	/**
+	 * Compiles the given schema.
+	 * @param schema The schema
+	 * @throws JsonSchemaException if the schema is invalid
+	 * @throws JsonException if an exception occurred during parsing
+	 * @throws IllegalArgumentException if the schema is <code>null</code>
+	 */
+	public JsonSchema(JsonObject schema)
+	{
+		if(schema == null)
+			throw new IllegalArgumentException("Schema cannot be null");
+		root = new Compiler(schema).compile();
+	}
+	
+	/**
+	 * Parses and compiles the given schema.
+	 * @param json The schema
+	 * @return The compiled schema
+	 * @throws JsonParseException if the schema isn't a valid JSON object
+	 * @throws JsonSchemaException if the schema is invalid
+	 */
+	public static JsonSchema parse(String json)
+	{
+		return new JsonSchema(JsonParser.parseObject(json));
+	}
+	
+	/**************
+	 * Validation *
+	 **************/
+	
+	/**
+	 * Validates the element against the schema, stopping at the first value that doesn't match.
+	 * @param element The element
+	 * @throws JsonSchemaException if the element doesn't match the schema
+	 * @throws JsonException if an exception occurred during parsing
+	 * @throws IllegalArgumentException if the element is <code>null</code>
+	 */
+	public void validate(JsonElement element)
+	{
+		if(element == null)
+			throw new IllegalArgumentException("Element cannot be null");
+		
+		Context context = new Context();
+		if(!context.check(ValueUtil.createValue((Object)element), root))
+			throw context.error;
+	}
+	
+	/**
+	 * Validates the JSON against the schema without parsing it into elements, stopping at the first value that doesn't match.
+	 * The same JSON is accepted as by the parser, and objects are sized by their distinct keys, as they are once parsed.
+	 * @param json The JSON string
+	 * @throws JsonSchemaException if the JSON doesn't match the schema
+	 * @throws JsonParseException if the JSON isn't valid, with the same error parsing it would throw
+	 * @throws IllegalArgumentException if the string is <code>null</code>
+	 */
+	public void validate(String json)
+	{
+		validate(json, ParserSettings.DEFAULT);
+	}
+	
+	/**
+	 * Validates the JSON that's about to be parsed with the given settings.
+	 * If the JSON isn't valid, the error is the one parsing it with the settings would throw.
+	 * @param json The JSON string
+	 * @param settings The parser settings
+	 * @throws JsonSchemaException if the JSON doesn't match the schema
+	 * @throws JsonParseException if the JSON isn't valid
+	 * @throws IllegalArgumentException if the string is <code>null</code>
+	 */
+	protected void validate(String json, ParserSettings settings)
+	{
+		if(json == null)
+			throw new IllegalArgumentException("JSON string cannot be null");
+		
+		Context context = new Context();
+		if(!context.scanRoot(json, root, settings))
+			throw context.error;
+	}
+	
+	/**
+	 * Returns whether documents can be validated by scanning them before they're parsed.
+	 * A schema that checks the whole root value has to build it anyway, so those documents are parsed first and the element is validated.
+	 * @return <code>true</code> if the JSON can be validated before it's parsed, otherwise <code>false</code>
+	 */
+	protected boolean isScannable()
+	{
+		return !root.target().needsValue;
+	}
+	
+	/**
+	 * Returns whether or not the element matches the schema.
+	 * @param element The element
+	 * @return <code>true</code> if the element matches, otherwise <code>false</code>
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public boolean isValid(JsonElement element)
+	{
+		return element != null && new Context().check(ValueUtil.createValue((Object)element), root);
+	}
+	
+	/**
+	 * Returns whether or not the JSON matches the schema, without parsing it into elements.
+	 * @param json The JSON string
+	 * @return <code>true</code> if the JSON matches, otherwise <code>false</code>
+	 * @throws JsonParseException if the JSON isn't valid
+	 */
+	public boolean isValid(String json)
+	{
+		return json != null && new Context().scanRoot(json, root, ParserSettings.DEFAULT);
+	}
+	
+	/**
+	 * The state of a single validation: the path to the current value and the first error found.
+	 */
+	private static class Context
+	{
+		private final ArrayList<String> path = new ArrayList<>();
+		private JsonSchemaException error;
+		
+		/***********************
+		 * Validating elements *
+		 ***********************/
+		
+		private boolean check(Value value, Node node)
+		{
+			node = node.target();
+			if(node.nothing)
+				return fail(JsonSchemaException.Type.NOT_ALLOWED, null);
+			if(value == null)
+				value = ValueUtil.createNullValue();
+			
+			int type = typeOf(value);
+			if(node.types != 0 && (node.types & type) == 0)
+				return fail(JsonSchemaException.Type.WRONG_TYPE, node.getTypeNames());
+			if(!checkWhole(value, node))
+				return false;
+			
+			switch(value.type)
+			{
+				case OBJECT:
+					JsonObject object = (JsonObject)value.value;
+					Map<String, Value> values = object.getValues();
+					for(Map.Entry<String, Value> entry : values.entrySet())
+					{
+						path.add(entry.getKey());
+						boolean valid = checkProperty(entry.getKey(), entry.getValue(), node);
+						path.remove(path.size()-1);
+						if(!valid)
+							return false;
+					}
+					if(!checkSize(values.size(), node.minProperties, node.maxProperties))
+						return false;
+					if(node.required != null)
+						for(String key : node.required)
+							if(!values.containsKey(key))
+								return fail(JsonSchemaException.Type.MISSING_PROPERTY, key);
+					return true;
+				
+				case ARRAY:
+					List<Value> items = ((JsonArray)value.value).getValues();
+					for(int n = 0; n < items.size(); n++)
+					{
+						Node item = node.getItem(n);
+						if(item == ANY)
+							continue;
+						path.add(Integer.toString(n));
+						boolean valid = check(items.get(n), item);
+						path.remove(path.size()-1);
+						if(!valid)
+							return false;
+					}
+					return checkSize(items.size(), node.minItems, node.maxItems);
+				
+				default:
+					return checkScalar(value, type, node);
+			}
+		}
+		
+		private boolean checkProperty(String key, Value value, Node node)
+		{
+			Node child = node.properties == null ? null : node.properties.get(key);
+			if(child == null)
+			{
+				if(node.additional == NOTHING)
+					return fail(JsonSchemaException.Type.UNEXPECTED_PROPERTY, key);
+				if(node.additional == null)
+					return true;
+				child = node.additional;
+			}
+			return check(value, child);
+		}
+		
+		/**
+		 * Checks the keywords that need the whole value at once.
+		 */
+		private boolean checkWhole(Value value, Node node)
+		{
+			if(!node.needsValue)
+				return true;
+			
+			if(node.allowed != null)
+			{
+				boolean found = false;
+				for(Value allowed : node.allowed)
+					if(found = ValueUtil.deepEquals(value, allowed))
+						break;
+				if(!found)
+					return fail(JsonSchemaException.Type.NOT_ALLOWED, null);
+			}
+			
+			if(node.uniqueItems && value.type == ValueType.ARRAY)
+			{
+				Set<Value> seen = new HashSet<>();
+				for(Value item : ((JsonArray)value.value).getValues())
+					if(!seen.add(item == null ? ValueUtil.createNullValue() : item))
+						return fail(JsonSchemaException.Type.NOT_UNIQUE, null);
+			}
+			
+			if(node.allOf != null)
+				for(Node n : node.allOf)
+					if(!check(value, n))
+						return false;
+			
+			if(node.anyOf != null && countMatches(value, node.anyOf, 1) == 0)
+				return fail(JsonSchemaException.Type.NO_MATCH, "any of the schemas");
+			if(node.oneOf != null && countMatches(value, node.oneOf, 2) != 1)
+				return fail(JsonSchemaException.Type.NO_MATCH, "exactly one of the schemas");
+			if(node.not != null && countMatches(value, new Node[] {node.not}, 1) != 0)
+				return fail(JsonSchemaException.Type.NO_MATCH, "the schema, since it's disallowed");
+			
+			if(node.ref != null && node.ref != node)
+				return check(value, node.ref);
+			return true;
+		}
+		
+		private int countMatches(Value value, Node[] nodes, int limit)
+		{
+			int matches = 0, depth = path.size();
+			for(int n = 0; n < nodes.length && matches < limit; n++)
+			{
+				if(check(value, nodes[n]))
+					matches++;
+				while(path.size() > depth)
+					path.remove(path.size()-1);
+			}
+			return matches;
+		}
+		
+		private boolean checkScalar(Value value, int type, Node node)
+		{
+			if((type & STRING) != 0 && node.hasStringLimits)
+			{
+				String s = (String)value.get();
+				int length = node.minLength > 0 || node.maxLength >= 0 ? s.codePointCount(0, s.length()) : 0;
+				if(length < node.minLength)
+					return fail(JsonSchemaException.Type.TOO_SHORT, node.minLength);
+				if(node.maxLength >= 0 && length > node.maxLength)
+					return fail(JsonSchemaException.Type.TOO_LONG, node.maxLength);
+				if(node.pattern != null && !node.pattern.matcher(s).find())
+					return fail(JsonSchemaException.Type.PATTERN_MISMATCH, node.pattern.pattern());
+			}
+			else if((type & NUMBER) != 0 && node.hasNumberLimits)
+			{
+				BigDecimal d = toDecimal(value);
+				if(d == null)
+					return fail(JsonSchemaException.Type.WRONG_TYPE, "a finite number");
+				if(node.minimum != null && d.compareTo(node.minimum) < 0)
+					return fail(JsonSchemaException.Type.TOO_SMALL, node.minimum);
+				if(node.exclusiveMinimum != null && d.compareTo(node.exclusiveMinimum) <= 0)
+					return fail(JsonSchemaException.Type.TOO_SMALL, "or equal to "+node.exclusiveMinimum);
+				if(node.maximum != null && d.compareTo(node.maximum) > 0)
+					return fail(JsonSchemaException.Type.TOO_LARGE, node.maximum);
+				if(node.exclusiveMaximum != null && d.compareTo(node.exclusiveMaximum) >= 0)
+					return fail(JsonSchemaException.Type.TOO_LARGE, "or equal to "+node.exclusiveMaximum);
+				if(node.multipleOf != null && !isMultiple(d, node.multipleOf))
+					return fail(JsonSchemaException.Type.NOT_MULTIPLE, node.multipleOf);
+			}
+			return true;
+		}
+		
+		private boolean checkSize(int size, int min, int max)
+		{
+			if(size < min)
+				return fail(JsonSchemaException.Type.TOO_FEW, min);
+			if(max >= 0 && size > max)
+				return fail(JsonSchemaException.Type.TOO_MANY, max);
+			return true;
+		}
+		
+		private boolean fail(JsonSchemaException.Type type, Object thing)
+		{
+			error = new JsonSchemaException(type, JsonPatch.formatPointer(path.toArray(new String[path.size()])), thing);
+			return false;
+		}
+		
+		private int failAt(JsonSchemaException.Type type, Object thing)
+		{
+			fail(type, thing);
+			return -1;
+		}
+		
+		/**********************
+		 * Validating strings *
+		 **********************/
+		
+		/**
+		 * Validates the whole JSON, throwing the parser's error if it isn't valid.
+		 * The scanner can come across a problem in a different way than the parser does, so the JSON is parsed
+		 * to find the parser's error. Only invalid JSON pays for the second pass.
+		 */
+		private boolean scanRoot(String json, Node node, ParserSettings settings)
+		{
+			try
+			{
+				return scan(json, 0, node) >= 0;
+			}
+			catch(JsonParseException e)
+			{
+				ParserSettings parse = settings.copy();
+				parse.delayed = false;
+				parse.arena = null;
+				parse.interner = null;
+				parse.schema = null;
+				JsonParser.parse(json, parse);
+				throw e;
+			}
+		}
+		
+		/**
+		 * Validates the value starting at or after the given index.
+		 * @return The index after the value, or -1 if it doesn't match
+		 */
+		private int scan(String json, int index, Node node)
+		{
+			index = ParserUtil.nextNonWhitespace(json, index);
+			char c = ParserUtil.charAt(json, index);
+			node = node.target();
+			if(node.nothing)
+				return failAt(JsonSchemaException.Type.NOT_ALLOWED, null);
+			
+			//Parse values that have to be checked as a whole
+			if(node.needsValue)
+			{
+				Value value;
+				int end;
+				if(c == ParserUtil.OBJECT_OPEN || c == ParserUtil.ARRAY_OPEN)
+				{
+					JsonElement element = c == ParserUtil.OBJECT_OPEN ? new JsonObject(json, index, ParserSettings.DEFAULT) : new JsonArray(json, index, ParserSettings.DEFAULT);
+					value = ValueUtil.createValue((Object)element);
+					end = index+element.getRawLength();
+				}
+				else if(ParserUtil.isStringChar(c))
+				{
+					end = ParserUtil.getStringBlockEnd(json, index);
+					value = ParserUtil.getStringValue(json, index, end++, ParserSettings.DEFAULT);
+				}
+				else
+				{
+					end = ParserUtil.getUnknownBlockEnd(json, index);
+					value = ParserUtil.getUnknownValue(json, index, end, ParserSettings.DEFAULT);
+				}
+				return check(value, node) ? end : -1;
+			}
+			
+			if(c == ParserUtil.OBJECT_OPEN)
+			{
+				if(node.types != 0 && (node.types & OBJECT) == 0)
+					return failAt(JsonSchemaException.Type.WRONG_TYPE, node.getTypeNames());
+				return scanObject(json, index, node);
+			}
+			if(c == ParserUtil.ARRAY_OPEN)
+			{
+				if(node.types != 0 && (node.types & ARRAY) == 0)
+					return failAt(JsonSchemaException.Type.WRONG_TYPE, node.getTypeNames());
+				return scanArray(json, index, node);
+			}
+			
+			//Strings are only decoded if they're checked or have escapes to verify
+			if(ParserUtil.isStringChar(c))
+			{
+				int end = ParserUtil.getStringBlockEnd(json, index);
+				if(node.types != 0 && (node.types & STRING) == 0)
+					return failAt(JsonSchemaException.Type.WRONG_TYPE, node.getTypeNames());
+				if(node.hasStringLimits)
+				{
+					if(!checkScalar(ParserUtil.getStringValue(json, index, end, ParserSettings.DEFAULT), STRING, node))
+						return -1;
+				}
+				else if(ParserUtil.nextEscape(json, index+1, end) >= 0)
+				{
+					ParserUtil.decodeString(json, index+1, end);
+				}
+				return end+1;
+			}
+			
+			int end = ParserUtil.getUnknownBlockEnd(json, index);
+			Value value = ParserUtil.getUnknownValue(json, index, end, ParserSettings.DEFAULT);
+			int type = typeOf(value);
+			if(node.types != 0 && (node.types & type) == 0)
+				return failAt(JsonSchemaException.Type.WRONG_TYPE, node.getTypeNames());
+			return checkScalar(value, type, node) ? end : -1;
+		}
+		
+		private int scanObject(String json, int index, Node node)
+		{
+			int count = 0, found = 0;
+			boolean[] required = node.required == null ? null : new boolean[node.required.length];
+			
+			//Keys that appear more than once only count once, as they do once parsed
+			Set<String> keys = node.minProperties > 0 || node.maxProperties >= 0 ? new HashSet<String>() : null;
+			
+			index++;
+			while(true)
+			{
+				//Separators are handled the same way as by the parser, so the same JSON is accepted
+				index = ParserUtil.nextNonWhitespace(json, index);
+				char c = ParserUtil.charAt(json, index);
+				if(c == ParserUtil.SPLIT)
+				{
+					index = ParserUtil.nextNonWhitespace(json, index+1);
+					c = ParserUtil.charAt(json, index);
+				}
+				else if(c == ParserUtil.OBJECT_CLOSE)
+				{
+					break;
+				}
+				else if(count > 0)
+				{
+					throw new JsonParseException(JsonParseException.Type.INVALID_CHAR, index, c);
+				}
+				
+				//Key
+				String key;
+				if(ParserUtil.isStringChar(c))
+				{
+					int end = ParserUtil.getStringBlockEnd(json, index);
+					key = ParserUtil.decodeString(json, index+1, end);
+					index = end+1;
+				}
+				else
+				{
+					key = ParserUtil.getUnknownBlock(json, index);
+					index += key.length();
+				}
+				if(ParserUtil.charAt(json, index) != ParserUtil.OBJECT_MAP)
+				{
+					index = ParserUtil.nextNonWhitespace(json, index+1);
+					if(ParserUtil.charAt(json, index) != ParserUtil.OBJECT_MAP)
+						throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, index);
+				}
+				
+				if(keys != null)
+					keys.add(key);
+				if(required != null)
+				{
+					for(int n = 0; n < required.length; n++)
+					{
+						if(!required[n] && node.required[n].equals(key))
+						{
+							required[n] = true;
+							found++;
+						}
+					}
+				}
+				
+				//Value
+				Node child = node.properties == null ? null : node.properties.get(key);
+				if(child == null)
+					child = node.additional == null ? ANY : node.additional;
+				
+				path.add(key);
+				if(child == NOTHING)
+					return failAt(JsonSchemaException.Type.UNEXPECTED_PROPERTY, key);
+				index = ParserUtil.nextNonWhitespace(json, index+1);
+				if(ParserUtil.charAt(json, index) == ParserUtil.ARRAY_CLOSE)
+					throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, index);
+				index = scan(json, index, child);
+				if(index < 0)
+					return -1;
+				path.remove(path.size()-1);
+				count++;
+			}
+			
+			if(keys != null && !checkSize(keys.size(), node.minProperties, node.maxProperties))
+				return -1;
+			if(required != null && found < required.length)
+				for(int n = 0; n < required.length; n++)
+					if(!required[n])
+						return failAt(JsonSchemaException.Type.MISSING_PROPERTY, node.required[n]);
+			return index+1;
+		}
+		
+		private int scanArray(String json, int index, Node node)
+		{
+			int count = 0;
+			
+			index++;
+			while(true)
+			{
+				index = ParserUtil.nextNonWhitespace(json, index);
+				char c = ParserUtil.charAt(json, index);
+				if(c == ParserUtil.SPLIT)
+				{
+					index = ParserUtil.nextNonWhitespace(json, index+1);
+					c = ParserUtil.charAt(json, index);
+				}
+				else if(c == ParserUtil.ARRAY_CLOSE)
+				{
+					break;
+				}
+				else if(count > 0)
+				{
+					throw new JsonParseException(JsonParseException.Type.INVALID_CHAR, index, c);
+				}
+				if(c == ParserUtil.OBJECT_CLOSE || c == ParserUtil.OBJECT_MAP)
+					throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, index);
+				
+				path.add(Integer.toString(count));
+				index = scan(json, index, node.getItem(count));
+				if(index < 0)
+					return -1;
+				path.remove(path.size()-1);
+				count++;
+			}
+			
+			return checkSize(count, node.minItems, node.maxItems) ? index+1 : -1;
+		}
+		
+	}
+	
+	/*************
+	 * Compiling *
+	 *************/
+	
+	/**
+	 * A compiled schema object.
+	 */
+	private static class Node
+	{
+		private boolean nothing;
+		private int types;
+		
+		//Whole values
+		private boolean needsValue;
+		private Value[] allowed;
+		private boolean uniqueItems;
+		private Node[] allOf, anyOf, oneOf;
+		private Node not;
+		private Node ref;
+		private boolean refOnly;
+		
+		//Objects
+		private Map<String, Node> properties;
+		private String[] required;
+		private Node additional;
+		private int minProperties = 0, maxProperties = -1;
+		
+		//Arrays, with either the same schema for all items or a schema for each item at the start
+		private Node items;
+		private Node[] tupleItems;
+		private Node additionalItems;
+		private int minItems = 0, maxItems = -1;
+		
+		//Strings
+		private boolean hasStringLimits;
+		private int minLength = 0, maxLength = -1;
+		private Pattern pattern;
+		
+		//Numbers
+		private boolean hasNumberLimits;
+		private BigDecimal minimum, maximum, exclusiveMinimum, exclusiveMaximum, multipleOf;
+		
+		/**
+		 * Returns the schema this one refers to if it only holds a reference.
+		 */
+		private Node target()
+		{
+			Node node = this;
+			for(int n = 0; node.refOnly && n < 32; n++)
+				node = node.ref;
+			return node;
+		}
+		
+		/**
+		 * Returns the schema for the item at the given index.
+		 */
+		private Node getItem(int index)
+		{
+			if(tupleItems != null)
+			{
+				if(index < tupleItems.length)
+					return tupleItems[index];
+				return additionalItems == null ? ANY : additionalItems;
+			}
+			return items == null ? ANY : items;
+		}
+		
+		private String getTypeNames()
+		{
+			StringBuilder names = new StringBuilder();
+			for(int n = 0; n < TYPE_NAMES.length; n++)
+			{
+				if((types & (1 << n)) != 0)
+				{
+					if(names.length() > 0)
+						names.append(" or ");
+					names.append(TYPE_NAMES[n]);
+				}
+			}
+			return names.toString();
+		}
+	}
+	
+	/**
+	 * Compiles schema objects into nodes, sharing the nodes of objects that are referenced more than once.
+	 */
+	private static class Compiler
+	{
+		private final JsonObject root;
+		private final Map<JsonObject, Node> nodes = new IdentityHashMap<>();
+		private final ArrayList<String> path = new ArrayList<>();
+		
+		private Compiler(JsonObject root)
+		{
+			this.root = root;
+		}
+		
+		private Node compile()
+		{
+			return compile(ValueUtil.createValue(root));
+		}
+		
+		private Node compile(Value schema)
+		{
+			if(schema != null && schema.type == ValueType.BOOLEAN)
+				return (Boolean)schema.value ? ANY : NOTHING;
+			if(schema == null || schema.type != ValueType.OBJECT)
+				throw invalid("schema");
+			
+			JsonObject object = (JsonObject)schema.value;
+			Node node = nodes.get(object);
+			if(node != null)
+				return node;
+			node = new Node();
+			nodes.put(object, node);
+			
+			Map<String, Value> values = object.getValues();
+			for(Map.Entry<String, Value> entry : values.entrySet())
+			{
+				path.add(entry.getKey());
+				compileKeyword(node, entry.getKey(), entry.getValue(), values);
+				path.remove(path.size()-1);
+			}
+			
+			node.refOnly = node.ref != null && values.size() == 1;
+			node.needsValue = node.allowed != null || node.uniqueItems || node.allOf != null || node.anyOf != null || node.oneOf != null || node.not != null || (node.ref != null && !node.refOnly);
+			node.hasStringLimits = node.minLength > 0 || node.maxLength >= 0 || node.pattern != null;
+			node.hasNumberLimits = node.minimum != null || node.maximum != null || node.exclusiveMinimum != null || node.exclusiveMaximum != null || node.multipleOf != null;
+			return node;
+		}
+		
+		private void compileKeyword(Node node, String keyword, Value value, Map<String, Value> schema)
+		{
+			switch(keyword)
+			{
+				case "type":
+					if(value.type == ValueType.ARRAY)
+						for(Value type : ((JsonArray)value.value).getValues())
+							node.types |= compileType(type);
+					else
+						node.types = compileType(value);
+					break;
+				case "enum":
+					node.allowed = toArray(value).toArray(new Value[0]);
+					break;
+				case "const":
+					node.allowed = new Value[] {value == null ? ValueUtil.createNullValue() : value};
+					break;
+				
+				case "properties":
+					node.properties = new HashMap<>();
+					for(Map.Entry<String, Value> entry : toObject(value).getValues().entrySet())
+					{
+						path.add(entry.getKey());
+						node.properties.put(entry.getKey(), compile(entry.getValue()));
+						path.remove(path.size()-1);
+					}
+					break;
+				case "required":
+					List<Value> required = toArray(value);
+					node.required = new String[required.size()];
+					for(int n = 0; n < node.required.length; n++)
+					{
+						if(required.get(n) == null || required.get(n).type != ValueType.STRING)
+							throw invalid(keyword);
+						node.required[n] = (String)required.get(n).get();
+					}
+					break;
+				case "additionalProperties":
+					node.additional = compile(value);
+					if(node.additional == ANY)
+						node.additional = null;
+					break;
+				case "minProperties":
+					node.minProperties = toCount(value);
+					break;
+				case "maxProperties":
+					node.maxProperties = toCount(value);
+					break;
+				
+				case "items":
+					if(value.type == ValueType.ARRAY)
+						node.tupleItems = compileAll(value);
+					else
+						node.items = compile(value);
+					break;
+				case "additionalItems":
+					node.additionalItems = compile(value);
+					break;
+				case "minItems":
+					node.minItems = toCount(value);
+					break;
+				case "maxItems":
+					node.maxItems = toCount(value);
+					break;
+				case "uniqueItems":
+					if(value.type != ValueType.BOOLEAN)
+						throw invalid(keyword);
+					node.uniqueItems = (Boolean)value.value;
+					break;
+				
+				case "minLength":
+					node.minLength = toCount(value);
+					break;
+				case "maxLength":
+					node.maxLength = toCount(value);
+					break;
+				case "pattern":
+					if(value.type != ValueType.STRING)
+						throw invalid(keyword);
+					try
+					{
+						node.pattern = Pattern.compile((String)value.get());
+					}
+					catch(PatternSyntaxException e)
+					{
+						throw invalid(keyword);
+					}
+					break;
+				
+				case "minimum":
+					if(isTrue(schema.get("exclusiveMinimum")))
+						node.exclusiveMinimum = toNumber(value);
+					else
+						node.minimum = toNumber(value);
+					break;
+				case "maximum":
+					if(isTrue(schema.get("exclusiveMaximum")))
+						node.exclusiveMaximum = toNumber(value);
+					else
+						node.maximum = toNumber(value);
+					break;
+				//Numbers since draft 6, or flags on the bounds before
+				case "exclusiveMinimum":
+					if(value.type != ValueType.BOOLEAN)
+						node.exclusiveMinimum = toNumber(value);
+					break;
+				case "exclusiveMaximum":
+					if(value.type != ValueType.BOOLEAN)
+						node.exclusiveMaximum = toNumber(value);
+					break;
+				case "multipleOf":
+					node.multipleOf = toNumber(value);
+					if(node.multipleOf.signum() <= 0)
+						throw invalid(keyword);
+					break;
+				
+				case "allOf":
+					node.allOf = compileAll(value);
+					break;
+				case "anyOf":
+					node.anyOf = compileAll(value);
+					break;
+				case "oneOf":
+					node.oneOf = compileAll(value);
+					break;
+				case "not":
+					node.not = compile(value);
+					break;
+				case "$ref":
+					node.ref = compileReference(value);
+					break;
+			}
+		}
+		
+		private Node[] compileAll(Value value)
+		{
+			List<Value> schemas = toArray(value);
+			Node[] compiled = new Node[schemas.size()];
+			for(int n = 0; n < compiled.length; n++)
+			{
+				path.add(Integer.toString(n));
+				compiled[n] = compile(schemas.get(n));
+				path.remove(path.size()-1);
+			}
+			return compiled;
+		}
+		
+		private Node compileReference(Value value)
+		{
+			if(value.type != ValueType.STRING || !((String)value.get()).startsWith("#"))
+				throw invalid("$ref");
+			
+			Value target = ValueUtil.createValue(root);
+			try
+			{
+				for(String token : JsonPatch.parsePointer(((String)value.get()).substring(1)))
+				{
+					if(target.type == ValueType.OBJECT)
+						target = ((JsonObject)target.value).getValues().get(token);
+					else if(target.type == ValueType.ARRAY)
+						target = ((JsonArray)target.value).getValues().get(Integer.parseInt(token));
+					else
+						target = null;
+					if(target == null)
+						throw invalid("$ref");
+				}
+			}
+			catch(JsonPatchException | IndexOutOfBoundsException | NumberFormatException e)
+			{
+				throw invalid("$ref");
+			}
+			return compile(target);
+		}
+		
+		private int compileType(Value type)
+		{
+			if(type != null && type.type == ValueType.STRING)
+			{
+				String name = (String)type.get();
+				for(int n = 0; n < TYPE_NAMES.length; n++)
+				{
+					if(TYPE_NAMES[n].equals(name))
+					{
+						return 1 << n;
+					}
+				}
+			}
+			throw invalid("type");
+		}
+		
+		/***********
+		 * Helpers *
+		 ***********/
+		
+		private JsonObject toObject(Value value)
+		{
+			if(value == null || value.type != ValueType.OBJECT)
+				throw invalid(path.get(path.size()-1));
+			return (JsonObject)value.value;
+		}
+		
+		private List<Value> toArray(Value value)
+		{
+			if(value == null || value.type != ValueType.ARRAY)
+				throw invalid(path.get(path.size()-1));
+			return ((JsonArray)value.value).getValues();
+		}
+		
+		private int toCount(Value value)
+		{
+			BigDecimal count = toNumber(value);
+			if(count.signum() < 0 || count.compareTo(BigDecimal.valueOf(Integer.MAX_VALUE)) > 0)
+				throw invalid(path.get(path.size()-1));
+			return count.intValue();
+		}
+		
+		private BigDecimal toNumber(Value value)
+		{
+			BigDecimal number = value == null ? null : toDecimal(value);
+			if(number == null)
+				throw invalid(path.get(path.size()-1));
+			return number;
+		}
+		
+		private static boolean isTrue(Value value)
+		{
+			return value != null && value.type == ValueType.BOOLEAN && (Boolean)value.value;
+		}
+		
+		private JsonSchemaException invalid(String keyword)
+		{
+			List<String> parent = path.isEmpty() ? path : path.subList(0, path.size()-1);
+			return new JsonSchemaException(JsonSchemaException.Type.INVALID_SCHEMA, JsonPatch.formatPointer(parent.toArray(new String[parent.size()])), keyword);
+		}
+	}
+	
+	/***********
+	 * Helpers *
+	 ***********/
+	
+	/**
+	 * Returns the type flags of the value. Numbers with an integral value are also integers.
+	 */
+	private static int typeOf(Value value)
+	{
+		switch(value.type)
+		{
+			case OBJECT: return OBJECT;
+			case ARRAY: return ARRAY;
+			case STRING: return STRING;
+			case LONG:
+			case BIG_INTEGER: return NUMBER | INTEGER;
+			case DOUBLE:
+			case BIG_DECIMAL:
+				BigDecimal d = toDecimal(value);
+				return d != null && (d.signum() == 0 || d.stripTrailingZeros().scale() <= 0) ? NUMBER | INTEGER : NUMBER;
+			case BOOLEAN: return BOOLEAN;
+			default: return NULL;
+		}
+	}
+	
+	/**
+	 * Returns whether the number is an integral multiple of the positive divisor.
+	 * Huge exponents are decided from the unscaled values instead of being expanded.
+	 */
+	private static boolean isMultiple(BigDecimal d, BigDecimal of)
+	{
+		if(d.signum() == 0)
+			return true;
+		d = d.stripTrailingZeros();
+		of = of.stripTrailingZeros();
+		BigInteger m = d.unscaledValue(), a = of.unscaledValue();
+		
+		//d/of = m/a * 10^shift
+		long shift = (long)of.scale()-d.scale();
+		if(shift < 0)
+		{
+			//A divisor with more digits than m leaves a fraction
+			if(-shift >= d.precision())
+				return false;
+			return m.mod(a.multiply(BigInteger.TEN.pow((int)-shift))).signum() == 0;
+		}
+		//a has fewer than bitLength factors of 2 and 5, so more powers of 10 can't help
+		int k = (int)Math.min(shift, a.bitLength());
+		return m.multiply(BigInteger.TEN.pow(k)).mod(a).signum() == 0;
+	}
+	
+	/**
+	 * Returns the value as a decimal, or <code>null</code> if it isn't a finite number.
+	 */
+	private static BigDecimal toDecimal(Value value)
+	{
+		switch(value.type)
+		{
+			case LONG:
+			case BIG_INTEGER:
+			case BIG_DECIMAL:
+				return ValueUtil.toBigDecimal(value);
+			case DOUBLE:
+				double d = ((Number)value.value).doubleValue();
+				return Double.isNaN(d) || Double.isInfinite(d) ? null : ValueUtil.toBigDecimal(value);
+			default:
+				return null;
+		}
+	}
+}
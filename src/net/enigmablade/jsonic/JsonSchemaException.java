@@ -0,0 +1,67 @@
+package net.enigmablade.jsonic;
+
+/**
+ * An exception thrown if a schema is invalid or a value doesn't match it.
+ * 
+ * @author Enigma
+ */
+public class JsonSchemaException extends JsonException
+{
+	private static final long serialVersionUID = 3170586922051538804L;
+	
+	/**
+	 * The types of possible schema errors.
+	 * @author EnigmaBlade
+	 */
+	protected enum Type { INVALID_SCHEMA, WRONG_TYPE, NOT_ALLOWED, MISSING_PROPERTY, UNEXPECTED_PROPERTY, TOO_SMALL, TOO_LARGE, NOT_MULTIPLE, TOO_SHORT, TOO_LONG, TOO_FEW, TOO_MANY, PATTERN_MISMATCH, NOT_UNIQUE, NO_MATCH };
+	
+	//Message options
+	private Type type;
+	private String path;
+	private Object thing;
+	
+	protected JsonSchemaException(Type type, String path, Object thing)
+	{
+		this.type = type;
+		this.path = path;
+		this.thing = thing;
+	}
+	
+	/**
+	 * Returns the JSON pointer to the value that didn't match the schema, or to the invalid part of the schema.
+	 * @return The pointer, which is empty for the whole document
+	 */
+	public String getPath()
+	{
+		return path;
+	}
+	
+	/**
+	 * Returns the message associated with the exception.
+	 * @return The exception message
+	 */
+	@Override
+	public String getMessage()
+	{
+		switch(type)
+		{
+			case INVALID_SCHEMA: return "Invalid schema keyword \""+thing+"\" at \""+path+"\"";
+			case WRONG_TYPE: return "Value at \""+path+"\" should be "+thing;
+			case NOT_ALLOWED: return "Value at \""+path+"\" isn't one of the allowed values";
+			case MISSING_PROPERTY: return "Object at \""+path+"\" is missing the property \""+thing+"\"";
+			case UNEXPECTED_PROPERTY: return "Property at \""+path+"\" isn't allowed";
+			case TOO_SMALL: return "Value at \""+path+"\" is less than "+thing;
+			case TOO_LARGE: return "Value at \""+path+"\" is greater than "+thing;
+			case NOT_MULTIPLE: return "Value at \""+path+"\" isn't a multiple of "+thing;
+			case TOO_SHORT: return "String at \""+path+"\" is shorter than "+thing;
+			case TOO_LONG: return "String at \""+path+"\" is longer than "+thing;
+			case TOO_FEW: return "Value at \""+path+"\" has fewer than "+thing+" members";
+			case TOO_MANY: return "Value at \""+path+"\" has more than "+thing+" members";
+			case PATTERN_MISMATCH: return "String at \""+path+"\" doesn't match the pattern \""+thing+"\"";
+			case NOT_UNIQUE: return "Array at \""+path+"\" contains duplicate items";
+			case NO_MATCH: return "Value at \""+path+"\" doesn't match "+thing;
+			
+			default: return null;
+		}
+	}
+}
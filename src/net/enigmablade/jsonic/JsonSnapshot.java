@@ -0,0 +1,474 @@
+package net.enigmablade.jsonic;
+
+import java.io.*;
+import java.math.*;
+import java.util.*;
+import net.enigmablade.jsonic.ValueUtil.*;
+
+/**
+ * <p>A compact binary format for storing parsed elements.</p>
+ * <p>Keys and repeated string values are stored once in a string table at the start of the snapshot,
+ * integers are stored as variable-length numbers, and objects and arrays are prefixed with their size in bytes.
+ * The size lets a reader skip over elements, so elements read from a snapshot are only decoded when they're used.</p>
+ * <p>Format:</p>
+ * <pre>
+ * snapshot := "JSNP" version:u8 count:varint (length:varint utf8)* value
+ * value    := NULL | FALSE | TRUE
+ *           | LONG zigzag:varint | DOUBLE ieee754:u64
+ *           | STRING length:varint utf8 | STRING_REF index:varint
+ *           | BIG_INTEGER length:varint bytes | BIG_DECIMAL scale:zigzag length:varint bytes
+ *           | (OBJECT | ORDERED_OBJECT) count:varint size:u32 (key:varint value)*
+ *           | ARRAY count:varint size:u32 value*
+ * </pre>
+ * 
+ * @author Enigma
+ */
+public class JsonSnapshot
+{
+	//Format information
+	private static final byte[] MAGIC = {'J', 'S', 'N', 'P'};
+	private static final byte VERSION = 1;
+	
+	private static final byte NULL = 0, FALSE = 1, TRUE = 2;
+	private static final byte LONG = 3, DOUBLE = 4, BIG_INTEGER = 5, BIG_DECIMAL = 6;
+	private static final byte STRING = 7, STRING_REF = 8;
+	private static final byte OBJECT = 9, ARRAY = 10, ORDERED_OBJECT = 11;
+	
+	/*****************
+	 * Write methods *
+	 *****************/
+	
+	/**
+	 * Writes the element to the stream.
+	 * @param element The element
+	 * @param out The output stream
+	 * @throws IOException if the stream couldn't be written to
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public static void writeTo(JsonElement element, OutputStream out) throws IOException
+	{
+		out.write(toBytes(element));
+	}
+	
+	/**
+	 * Returns the snapshot of the element.
+	 * @param element The element
+	 * @return The snapshot
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public static byte[] toBytes(JsonElement element)
+	{
+		if(element == null)
+			throw new IllegalArgumentException("The element cannot be null");
+		
+		//Build the string table
+		Map<String, Integer> counts = new HashMap<>();
+		countStrings(element, counts);
+		
+		List<String> table = new ArrayList<>();
+		Map<String, Integer> indices = new HashMap<>();
+		for(Map.Entry<String, Integer> entry : counts.entrySet())
+		{
+			if(entry.getValue() > 1)
+			{
+				indices.put(entry.getKey(), table.size());
+				table.add(entry.getKey());
+			}
+		}
+		
+		//Write the header and table
+		BinaryOutput out = new BinaryOutput();
+		out.write(MAGIC, 0, MAGIC.length);
+		out.write(VERSION);
+		out.writeVarint(table.size());
+		for(String str : table)
+			out.writeString(str);
+		
+		//Write the contents
+		writeElement(out, element, indices);
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Counts the keys and string values, keys are counted twice so they always end up in the table.
+	 */
+	private static void countStrings(JsonElement element, Map<String, Integer> counts)
+	{
+		if(element instanceof JsonObject)
+		{
+			for(Map.Entry<String, Value> entry : ((JsonObject)element).getValues().entrySet())
+			{
+				Integer count = counts.get(entry.getKey());
+				counts.put(entry.getKey(), count == null ? 2 : count+2);
+				countStrings(entry.getValue(), counts);
+			}
+		}
+		else
+		{
+			for(Value value : ((JsonArray)element).getValues())
+				countStrings(value, counts);
+		}
+	}
+	
+	private static void countStrings(Value value, Map<String, Integer> counts)
+	{
+		if(value == null)
+			return;
+		
+		switch(value.type)
+		{
+			case STRING:
+				String str = (String)value.get();
+				Integer count = counts.get(str);
+				counts.put(str, count == null ? 1 : count+1);
+				break;
+			case OBJECT:
+			case ARRAY:
+				countStrings((JsonElement)value.value, counts);
+				break;
+			default:
+				break;
+		}
+	}
+	
+	private static void writeElement(BinaryOutput out, JsonElement element, Map<String, Integer> table)
+	{
+		int sizeIndex;
+		if(element instanceof JsonObject)
+		{
+			Map<String, Value> values = ((JsonObject)element).getValues();
+			out.write(((JsonObject)element).isOrdered() ? ORDERED_OBJECT : OBJECT);
+			out.writeVarint(values.size());
+			sizeIndex = out.reserveInt();
+			for(Map.Entry<String, Value> entry : values.entrySet())
+			{
+				out.writeVarint(table.get(entry.getKey()));
+				writeValue(out, entry.getValue(), table);
+			}
+		}
+		else
+		{
+			List<Value> values = ((JsonArray)element).getValues();
+			out.write(ARRAY);
+			out.writeVarint(values.size());
+			sizeIndex = out.reserveInt();
+			for(Value value : values)
+				writeValue(out, value, table);
+		}
+		out.patchInt(sizeIndex, out.size()-sizeIndex-4);
+	}
+	
+	private static void writeValue(BinaryOutput out, Value value, Map<String, Integer> table)
+	{
+		if(value == null)
+		{
+			out.write(NULL);
+			return;
+		}
+		
+		switch(value.type)
+		{
+			case OBJECT:
+			case ARRAY:
+				writeElement(out, (JsonElement)value.value, table);
+				break;
+			
+			case STRING:
+				String str = (String)value.get();
+				Integer index = table.get(str);
+				if(index != null)
+				{
+					out.write(STRING_REF);
+					out.writeVarint(index);
+				}
+				else
+				{
+					out.write(STRING);
+					out.writeString(str);
+				}
+				break;
+			
+			case LONG:
+				out.write(LONG);
+				out.writeVarlong(zigzag(((Number)value.get()).longValue()));
+				break;
+			
+			case DOUBLE:
+				out.write(DOUBLE);
+				out.writeLong(Double.doubleToRawLongBits(((Number)value.get()).doubleValue()));
+				break;
+			
+			case BIG_INTEGER:
+				out.write(BIG_INTEGER);
+				out.writeBlock(((BigInteger)value.get()).toByteArray());
+				break;
+			
+			case BIG_DECIMAL:
+				BigDecimal decimal = (BigDecimal)value.get();
+				out.write(BIG_DECIMAL);
+				out.writeVarlong(zigzag(decimal.scale()));
+				out.writeBlock(decimal.unscaledValue().toByteArray());
+				break;
+			
+			case BOOLEAN:
+				out.write((Boolean)value.value ? TRUE : FALSE);
+				break;
+			
+			default:
+				out.write(NULL);
+		}
+	}
+	
+	private static long zigzag(long l)
+	{
+		return (l << 1) ^ (l >> 63);
+	}
+	
+	/****************
+	 * Read methods *
+	 ****************/
+	
+	/**
+	 * Reads a snapshot from the stream, which is read until the end of the stream is reached.
+	 * The contents of the element are decoded as they're used.
+	 * @param in The input stream
+	 * @return The element
+	 * @throws IOException if the stream couldn't be read from
+	 * @throws JsonParseException if the snapshot is invalid
+	 */
+	public static JsonElement readFrom(InputStream in) throws IOException
+	{
+		return fromBytes(BinaryDecoder.readAll(in));
+	}
+	
+	/**
+	 * Reads a snapshot, decoding the contents of the element as they're used.
+	 * The data must not be modified afterwards.
+	 * @param data The snapshot
+	 * @return The element
+	 * @throws JsonParseException if the snapshot is invalid
+	 */
+	public static JsonElement fromBytes(byte[] data)
+	{
+		return fromBytes(data, true);
+	}
+	
+	/**
+	 * Reads a snapshot.
+	 * @param data The snapshot
+	 * @param delayed Whether or not decoding of the contents is delayed until they're used
+	 * @return The element
+	 * @throws JsonParseException if the snapshot is invalid
+	 */
+	public static JsonElement fromBytes(byte[] data, boolean delayed)
+	{
+		JsonElement element = createDecoder(data, delayed).getRootElement();
+		if(element == null)
+			throw new JsonParseException(JsonParseException.Type.BAD_START, 0);
+		return element;
+	}
+	
+	/**
+	 * Creates a decoder for the snapshot, reading the header and string table.
+	 * @param data The snapshot
+	 * @param delayed Whether or not decoding of nested elements is delayed
+	 * @return The decoder
+	 * @throws JsonParseException if the header is invalid
+	 */
+	protected static BinaryDecoder createDecoder(byte[] data, boolean delayed)
+	{
+		return new Decoder(data, delayed);
+	}
+	
+	/**
+	 * Decodes snapshots.
+	 */
+	private static class Decoder extends BinaryDecoder
+	{
+		private String[] table;
+		private int root;
+		
+		//Position of the last read
+		private int position;
+		
+		public Decoder(byte[] data, boolean delayed)
+		{
+			super(data, delayed);
+			
+			for(int n = 0; n < MAGIC.length; n++)
+				if(data.length <= n || data[n] != MAGIC[n])
+					throw new JsonParseException(JsonParseException.Type.BAD_START, n);
+			if(data.length <= MAGIC.length || data[MAGIC.length] != VERSION)
+				throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, MAGIC.length);
+			
+			position = MAGIC.length+1;
+			
+			//Every string takes at least a byte, so a larger count can't be valid
+			int count = readVarint();
+			if(count > data.length-position)
+				throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, position);
+			table = new String[count];
+			for(int n = 0; n < table.length; n++)
+				table[n] = readString();
+			root = position;
+		}
+		
+		@Override
+		protected int getRoot()
+		{
+			return root;
+		}
+		
+		@Override
+		protected char getOpeningChar(int offset)
+		{
+			if(offset >= data.length)
+				return 0;
+			
+			switch(data[offset])
+			{
+				case OBJECT:
+				case ORDERED_OBJECT: return ParserUtil.OBJECT_OPEN;
+				case ARRAY: return ParserUtil.ARRAY_OPEN;
+				default: return 0;
+			}
+		}
+		
+		@Override
+		protected boolean isOrdered(int offset)
+		{
+			return offset < data.length && data[offset] == ORDERED_OBJECT;
+		}
+		
+		@Override
+		protected synchronized void decodeObject(int offset, Map<String, Value> values)
+		{
+			position = offset+1;
+			int count = readVarint();
+			position += 4;
+			for(int n = 0; n < count; n++)
+			{
+				String key = readTableString();
+				values.put(key, readValue());
+			}
+		}
+		
+		@Override
+		protected synchronized void decodeArray(int offset, List<Value> values)
+		{
+			position = offset+1;
+			int count = readVarint();
+			position += 4;
+			for(int n = 0; n < count; n++)
+				values.add(readValue());
+		}
+		
+		private Value readValue()
+		{
+			check(1);
+			int offset = position;
+			byte tag = data[position++];
+			switch(tag)
+			{
+				case NULL: return ValueUtil.createNullValue();
+				case FALSE: return ValueUtil.createValue(false);
+				case TRUE: return ValueUtil.createValue(true);
+				
+				case LONG:
+					long l = readVarlong();
+					return ValueUtil.createValue((l >>> 1) ^ -(l & 1));
+				case DOUBLE:
+					return ValueUtil.createValue(Double.longBitsToDouble(readLong()));
+				case BIG_INTEGER:
+					return ValueUtil.createValue(new BigInteger(readBytes()));
+				case BIG_DECIMAL:
+					long scale = readVarlong();
+					return ValueUtil.createValue(new BigDecimal(new BigInteger(readBytes()), (int)((scale >>> 1) ^ -(scale & 1))));
+				
+				case STRING: return ValueUtil.createValue(readString());
+				case STRING_REF: return ValueUtil.createValue(readTableString());
+				
+				//Skip over nested elements, they're decoded when used
+				case OBJECT:
+				case ORDERED_OBJECT:
+				case ARRAY:
+					readVarint();
+					check(4);
+					int size = ((data[position] & 0xFF) << 24) | ((data[position+1] & 0xFF) << 16) | ((data[position+2] & 0xFF) << 8) | (data[position+3] & 0xFF);
+					position += 4;
+					check(size);
+					position += size;
+					return createElementValue(offset);
+				
+				default:
+					throw new JsonParseException(JsonParseException.Type.UNKNOWN_VALUE_TYPE, offset, tag);
+			}
+		}
+		
+		//Primitive reads
+		
+		private void check(int length)
+		{
+			if(position+length > data.length || position+length < 0)
+				throw new JsonParseException(JsonParseException.Type.BAD_END, position);
+		}
+		
+		private int readVarint()
+		{
+			long l = readVarlong();
+			if(l < 0 || l > Integer.MAX_VALUE)
+				throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, position);
+			return (int)l;
+		}
+		
+		private long readVarlong()
+		{
+			long l = 0;
+			for(int shift = 0; shift < 64; shift += 7)
+			{
+				check(1);
+				byte b = data[position++];
+				l |= (long)(b & 0x7F) << shift;
+				if(b >= 0)
+					return l;
+			}
+			throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, position);
+		}
+		
+		private long readLong()
+		{
+			check(8);
+			long l = 0;
+			for(int n = 0; n < 8; n++)
+				l = (l << 8) | (data[position++] & 0xFF);
+			return l;
+		}
+		
+		private byte[] readBytes()
+		{
+			int length = readVarint();
+			check(length);
+			byte[] bytes = Arrays.copyOfRange(data, position, position+length);
+			position += length;
+			return bytes;
+		}
+		
+		private String readString()
+		{
+			int length = readVarint();
+			check(length);
+			String str = new String(data, position, length, BinaryOutput.UTF_8);
+			position += length;
+			return str;
+		}
+		
+		private String readTableString()
+		{
+			int offset = position;
+			int index = readVarint();
+			if(index >= table.length)
+				throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, offset);
+			return table[index];
+		}
+	}
+}
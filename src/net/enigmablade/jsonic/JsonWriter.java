@@ -0,0 +1,449 @@
+package net.enigmablade.jsonic;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import net.enigmablade.jsonic.ValueUtil.*;
+
+/**
+ * <p>Writes elements in JSON format directly to a stream, with options for formatting the output.</p>
+ * <p>By default the output is compact, the same as {@link JsonElement#getJSON()}. Setting an indent writes each
+ * value on its own line, and setting a line width as well keeps objects and arrays that fit on a single line.</p>
+ * <pre>
+ * JsonWriter writer = new JsonWriter(2);
+ * writer.setSortKeys(true);
+ * writer.write(element, outputStream);
+ * </pre>
+ * <p>Nothing is built in memory besides the output buffer, so large elements can be written without creating
+ * their whole string. Delayed elements are parsed as they're written. Writers can be shared between threads
+ * as long as their options aren't changed while writing.</p>
+ * 
+ * @author Enigma
+ */
+public class JsonWriter
+{
+	private static final int BUFFER_SIZE = 8192;
+	private static final String HEX = "0123456789abcdef";
+	
+	private int indent;
+	private Comparator<String> keyComparator;
+	private int lineWidth;
+	private boolean asciiEscape;
+	
+	//Constructors
+	
+	/**
+	 * Creates a new writer for compact output.
+	 */
+	public JsonWriter()
+	{
+		this(0);
+	}
+	
+	/**
+	 * Creates a new writer that indents nested values by the given number of spaces.
+	 * 
+	 * @param indent The number of spaces per level, or 0 for compact output.
+	 */
+	public JsonWriter(int indent)
+	{
+		setIndent(indent);
+	}
+	
+	//Accessor methods
+	
+	/**
+	 * Returns the number of spaces each nested level is indented by.
+	 * 
+	 * @return The indent, or 0 if the output is compact.
+	 */
+	public int getIndent()
+	{
+		return indent;
+	}
+	
+	/**
+	 * Sets the number of spaces each nested level is indented by.
+	 * 
+	 * @param indent The indent, or 0 for compact output.
+	 * @throws IllegalArgumentException if the indent is negative
+	 */
+	public void setIndent(int indent)
+	{
+		if(indent < 0)
+			throw new IllegalArgumentException("Indent cannot be negative");
+		this.indent = indent;
+	}
+	
+	/**
+	 * Returns whether or not object keys are written in sorted order.
+	 * 
+	 * @return <code>true</code> if keys are sorted, otherwise <code>false</code>.
+	 */
+	public boolean isSortKeys()
+	{
+		return keyComparator != null;
+	}
+	
+	/**
+	 * Sets whether or not object keys are written in their natural sorted order.
+	 * 
+	 * @param sortKeys <code>true</code> if keys should be sorted.
+	 */
+	public void setSortKeys(boolean sortKeys)
+	{
+		keyComparator = sortKeys ? Comparator.<String>naturalOrder() : null;
+	}
+	
+	/**
+	 * Returns the comparator used to sort object keys.
+	 * 
+	 * @return The comparator, or <code>null</code> if keys aren't sorted.
+	 */
+	public Comparator<String> getKeyComparator()
+	{
+		return keyComparator;
+	}
+	
+	/**
+	 * Sets the comparator used to sort object keys.
+	 * 
+	 * @param keyComparator The comparator, or <code>null</code> if keys shouldn't be sorted.
+	 * @see JsonObject#getJSON(Comparator)
+	 */
+	public void setKeyComparator(Comparator<String> keyComparator)
+	{
+		this.keyComparator = keyComparator;
+	}
+	
+	/**
+	 * Returns the line width within which indented objects and arrays are kept on a single line.
+	 * 
+	 * @return The line width, or 0 if every value is written on its own line.
+	 */
+	public int getLineWidth()
+	{
+		return lineWidth;
+	}
+	
+	/**
+	 * Sets the line width within which indented objects and arrays are kept on a single line.
+	 * Has no effect on compact output.
+	 * 
+	 * @param lineWidth The line width, or 0 to write every value on its own line.
+	 * @throws IllegalArgumentException if the line width is negative
+	 */
+	public void setLineWidth(int lineWidth)
+	{
+		if(lineWidth < 0)
+			throw new IllegalArgumentException("Line width cannot be negative");
+		this.lineWidth = lineWidth;
+	}
+	
+	/**
+	 * Returns whether or not characters outside of ASCII are escaped.
+	 * 
+	 * @return <code>true</code> if non-ASCII characters are escaped, otherwise <code>false</code>.
+	 */
+	public boolean isAsciiEscape()
+	{
+		return asciiEscape;
+	}
+	
+	/**
+	 * Sets whether or not characters outside of ASCII are escaped, so the output is safe for any ASCII-compatible charset.
+	 * 
+	 * @param asciiEscape <code>true</code> if non-ASCII characters should be escaped.
+	 */
+	public void setAsciiEscape(boolean asciiEscape)
+	{
+		this.asciiEscape = asciiEscape;
+	}
+	
+	/*****************
+	 * Write methods *
+	 *****************/
+	
+	/**
+	 * Writes the element to the stream in UTF-8.
+	 * The stream is flushed but not closed.
+	 * @param element The element
+	 * @param stream The output stream
+	 * @throws IOException if the stream couldn't be written to
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public void write(JsonElement element, OutputStream stream) throws IOException
+	{
+		write(element, stream, BinaryOutput.UTF_8);
+	}
+	
+	/**
+	 * Writes the element to the stream in the given charset.
+	 * The stream is flushed but not closed.
+	 * @param element The element
+	 * @param stream The output stream
+	 * @param charset The charset to encode the JSON with
+	 * @throws IOException if the stream couldn't be written to
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public void write(JsonElement element, OutputStream stream, Charset charset) throws IOException
+	{
+		Writer writer = new BufferedWriter(new OutputStreamWriter(stream, charset), BUFFER_SIZE);
+		write(element, writer);
+		writer.flush();
+	}
+	
+	/**
+	 * Writes the element to the writer.
+	 * The writer isn't flushed or closed.
+	 * @param element The element
+	 * @param writer The writer
+	 * @throws IOException if the writer couldn't be written to
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public void write(JsonElement element, Writer writer) throws IOException
+	{
+		if(element == null)
+			throw new IllegalArgumentException("Element cannot be null");
+		
+		new Output(writer).writeElement(element, 0);
+	}
+	
+	/**
+	 * Returns the element in JSON format using this writer's options.
+	 * @param element The element
+	 * @return The JSON formatted element
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	public String toString(JsonElement element)
+	{
+		StringWriter writer = new StringWriter();
+		try
+		{
+			write(element, writer);
+		}
+		catch(IOException e)
+		{
+			//Not thrown by string writers
+			throw new UncheckedIOException(e);
+		}
+		return writer.toString();
+	}
+	
+	/*******************
+	 * Writing helpers *
+	 *******************/
+	
+	/**
+	 * The state of a single write, keeping track of the current column for line widths.
+	 */
+	private class Output
+	{
+		private final Writer writer;
+		private int column;
+		
+		public Output(Writer writer)
+		{
+			this.writer = writer;
+		}
+		
+		//Values
+		
+		private void writeValue(Value value, int depth) throws IOException
+		{
+			if(value == null)
+			{
+				write("null");
+				return;
+			}
+			
+			switch(value.type)
+			{
+				case OBJECT:
+				case ARRAY: writeElement((JsonElement)value.value, depth); break;
+				case STRING: writeString((String)value.get()); break;
+				default: write(value.toString());
+			}
+		}
+		
+		private void writeElement(JsonElement element, int depth) throws IOException
+		{
+			boolean object = element instanceof JsonObject;
+			List<String> keys = object ? getKeys((JsonObject)element) : null;
+			int size = object ? keys.size() : ((JsonArray)element).getValues().size();
+			
+			//Indented elements stay on one line if they fit, leaving room for a comma
+			boolean inline = indent == 0 || size == 0 || (lineWidth > 0 && measureElement(element, lineWidth-column-1) >= 0);
+			
+			write(object ? ParserUtil.OBJECT_OPEN : ParserUtil.ARRAY_OPEN);
+			if(size > 0)
+			{
+				String separator = indent == 0 ? "" : " ";
+				
+				for(int n = 0; n < size; n++)
+				{
+					if(n > 0)
+					{
+						write(ParserUtil.SPLIT);
+						if(inline)
+							write(separator);
+					}
+					if(!inline)
+						newLine(depth+1);
+					
+					Value value;
+					if(object)
+					{
+						String key = keys.get(n);
+						writeString(key);
+						write(ParserUtil.OBJECT_MAP);
+						write(separator);
+						value = ((JsonObject)element).getValues().get(key);
+					}
+					else
+					{
+						value = ((JsonArray)element).getValues().get(n);
+					}
+					writeValue(value, depth+1);
+				}
+				
+				if(!inline)
+					newLine(depth);
+			}
+			write(object ? ParserUtil.OBJECT_CLOSE : ParserUtil.ARRAY_CLOSE);
+		}
+		
+		private void writeString(String str) throws IOException
+		{
+			write(ParserUtil.STRING_1);
+			int start = 0, length = str.length();
+			for(int n = 0; n < length; n++)
+			{
+				String escaped = escape(str.charAt(n));
+				if(escaped != null)
+				{
+					writer.write(str, start, n-start);
+					writer.write(escaped);
+					column += escaped.length()-1;
+					start = n+1;
+				}
+			}
+			writer.write(str, start, length-start);
+			column += length;
+			write(ParserUtil.STRING_1);
+		}
+		
+		//Output
+		
+		private void newLine(int depth) throws IOException
+		{
+			writer.write('\n');
+			for(int n = depth*indent; n > 0; n--)
+				writer.write(' ');
+			column = depth*indent;
+		}
+		
+		private void write(char c) throws IOException
+		{
+			writer.write(c);
+			column++;
+		}
+		
+		private void write(String str) throws IOException
+		{
+			writer.write(str);
+			column += str.length();
+		}
+	}
+	
+	/**
+	 * Returns the keys of the object in the order they're written.
+	 */
+	private List<String> getKeys(JsonObject object)
+	{
+		List<String> keys = new ArrayList<>(object.getValues().keySet());
+		if(keyComparator != null)
+			Collections.sort(keys, keyComparator);
+		return keys;
+	}
+	
+	/**
+	 * Returns the escape sequence for the character, or <code>null</code> if it doesn't need to be escaped.
+	 */
+	private String escape(char c)
+	{
+		if(asciiEscape && c > 0x7e)
+			return "\\u"+HEX.charAt(c >> 12)+HEX.charAt((c >> 8) & 0xf)+HEX.charAt((c >> 4) & 0xf)+HEX.charAt(c & 0xf);
+		return ParserUtil.getEscape(c);
+	}
+	
+	/**
+	 * Returns the length of the string once escaped, excluding the quotes.
+	 */
+	private int escapedLength(String str)
+	{
+		int length = str.length();
+		for(int n = str.length()-1; n >= 0; n--)
+		{
+			String escaped = escape(str.charAt(n));
+			if(escaped != null)
+				length += escaped.length()-1;
+		}
+		return length;
+	}
+	
+	/********************
+	 * Line measurement *
+	 ********************/
+	
+	/**
+	 * Returns how much of the given width is left after writing the element on a single line.
+	 * Stops as soon as the element doesn't fit, so large elements aren't measured in full.
+	 * @return The remaining width, or -1 if the element doesn't fit
+	 */
+	private int measureElement(JsonElement element, int width)
+	{
+		//Brackets
+		width -= 2;
+		
+		if(element instanceof JsonObject)
+		{
+			int n = 0;
+			for(Map.Entry<String, Value> entry : ((JsonObject)element).getValues().entrySet())
+			{
+				//Comma and space, quotes, colon and space
+				width -= (n++ > 0 ? 2 : 0)+escapedLength(entry.getKey())+4;
+				width = measureValue(entry.getValue(), width);
+				if(width < 0)
+					return -1;
+			}
+		}
+		else
+		{
+			int n = 0;
+			for(Value value : ((JsonArray)element).getValues())
+			{
+				width = measureValue(value, n++ > 0 ? width-2 : width);
+				if(width < 0)
+					return -1;
+			}
+		}
+		return width < 0 ? -1 : width;
+	}
+	
+	private int measureValue(Value value, int width)
+	{
+		if(width < 0)
+			return -1;
+		if(value == null)
+			return width-4;
+		
+		switch(value.type)
+		{
+			case OBJECT:
+			case ARRAY: return measureElement((JsonElement)value.value, width);
+			case STRING: return width-escapedLength((String)value.get())-2;
+			default: return width-value.toString().length();
+		}
+	}
+}
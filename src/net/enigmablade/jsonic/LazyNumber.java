@@ -0,0 +1,160 @@
+package net.enigmablade.jsonic;
+
+import java.math.*;
+import net.enigmablade.jsonic.ValueUtil.*;
+
+/**
+ * <p>A number value that is kept as a reference into the JSON it was parsed from until it's read.</p>
+ * <p>The raw text is always used when the number is written back out, so the original formatting is kept
+ * (<code>1.10</code> stays <code>1.10</code>) and integers too large for a long don't lose precision.</p>
+ * 
+ * @author Enigma
+ */
+public class LazyNumber extends Number
+{
+	private static final long serialVersionUID = 5034618945011829741L;
+	
+	//Source information
+	private final String source;
+	private final int start, end;
+	private final ValueType type;
+	
+	//Cached information
+	private transient Number value;
+	
+	/**
+	 * Creates a new lazy number for the given block of the source.
+	 * The block must be a valid JSON number.
+	 * @param source The JSON the number was found in
+	 * @param start The index of the first character of the number
+	 * @param end The index after the last character of the number
+	 * @param type The type the number is converted to: LONG, BIG_INTEGER, or DOUBLE
+	 */
+	protected LazyNumber(String source, int start, int end, ValueType type)
+	{
+		this.source = source;
+		this.start = start;
+		this.end = end;
+		this.type = type;
+	}
+	
+	/*******************
+	 * Raw information *
+	 *******************/
+	
+	/**
+	 * Returns whether or not the number is an integer, meaning it has no fraction or exponent.
+	 * @return <code>true</code> if the number is an integer, otherwise <code>false</code>
+	 */
+	public boolean isIntegral()
+	{
+		return type != ValueType.DOUBLE;
+	}
+	
+	/**
+	 * Returns whether or not the number has been converted from its raw text.
+	 * @return <code>true</code> if the number has been converted, otherwise <code>false</code>
+	 */
+	public boolean isResolved()
+	{
+		return value != null;
+	}
+	
+	/**
+	 * Returns the number converted to the type it would have been parsed as, converting it the first time.
+	 * @return The converted Long, BigInteger, or Double
+	 */
+	public Number resolve()
+	{
+		if(value == null)
+		{
+			switch(type)
+			{
+				case LONG:
+					value = parseLong();
+					break;
+				case BIG_INTEGER:
+					value = new BigInteger(toString());
+					break;
+				default:
+					value = Double.parseDouble(toString());
+			}
+		}
+		return value;
+	}
+	
+	/**
+	 * Parses the raw integer as a long.
+	 * The parser has already checked that it fits.
+	 * @return The long
+	 */
+	private long parseLong()
+	{
+		boolean negated = source.charAt(start) == ParserUtil.NEGATION;
+		
+		//Accumulated as a negative value since it has the larger range
+		long total = 0;
+		for(int n = negated ? start+1 : start; n < end; n++)
+			total = total*10 - (source.charAt(n)-'0');
+		return negated ? total : -total;
+	}
+	
+	/******************
+	 * Number methods *
+	 ******************/
+	
+	@Override
+	public int intValue()
+	{
+		return resolve().intValue();
+	}
+	
+	@Override
+	public long longValue()
+	{
+		return resolve().longValue();
+	}
+	
+	@Override
+	public float floatValue()
+	{
+		return resolve().floatValue();
+	}
+	
+	@Override
+	public double doubleValue()
+	{
+		return resolve().doubleValue();
+	}
+	
+	/**
+	 * Returns the exact value of the number as a BigInteger.
+	 * @return The BigInteger value
+	 * @throws ArithmeticException if the number has a fractional part
+	 */
+	public BigInteger bigIntegerValue()
+	{
+		if(isIntegral())
+			return new BigInteger(toString());
+		return bigDecimalValue().toBigIntegerExact();
+	}
+	
+	/**
+	 * Returns the exact value of the number as a BigDecimal.
+	 * @return The BigDecimal value
+	 */
+	public BigDecimal bigDecimalValue()
+	{
+		return new BigDecimal(toString());
+	}
+	
+	/**
+	 * Returns the raw text of the number as it appeared in the JSON.
+	 * @return The raw number
+	 */
+	@Override
+	public String toString()
+	{
+		return source.substring(start, end);
+	}
+}
@@ -0,0 +1,195 @@
+package net.enigmablade.jsonic;
+
+/**
+ * <p>A string value that is kept as a reference into the JSON it was parsed from until it's read.</p>
+ * <p>Equality, hashing, and comparison work on the raw characters whenever neither string contains escapes,
+ * and are consistent with the decoded {@link String}.</p>
+ * 
+ * @author Enigma
+ */
+public class LazyString implements CharSequence, Comparable<LazyString>
+{
+	//Source information
+	private final String source;
+	private final int start, end;
+	
+	//Cached information
+	private String decoded;
+	private int escapes = -1;
+	private int hash;
+	
+	/**
+	 * Creates a new lazy string for the given block of the source, excluding the quotes.
+	 * @param source The JSON the string was found in
+	 * @param start The index of the first character after the opening quote
+	 * @param end The index of the closing quote
+	 */
+	protected LazyString(String source, int start, int end)
+	{
+		this.source = source;
+		this.start = start;
+		this.end = end;
+	}
+	
+	/*******************
+	 * Raw information *
+	 *******************/
+	
+	/**
+	 * Returns whether or not the raw string contains escape sequences, in which case it has to be decoded before use.
+	 * @return <code>true</code> if the string contains escapes, otherwise <code>false</code>
+	 */
+	public boolean isEscaped()
+	{
+		if(escapes < 0)
+			escapes = ParserUtil.nextEscape(source, start, end) < 0 ? 0 : 1;
+		return escapes > 0;
+	}
+	
+	/**
+	 * Returns whether or not the string has been decoded.
+	 * @return <code>true</code> if the string has been decoded, otherwise <code>false</code>
+	 */
+	public boolean isDecoded()
+	{
+		return decoded != null;
+	}
+	
+	/**
+	 * Appends the string to the builder in JSON format.
+	 * The raw string is copied as it appeared in the JSON unless it contains something that isn't valid
+	 * in strict JSON, like control characters or escaped single quotes, in which case it's escaped again.
+	 * @param builder The builder
+	 */
+	protected void appendJSON(StringBuilder builder)
+	{
+		for(int n = start; n < end; n++)
+		{
+			char c = source.charAt(n);
+			if(c < 0x20 || (c == ParserUtil.ESCAPE && source.charAt(++n) == ParserUtil.STRING_2))
+			{
+				ParserUtil.appendString(builder, toString());
+				return;
+			}
+		}
+		builder.append(ParserUtil.STRING_1).append(source, start, end).append(ParserUtil.STRING_1);
+	}
+	
+	/************************
+	 * CharSequence methods *
+	 ************************/
+	
+	@Override
+	public int length()
+	{
+		if(isEscaped())
+			return toString().length();
+		return end-start;
+	}
+	
+	@Override
+	public char charAt(int index)
+	{
+		if(isEscaped())
+			return toString().charAt(index);
+		if(index < 0 || index >= end-start)
+			throw new IndexOutOfBoundsException("Index: "+index);
+		return source.charAt(start+index);
+	}
+	
+	@Override
+	public CharSequence subSequence(int start, int end)
+	{
+		return toString().subSequence(start, end);
+	}
+	
+	/**
+	 * Returns the decoded string, decoding it the first time this method is called.
+	 * @return The decoded string
+	 * @throws JsonParseException if the string contains an invalid escape sequence
+	 */
+	@Override
+	public String toString()
+	{
+		if(decoded == null)
+			decoded = ParserUtil.decodeString(source, start, end);
+		return decoded;
+	}
+	
+	/********************
+	 * Object overrides *
+	 ********************/
+	
+	/**
+	 * Checks whether this string and the given lazy string decode to the same characters.
+	 * If neither contains escapes, the raw characters are compared directly.
+	 * 
+	 * @param o The object to check against
+	 * @return <code>true</code> if the two strings are equal, otherwise <code>false</code>
+	 */
+	@Override
+	public boolean equals(Object o)
+	{
+		if(o == this)
+			return true;
+		if(!(o instanceof LazyString))
+			return false;
+		
+		LazyString s = (LazyString)o;
+		if(isEscaped() || s.isEscaped())
+			return toString().equals(s.toString());
+		return end-start == s.end-s.start && source.regionMatches(start, s.source, s.start, end-start);
+	}
+	
+	/**
+	 * Returns the same hash code as the decoded string, without decoding it if there are no escapes.
+	 * 
+	 * @return The hash code
+	 * 
+	 * @see String#hashCode()
+	 */
+	@Override
+	public int hashCode()
+	{
+		int h = hash;
+		if(h == 0)
+		{
+			if(isEscaped())
+			{
+				h = toString().hashCode();
+			}
+			else
+			{
+				for(int n = start; n < end; n++)
+					h = 31*h + source.charAt(n);
+			}
+			hash = h;
+		}
+		return h;
+	}
+	
+	/**
+	 * Lexicographically compares this string to another, without decoding them if there are no escapes.
+	 * 
+	 * @param s The string to compare against
+	 * @return The comparison result
+	 * 
+	 * @see String#compareTo(String)
+	 */
+	@Override
+	public int compareTo(LazyString s)
+	{
+		if(isEscaped() || s.isEscaped())
+			return toString().compareTo(s.toString());
+		
+		int len1 = end-start, len2 = s.end-s.start;
+		int lim = Math.min(len1, len2);
+		for(int n = 0; n < lim; n++)
+		{
+			char c1 = source.charAt(start+n), c2 = s.source.charAt(s.start+n);
+			if(c1 != c2)
+				return c1-c2;
+		}
+		return len1-len2;
+	}
+}
@@ -0,0 +1,130 @@
+package net.enigmablade.jsonic;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * <p>Non-public scratch buffers that are reused between parses instead of being allocated for each one.</p>
+ * <p>Each thread has its own buffers, and a parser instance also owns a set that it uses when they're free.
+ * The reuse contract is:</p>
+ * <ul>
+ * <li>Read buffers (characters, bytes, and the text builder) must be acquired with {@link #acquire(ParserBuffers)}
+ * and released with {@link #release()} once the text has been copied out, which resets them for the next parse.</li>
+ * <li>The scratch builder belongs to the current thread and is only valid until the next call to {@link #getScratch(int)}
+ * on the same thread, so it can only be used by code that doesn't call back into the parser before it's done with it.</li>
+ * <li>Nothing taken from the buffers may be kept after it's released, only copies such as strings.</li>
+ * </ul>
+ * <p>Buffers that grew larger than {@link #MAX_RETAINED} while reading a large document are dropped when released
+ * so a single large parse doesn't hold on to the memory.</p>
+ * 
+ * @author Enigma
+ */
+public class ParserBuffers
+{
+	/**
+	 * The largest capacity that's kept between parses.
+	 */
+	protected static final int MAX_RETAINED = 1 << 16;
+	
+	private static final int READ_SIZE = 8192;
+	
+	private static final ThreadLocal<ParserBuffers> LOCAL = ThreadLocal.withInitial(ParserBuffers::new);
+	
+	private final AtomicBoolean inUse = new AtomicBoolean();
+	
+	private char[] chars;
+	private byte[] bytes;
+	private StringBuilder text;
+	private StringBuilder scratch;
+	
+	/**
+	 * Creates a new set of buffers, which are allocated when first used.
+	 */
+	protected ParserBuffers()
+	{
+	}
+	
+	/**
+	 * Returns buffers for reading that are free to use until they're released.
+	 * The preferred buffers are used if they're free, otherwise the current thread's buffers are used.
+	 * If those are also in use then new buffers are created.
+	 * @param preferred The buffers to try first, or <code>null</code>
+	 * @return The acquired buffers
+	 */
+	protected static ParserBuffers acquire(ParserBuffers preferred)
+	{
+		if(preferred != null && preferred.inUse.compareAndSet(false, true))
+			return preferred;
+		
+		ParserBuffers local = LOCAL.get();
+		if(local.inUse.compareAndSet(false, true))
+			return local;
+		
+		ParserBuffers buffers = new ParserBuffers();
+		buffers.inUse.set(true);
+		return buffers;
+	}
+	
+	/**
+	 * Resets the read buffers and makes them free to be acquired again.
+	 */
+	protected void release()
+	{
+		if(text != null)
+		{
+			if(text.capacity() > MAX_RETAINED)
+				text = null;
+			else
+				text.setLength(0);
+		}
+		inUse.set(false);
+	}
+	
+	/**
+	 * Returns the character read buffer.
+	 * @return The buffer
+	 */
+	protected char[] getChars()
+	{
+		if(chars == null)
+			chars = new char[READ_SIZE];
+		return chars;
+	}
+	
+	/**
+	 * Returns the byte read buffer.
+	 * @return The buffer
+	 */
+	protected byte[] getBytes()
+	{
+		if(bytes == null)
+			bytes = new byte[READ_SIZE];
+		return bytes;
+	}
+	
+	/**
+	 * Returns the empty builder used to collect read text.
+	 * @return The builder
+	 */
+	protected StringBuilder getText()
+	{
+		if(text == null)
+			text = new StringBuilder(READ_SIZE);
+		return text;
+	}
+	
+	/**
+	 * Returns the current thread's empty scratch builder, used when decoding strings and numbers.
+	 * @param capacity The expected length of the result
+	 * @return The builder
+	 */
+	protected static StringBuilder getScratch(int capacity)
+	{
+		ParserBuffers local = LOCAL.get();
+		StringBuilder scratch = local.scratch;
+		if(scratch == null || scratch.capacity() > MAX_RETAINED)
+			local.scratch = scratch = new StringBuilder(Math.max(capacity, 64));
+		else
+			scratch.setLength(0);
+		return scratch;
+	}
+}
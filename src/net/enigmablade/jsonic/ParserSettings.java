@@ -0,0 +1,108 @@
+package net.enigmablade.jsonic;
+
+/**
+ * Non-public settings used by the parser.
+ * Delayed elements keep a reference to the settings they were created with so they can finish parsing later.
+ * Settings are never modified once they have been given to the parser.
+ * 
+ * @author Enigma
+ */
+public class ParserSettings implements Cloneable
+{
+	//Shared defaults for the static parsing methods
+	protected static final ParserSettings DEFAULT = new ParserSettings(false);
+	protected static final ParserSettings DELAYED = new ParserSettings(true);
+	
+	/**
+	 * Whether or not the parsing of nested elements is delayed until they're used.
+	 */
+	protected boolean delayed;
+	/**
+	 * Whether or not double-quoted string values are kept as raw offsets into the JSON until they're read.
+	 * @see LazyString
+	 */
+	protected boolean lazyStrings;
+	/**
+	 * Whether or not standard JSON numbers are kept as raw offsets into the JSON until they're read.
+	 * @see LazyNumber
+	 */
+	protected boolean lazyNumbers;
+	/**
+	 * Whether or not only standard JSON is accepted, using the strict parsing loops instead of the lenient ones.
+	 * @see StrictParser
+	 */
+	protected boolean strict;
+	/**
+	 * Whether or not parsed objects keep their keys in the order they appear in the JSON.
+	 * @see CompactMap
+	 */
+	protected boolean ordered;
+	/**
+	 * The arena nested elements and values are taken from, or <code>null</code> to create new ones.
+	 * @see JsonArena
+	 */
+	protected JsonArena arena;
+	/**
+	 * The interner values are deduplicated with, or <code>null</code> to keep every value.
+	 * Never used with delayed parsing or an arena.
+	 * @see JsonInterner
+	 */
+	protected JsonInterner interner;
+	/**
+	 * The schema documents are validated against, before they're parsed if it can be scanned, or <code>null</code> to not validate them.
+	 * @see JsonSchema
+	 */
+	protected JsonSchema schema;
+	/**
+	 * The deepest elements can be nested, the longest the input, strings and numbers can be (in characters),
+	 * and the most members an object or array can have. Each is {@link Integer#MAX_VALUE} when it isn't limited.
+	 * @see IterativeParser
+	 */
+	protected int maxDepth = Integer.MAX_VALUE, maxLength = Integer.MAX_VALUE, maxStringLength = Integer.MAX_VALUE, maxMembers = Integer.MAX_VALUE, maxNumberLength = Integer.MAX_VALUE;
+	
+	/**
+	 * Creates new settings using the default options.
+	 * @param delayed Whether or not parsing is delayed
+	 */
+	protected ParserSettings(boolean delayed)
+	{
+		this.delayed = delayed;
+	}
+	
+	/**
+	 * Returns the shared default settings.
+	 * @param delayed Whether or not parsing is delayed
+	 * @return The settings
+	 */
+	protected static ParserSettings get(boolean delayed)
+	{
+		return delayed ? DELAYED : DEFAULT;
+	}
+	
+	/**
+	 * Returns whether or not any resource limits are set, in which case documents are parsed by the iterative parser.
+	 * @return <code>true</code> if anything is limited, otherwise <code>false</code>
+	 * @see IterativeParser
+	 */
+	protected boolean isLimited()
+	{
+		return maxDepth != Integer.MAX_VALUE || maxLength != Integer.MAX_VALUE || maxStringLength != Integer.MAX_VALUE
+				|| maxMembers != Integer.MAX_VALUE || maxNumberLength != Integer.MAX_VALUE;
+	}
+	
+	/**
+	 * Returns a copy of these settings that can be modified.
+	 * @return The copy
+	 */
+	protected ParserSettings copy()
+	{
+		try
+		{
+			return (ParserSettings)clone();
+		}
+		catch(CloneNotSupportedException e)
+		{
+			throw new InternalError(e.toString());
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package net.enigmablade.jsonic;
 
+import java.math.*;
 import net.enigmablade.jsonic.ValueUtil.*;
 
 /**
@@ -19,7 +20,8 @@ public class ParserUtil
 	protected static final char OBJECT_MAP = ':';
 	protected static final char SPLIT = ',';
 	
-	protected static final char STRING_1 = '"', STRING_2 = '\'';;
+	protected static final char STRING_1 = '"', STRING_2 = '\'';
+	protected static final char ESCAPE = '\\';
 	protected static boolean isStringChar(char c)
 	{
 		return c == STRING_1 || c == STRING_2;
@@ -39,27 +41,240 @@ public class ParserUtil
 		return start;
 	}
 	
+	/**
+	 * Returns the character at the given index, treating the end of the JSON as an error.
+	 * @param s The JSON
+	 * @param index The index
+	 * @return The character
+	 * @throws JsonParseException if the index is past the end of the JSON, which means it was cut short
+	 */
+	protected static char charAt(String s, int index) throws JsonParseException
+	{
+		if(index >= s.length())
+			throw new JsonParseException(JsonParseException.Type.BAD_END, s.length());
+		return s.charAt(index);
+	}
+	
 	//String extraction
 	
-	protected static String getStringBlock(String s, int startIndex)
+	protected static String getStringBlock(String s, int startIndex) throws JsonParseException
 	{
-		char boundaryChar = s.charAt(startIndex);
-		if(!isStringChar(boundaryChar))
+		if(!isStringChar(s.charAt(startIndex)))
 			return null;
 		
-		startIndex++;
+		return decodeString(s, startIndex+1, getStringBlockEnd(s, startIndex));
+	}
+	
+	/**
+	 * Returns the index of the quote closing the string that starts at the given index.
+	 * A quote is escaped if it's preceded by an odd number of backslashes.
+	 * @param s The JSON
+	 * @param startIndex The index of the opening quote
+	 * @return The index of the closing quote
+	 * @throws JsonParseException if the string is never closed
+	 */
+	protected static int getStringBlockEnd(String s, int startIndex) throws JsonParseException
+	{
+		char boundaryChar = s.charAt(startIndex);
 		
-		StringBuilder block = new StringBuilder();
-		boolean escaped = false;
-		for(char c; startIndex < s.length() && ((c = s.charAt(startIndex)) != boundaryChar || escaped); startIndex++)
+		int end = startIndex;
+		while((end = s.indexOf(boundaryChar, end+1)) > 0)
 		{
-			block.append(c);
-			escaped = c == '\\' && (startIndex+1 < s.length() ? s.charAt(startIndex+1) == boundaryChar : false);
+			int slashes = 0;
+			for(int n = end-1; n > startIndex && s.charAt(n) == ESCAPE; n--)
+				slashes++;
+			
+			if((slashes & 1) == 0)
+				return end;
 		}
 		
+		throw new JsonParseException(JsonParseException.Type.BAD_END, s.length());
+	}
+	
+	/**
+	 * Decodes the contents of a string block, excluding the quotes.
+	 * If the block doesn't contain any escapes it's copied into the new string in one go.
+	 * @param s The JSON
+	 * @param start The index of the first character after the opening quote
+	 * @param end The index of the closing quote
+	 * @return The decoded string
+	 * @throws JsonParseException if the block contains an invalid escape sequence
+	 */
+	protected static String decodeString(String s, int start, int end) throws JsonParseException
+	{
+		int escape = nextEscape(s, start, end);
+		if(escape < 0)
+			return s.substring(start, end);
+		
+		StringBuilder block = ParserBuffers.getScratch(end-start);
+		do
+		{
+			block.append(s, start, escape);
+			start = decodeEscape(s, escape, end, block);
+		}while((escape = nextEscape(s, start, end)) >= 0);
+		block.append(s, start, end);
+		
 		return block.toString();
 	}
 	
+	/**
+	 * Creates the value for the string block ending at the given index.
+	 * Double-quoted strings are kept as lazy strings if the settings ask for it.
+	 * Single-quoted strings are always decoded since their raw form isn't valid in output.
+	 * @param s The JSON
+	 * @param startIndex The index of the opening quote
+	 * @param end The index of the closing quote
+	 * @param settings The parser settings
+	 * @return The string value
+	 * @throws JsonParseException if the block contains an invalid escape sequence
+	 */
+	protected static Value getStringValue(String s, int startIndex, int end, ParserSettings settings) throws JsonParseException
+	{
+		if(settings.lazyStrings && s.charAt(startIndex) == STRING_1)
+			return createValue(ValueType.STRING, new LazyString(s, startIndex+1, end), settings);
+		return createValue(ValueType.STRING, decodeString(s, startIndex+1, end), settings);
+	}
+	
+	/**
+	 * Returns the index of the next backslash between the given bounds.
+	 * @param s The JSON
+	 * @param start The starting index, inclusive
+	 * @param end The ending index, exclusive
+	 * @return The index of the backslash, or -1 if there isn't one
+	 */
+	protected static int nextEscape(String s, int start, int end)
+	{
+		for(; start < end; start++)
+			if(s.charAt(start) == ESCAPE)
+				return start;
+		return -1;
+	}
+	
+	/**
+	 * Decodes the escape sequence at the given index and appends the result to the block.
+	 * @param s The JSON
+	 * @param index The index of the backslash
+	 * @param end The end of the string block
+	 * @param block The block being built
+	 * @return The index of the first character after the escape sequence
+	 * @throws JsonParseException if the escape sequence is invalid
+	 */
+	private static int decodeEscape(String s, int index, int end, StringBuilder block) throws JsonParseException
+	{
+		if(index+1 >= end)
+			throw new JsonParseException(JsonParseException.Type.INVALID_ESCAPE, index);
+		
+		char c = s.charAt(index+1);
+		switch(c)
+		{
+			case STRING_1:
+			case STRING_2:
+			case ESCAPE:
+			case '/': block.append(c); break;
+			case 'b': block.append('\b'); break;
+			case 'f': block.append('\f'); break;
+			case 'n': block.append('\n'); break;
+			case 'r': block.append('\r'); break;
+			case 't': block.append('\t'); break;
+			
+			//Unicode, surrogate pairs are two escapes in a row so they work out by themselves
+			case 'u':
+				if(index+6 > end)
+					throw new JsonParseException(JsonParseException.Type.INVALID_ESCAPE, index);
+				
+				int code = 0;
+				for(int n = index+2; n < index+6; n++)
+				{
+					int digit = hexDigit(s.charAt(n));
+					if(digit < 0)
+						throw new JsonParseException(JsonParseException.Type.INVALID_ESCAPE, index);
+					code = (code << 4) | digit;
+				}
+				block.append((char)code);
+				return index+6;
+			
+			default:
+				throw new JsonParseException(JsonParseException.Type.INVALID_ESCAPE, index);
+		}
+		
+		return index+2;
+	}
+	
+	/**
+	 * Returns the value of an ASCII hex digit, unlike Character.digit which also accepts other Unicode digits.
+	 * @param c The character
+	 * @return The value, or -1 if the character isn't a hex digit
+	 */
+	protected static int hexDigit(char c)
+	{
+		if(c >= '0' && c <= '9')
+			return c-'0';
+		if(c >= 'a' && c <= 'f')
+			return c-'a'+10;
+		if(c >= 'A' && c <= 'F')
+			return c-'A'+10;
+		return -1;
+	}
+	
+	//String encoding
+	
+	private static final String[] ESCAPES = new String[128];
+	static
+	{
+		for(char c = 0; c < 0x20; c++)
+			ESCAPES[c] = String.format("\\u%04x", (int)c);
+		ESCAPES[STRING_1] = "\\\"";
+		ESCAPES[ESCAPE] = "\\\\";
+		ESCAPES['\b'] = "\\b";
+		ESCAPES['\f'] = "\\f";
+		ESCAPES['\n'] = "\\n";
+		ESCAPES['\r'] = "\\r";
+		ESCAPES['\t'] = "\\t";
+	}
+	
+	/**
+	 * Returns the escape sequence used for the character in JSON output.
+	 * @param c The character
+	 * @return The escape sequence, or <code>null</code> if the character can be written as it is
+	 */
+	protected static String getEscape(char c)
+	{
+		return c < ESCAPES.length ? ESCAPES[c] : null;
+	}
+	
+	/**
+	 * Appends the string in double quotes, escaping quotes, backslashes, and control characters.
+	 * The characters between escapes are copied in blocks, so strings without any are copied in one go.
+	 * @param json The builder to append to
+	 * @param str The string
+	 */
+	protected static void appendString(StringBuilder json, CharSequence str)
+	{
+		appendString(json, str, 0, str.length());
+	}
+	
+	/**
+	 * Appends part of a string in double quotes, escaping quotes, backslashes, and control characters.
+	 * @param json The builder to append to
+	 * @param str The string
+	 * @param start The starting index, inclusive
+	 * @param end The ending index, exclusive
+	 */
+	protected static void appendString(StringBuilder json, CharSequence str, int start, int end)
+	{
+		json.append(STRING_1);
+		for(int n = start; n < end; n++)
+		{
+			char c = str.charAt(n);
+			if(c < ESCAPES.length && ESCAPES[c] != null)
+			{
+				json.append(str, start, n).append(ESCAPES[c]);
+				start = n+1;
+			}
+		}
+		json.append(str, start, end).append(STRING_1);
+	}
+	
 	protected static String getObjectBlock(String s, int startIndex)
 	{
 		char boundaryChar = s.charAt(startIndex);
@@ -112,114 +327,405 @@ public class ParserUtil
 	
 	protected static String getUnknownBlock(String s, int startIndex)
 	{
-		StringBuilder block = new StringBuilder();
-		for(int i = startIndex; i < s.length() && s.charAt(i) != OBJECT_MAP && s.charAt(i) != SPLIT && s.charAt(i) != OBJECT_CLOSE && s.charAt(i) != ARRAY_CLOSE && !Character.isWhitespace(s.charAt(i)); i++)
+		return s.substring(startIndex, getUnknownBlockEnd(s, startIndex));
+	}
+	
+	/**
+	 * Returns the index after the end of the unknown block (boolean, number, null, or unquoted key) starting at the given index.
+	 * @param s The JSON
+	 * @param startIndex The index of the first character of the block
+	 * @return The index after the last character of the block
+	 */
+	protected static int getUnknownBlockEnd(String s, int startIndex)
+	{
+		int i = startIndex;
+		for(char c; i < s.length() && (c = s.charAt(i)) != OBJECT_MAP && c != SPLIT && c != OBJECT_CLOSE && c != ARRAY_CLOSE && !Character.isWhitespace(c); i++);
+		return i;
+	}
+	
+	/**
+	 * Creates the value for the unknown block between the given indices.
+	 * Numbers are kept as lazy numbers if the settings ask for it.
+	 * @param s The JSON
+	 * @param start The index of the first character of the block
+	 * @param end The index after the last character of the block
+	 * @param settings The parser settings
+	 * @return The value
+	 * @throws JsonParseException if the block isn't a valid value
+	 */
+	protected static Value getUnknownValue(String s, int start, int end, ParserSettings settings) throws JsonParseException
+	{
+		if(settings.lazyNumbers)
 		{
-			block.append(s.charAt(i));
+			ValueType type = getNumberType(s, start, end);
+			if(type != null)
+				return createValue(type, new LazyNumber(s, start, end, type), settings);
 		}
-		return block.toString();
+		try
+		{
+			return parseUnknown(s.substring(start, end), settings);
+		}
+		catch(JsonParseException e)
+		{
+			throw e.setLocation(start);
+		}
+	}
+	
+	/**
+	 * Returns the type a block would be parsed as if it's a standard JSON number that can be kept in its raw form.
+	 * Integers with an exponent and numbers with large exponents aren't included since their type depends on their value.
+	 * @param s The JSON
+	 * @param start The index of the first character of the block
+	 * @param end The index after the last character of the block
+	 * @return LONG or BIG_INTEGER for integers, DOUBLE for numbers with a fraction or negative exponent, otherwise <code>null</code>
+	 */
+	protected static ValueType getNumberType(String s, int start, int end)
+	{
+		int n = start;
+		if(n < end && s.charAt(n) == NEGATION)
+			n++;
+		
+		//Integer part, no leading zeros
+		int digits = n;
+		for(; n < end && isDigit(s.charAt(n)); n++);
+		if(n == digits || (s.charAt(digits) == '0' && n-digits > 1))
+			return null;
+		if(n == end)
+			return fitsLong(s, digits, n, digits > start) ? ValueType.LONG : ValueType.BIG_INTEGER;
+		
+		//Long fractions could be out of range for a double
+		if(end-start > 300)
+			return null;
+		
+		//Fraction
+		boolean fraction = false;
+		if(s.charAt(n) == FLOATING_POINT_SEPARATOR)
+		{
+			digits = ++n;
+			for(; n < end && isDigit(s.charAt(n)); n++);
+			if(n == digits)
+				return null;
+			fraction = true;
+		}
+		
+		//Exponent
+		if(n < end && (s.charAt(n) == SCI_NOTATION || s.charAt(n) == SCI_NOTATION_U))
+		{
+			boolean negative = ++n < end && s.charAt(n) == NEGATION;
+			if(n < end && (negative || s.charAt(n) == '+'))
+				n++;
+			digits = n;
+			for(; n < end && isDigit(s.charAt(n)); n++);
+			if(n == digits || n-digits > 2 || !(fraction || negative))
+				return null;
+		}
+		
+		return n == end ? ValueType.DOUBLE : null;
+	}
+	
+	/**
+	 * Returns whether or not the given integer digits fit in a long.
+	 * @param s The JSON
+	 * @param start The index of the first digit
+	 * @param end The index after the last digit
+	 * @param negated Whether or not the integer is negative
+	 * @return <code>true</code> if the integer fits, otherwise <code>false</code>
+	 */
+	private static boolean fitsLong(String s, int start, int end, boolean negated)
+	{
+		int digits = end-start;
+		if(digits != 19)
+			return digits < 19;
+		
+		String limit = negated ? "9223372036854775808" : "9223372036854775807";
+		for(int n = 0; n < 19; n++)
+		{
+			char c = s.charAt(start+n), l = limit.charAt(n);
+			if(c != l)
+				return c < l;
+		}
+		return true;
+	}
+	
+	private static boolean isDigit(char c)
+	{
+		return c >= '0' && c <= '9';
 	}
 	
 	protected static Value parseUnknown(String str) throws JsonParseException
 	{
-		NaN: switch(str.charAt(0))
+		return parseUnknown(str, null);
+	}
+	
+	/**
+	 * Parses a boolean, null, or number.
+	 * @param str The block
+	 * @param settings The parser settings, or <code>null</code> to always create new values
+	 * @return The value
+	 * @throws JsonParseException if the block isn't a valid value
+	 */
+	protected static Value parseUnknown(String str, ParserSettings settings) throws JsonParseException
+	{
+		if(str.isEmpty())
+			throw new JsonParseException(JsonParseException.Type.UNKNOWN_VALUE_TYPE, str);
+		
+		switch(str.charAt(0))
 		{
 			//True
 			case 't':
 				if("true".equals(str))
-					return ValueUtil.createValue(true);
+					return createValue(ValueType.BOOLEAN, Boolean.TRUE, settings);
 				break;
 			
 			//False
 			case 'f':
 				if("false".equals(str))
-					return ValueUtil.createValue(false);
+					return createValue(ValueType.BOOLEAN, Boolean.FALSE, settings);
 				break;
 			
 			//Null
 			case 'n':
 				if("null".equals(str))
-					return ValueUtil.createNullValue();
+					return createValue(ValueType.NULL, null, settings);
 				break;
 			
 			//NaN (the actual value)
 			case 'N':
 				if("NaN".equals(str))
-					return ValueUtil.andThenThereWereNaN();
+					return createValue(ValueType.DOUBLE, Double.NaN, settings);
 				break;
 			
 			//A number
 			default:
-				boolean hasDecimal = false, hasSci = false, negated = false, sciNegated = false;
-				long total = 0, totalSci = 0;
-				for(int n = 0; n < str.length(); n++)
+				Value number = parseNumber(str, settings);
+				if(number != null)
+					return number;
+		}
+		
+		throw new JsonParseException(JsonParseException.Type.UNKNOWN_VALUE_TYPE, str);
+	}
+	
+	//Powers of ten that fit in a long
+	private static final long[] POWERS_OF_TEN = new long[19];
+	static
+	{
+		POWERS_OF_TEN[0] = 1;
+		for(int n = 1; n < POWERS_OF_TEN.length; n++)
+			POWERS_OF_TEN[n] = POWERS_OF_TEN[n-1]*10;
+	}
+	
+	/**
+	 * Parses a number, promoting it to a BigInteger or BigDecimal if it doesn't fit in a long or double.<br>
+	 * Integers (including those with a positive exponent) are returned as longs when possible,
+	 * and numbers with a fraction, negative exponent, or float suffix ('f' or 'd') are returned as doubles.
+	 * Exponents too small for a BigDecimal give a zero double.
+	 * @param str The number
+	 * @return The number value, or <code>null</code> if the string isn't a number
+	 * @throws JsonParseException if the exponent is too large for a BigDecimal
+	 */
+	protected static Value parseNumber(String str) throws JsonParseException
+	{
+		return parseNumber(str, null);
+	}
+	
+	/**
+	 * Parses a number, taking the value from the settings' arena if there is one.
+	 * @param str The number
+	 * @param settings The parser settings, or <code>null</code> to always create a new value
+	 * @return The number value, or <code>null</code> if the string isn't a number
+	 * @throws JsonParseException if the exponent is too large for a BigDecimal
+	 * @see #parseNumber(String)
+	 */
+	protected static Value parseNumber(String str, ParserSettings settings) throws JsonParseException
+	{
+		int len = str.length(), n = 0;
+		boolean negated = str.charAt(0) == NEGATION;
+		if(negated)
+			n++;
+		
+		//Integer part, accumulated as a negative value since it has the larger range
+		long total = 0;
+		int digits = 0;
+		boolean overflow = false, spacers = false, nonZero = false;
+		for(char c; n < len; n++)
+		{
+			c = str.charAt(n);
+			if(c >= '0' && c <= '9')
+			{
+				int digit = c-'0';
+				//Overflow is only possible past 18 digits
+				if(++digits > 18 && total < (Long.MIN_VALUE+digit)/10)
+					overflow = true;
+				total = total*10 - digit;
+				nonZero |= digit != 0;
+			}
+			else if(c == NUMBER_SPACER)
+			{
+				spacers = true;
+			}
+			else
+			{
+				break;
+			}
+		}
+		
+		//Common case: a plain integer
+		if(n == len)
+		{
+			if(digits == 0)
+				return null;
+			if(!overflow && (negated || total != Long.MIN_VALUE))
+				return createValue(ValueType.LONG, negated ? total : -total, settings);
+			return createValue(ValueType.BIG_INTEGER, new BigInteger(clean(str, spacers, len)), settings);
+		}
+		
+		//Fraction
+		boolean fraction = false;
+		if(str.charAt(n) == FLOATING_POINT_SEPARATOR)
+		{
+			fraction = true;
+			for(n++; n < len; n++)
+			{
+				char c = str.charAt(n);
+				if(c >= '0' && c <= '9')
 				{
-					char c = str.charAt(n);
-					switch(c)
-					{
-						//Negative
-						case NEGATION:
-							if(hasSci)
-							{
-								if(totalSci > 0 || sciNegated)
-									break NaN;
-								sciNegated = true;
-								break;
-							}
-							
-							if(n > 0 || negated)
-								break NaN;
-							negated = true;
-							break;
-						
-						//Decimal
-						case FLOATING_POINT_SEPARATOR:
-							//Can't have two decimal points, NaN
-							if(hasDecimal)
-								break NaN;
-							hasDecimal = true;
-							break;
-						
-						//Scientific notation
-						case SCI_NOTATION:
-						case SCI_NOTATION_U:
-							hasSci = true;
-							break;
-						
-						//Spacers, ignore
-						case NUMBER_SPACER:
-							break;
-						
-						//Check if valid digit
-						default:
-							if(c < '0' || c > '9')
-								break NaN;
-							
-							if(hasSci)
-							{
-								totalSci *= 10;
-								totalSci += '0' - c;
-								break;
-							}
-							
-							total *= 10;
-							total += '0' - c;
-							break;
-					}
+					digits++;
+					nonZero |= c != '0';
 				}
-				
-				//Return a double if a decimal was found
-				if(hasDecimal || sciNegated)
-					return ValueUtil.createValue(Double.parseDouble(str));
-				//Otherwise return a long
-				if(hasSci)
+				else if(c == NUMBER_SPACER)
 				{
-					for(int p = 0; p > totalSci; p--)
-						total *= 10;
+					spacers = true;
 				}
-				return ValueUtil.createValue(negated ? total : -total);
+				else
+				{
+					break;
+				}
+			}
 		}
+		if(digits == 0)
+			return null;
 		
-		throw new JsonParseException(JsonParseException.Type.UNKNOWN_VALUE_TYPE, str);
+		//Exponent, capped since anything past the cap is out of range for every type anyways
+		int exponent = 0;
+		boolean exponentNegated = false;
+		if(n < len && (str.charAt(n) == SCI_NOTATION || str.charAt(n) == SCI_NOTATION_U))
+		{
+			n++;
+			if(n < len && (str.charAt(n) == NEGATION || str.charAt(n) == '+'))
+				exponentNegated = str.charAt(n++) == NEGATION;
+			
+			int start = n;
+			for(char c; n < len && (c = str.charAt(n)) >= '0' && c <= '9'; n++)
+				if(exponent < 100_000_000)
+					exponent = exponent*10 + (c-'0');
+			if(n == start)
+				return null;
+		}
+		
+		//Float suffix
+		int end = len;
+		boolean suffix = false;
+		if(n == len-1)
+		{
+			char c = str.charAt(n);
+			if(c == 'f' || c == 'F' || c == 'd' || c == 'D')
+			{
+				suffix = true;
+				end = n++;
+			}
+		}
+		if(n != len)
+			return null;
+		
+		//Integer with an exponent
+		if(!fraction && !exponentNegated && !suffix && !overflow && digits+exponent <= 18)
+			return createValue(ValueType.LONG, (negated ? total : -total) * POWERS_OF_TEN[exponent], settings);
+		
+		try
+		{
+			String number = clean(str, spacers, end);
+			if(!fraction && !exponentNegated && !suffix)
+				return createValue(ValueType.BIG_DECIMAL, new BigDecimal(number), settings);
+			
+			//Everything else is a double unless it's out of range
+			double d = Double.parseDouble(number);
+			if(Double.isInfinite(d) || (d == 0 && nonZero))
+				return createValue(ValueType.BIG_DECIMAL, new BigDecimal(number), settings);
+			return createValue(ValueType.DOUBLE, d, settings);
+		}
+		//Exponent too large for a BigDecimal, so the number can only be zero or out of range
+		catch(NumberFormatException e)
+		{
+			if(!nonZero && !fraction && !exponentNegated && !suffix)
+				return createValue(ValueType.LONG, 0L, settings);
+			if(!nonZero || exponentNegated)
+				return createValue(ValueType.DOUBLE, negated ? -0.0 : 0.0, settings);
+			throw new JsonParseException(JsonParseException.Type.LIMIT_EXCEEDED, (Object)"number out of range");
+		}
+	}
+	
+	/**
+	 * Removes number spacers and any suffix from a number.
+	 * @param str The number
+	 * @param spacers Whether or not the number contains spacers
+	 * @param end The end of the number, excluding any suffix
+	 * @return The clean number
+	 */
+	private static String clean(String str, boolean spacers, int end)
+	{
+		if(!spacers)
+			return end == str.length() ? str : str.substring(0, end);
+		
+		StringBuilder clean = ParserBuffers.getScratch(end);
+		for(int n = 0; n < end; n++)
+			if(str.charAt(n) != NUMBER_SPACER)
+				clean.append(str.charAt(n));
+		return clean.toString();
+	}
+	
+	/**
+	 * Creates a value, taking it from the settings' arena if there is one.
+	 * @param type The value type
+	 * @param value The value
+	 * @param settings The parser settings, or <code>null</code> to always create a new value
+	 * @return The value
+	 */
+	protected static Value createValue(ValueType type, Object value, ParserSettings settings)
+	{
+		if(settings != null && settings.arena != null)
+			return settings.arena.createValue(type, value);
+		if(settings != null && settings.interner != null)
+			return settings.interner.intern(type, value);
+		return new Value(type, value);
+	}
+	
+	/**
+	 * Creates a nested object, taking it from the settings' arena if there is one.
+	 * @param json The JSON
+	 * @param startIndex The index of the opening brace
+	 * @param settings The parser settings
+	 * @return The object
+	 * @throws JsonParseException if there was an error when parsing the object
+	 */
+	protected static JsonObject createObject(String json, int startIndex, ParserSettings settings) throws JsonParseException
+	{
+		if(settings.arena != null)
+			return settings.arena.createObject(json, startIndex, settings);
+		return new JsonObject(json, startIndex, settings);
+	}
+	
+	/**
+	 * Creates a nested array, taking it from the settings' arena if there is one.
+	 * @param json The JSON
+	 * @param startIndex The index of the opening bracket
+	 * @param settings The parser settings
+	 * @return The array
+	 * @throws JsonParseException if there was an error when parsing the array
+	 */
+	protected static JsonArray createArray(String json, int startIndex, ParserSettings settings) throws JsonParseException
+	{
+		if(settings.arena != null)
+			return settings.arena.createArray(json, startIndex, settings);
+		return new JsonArray(json, startIndex, settings);
 	}
 }
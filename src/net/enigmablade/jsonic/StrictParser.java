@@ -0,0 +1,308 @@
+package net.enigmablade.jsonic;
+
+import java.util.*;
+import net.enigmablade.jsonic.ValueUtil.*;
+
+/**
+ * <p>Non-public utilities used by the parser in strict mode, which only accepts standard JSON (RFC 8259).</p>
+ * <p>The lenient dialect accepts single-quoted strings, unquoted keys, number spacers, float suffixes and NaN,
+ * and checks for them on every value. Strict parsing has its own loops for objects and arrays that only look for
+ * standard JSON, and rejects anything else: control characters in strings, invalid escapes, leading zeros,
+ * missing or trailing commas, and content after the document.</p>
+ * 
+ * @author Enigma
+ */
+public class StrictParser
+{
+	/*******************
+	 * Parsing methods *
+	 *******************/
+	
+	/**
+	 * Parses the object starting at the given index into the map.
+	 * @param json The JSON
+	 * @param startIndex The index of the opening brace
+	 * @param settings The parser settings
+	 * @param values The map to put the object's values into
+	 * @return The length of the object
+	 * @throws JsonParseException if the object isn't standard JSON
+	 */
+	protected static int parseObject(String json, int startIndex, ParserSettings settings, Map<String, Value> values) throws JsonParseException
+	{
+		if(charAt(json, startIndex) != ParserUtil.OBJECT_OPEN)
+			throw new JsonParseException(JsonParseException.Type.BAD_START, startIndex);
+		
+		int index = skipWhitespace(json, startIndex+1);
+		if(charAt(json, index) == ParserUtil.OBJECT_CLOSE)
+			return index-startIndex+1;
+		
+		while(true)
+		{
+			//Key
+			if(charAt(json, index) != ParserUtil.STRING_1)
+				throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, index);
+			int end = stringEnd(json, index);
+			String key = ParserUtil.decodeString(json, index+1, end);
+			if(settings.interner != null)
+				key = settings.interner.intern(key);
+			
+			index = skipWhitespace(json, end+1);
+			if(charAt(json, index) != ParserUtil.OBJECT_MAP)
+				throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, index);
+			
+			//Value
+			index = skipWhitespace(json, index+1);
+			Value value;
+			char c = charAt(json, index);
+			if(c == ParserUtil.OBJECT_OPEN || c == ParserUtil.ARRAY_OPEN)
+			{
+				JsonElement element = createElement(json, index, settings);
+				value = ParserUtil.createValue(c == ParserUtil.OBJECT_OPEN ? ValueType.OBJECT : ValueType.ARRAY, element, settings);
+				end = elementEnd(element, index);
+			}
+			else
+			{
+				end = valueEnd(json, index);
+				value = createValue(json, index, end, settings);
+			}
+			values.put(key, value);
+			
+			//Next member or the end
+			index = skipWhitespace(json, end);
+			c = charAt(json, index);
+			if(c == ParserUtil.OBJECT_CLOSE)
+				return index-startIndex+1;
+			if(c != ParserUtil.SPLIT)
+				throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, index);
+			index = skipWhitespace(json, index+1);
+		}
+	}
+	
+	/**
+	 * Parses the array starting at the given index into the list.
+	 * @param json The JSON
+	 * @param startIndex The index of the opening bracket
+	 * @param settings The parser settings
+	 * @param values The list to add the array's values to
+	 * @return The length of the array
+	 * @throws JsonParseException if the array isn't standard JSON
+	 */
+	protected static int parseArray(String json, int startIndex, ParserSettings settings, List<Value> values) throws JsonParseException
+	{
+		if(charAt(json, startIndex) != ParserUtil.ARRAY_OPEN)
+			throw new JsonParseException(JsonParseException.Type.BAD_START, startIndex);
+		
+		int index = skipWhitespace(json, startIndex+1);
+		if(charAt(json, index) == ParserUtil.ARRAY_CLOSE)
+			return index-startIndex+1;
+		
+		while(true)
+		{
+			Value value;
+			int end;
+			char c = charAt(json, index);
+			if(c == ParserUtil.OBJECT_OPEN || c == ParserUtil.ARRAY_OPEN)
+			{
+				JsonElement element = createElement(json, index, settings);
+				value = ParserUtil.createValue(c == ParserUtil.OBJECT_OPEN ? ValueType.OBJECT : ValueType.ARRAY, element, settings);
+				end = elementEnd(element, index);
+			}
+			else
+			{
+				end = valueEnd(json, index);
+				value = createValue(json, index, end, settings);
+			}
+			values.add(value);
+			
+			//Next value or the end
+			index = skipWhitespace(json, end);
+			c = charAt(json, index);
+			if(c == ParserUtil.ARRAY_CLOSE)
+				return index-startIndex+1;
+			if(c != ParserUtil.SPLIT)
+				throw new JsonParseException(JsonParseException.Type.INVALID_FORMAT, index);
+			index = skipWhitespace(json, index+1);
+		}
+	}
+	
+	/**
+	 * Verifies nothing but whitespace follows the document.
+	 * @param json The JSON
+	 * @param end The index after the end of the document
+	 * @throws JsonParseException if there's anything else after the document
+	 */
+	protected static void verifyEnd(String json, int end) throws JsonParseException
+	{
+		end = skipWhitespace(json, end);
+		if(end < json.length())
+			throw new JsonParseException(JsonParseException.Type.BAD_END, end);
+	}
+	
+	/*******************
+	 * Parsing helpers *
+	 *******************/
+	
+	/**
+	 * Creates the nested object or array starting at the given index, which is parsed unless parsing is delayed.
+	 */
+	private static JsonElement createElement(String json, int index, ParserSettings settings) throws JsonParseException
+	{
+		if(json.charAt(index) == ParserUtil.OBJECT_OPEN)
+			return ParserUtil.createObject(json, index, settings);
+		return ParserUtil.createArray(json, index, settings);
+	}
+	
+	private static int elementEnd(JsonElement element, int index) throws JsonParseException
+	{
+		int length = element.getRawLength();
+		if(length < 2)
+			throw new JsonParseException(JsonParseException.Type.BAD_END, index);
+		return index+length;
+	}
+	
+	/**
+	 * Returns the index after the string, number or literal starting at the given index, verifying it's standard JSON.
+	 */
+	protected static int valueEnd(String json, int index) throws JsonParseException
+	{
+		switch(json.charAt(index))
+		{
+			case ParserUtil.STRING_1:
+				return stringEnd(json, index)+1;
+			case 't':
+				return literalEnd(json, index, "true");
+			case 'f':
+				return literalEnd(json, index, "false");
+			case 'n':
+				return literalEnd(json, index, "null");
+			default:
+				return numberEnd(json, index);
+		}
+	}
+	
+	/**
+	 * Creates the string, number or literal between the given indices.
+	 */
+	protected static Value createValue(String json, int start, int end, ParserSettings settings) throws JsonParseException
+	{
+		switch(json.charAt(start))
+		{
+			case ParserUtil.STRING_1:
+				return ParserUtil.getStringValue(json, start, end-1, settings);
+			case 't':
+				return ParserUtil.createValue(ValueType.BOOLEAN, Boolean.TRUE, settings);
+			case 'f':
+				return ParserUtil.createValue(ValueType.BOOLEAN, Boolean.FALSE, settings);
+			case 'n':
+				return ParserUtil.createValue(ValueType.NULL, null, settings);
+		}
+		
+		//Common case: a short integer, which is accumulated here instead of being parsed again
+		if(!settings.lazyNumbers && end-start < 19)
+		{
+			int n = start;
+			boolean negated = json.charAt(n) == ParserUtil.NEGATION;
+			if(negated)
+				n++;
+			long total = 0;
+			for(char c; n < end && (c = json.charAt(n)) >= '0' && c <= '9'; n++)
+				total = total*10 + (c-'0');
+			if(n == end)
+				return ParserUtil.createValue(ValueType.LONG, negated ? -total : total, settings);
+		}
+		return ParserUtil.getUnknownValue(json, start, end, settings);
+	}
+	
+	/**
+	 * Returns the index of the quote closing the string that starts at the given index,
+	 * verifying it doesn't contain control characters or invalid escapes.
+	 */
+	protected static int stringEnd(String json, int index) throws JsonParseException
+	{
+		for(int n = index+1; n < json.length(); n++)
+		{
+			char c = json.charAt(n);
+			if(c == ParserUtil.STRING_1)
+				return n;
+			if(c < 0x20)
+				throw new JsonParseException(JsonParseException.Type.INVALID_CHAR, n, ParserUtil.getEscape(c));
+			if(c == ParserUtil.ESCAPE)
+			{
+				c = charAt(json, ++n);
+				if(c == 'u')
+				{
+					for(int end = n+4; n < end; )
+						if(ParserUtil.hexDigit(charAt(json, ++n)) < 0)
+							throw new JsonParseException(JsonParseException.Type.INVALID_ESCAPE, n);
+				}
+				else if(c != ParserUtil.STRING_1 && c != ParserUtil.ESCAPE && c != '/' && c != 'b' && c != 'f' && c != 'n' && c != 'r' && c != 't')
+				{
+					throw new JsonParseException(JsonParseException.Type.INVALID_ESCAPE, n-1);
+				}
+			}
+		}
+		throw new JsonParseException(JsonParseException.Type.BAD_END, json.length());
+	}
+	
+	/**
+	 * Returns the index after the number starting at the given index, verifying it matches the JSON number grammar.
+	 */
+	private static int numberEnd(String json, int index) throws JsonParseException
+	{
+		int n = index;
+		if(n < json.length() && json.charAt(n) == ParserUtil.NEGATION)
+			n++;
+		
+		//Integer part, without leading zeros
+		if(n < json.length() && json.charAt(n) == '0')
+			n++;
+		else
+			n = digitsEnd(json, n, index);
+		
+		//Fraction
+		if(n < json.length() && json.charAt(n) == ParserUtil.FLOATING_POINT_SEPARATOR)
+			n = digitsEnd(json, n+1, index);
+		
+		//Exponent
+		if(n < json.length() && (json.charAt(n) == ParserUtil.SCI_NOTATION || json.charAt(n) == ParserUtil.SCI_NOTATION_U))
+		{
+			n++;
+			if(n < json.length() && (json.charAt(n) == ParserUtil.NEGATION || json.charAt(n) == '+'))
+				n++;
+			n = digitsEnd(json, n, index);
+		}
+		return n;
+	}
+	
+	private static int digitsEnd(String json, int n, int start) throws JsonParseException
+	{
+		int digits = n;
+		for(char c; n < json.length() && (c = json.charAt(n)) >= '0' && c <= '9'; n++);
+		if(n == digits)
+			throw new JsonParseException(JsonParseException.Type.UNKNOWN_VALUE_TYPE, start, json.substring(start, Math.min(n+1, json.length())));
+		return n;
+	}
+	
+	private static int literalEnd(String json, int index, String literal) throws JsonParseException
+	{
+		if(!json.startsWith(literal, index))
+			throw new JsonParseException(JsonParseException.Type.UNKNOWN_VALUE_TYPE, index, ParserUtil.getUnknownBlock(json, index));
+		return index+literal.length();
+	}
+	
+	/**
+	 * Returns the index of the next character that isn't JSON whitespace (space, tab, line feed or carriage return).
+	 */
+	protected static int skipWhitespace(String json, int index)
+	{
+		for(char c; index < json.length() && ((c = json.charAt(index)) == ' ' || c == '\t' || c == '\n' || c == '\r'); index++);
+		return index;
+	}
+	
+	private static char charAt(String json, int index) throws JsonParseException
+	{
+		if(index >= json.length())
+			throw new JsonParseException(JsonParseException.Type.BAD_END, index);
+		return json.charAt(index);
+	}
+}
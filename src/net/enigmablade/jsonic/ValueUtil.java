@@ -1,5 +1,8 @@
 package net.enigmablade.jsonic;
 
+import java.math.*;
+import java.util.*;
+
 /**
  * Mostly non-public utilities for element type checking and conversion.
  * 
@@ -11,7 +14,7 @@ public class ValueUtil
 	 * Supported value types.
 	 * @author EnigmaBlade
 	 */
-	protected enum ValueType { OBJECT, ARRAY, STRING, LONG, DOUBLE, BOOLEAN, NULL };
+	protected enum ValueType { OBJECT, ARRAY, STRING, LONG, DOUBLE, BIG_INTEGER, BIG_DECIMAL, BOOLEAN, NULL };
 	
 	/**
 	 * A basic wrapper for an object that also stores the object's type.<br>
@@ -41,10 +44,31 @@ public class ValueUtil
 			this.value = value;
 		}
 		
+		/**
+		 * Returns the value, decoding it first if it was stored lazily.
+		 * Lazy strings are replaced by the decoded string, so the JSON they refer to can be collected.
+		 * Lazy numbers are kept so they can still be written back out in their raw form.
+		 * @return The value
+		 * @throws JsonParseException if the lazy value couldn't be decoded
+		 */
+		public Object get()
+		{
+			if(value instanceof LazyString)
+			{
+				String decoded = value.toString();
+				value = decoded;
+				return decoded;
+			}
+			if(value instanceof LazyNumber)
+				return ((LazyNumber)value).resolve();
+			return value;
+		}
+		
 		/**
 		 * Returns a string representation of this value:<br>
 		 * - If type is NULL, returns "<code>null</code>"<br>
-		 * - If type is STRING, returns "<code>"value"</code>"<br>
+		 * - If type is STRING, returns "<code>"value"</code>" with the value escaped<br>
+		 * - If the value is lazy, returns the raw value as it appeared in the JSON<br>
 		 * - Otherwise, returns the result of <code>value.toString()</code>
 		 * @return The string representation
 		 */
@@ -55,14 +79,44 @@ public class ValueUtil
 			{
 				case NULL:
 					return "null";
-					
+				
 				case STRING:
-					return new StringBuilder().append(ParserUtil.STRING_1).append(value).append(ParserUtil.STRING_1).toString();
-					
+					StringBuilder str = new StringBuilder();
+					if(value instanceof LazyString)
+						((LazyString)value).appendJSON(str);
+					else
+						ParserUtil.appendString(str, (String)value);
+					return str.toString();
+				
 				default:
 					return value.toString();
 			}
 		}
+		
+		/**
+		 * Checks whether this value and the given value are structurally equal.
+		 * Numbers are equal if they're numerically equal, regardless of their type.
+		 * @param o The value to check against
+		 * @return <code>true</code> if the two values are equal, otherwise <code>false</code>
+		 * @see ValueUtil#deepEquals(Value, Value)
+		 */
+		@Override
+		public boolean equals(Object o)
+		{
+			return o instanceof Value && deepEquals(this, (Value)o);
+		}
+		
+		/**
+		 * Returns the structural hash code of this value, which is consistent with @link #equals(Object).
+		 * @return The hash code
+		 */
+		@Override
+		public int hashCode()
+		{
+			if(value instanceof JsonElement)
+				return value.hashCode();
+			return hashScalar(this);
+		}
 	}
 	
 	/**
@@ -85,6 +139,10 @@ public class ValueUtil
 				type = ValueType.LONG;
 			else if(isDouble(value) || isFloat(value))
 				type = ValueType.DOUBLE;
+			else if(isBigInteger(value))
+				type = ValueType.BIG_INTEGER;
+			else if(isBigDecimal(value))
+				type = ValueType.BIG_DECIMAL;
 			else if(isBoolean(value))
 				type = ValueType.BOOLEAN;
 		}
@@ -117,6 +175,11 @@ public class ValueUtil
 		return new Value(ValueType.STRING, value);
 	}
 	
+	protected static Value createValue(LazyString value)
+	{
+		return new Value(ValueType.STRING, value);
+	}
+	
 	protected static Value createValue(long value)
 	{
 		return new Value(ValueType.LONG, new Long(value));
@@ -142,6 +205,263 @@ public class ValueUtil
 		return new Value(ValueType.BOOLEAN, new Boolean(value));
 	}
 	
+	protected static Value createValue(BigInteger value)
+	{
+		return new Value(ValueType.BIG_INTEGER, value);
+	}
+	
+	protected static Value createValue(BigDecimal value)
+	{
+		return new Value(ValueType.BIG_DECIMAL, value);
+	}
+	
+	/*
+	 * Conversion helpers
+	 */
+	
+	/**
+	 * Returns the value as a BigInteger.
+	 * Only integer values (LONG and BIG_INTEGER) can be converted.
+	 * @param value The non-null value
+	 * @return The BigInteger
+	 * @throws JsonTypeException if the value isn't an integer
+	 */
+	protected static BigInteger toBigInteger(Value value)
+	{
+		switch(value.type)
+		{
+			case LONG:
+				return BigInteger.valueOf(((Number)value.get()).longValue());
+			case BIG_INTEGER:
+				return (BigInteger)value.get();
+			default:
+				throw new JsonTypeException(value.value.getClass(), BigInteger.class);
+		}
+	}
+	
+	/**
+	 * Returns the value as a BigDecimal.
+	 * All finite number values can be converted, and lazy numbers are converted exactly from their raw form.
+	 * @param value The non-null value
+	 * @return The BigDecimal
+	 * @throws JsonTypeException if the value isn't a finite number
+	 */
+	protected static BigDecimal toBigDecimal(Value value)
+	{
+		if(value.value instanceof LazyNumber)
+			return ((LazyNumber)value.value).bigDecimalValue();
+		
+		switch(value.type)
+		{
+			case LONG:
+				return BigDecimal.valueOf(((Number)value.value).longValue());
+			case DOUBLE:
+				double d = ((Number)value.value).doubleValue();
+				if(Double.isNaN(d) || Double.isInfinite(d))
+					throw new JsonTypeException(value.value.getClass(), BigDecimal.class);
+				return BigDecimal.valueOf(d);
+			case BIG_INTEGER:
+				return new BigDecimal((BigInteger)value.value);
+			case BIG_DECIMAL:
+				return (BigDecimal)value.value;
+			default:
+				throw new JsonTypeException(value.value.getClass(), BigDecimal.class);
+		}
+	}
+	
+	/*
+	 * Structural helpers
+	 */
+	
+	/**
+	 * Returns whether or not two values are structurally equal.
+	 * Objects are equal if they have the same keys with equal values, regardless of order,
+	 * arrays if they have equal values in the same order, and numbers if they're numerically equal.
+	 * @param a The first value, or <code>null</code>
+	 * @param b The second value, or <code>null</code>
+	 * @return <code>true</code> if the values are equal, otherwise <code>false</code>
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	protected static boolean deepEquals(Value a, Value b)
+	{
+		if(a == b)
+			return true;
+		if(a == null || b == null)
+			return isNull(a) && isNull(b);
+		
+		if(isNumber(a.type) && isNumber(b.type))
+		{
+			if(a.type == ValueType.LONG && b.type == ValueType.LONG)
+				return ((Number)a.get()).longValue() == ((Number)b.get()).longValue();
+			if(a.type == ValueType.DOUBLE && b.type == ValueType.DOUBLE)
+				return ((Number)a.get()).doubleValue() == ((Number)b.get()).doubleValue();
+			try
+			{
+				return toComparable(a).compareTo(toComparable(b)) == 0;
+			}
+			catch(JsonTypeException e)
+			{
+				//Not finite
+				return false;
+			}
+		}
+		if(a.type != b.type)
+			return false;
+		
+		switch(a.type)
+		{
+			case OBJECT:
+				if(isKnown((JsonElement)a.value, (JsonElement)b.value))
+					return ((JsonElement)a.value).isSameJSON((JsonElement)b.value);
+				
+				Map<String, Value> aValues = ((JsonObject)a.value).getValues(), bValues = ((JsonObject)b.value).getValues();
+				if(aValues.size() != bValues.size())
+					return false;
+				for(Map.Entry<String, Value> entry : aValues.entrySet())
+				{
+					Value other = bValues.get(entry.getKey());
+					if((other == null && !bValues.containsKey(entry.getKey())) || !deepEquals(entry.getValue(), other))
+						return false;
+				}
+				return true;
+			
+			case ARRAY:
+				if(isKnown((JsonElement)a.value, (JsonElement)b.value))
+					return ((JsonElement)a.value).isSameJSON((JsonElement)b.value);
+				
+				List<Value> aList = ((JsonArray)a.value).getValues(), bList = ((JsonArray)b.value).getValues();
+				if(aList.size() != bList.size())
+					return false;
+				for(int n = 0; n < aList.size(); n++)
+					if(!deepEquals(aList.get(n), bList.get(n)))
+						return false;
+				return true;
+			
+			case NULL:
+				return true;
+			
+			default:
+				return a.get().equals(b.get());
+		}
+	}
+	
+	/**
+	 * Returns a copy of the value, with objects and arrays copied all the way down so the copy shares no elements with the original.
+	 * @param value The value, or <code>null</code>
+	 * @return The copy
+	 * @throws JsonException if an exception occurred during parsing
+	 */
+	protected static Value copyValue(Value value)
+	{
+		if(value == null)
+			return null;
+		
+		switch(value.type)
+		{
+			case OBJECT:
+				JsonObject object = new JsonObject(((JsonObject)value.value).isOrdered());
+				Map<String, Value> values = object.getValues();
+				for(Map.Entry<String, Value> entry : ((JsonObject)value.value).getValues().entrySet())
+					values.put(entry.getKey(), copyValue(entry.getValue()));
+				return createValue(object);
+			
+			case ARRAY:
+				List<Value> list = ((JsonArray)value.value).getValues();
+				JsonArray array = new JsonArray(list.size());
+				for(Value element : list)
+					array.getValues().add(copyValue(element));
+				return createValue(array);
+			
+			//Everything else is immutable
+			default:
+				return new Value(value.type, value.value);
+		}
+	}
+	
+	/**
+	 * Returns the number as it's compared by {@link #deepEquals(Value, Value)}.
+	 * Doubles are always compared by their double value, even if they're lazy and could be converted exactly,
+	 * so equality and hash codes don't depend on whether numbers are parsed lazily.
+	 */
+	private static BigDecimal toComparable(Value value)
+	{
+		if(value.type == ValueType.DOUBLE && value.value instanceof LazyNumber)
+		{
+			double d = ((Number)value.value).doubleValue();
+			if(Double.isNaN(d) || Double.isInfinite(d))
+				throw new JsonTypeException(value.value.getClass(), BigDecimal.class);
+			return BigDecimal.valueOf(d);
+		}
+		return toBigDecimal(value);
+	}
+	
+	/**
+	 * Returns the hash code of a value that isn't an object or array, consistent with {@link #deepEquals(Value, Value)}.
+	 * Numerically equal numbers have the same hash code regardless of their type, with doubles hashed from their double value.
+	 * @param value The value, or <code>null</code>
+	 * @return The hash code
+	 */
+	protected static int hashScalar(Value value)
+	{
+		if(isNull(value))
+			return 0;
+		
+		switch(value.type)
+		{
+			case LONG:
+				return Long.hashCode(((Number)value.get()).longValue());
+			
+			case DOUBLE:
+				double d = ((Number)value.get()).doubleValue();
+				//Shortcut for the common case, giving the same hash as hashDecimal
+				if(d == (long)d && Math.abs(d) < 1e18)
+					return Long.hashCode((long)d);
+				if(Double.isNaN(d) || Double.isInfinite(d))
+					return Double.hashCode(d);
+				return hashDecimal(BigDecimal.valueOf(d));
+			
+			case BIG_INTEGER:
+			case BIG_DECIMAL:
+				return hashDecimal(toBigDecimal(value));
+			
+			//Lazy strings hash the same as their decoded string
+			default:
+				return value.value.hashCode();
+		}
+	}
+	
+	//The range of integers that hash the same as a long
+	private static final BigDecimal LONG_MIN = BigDecimal.valueOf(Long.MIN_VALUE), LONG_MAX = BigDecimal.valueOf(Long.MAX_VALUE);
+	
+	/**
+	 * Returns the hash code of a number, which is the hash code of its long value if it's an integer in the range of a long.
+	 */
+	private static int hashDecimal(BigDecimal d)
+	{
+		d = d.stripTrailingZeros();
+		if(d.scale() <= 0 && d.compareTo(LONG_MIN) >= 0 && d.compareTo(LONG_MAX) <= 0)
+			return Long.hashCode(d.longValue());
+		return d.hashCode();
+	}
+	
+	/**
+	 * Returns whether or not two elements are known to be equal or unequal without comparing their contents.
+	 */
+	private static boolean isKnown(JsonElement a, JsonElement b)
+	{
+		return a.isSameJSON(b) || a.isHashDifferent(b);
+	}
+	
+	private static boolean isNumber(ValueType type)
+	{
+		return type == ValueType.LONG || type == ValueType.DOUBLE || type == ValueType.BIG_INTEGER || type == ValueType.BIG_DECIMAL;
+	}
+	
+	private static boolean isNull(Value value)
+	{
+		return value == null || value.type == ValueType.NULL;
+	}
+	
 	/*
 	 * Public helper methods
 	 */
@@ -223,6 +543,28 @@ public class ValueUtil
 		return o instanceof Float;
 	}
 	
+	/**
+	 * Returns whether or not the given object is an instance of BigInteger.
+	 * This method is for convenience.
+	 * @param o The object
+	 * @return <code>true</code> if the object is a BigInteger, otherwise <code>false</code>
+	 */
+	public static boolean isBigInteger(Object o)
+	{
+		return o instanceof BigInteger;
+	}
+	
+	/**
+	 * Returns whether or not the given object is an instance of BigDecimal.
+	 * This method is for convenience.
+	 * @param o The object
+	 * @return <code>true</code> if the object is a BigDecimal, otherwise <code>false</code>
+	 */
+	public static boolean isBigDecimal(Object o)
+	{
+		return o instanceof BigDecimal;
+	}
+	
 	/**
 	 * Returns whether or not the given object is an instance of Boolean.
 	 * This method is for convenience.
@@ -0,0 +1,150 @@
+package tests;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+import net.enigmablade.jsonic.*;
+
+public class ArenaTest
+{
+	private static final String JSON = "{\"name\":\"Ahri\",\"tags\":[\"Mage\",{\"role\":\"mid\"}],\"stats\":{\"hp\":380,\"mp\":-250.5},\"free\":true,\"owner\":null}";
+	
+	@Test
+	public void testReuse()
+	{
+		JsonArena arena = new JsonArena();
+		
+		JsonObject first = arena.parseObject(JSON);
+		checkContents(first);
+		int used = arena.getUsedCount();
+		assertTrue(used > 0);
+		assertEquals(used, arena.getPooledCount());
+		JsonObject firstStats = first.getObject("stats");
+		
+		//Parsing again without a reset takes new nodes
+		JsonObject second = arena.parseObject(JSON);
+		assertNotSame(first, second);
+		assertEquals(used*2, arena.getUsedCount());
+		
+		//After a reset the same nodes are reused
+		arena.reset();
+		assertEquals(0, arena.getUsedCount());
+		JsonObject third = arena.parseObject(JSON);
+		assertSame(first, third);
+		assertSame(firstStats, third.getObject("stats"));
+		checkContents(third);
+		assertEquals(used*2, arena.getPooledCount());
+		
+		//A different document reuses what it can
+		arena.reset();
+		JsonArray array = arena.parseArray("[{\"a\":1},{\"b\":[2,3]}, 4]");
+		assertEquals(3, array.size());
+		assertEquals(1, array.getObject(0).size());
+		assertEquals(1, array.getObject(0).getLong("a").longValue());
+		assertEquals(3, array.getObject(1).getArray("b").getLong(1).longValue());
+		assertEquals(used*2, arena.getPooledCount());
+		
+		arena.clear();
+		assertEquals(0, arena.getPooledCount());
+	}
+	
+	@Test
+	public void testSettings()
+	{
+		JsonParser parser = new JsonParser(true);
+		parser.setLazyNumbers(true);
+		JsonArena arena = new JsonArena(parser);
+		
+		JsonObject obj = (JsonObject)arena.parse("  "+JSON);
+		assertTrue(obj.isParsingDelayed());
+		checkContents(obj);
+		assertTrue(obj.toString().contains("\"mp\":-250.5"));
+		
+		arena.reset();
+		obj = (JsonObject)arena.parse(JSON.replace("380", "400"));
+		assertTrue(obj.isParsingDelayed());
+		assertEquals(400, obj.getObject("stats").getLong("hp").longValue());
+		
+		assertNull(arena.parse("   "));
+		assertNull(arena.parse("true"));
+	}
+	
+	@Test
+	public void testParserOptions()
+	{
+		StringBuilder deep = new StringBuilder();
+		for(int n = 0; n < 20; n++)
+			deep.append('[');
+		for(int n = 0; n < 20; n++)
+			deep.append(']');
+		
+		JsonParser limited = new JsonParser();
+		limited.setMaxDepth(10);
+		JsonArena arena = new JsonArena(limited);
+		assertEquals(1, arena.parseArray("[[1]]").size());
+		assertFails(arena, deep.toString());
+		
+		JsonParser strict = new JsonParser();
+		strict.setStrict(true);
+		assertFails(new JsonArena(strict), "[1] x");
+		
+		JsonParser validated = new JsonParser();
+		validated.setSchema(JsonSchema.parse("{\"items\":{\"type\":\"string\"}}"));
+		arena = new JsonArena(validated);
+		assertEquals("a", arena.parseArray("[\"a\"]").getString(0));
+		try
+		{
+			arena.parse("[1]");
+			fail("JSON that doesn't match the schema was parsed");
+		}
+		catch(JsonSchemaException e)
+		{
+		}
+		
+		//Errors have their line and column
+		JsonParseException e = assertFails(new JsonArena(), "[1,\n 2 3]");
+		assertEquals(2, e.getLine());
+	}
+	
+	@Test
+	public void testInvalid()
+	{
+		JsonArena arena = new JsonArena();
+		try
+		{
+			arena.parseObject("{\"a\":[1, 2}");
+			fail("Invalid JSON was parsed");
+		}
+		catch(JsonParseException e)
+		{
+		}
+		
+		//The arena can still be used afterwards
+		arena.reset();
+		checkContents(arena.parseObject(JSON));
+	}
+	
+	private void checkContents(JsonObject obj)
+	{
+		assertEquals(5, obj.size());
+		assertEquals("Ahri", obj.getString("name"));
+		assertEquals("mid", obj.getArray("tags").getObject(1).getString("role"));
+		assertEquals(380, obj.getObject("stats").getLong("hp").longValue());
+		assertEquals(-250.5, obj.getObject("stats").getDouble("mp"), 0);
+		assertTrue(obj.getBoolean("free"));
+		assertNull(obj.get("owner"));
+	}
+	
+	private static JsonParseException assertFails(JsonArena arena, String json)
+	{
+		try
+		{
+			arena.parse(json);
+		}
+		catch(JsonParseException e)
+		{
+			return e;
+		}
+		fail("Invalid JSON was parsed: "+json);
+		return null;
+	}
+}
@@ -0,0 +1,86 @@
+package tests;
+
+import static org.junit.Assert.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import org.junit.*;
+import net.enigmablade.jsonic.*;
+
+public class AsyncParseTest
+{
+	private static final String JSON = "{\"name\":\"Ahri\",\"tags\":[\"Mage\",\"Assassin\"]}";
+	
+	@Test
+	public void testSources() throws Exception
+	{
+		Path file = Files.createTempFile("jsonic", ".json");
+		try
+		{
+			Files.write(file, JSON.getBytes(Charset.defaultCharset()));
+			checkContents(JsonParser.parseAsync(file).get());
+		}
+		finally
+		{
+			Files.delete(file);
+		}
+		
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try
+		{
+			checkContents(JsonParser.parseAsync(new ByteArrayInputStream(JSON.getBytes(Charset.defaultCharset())), executor).get());
+			
+			ByteBuffer buffer = ByteBuffer.wrap(JSON.getBytes(Charset.defaultCharset()));
+			checkContents(JsonParser.parseAsync(buffer, executor).get());
+			assertEquals(0, buffer.position());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		
+		checkContents(JsonParser.parseAsync(ByteBuffer.wrap(JSON.getBytes(Charset.defaultCharset())), JsonParser.getVirtualThreadExecutor()).get());
+	}
+	
+	@Test
+	public void testSettings() throws Exception
+	{
+		JsonParser parser = new JsonParser(true, StandardCharsets.UTF_16);
+		JsonElement element = parser.processAsync(ByteBuffer.wrap(JSON.getBytes(StandardCharsets.UTF_16)), Runnable::run).get();
+		assertTrue(element.isParsingDelayed());
+		checkContents(element);
+	}
+	
+	@Test
+	public void testFailure() throws InterruptedException
+	{
+		try
+		{
+			JsonParser.parseAsync(Paths.get("does", "not", "exist.json")).get();
+			fail("Missing file was parsed");
+		}
+		catch(ExecutionException e)
+		{
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		
+		try
+		{
+			JsonParser.parseAsync(ByteBuffer.wrap("{\"a\" 1}".getBytes(Charset.defaultCharset())), Runnable::run).get();
+			fail("Invalid JSON was parsed");
+		}
+		catch(ExecutionException e)
+		{
+			assertTrue(e.getCause() instanceof JsonParseException);
+		}
+	}
+	
+	private void checkContents(JsonElement element)
+	{
+		JsonObject obj = (JsonObject)element;
+		assertEquals("Ahri", obj.getString("name"));
+		assertEquals("Assassin", obj.getArray("tags").getString(1));
+	}
+}
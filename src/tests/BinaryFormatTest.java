@@ -0,0 +1,163 @@
+package tests;
+
+import static org.junit.Assert.*;
+import java.math.*;
+import java.util.*;
+import org.junit.*;
+import net.enigmablade.jsonic.*;
+
+public class BinaryFormatTest
+{
+	private static final String JSON = "{\"name\":\"Ahri\",\"tags\":[\"Mage\",\"Assassin\"],\"stats\":{\"hp\":380,\"mp\":-250.5,\"armor\":-70000,\"big\":123456789012345678901234567890},\"free\":true,\"owner\":null}";
+	
+	@Test
+	public void testCborRoundTrip()
+	{
+		byte[] data = JsonCbor.toBytes(JsonParser.parseObject(JSON));
+		
+		JsonObject read = (JsonObject)JsonCbor.fromBytes(data);
+		assertTrue(read.isParsingDelayed());
+		checkContents(read);
+		assertEquals(new BigInteger("123456789012345678901234567890"), read.getObject("stats").getBigInteger("big"));
+		
+		read = (JsonObject)JsonCbor.fromBytes(data, false);
+		assertFalse(read.getObject("stats").isParsingDelayed());
+		checkContents(read);
+		
+		//Decimal fractions
+		JsonArray array = new JsonArray();
+		array.add(new BigDecimal("1.10"));
+		assertEquals(new BigDecimal("1.10"), ((JsonArray)JsonCbor.fromBytes(JsonCbor.toBytes(array))).getBigDecimal(0));
+	}
+	
+	@Test
+	public void testCborDecode()
+	{
+		//{"a": 1, "b": [2, 3]} from RFC 8949
+		JsonObject obj = (JsonObject)JsonCbor.fromBytes(bytes(0xA2, 0x61, 0x61, 0x01, 0x61, 0x62, 0x82, 0x02, 0x03));
+		assertEquals(1, obj.getLong("a").longValue());
+		assertEquals(3, obj.getArray("b").getLong(1).longValue());
+		
+		//Indefinite lengths, half floats, 2^64 as a bignum and a tagged date string
+		JsonArray array = (JsonArray)JsonCbor.fromBytes(bytes(0x9F, 0xF9, 0x3E, 0x00, 0xC2, 0x49, 0x01, 0, 0, 0, 0, 0, 0, 0, 0, 0x1B, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xC0, 0x61, 0x78, 0x7F, 0x61, 0x61, 0x61, 0x62, 0xFF, 0xFF));
+		assertEquals(5, array.size());
+		assertEquals(1.5, array.getDouble(0), 0);
+		assertEquals(BigInteger.ONE.shiftLeft(64), array.getBigInteger(1));
+		assertEquals(BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE), array.getBigInteger(2));
+		assertEquals("x", array.getString(3));
+		assertEquals("ab", array.getString(4));
+	}
+	
+	@Test
+	public void testMessagePackRoundTrip()
+	{
+		byte[] data = JsonMessagePack.toBytes(JsonParser.parseObject(JSON));
+		
+		JsonObject read = (JsonObject)JsonMessagePack.fromBytes(data);
+		assertTrue(read.isParsingDelayed());
+		checkContents(read);
+		
+		//Too large for MessagePack, so it's stored as a string
+		assertEquals("123456789012345678901234567890", read.getObject("stats").getString("big"));
+		
+		read = (JsonObject)JsonMessagePack.fromBytes(data, false);
+		assertFalse(read.getObject("stats").isParsingDelayed());
+		checkContents(read);
+	}
+	
+	@Test
+	public void testMessagePackDecode()
+	{
+		//{"compact": true, "schema": 0}
+		JsonObject obj = (JsonObject)JsonMessagePack.fromBytes(bytes(0x82, 0xA7, 'c', 'o', 'm', 'p', 'a', 'c', 't', 0xC3, 0xA6, 's', 'c', 'h', 'e', 'm', 'a', 0x00));
+		assertTrue(obj.getBoolean("compact"));
+		assertEquals(0, obj.getLong("schema").longValue());
+		
+		//[-1, uint64 max, bin]
+		JsonArray array = (JsonArray)JsonMessagePack.fromBytes(bytes(0x93, 0xFF, 0xCF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xC4, 0x02, 0x01, 0x02));
+		assertEquals(-1, array.getLong(0).longValue());
+		assertEquals(BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE), array.getBigInteger(1));
+		assertEquals("AQI=", array.getString(2));
+	}
+	
+	@Test
+	public void testInvalid()
+	{
+		byte[][] cborCases = {{}, bytes(0x01), bytes(0x82, 0x01), bytes(0x81, 0xFC),
+			//Decimal fractions with a string exponent, an array mantissa, and an exponent outside the range of a scale
+			bytes(0x81, 0xC4, 0x82, 0x61, 'a', 0x01), bytes(0x81, 0xC4, 0x82, 0x01, 0x81, 0x01),
+			bytes(0x81, 0xC4, 0x82, 0x1B, 0, 0, 0, 0x01, 0, 0, 0, 0, 0x01)};
+		for(byte[] invalid : cborCases)
+		{
+			try
+			{
+				JsonCbor.fromBytes(invalid, false);
+				fail("Invalid CBOR was read");
+			}
+			catch(JsonParseException e)
+			{
+			}
+		}
+		
+		byte[][] messagePackCases = {{}, bytes(0x01), bytes(0x92, 0x01), bytes(0x91, 0xD4, 0x01, 0x01)};
+		for(byte[] invalid : messagePackCases)
+		{
+			try
+			{
+				JsonMessagePack.fromBytes(invalid, false);
+				fail("Invalid MessagePack was read");
+			}
+			catch(JsonParseException e)
+			{
+			}
+		}
+	}
+	
+	@Test
+	public void testDeepNesting()
+	{
+		//Nesting within the limit is read, while deeper nesting is rejected instead of overflowing the stack
+		for(int depth : new int[] {500, 200000})
+		{
+			byte[] cbor = new byte[depth+1], messagePack = new byte[depth+1];
+			Arrays.fill(cbor, (byte)0x81);
+			Arrays.fill(messagePack, (byte)0x91);
+			cbor[depth] = messagePack[depth] = 0x01;
+			try
+			{
+				assertTrue(JsonCbor.fromBytes(cbor).toString().contains("[[1]]"));
+				assertTrue(JsonMessagePack.fromBytes(messagePack).toString().contains("[[1]]"));
+				assertEquals(500, depth);
+			}
+			catch(JsonParseException e)
+			{
+				assertEquals(200000, depth);
+			}
+		}
+	}
+	
+	private void checkContents(JsonObject read)
+	{
+		assertEquals(5, read.size());
+		assertEquals("Ahri", read.getString("name"));
+		assertTrue(read.getBoolean("free"));
+		assertNull(read.get("owner"));
+		
+		JsonArray tags = read.getArray("tags");
+		assertEquals(2, tags.size());
+		assertEquals("Assassin", tags.getString(1));
+		
+		JsonObject stats = read.getObject("stats");
+		assertEquals(380, stats.getLong("hp").longValue());
+		assertEquals(-70000, stats.getLong("armor").longValue());
+		assertEquals(-250.5, stats.getDouble("mp"), 0);
+	}
+	
+	private static byte[] bytes(int... values)
+	{
+		byte[] bytes = new byte[values.length];
+		for(int n = 0; n < values.length; n++)
+			bytes[n] = (byte)values[n];
+		return bytes;
+	}
+}
@@ -0,0 +1,85 @@
+package tests;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+import net.enigmablade.jsonic.*;
+
+public class DiffTest
+{
+	@Test
+	public void testDiff()
+	{
+		assertDiff("{\"a\":1,\"b\":[1,2,3],\"c\":{\"d\":\"x\"}}", "{\"a\":1,\"b\":[1,2,3],\"c\":{\"d\":\"x\"}}", 0);
+		assertDiff("{\"a\":1}", "{\"a\":2}", 1);
+		assertEquals(0, JsonDiff.diff(JsonParser.parse("{\"a\":1}"), JsonParser.parse("{\"a\":1.0}")).size());
+		assertDiff("{\"a\":1,\"b\":2}", "{\"b\":2,\"c\":3}", 2);
+		assertDiff("{\"a\":{\"b\":{\"c\":1,\"d\":2}}}", "{\"a\":{\"b\":{\"c\":1,\"d\":3}}}", 1);
+		assertDiff("{\"a/b\":{\"~\":1}}", "{\"a/b\":{\"~\":null}}", 1);
+		assertDiff("[1,2,3]", "[1,2,3,4]", 1);
+		assertDiff("[1,2,3]", "[0,1,2,3]", 1);
+		assertDiff("[1,2,3]", "[1,3]", 1);
+		assertDiff("[1,2,3]", "[1,5,3]", 1);
+		assertDiff("[1,2,3,4,5]", "[5,4,3,2,1]", 4);
+		assertDiff("[{\"id\":1,\"v\":\"a\"},{\"id\":2,\"v\":\"b\"}]", "[{\"id\":1,\"v\":\"a\"},{\"id\":2,\"v\":\"c\"}]", 1);
+		assertDiff("[]", "[1,[2],{\"a\":null}]", 3);
+		assertDiff("{\"a\":1}", "[1]", 1);
+		
+		assertEquals("[{\"op\":\"replace\",\"path\":\"/a/b\",\"value\":2}]", JsonDiff.diff(JsonParser.parse("{\"a\":{\"b\":1}}"), JsonParser.parse("{\"a\":{\"b\":2}}")).toString());
+	}
+	
+	@Test
+	public void testLargeArrays()
+	{
+		StringBuilder source = new StringBuilder("["), target = new StringBuilder("[");
+		for(int n = 0; n < 5000; n++)
+		{
+			source.append(n > 0 ? "," : "").append(n);
+			target.append(n > 0 ? "," : "").append(n == 2500 ? "-1," : "").append(n);
+		}
+		source.append("]");
+		target.append("]");
+		assertDiff(source.toString(), target.toString(), 1);
+		
+		//Arrays too large to compare fully are still diffed correctly
+		source.setLength(0);
+		target.setLength(0);
+		source.append("[");
+		target.append("[");
+		for(int n = 0; n < 3000; n++)
+		{
+			source.append(n > 0 ? "," : "").append(n*2);
+			target.append(n > 0 ? "," : "").append(n*3);
+		}
+		source.append(",1]");
+		target.append("]");
+		assertDiff(source.toString(), target.toString(), -1);
+	}
+	
+	@Test
+	public void testDelayed()
+	{
+		String json = "{\"same\":{\"a\":[1,2,3]},\"changed\":{\"a\":1}}";
+		JsonObject source = JsonParser.parseObject(json, true), target = JsonParser.parseObject(json.replace("\"a\":1}", "\"a\":2}"), true);
+		
+		JsonPatch patch = JsonDiff.diff(source, target);
+		assertEquals(1, patch.size());
+		assertTrue(source.getObject("same").isParsingDelayed());
+		assertTrue(target.getObject("same").isParsingDelayed());
+	}
+	
+	/*
+	 * Helper things
+	 */
+	
+	private static void assertDiff(String source, String target, int operations)
+	{
+		JsonWriter writer = new JsonWriter();
+		writer.setSortKeys(true);
+		
+		JsonPatch patch = JsonDiff.diff(JsonParser.parse(source), JsonParser.parse(target));
+		if(operations >= 0)
+			assertEquals(patch.toString(), operations, patch.size());
+		assertEquals(writer.toString(JsonParser.parse(target)), writer.toString(patch.apply(JsonParser.parse(source))));
+		assertEquals(writer.toString(JsonParser.parse(target)), writer.toString(JsonPatch.parse(patch.toString()).apply(JsonParser.parse(source))));
+	}
+}
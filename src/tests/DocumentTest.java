@@ -0,0 +1,178 @@
+package tests;
+
+import static org.junit.Assert.*;
+import java.math.*;
+import java.util.*;
+import org.junit.*;
+import net.enigmablade.jsonic.*;
+
+public class DocumentTest
+{
+	private static final String JSON = "{\"name\":\"Ahri\",\"tags\":[\"Mage\",{\"role\":\"mid\"},[]],\"stats\":{\"hp\":380,\"mp\":-250.5,\"big\":123456789012345678901234567890,\"precise\":1e400},\"free\":true,\"owner\":null,'quoted':'it\\'s',\"esc\\u0061ped\":\"a\\nb\", unquoted : 1_000}";
+	
+	@Test
+	public void testAccessors()
+	{
+		JsonDocument doc = JsonDocument.parse(JSON);
+		JsonNode root = doc.getRoot();
+		assertTrue(root.isObject());
+		assertEquals(8, root.size());
+		assertEquals(17, doc.getNodeCount());
+		
+		assertEquals("Ahri", root.getString("name"));
+		assertTrue(root.getBoolean("free"));
+		assertNull(root.getString("owner"));
+		assertTrue(root.containsKey("owner"));
+		assertFalse(root.containsKey("missing"));
+		assertNull(root.get("missing"));
+		assertEquals("it's", root.getString("quoted"));
+		assertEquals("a\nb", root.getString("escaped"));
+		assertEquals(1000, root.getLong("unquoted").longValue());
+		
+		JsonNode stats = root.getObject("stats");
+		assertEquals(380, stats.getLong("hp").longValue());
+		assertEquals(-250.5, stats.getDouble("mp"), 0);
+		assertEquals(new BigInteger("123456789012345678901234567890"), stats.getBigInteger("big"));
+		assertEquals(new BigDecimal("1e400"), stats.getBigDecimal("precise"));
+		assertEquals(new BigDecimal("380"), stats.getBigDecimal("hp"));
+		
+		JsonNode tags = root.getArray("tags");
+		assertEquals(3, tags.size());
+		assertEquals("Mage", tags.getString(0));
+		assertEquals("mid", tags.getObject(1).getString("role"));
+		assertTrue(tags.getArray(2).isEmpty());
+		assertTrue(tags.get(1) instanceof JsonNode);
+		
+		try
+		{
+			stats.getString("hp");
+			fail("Number returned as a string");
+		}
+		catch(JsonTypeException e)
+		{
+		}
+		try
+		{
+			tags.getString(3);
+			fail("Index out of range returned");
+		}
+		catch(IndexOutOfBoundsException e)
+		{
+		}
+	}
+	
+	@Test
+	public void testNavigation()
+	{
+		JsonNode root = JsonDocument.parse(JSON).getRoot();
+		
+		List<String> keys = new ArrayList<>();
+		for(JsonNode child = root.getFirstChild(); child != null; child = child.getNextSibling())
+		{
+			keys.add(child.getKey());
+			assertEquals(root, child.getParent());
+		}
+		assertEquals(Arrays.asList("name", "tags", "stats", "free", "owner", "quoted", "escaped", "unquoted"), keys);
+		assertEquals(root.getKeys(), keys);
+		
+		List<Object> tags = new ArrayList<>();
+		for(JsonNode tag : root.getArray("tags"))
+		{
+			assertNull(tag.getKey());
+			tags.add(tag.isString() ? tag.getValue() : tag.isObject() ? "object" : "array");
+		}
+		assertEquals(Arrays.asList("Mage", "object", "array"), tags);
+		assertNull(root.getParent());
+		
+		//Duplicate keys return the last value, the same as objects
+		assertEquals(2, JsonDocument.parse("{\"a\":1,\"a\":2}").getRoot().getLong("a").longValue());
+	}
+	
+	@Test
+	public void testJSON()
+	{
+		String json = "{\"a\":[1,2.5,\"x\\\"y\",true,null,{}],\"b\":{\"c\":123456789012345678901234567890}}";
+		assertEquals(json, JsonDocument.parse(json).toString());
+		assertEquals("{\"c\":123456789012345678901234567890}", JsonDocument.parse(" "+json+" ").getRoot().getObject("b").toString());
+		assertEquals("{\"k\\\"\":\"it's\",\"t\":\"a\\tb\"}", JsonDocument.parse("{'k\\\"':'it\\'s',\"t\":\"a\\tb\"}").toString());
+	}
+	
+	@Test
+	public void testPayloads()
+	{
+		//Enough nodes to grow the node table past its first capacity
+		StringBuilder json = new StringBuilder("[");
+		for(int n = 0; n < 1000; n++)
+			json.append(n).append(',');
+		json.append("-9223372036854775808,9223372036854775807,-1,-0.0,1.5E300,4.9E-324,false,true,123456789012345678901234567890]");
+		
+		JsonDocument doc = JsonDocument.parse(json.toString());
+		JsonNode root = doc.getRoot();
+		assertEquals(1010, doc.getNodeCount());
+		assertEquals(999, root.getLong(999).longValue());
+		assertEquals(Long.MIN_VALUE, root.getLong(1000).longValue());
+		assertEquals(Long.MAX_VALUE, root.getLong(1001).longValue());
+		assertEquals(-1, root.getLong(1002).longValue());
+		assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(root.getDouble(1003)));
+		assertEquals(1.5e300, root.getDouble(1004), 0);
+		assertEquals(Double.MIN_VALUE, root.getDouble(1005), 0);
+		assertFalse(root.getBoolean(1006));
+		assertTrue(root.getBoolean(1007));
+		assertEquals(new BigInteger("123456789012345678901234567890"), root.getBigInteger(1008));
+		assertEquals(json.toString(), doc.toString());
+	}
+	
+	@Test
+	public void testOffHeap()
+	{
+		JsonDocument heap = JsonDocument.parse(JSON);
+		JsonDocument direct = heap.toOffHeap();
+		assertTrue(direct.isOffHeap());
+		assertFalse(heap.isOffHeap());
+		assertSame(direct, direct.toOffHeap());
+		assertEquals(heap.getNodeCount(), direct.getNodeCount());
+		assertEquals(heap.toString(), direct.toString());
+		
+		JsonNode root = direct.getRoot();
+		assertEquals(root.getKeys(), heap.getRoot().getKeys());
+		assertEquals("a\nb", root.getString("escaped"));
+		assertEquals(-250.5, root.getObject("stats").getDouble("mp"), 0);
+		assertEquals(new BigInteger("123456789012345678901234567890"), root.getObject("stats").getBigInteger("big"));
+		assertEquals("mid", root.getArray("tags").getObject(1).getString("role"));
+		assertTrue(root.getBoolean("free"));
+		assertNull(root.getString("owner"));
+		
+		//Non-ASCII keys and strings
+		JsonNode unicode = JsonDocument.parseOffHeap("{\"caf\u00e9\":\"\u00fcber \ud83d\ude00\",\"cafe\":1,\"caf\":2}").getRoot();
+		assertEquals("\u00fcber \ud83d\ude00", unicode.getString("caf\u00e9"));
+		assertEquals(1, unicode.getLong("cafe").longValue());
+		assertEquals(2, unicode.getLong("caf").longValue());
+		assertFalse(unicode.containsKey("caf\u00e8"));
+		
+		//Repeated records
+		StringBuilder json = new StringBuilder("[");
+		for(int n = 0; n < 1000; n++)
+			json.append(n > 0 ? "," : "").append("{\"id\":").append(n).append(",\"name\":\"item").append(n).append("\"}");
+		JsonNode items = JsonDocument.parseOffHeap(json.append("]").toString()).getRoot();
+		assertEquals(1000, items.size());
+		assertEquals("item999", items.getObject(999).getString("name"));
+		assertEquals(500, items.getObject(500).getLong("id").longValue());
+	}
+	
+	@Test
+	public void testInvalid()
+	{
+		String[] invalidCases = {"", "true", "{", "{\"a\"}", "{\"a\":1,}", "[1 2]", "[1,]", "{\"a\":1", "[\"unterminated]"};
+		for(String invalid : invalidCases)
+		{
+			try
+			{
+				JsonDocument.parse(invalid);
+				fail("Invalid JSON was parsed: "+invalid);
+			}
+			catch(JsonParseException e)
+			{
+			}
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import net.enigmablade.jsonic.*;
+
+public class ErrorLocationTest
+{
+	@Test
+	public void testLocation()
+	{
+		JsonParseException e = getError(new JsonParser(), "{\n  \"a\": [1, 2,\n    {\"b\": tru}\n  ]\n}");
+		assertEquals(26, e.getLocation());
+		assertEquals(3, e.getLine());
+		assertEquals(11, e.getColumn());
+		assertEquals("/a/2/b", e.getPath());
+		assertTrue(e.getMessage(), e.getMessage().contains("line 3, column 11"));
+		
+		//Windows line breaks and leading whitespace
+		e = getError(new JsonParser(), "\r\n  [1,\r\n {\"x\": 1 \"y\": 2}]");
+		assertEquals(3, e.getLine());
+		assertEquals(10, e.getColumn());
+		assertEquals("/1/x", e.getPath());
+		
+		//Keys are escaped, and members that were finished aren't included
+		e = getError(new JsonParser(), "{\"a/b\": {\"c\": [], \"d~\": [true, nul]}}");
+		assertEquals("/a~1b/d~0/1", e.getPath());
+		
+		//The whole document
+		e = getError(new JsonParser(), "[1 2]");
+		assertEquals(1, e.getLine());
+		assertEquals(4, e.getColumn());
+		assertEquals("/0", e.getPath());
+	}
+	
+	@Test
+	public void testParsers()
+	{
+		String json = "[{\"a\": 1},\n {\"b\": [1, 2, x]}]";
+		
+		JsonParser strict = new JsonParser();
+		strict.setStrict(true);
+		JsonParser limited = new JsonParser();
+		limited.setMaxDepth(10);
+		for(JsonParser parser : new JsonParser[] {new JsonParser(), strict, limited})
+		{
+			JsonParseException e = getError(parser, json);
+			assertEquals(2, e.getLine());
+			assertEquals(15, e.getColumn());
+			assertEquals("/1/b/2", e.getPath());
+		}
+		
+		//Delayed parsing finds the error later, but still in the original JSON
+		JsonArray array = new JsonParser(true).processArray(json);
+		try
+		{
+			array.getObject(1).getArray("b").size();
+			fail("Invalid JSON was parsed: "+json);
+		}
+		catch(JsonParseException e)
+		{
+			assertEquals(2, e.getLine());
+			assertEquals("/1/b/2", e.getPath());
+		}
+	}
+	
+	@Test
+	public void testTruncated()
+	{
+		String json = "{\"a\": [1, 2.5, {\"b\": \"c\"}], \"d\": {e: 'f'}}";
+		JsonParser strict = new JsonParser();
+		strict.setStrict(true);
+		for(int n = 1; n < json.length(); n++)
+		{
+			String truncated = json.substring(0, n);
+			assertNotNull(truncated, getError(new JsonParser(), truncated).getMessage());
+			assertNotNull(truncated, getError(strict, truncated).getMessage());
+		}
+		
+		//The start of the element is reported, not the start of the JSON
+		JsonParseException e = getError(new JsonParser(), "[1, [2], {\"a\": [}]");
+		assertTrue(e.getMessage(), e.getLocation() > 0);
+	}
+	
+	private static JsonParseException getError(JsonParser parser, String json)
+	{
+		try
+		{
+			parser.process(json);
+		}
+		catch(JsonParseException e)
+		{
+			return e;
+		}
+		fail("Invalid JSON was parsed: "+json);
+		return null;
+	}
+}
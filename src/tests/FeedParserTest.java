@@ -0,0 +1,193 @@
+package tests;
+
+import static org.junit.Assert.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+import org.junit.*;
+import net.enigmablade.jsonic.*;
+
+public class FeedParserTest
+{
+	@Test
+	public void testChunks()
+	{
+		String json = "{\"name\":\"Ahri\",\"quote\":\"a } ] \\\" \\\\\",'other':'\"{',\"tags\":[\"Mage\",{\"nested\":[1,2]}]}\n[1, 2.5, \"\u00e9\u4e2d\"]  {}";
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		
+		//Every chunk size, including one byte at a time, gives the same values
+		for(int size = 1; size <= bytes.length; size++)
+		{
+			JsonFeedParser parser = new JsonFeedParser();
+			List<JsonElement> values = new ArrayList<>();
+			for(int n = 0; n < bytes.length; n += size)
+			{
+				parser.feed(ByteBuffer.wrap(bytes, n, Math.min(size, bytes.length-n)));
+				while(parser.hasNext())
+					values.add(parser.next());
+			}
+			parser.endOfInput();
+			
+			assertEquals("Chunk size "+size, 3, values.size());
+			JsonObject obj = (JsonObject)values.get(0);
+			assertEquals("a } ] \" \\", obj.getString("quote"));
+			assertEquals("\"{", obj.getString("other"));
+			assertEquals(2, obj.getArray("tags").getObject(1).getArray("nested").getLong(1).longValue());
+			assertEquals("\u00e9\u4e2d", ((JsonArray)values.get(1)).getString(2));
+			assertEquals(0, ((JsonObject)values.get(2)).size());
+			assertFalse(parser.isReading());
+			assertEquals(0, parser.getBufferedSize());
+		}
+	}
+	
+	@Test
+	public void testDirectBuffer()
+	{
+		ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+		buffer.put("{\"a\":[1,".getBytes(StandardCharsets.UTF_8)).flip();
+		
+		JsonFeedParser parser = new JsonFeedParser(true);
+		parser.feed(buffer);
+		assertFalse(buffer.hasRemaining());
+		assertFalse(parser.hasNext());
+		assertTrue(parser.isReading());
+		
+		buffer.clear();
+		buffer.put("2]}".getBytes(StandardCharsets.UTF_8)).flip();
+		parser.feed(buffer);
+		assertTrue(parser.hasNext());
+		JsonObject obj = (JsonObject)parser.next();
+		assertTrue(obj.isParsingDelayed());
+		assertEquals(2, obj.getArray("a").size());
+		assertFalse(parser.hasNext());
+	}
+	
+	@Test
+	public void testInvalid()
+	{
+		JsonFeedParser parser = new JsonFeedParser();
+		try
+		{
+			parser.feed("{} x".getBytes(StandardCharsets.UTF_8));
+			fail("Invalid input was fed");
+		}
+		catch(JsonParseException e)
+		{
+		}
+		
+		parser.reset();
+		parser.feed("[1, 2".getBytes(StandardCharsets.UTF_8));
+		try
+		{
+			parser.endOfInput();
+			fail("Incomplete value was accepted");
+		}
+		catch(JsonParseException e)
+		{
+		}
+		
+		try
+		{
+			new JsonFeedParser().next();
+			fail("Value returned without input");
+		}
+		catch(NoSuchElementException e)
+		{
+		}
+	}
+	
+	@Test
+	public void testLimits()
+	{
+		JsonParser options = new JsonParser();
+		options.setMaxLength(6);
+		options.setMaxDepth(2);
+		JsonFeedParser parser = new JsonFeedParser(options);
+		
+		//Characters are counted rather than bytes
+		parser.feed("[\"\u00e9\u00e9\"] [[1]]".getBytes(StandardCharsets.UTF_8));
+		assertEquals("\u00e9\u00e9", ((JsonArray)parser.next()).getString(0));
+		assertEquals(1, ((JsonArray)parser.next()).size());
+		
+		//Values are rejected while they're being buffered
+		byte[] bytes = "[\"abcdefghijklmnop\"]".getBytes(StandardCharsets.UTF_8);
+		try
+		{
+			for(int n = 0; n < bytes.length; n++)
+			{
+				parser.feed(bytes, n, 1);
+				assertTrue(parser.getBufferedSize() <= 6);
+			}
+			fail("Value over the length limit was fed");
+		}
+		catch(JsonParseException e)
+		{
+			assertNotNull(e.getMessage());
+		}
+		
+		parser.reset();
+		try
+		{
+			parser.feed("[[[".getBytes(StandardCharsets.UTF_8));
+			fail("Value over the depth limit was fed");
+		}
+		catch(JsonParseException e)
+		{
+			assertNotNull(e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testRecovery()
+	{
+		JsonParser options = new JsonParser();
+		options.setMaxDepth(2);
+		options.setMaxLength(12);
+		JsonFeedParser parser = new JsonFeedParser(options);
+		
+		//Values over a limit and stray bytes are skipped, and the values around them are kept
+		String[] chunks = {"[1] [[[1]]] {\"a\":1}", "x[2]", "[\"abcdefghijklmnop\"] [3]"};
+		for(int size : new int[] {1, 3, 100})
+		{
+			List<JsonElement> values = new ArrayList<>();
+			int errors = 0;
+			for(String chunk : chunks)
+			{
+				byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+				for(int n = 0; n < bytes.length; n += size)
+				{
+					try
+					{
+						parser.feed(bytes, n, Math.min(size, bytes.length-n));
+					}
+					catch(JsonParseException e)
+					{
+						errors++;
+					}
+					while(parser.hasNext())
+						values.add(parser.next());
+				}
+			}
+			parser.endOfInput();
+			
+			assertEquals("Chunk size "+size, 3, errors);
+			assertEquals("Chunk size "+size, "[[1], {\"a\":1}, [2], [3]]", values.toString());
+			assertFalse(parser.isReading());
+			assertEquals(0, parser.getBufferedSize());
+		}
+		
+		//The whole direct buffer is read
+		ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+		buffer.put("x[1]".getBytes(StandardCharsets.UTF_8)).flip();
+		try
+		{
+			parser.feed(buffer);
+			fail("Invalid input was fed");
+		}
+		catch(JsonParseException e)
+		{
+		}
+		assertFalse(buffer.hasRemaining());
+		assertEquals("[1]", parser.next().toString());
+	}
+}
@@ -0,0 +1,71 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import net.enigmablade.jsonic.*;
+
+public class InternerTest
+{
+	@Test
+	public void testSubtrees()
+	{
+		JsonInterner interner = new JsonInterner();
+		JsonParser parser = new JsonParser();
+		parser.setInterner(interner);
+		
+		JsonArray array = parser.processArray("[{\"image\":{\"w\":48,\"h\":48},\"tags\":[\"a\",\"b\"]},{\"tags\":[\"a\",\"b\"],\"image\":{\"h\":48,\"w\":48}},{\"image\":{\"w\":48,\"h\":48.0},\"tags\":[\"b\",\"a\"]}]");
+		JsonObject first = array.getObject(0), second = array.getObject(1), third = array.getObject(2);
+		
+		//Identical subtrees are shared, regardless of key order
+		assertSame(first, second);
+		assertSame(first.getObject("image"), second.getObject("image"));
+		assertTrue(first.isFrozen());
+		assertFalse(array.isFrozen());
+		
+		//Different number types and orders are kept apart
+		assertNotSame(first.getObject("image"), third.getObject("image"));
+		assertNotSame(first.getArray("tags"), third.getArray("tags"));
+		assertSame(first.getArray("tags").getString(0), third.getArray("tags").getString(1));
+		assertTrue(interner.getDuplicateCount() > 0);
+		
+		//The document itself can still be changed
+		array.add("c");
+		assertEquals(4, array.size());
+		
+		//Later documents share instances with earlier ones
+		JsonObject other = parser.processObject("{\"x\":{\"w\":48,\"h\":48}}");
+		assertSame(first.getObject("image"), other.getObject("x"));
+		
+		interner.clear();
+		assertEquals(0, interner.size());
+		other = parser.processObject("{\"x\":{\"w\":48,\"h\":48}}");
+		assertNotSame(first.getObject("image"), other.getObject("x"));
+		assertEquals(first.getObject("image"), other.getObject("x"));
+	}
+	
+	@Test
+	public void testKeys()
+	{
+		JsonParser parser = new JsonParser();
+		parser.setInterner(new JsonInterner());
+		
+		JsonArray array = parser.processArray("[{\"name\":1},{\"name\":2},\"name\"]");
+		String a = array.getObject(0).keySet().iterator().next();
+		String b = array.getObject(1).keySet().iterator().next();
+		assertSame(a, b);
+		assertSame(a, array.getString(2));
+	}
+	
+	@Test
+	public void testDelayed()
+	{
+		JsonParser parser = new JsonParser(true);
+		parser.setInterner(new JsonInterner());
+		
+		JsonArray array = parser.processArray("[{\"a\":1},{\"a\":1}]");
+		assertNotSame(array.getObject(0), array.getObject(1));
+		assertFalse(array.getObject(0).isFrozen());
+	}
+}
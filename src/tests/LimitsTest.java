@@ -0,0 +1,223 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import org.junit.Test;
+
+import net.enigmablade.jsonic.*;
+
+public class LimitsTest
+{
+	@Test
+	public void testSameResult()
+	{
+		JsonParser limited = new JsonParser();
+		limited.setMaxDepth(64);
+		
+		String[] tests = {
+			"{}", "[]", " [ ] ",
+			"{\"a\":1,\"b\":-2.5,\"c\":[true,false,null],\"d\":{\"e\":\"f\\n\\u00e9\"},\"g\":12345678901234567890}",
+			"{a:'b', 'c' : 1_000, d:[-1, 1.5f]}",
+			"[[1,[2,{}]],{\"x\":[]},\"}]\"]",
+			"[ , 1]", "{,\"a\":1}", "[,[ ,{,a:1}]]",
+		};
+		for(String json : tests)
+		{
+			JsonElement expected = JsonParser.parse(json);
+			JsonElement actual = limited.process(json);
+			assertEquals(json, expected, actual);
+			assertEquals(json, expected.toString(), actual.toString());
+		}
+		
+		//Strict mode still only accepts standard JSON
+		limited.setStrict(true);
+		assertEquals(JsonParser.parse(tests[3]), limited.process(tests[3]));
+		assertFails(limited, tests[4]);
+		assertFails(limited, "[1] x");
+		assertFails(limited, "[,1]");
+		
+		//With the same errors
+		JsonParser strict = new JsonParser();
+		strict.setStrict(true);
+		for(String json : new String[] {"[1 2]", "{\"a\":1 \"b\":2}", "[1,]", "{\"a\" 1}"})
+			assertEquals(json, getError(strict, json).getMessage(), getError(limited, json).getMessage());
+		
+		//Separators other than a single one before each member are rejected by both parsers
+		limited.setStrict(false);
+		for(String json : new String[] {"[1,,2]", "[1,]", "{\"a\":1,}", "{,,\"a\":1}"})
+		{
+			assertFails(new JsonParser(), json);
+			assertFails(limited, json);
+		}
+		
+		//Delayed parsing isn't used with limits
+		JsonParser delayed = new JsonParser(true);
+		delayed.setMaxMembers(10);
+		assertEquals(2, delayed.processObject("{\"a\":[1,2]}").getArray("a").size());
+	}
+	
+	@Test
+	public void testDeepNesting()
+	{
+		int depth = 100000;
+		StringBuilder json = new StringBuilder();
+		for(int n = 0; n < depth; n++)
+			json.append("{\"a\":[");
+		for(int n = 0; n < depth; n++)
+			json.append("]}");
+		
+		JsonParser parser = new JsonParser();
+		parser.setMaxDepth(2*depth);
+		JsonObject object = parser.processObject(json.toString());
+		assertEquals(1, object.getArray("a").getObject(0).getArray("a").size());
+		
+		parser.setMaxDepth(2*depth-1);
+		assertFails(parser, json.toString());
+	}
+	
+	@Test
+	public void testLimits()
+	{
+		JsonParser parser = new JsonParser();
+		parser.setMaxDepth(3);
+		assertEquals(1, parser.processArray("[[[1]]]").size());
+		assertFails(parser, "[[[[1]]]]");
+		assertFails(parser, "{\"a\":{\"b\":{\"c\":{}}}}");
+		
+		parser = new JsonParser();
+		parser.setMaxLength(10);
+		assertEquals(3, parser.processArray("[1, 2, 3] ").size());
+		assertFails(parser, "[1, 2, 3, 4]");
+		
+		parser = new JsonParser();
+		parser.setMaxStringLength(3);
+		assertEquals("abc", parser.processObject("{\"abc\":\"abc\"}").getString("abc"));
+		assertFails(parser, "[\"abcd\"]");
+		assertFails(parser, "{\"abcd\":1}");
+		assertFails(parser, "{abcd:1}");
+		
+		parser = new JsonParser();
+		parser.setMaxMembers(2);
+		assertEquals(2, parser.processObject("{\"a\":[1,2],\"b\":{}}").size());
+		assertFails(parser, "[1,2,3]");
+		assertFails(parser, "{\"a\":1,\"b\":2,\"c\":3}");
+		
+		parser = new JsonParser();
+		parser.setMaxNumberLength(8);
+		assertEquals(12345678L, (long)parser.processArray("[12345678, false]").getLong(0));
+		assertFails(parser, "[1e999999999]");
+		assertFails(parser, "[0.000000001]");
+	}
+	
+	@Test
+	public void testStream() throws IOException
+	{
+		JsonParser parser = new JsonParser(false, StandardCharsets.UTF_8);
+		parser.setMaxLength(1000);
+		assertEquals(3, parser.processArray(new ByteArrayInputStream("[1,2,3]".getBytes(StandardCharsets.UTF_8))).size());
+		
+		//Reading stops once the input is too long
+		InputStream endless = new InputStream()
+		{
+			private int read = 0;
+			
+			@Override
+			public int read()
+			{
+				read++;
+				assertTrue("Stream was read past the limit", read < 100000);
+				return read == 1 ? '[' : ' ';
+			}
+		};
+		try
+		{
+			parser.process(endless);
+			fail("Stream over the limit was read");
+		}
+		catch(JsonParseException e)
+		{
+			assertNotNull(e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testAsyncFile() throws Exception
+	{
+		Path file = Files.createTempFile("limits", ".json");
+		try
+		{
+			Files.write(file, "[1, 2, 3, 4, 5, 6, 7, 8, 9]".getBytes(StandardCharsets.UTF_8));
+			JsonParser parser = new JsonParser(false, StandardCharsets.UTF_8);
+			parser.setMaxLength(100);
+			assertEquals(9, ((JsonArray)parser.processAsync(file, Runnable::run).get()).size());
+			
+			parser.setMaxLength(10);
+			try
+			{
+				parser.processAsync(file, Runnable::run).get();
+				fail("File over the limit was parsed");
+			}
+			catch(ExecutionException e)
+			{
+				assertTrue(e.getCause() instanceof JsonParseException);
+			}
+		}
+		finally
+		{
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	public void testInvalidLimits()
+	{
+		JsonParser parser = new JsonParser();
+		try
+		{
+			parser.setMaxDepth(0);
+			fail("Depth of 0 was allowed");
+		}
+		catch(IllegalArgumentException e)
+		{
+		}
+		try
+		{
+			parser.setMaxMembers(-1);
+			fail("Negative limit was allowed");
+		}
+		catch(IllegalArgumentException e)
+		{
+		}
+	}
+	
+	private static JsonParseException getError(JsonParser parser, String json)
+	{
+		try
+		{
+			parser.process(json);
+		}
+		catch(JsonParseException e)
+		{
+			return e;
+		}
+		fail("Invalid JSON was parsed: "+json);
+		return null;
+	}
+	
+	private static void assertFails(JsonParser parser, String json)
+	{
+		try
+		{
+			parser.process(json);
+			fail("JSON over the limit was parsed: "+json);
+		}
+		catch(JsonParseException e)
+		{
+			assertNotNull(e.getMessage());
+		}
+	}
+}
@@ -2,6 +2,11 @@ package tests;
 
 import static org.junit.Assert.*;
 
+import java.io.*;
+import java.util.*;
+import java.math.*;
+import java.nio.charset.*;
+
 import org.junit.Test;
 
 import net.enigmablade.jsonic.*;
@@ -175,6 +180,323 @@ public class ObjectTest
 		}
 	}
 	
+	@Test
+	public void testLazyStrings()
+	{
+		JsonParser parser = new JsonParser();
+		parser.setLazyStrings(true);
+		
+		JsonObject obj = parser.processObject("{\"plain\":\"value\",\"escaped\":\"a\\u0041\\n\",'single':'it\\'s'}");
+		assertEquals(3, obj.size());
+		
+		//Lazy strings are written back out untouched
+		assertTrue(obj.toString().contains("\"escaped\":\"a\\u0041\\n\""));
+		
+		//And decoded when read
+		assertEquals("value", obj.getString("plain"));
+		assertEquals("aA\n", obj.get("escaped"));
+		assertEquals("it's", obj.getString("single"));
+		
+		//Read strings replace their lazy form, so they no longer refer to the JSON
+		obj.put("other", 1);
+		assertTrue(obj.toString().contains("\"escaped\":\"aA\\n\""));
+	}
+	
+	@Test
+	public void testLazyNumbers()
+	{
+		JsonParser parser = new JsonParser();
+		parser.setLazyNumbers(true);
+		
+		String json = "{\"price\":1.10,\"id\":12345678901234567890123,\"count\":-42,\"small\":2.5E-3,\"big\":2e3}";
+		JsonObject obj = parser.processObject(json);
+		assertEquals(5, obj.size());
+		
+		//Written back out exactly
+		assertTrue(obj.toString().contains("\"price\":1.10"));
+		assertTrue(obj.toString().contains("\"id\":12345678901234567890123"));
+		assertTrue(obj.toString().contains("\"small\":2.5E-3"));
+		
+		//Converted when read
+		assertEquals(1.1, obj.getDouble("price"), 0);
+		assertEquals(-42, obj.getLong("count").longValue());
+		assertEquals(0.0025, obj.getDouble("small"), 0);
+		assertEquals(2000, obj.getLong("big").longValue());
+		assertEquals(new BigInteger("12345678901234567890123"), obj.getBigInteger("id"));
+		assertEquals(new BigDecimal("1.10"), obj.getBigDecimal("price"));
+		try
+		{
+			obj.getLong("id");
+			fail("Integer too large for a long was returned");
+		}
+		catch(JsonTypeException e)
+		{
+		}
+		
+		//Still raw after being read
+		assertTrue(obj.toString().contains("\"price\":1.10"));
+	}
+	
+	@Test
+	public void testBigNumbers()
+	{
+		JsonObject obj = JsonParser.parseObject("{\"small\":12,\"id\":12345678901234567890123,\"huge\":1e400,\"price\":0.1}");
+		
+		assertEquals(BigInteger.valueOf(12), obj.getBigInteger("small"));
+		assertEquals(new BigInteger("12345678901234567890123"), obj.getBigInteger("id"));
+		assertEquals(new BigDecimal("1e400"), obj.getBigDecimal("huge"));
+		assertEquals(new BigDecimal("0.1"), obj.getBigDecimal("price"));
+		assertEquals(new BigDecimal("12"), obj.getBigDecimal("small"));
+		
+		try
+		{
+			obj.getBigInteger("price");
+			fail("Double was returned as a BigInteger");
+		}
+		catch(JsonTypeException e)
+		{
+		}
+		
+		obj.put("big", new BigDecimal("1.10"));
+		assertEquals(new BigDecimal("1.10"), obj.getBigDecimal("big"));
+		assertTrue(obj.toString().contains("\"big\":1.10"));
+	}
+	
+	@Test
+	public void testStreamReuse() throws IOException
+	{
+		JsonParser parser = new JsonParser(false, StandardCharsets.UTF_8);
+		
+		//A large document, then small ones that must not see anything left over in the reused buffers
+		StringBuilder large = new StringBuilder("{\"values\":[");
+		for(int n = 0; n < 20000; n++)
+			large.append(n == 0 ? "" : ",").append("\"value\\n").append(n).append('"');
+		large.append("]}");
+		
+		JsonObject obj = parser.processObject(new ByteArrayInputStream(large.toString().getBytes(StandardCharsets.UTF_8)));
+		assertEquals(20000, obj.getArray("values").size());
+		assertEquals("value\n19999", obj.getArray("values").getString(19999));
+		
+		for(int n = 0; n < 3; n++)
+		{
+			obj = parser.processObject(new ByteArrayInputStream("{\"a\":\"b\\tc\"}".getBytes(StandardCharsets.UTF_8)));
+			assertEquals(1, obj.size());
+			assertEquals("b\tc", obj.getString("a"));
+		}
+		
+		obj = JsonParser.parseObject(new ByteArrayInputStream("{\"key\":1_000}".getBytes(StandardCharsets.UTF_8)));
+		assertEquals(1000, obj.getLong("key").longValue());
+	}
+	
+	@Test
+	public void testEquality()
+	{
+		String json = "{\"a\":1,\"b\":[true,null,\"x\"],\"c\":{\"d\":2.5}}";
+		JsonObject parsed = JsonParser.parseObject(json), delayed = JsonParser.parseObject(json, true);
+		JsonObject reordered = JsonParser.parseObject("{\"c\":{\"d\":2.50},\"b\":[true,null,\"x\"],\"a\":1.0}");
+		
+		assertEquals(parsed, delayed);
+		assertEquals(parsed, reordered);
+		assertEquals(parsed.hashCode(), delayed.hashCode());
+		assertEquals(parsed.hashCode(), reordered.hashCode());
+		assertFalse(parsed.equals(JsonParser.parseArray("[1]")));
+		
+		//Identical delayed elements are equal without being parsed
+		JsonObject other = JsonParser.parseObject(json, true);
+		assertEquals(JsonParser.parseObject(json, true), other);
+		assertTrue(other.isParsingDelayed());
+		
+		Set<JsonObject> set = new HashSet<>(Arrays.asList(parsed, delayed, reordered));
+		assertEquals(1, set.size());
+		
+		//Changes to nested elements change the hash
+		int hash = parsed.hashCode();
+		parsed.getObject("c").put("d", 3);
+		assertNotEquals(hash, parsed.hashCode());
+		assertFalse(parsed.equals(reordered));
+		parsed.getObject("c").put("d", 2.5);
+		assertEquals(hash, parsed.hashCode());
+		assertEquals(parsed, reordered);
+		
+		parsed.getArray("b").add(1);
+		assertFalse(parsed.equals(reordered));
+		assertNotEquals(reordered.getArray("b"), parsed.getArray("b"));
+	}
+	
+	@Test
+	public void testNumberHashes()
+	{
+		//Large integers are equal and hash the same whatever type they're stored as
+		JsonArray[][] equal = {
+			{newArray(1000000000000000000L), newArray(1e18), newArray(BigInteger.TEN.pow(18)), JsonParser.parseArray("[1e18]")},
+			{newArray(Long.MAX_VALUE), newArray(BigInteger.valueOf(Long.MAX_VALUE)), JsonParser.parseArray("[9223372036854775807]")},
+			{newArray(Long.MIN_VALUE), newArray(BigInteger.valueOf(Long.MIN_VALUE)), JsonParser.parseArray("[-9223372036854775808]")},
+		};
+		for(JsonArray[] arrays : equal)
+		{
+			for(JsonArray array : arrays)
+			{
+				assertEquals(arrays[0].toString(), arrays[0], array);
+				assertEquals(arrays[0].toString(), arrays[0].hashCode(), array.hashCode());
+			}
+		}
+		
+		//Doubles are compared by their double value whether or not they're lazy
+		JsonParser lazy = new JsonParser();
+		lazy.setLazyNumbers(true);
+		JsonArray integer = JsonParser.parseArray("[12345678901234567890]");
+		JsonArray[] doubles = {JsonParser.parseArray("[12345678901234567890.0]"), lazy.processArray("[12345678901234567890.0]")};
+		for(JsonArray array : doubles)
+		{
+			assertNotEquals(integer, array);
+			assertEquals(doubles[0], array);
+			assertEquals(doubles[0].hashCode(), array.hashCode());
+		}
+		assertEquals(JsonParser.parseArray("[0.1]"), lazy.processArray("[0.10]"));
+		assertEquals(JsonParser.parseArray("[0.1]").hashCode(), lazy.processArray("[0.10]").hashCode());
+	}
+	
+	private static JsonArray newArray(Object value)
+	{
+		JsonArray array = new JsonArray();
+		if(value instanceof Long)
+			array.add((long)(Long)value);
+		else if(value instanceof Double)
+			array.add((double)(Double)value);
+		else
+			array.add((BigInteger)value);
+		return array;
+	}
+	
+	@Test
+	public void testEscaping()
+	{
+		JsonObject obj = new JsonObject();
+		obj.put("quote\"key", "line\nbreak \"quoted\" back\\slash \u0001");
+		assertEquals("{\"quote\\\"key\":\"line\\nbreak \\\"quoted\\\" back\\\\slash \\u0001\"}", obj.toString());
+		assertEquals("line\nbreak \"quoted\" back\\slash \u0001", JsonParser.parseObject(obj.toString()).getString("quote\"key"));
+		
+		//Lazy strings are only escaped again if their raw form isn't valid
+		JsonParser parser = new JsonParser();
+		parser.setLazyStrings(true);
+		obj = parser.processObject("{\"a\":\"it\\'s\",\"b\":\"tab\\t\"}");
+		assertTrue(obj.toString().contains("\"a\":\"it's\""));
+		assertTrue(obj.toString().contains("\"b\":\"tab\\t\""));
+	}
+	
+	@Test
+	public void testCachedJSON() throws CloneNotSupportedException
+	{
+		StringBuilder json = new StringBuilder("{\"header\":{\"id\":1},\"body\":[");
+		for(int n = 0; n < 100; n++)
+			json.append(n == 0 ? "" : ",").append("{\"n\":").append(n).append('}');
+		json.append("]}");
+		
+		JsonObject obj = JsonParser.parseObject(json.toString());
+		String first = obj.getJSON();
+		assertEquals(json.toString(), first);
+		assertSame(first, obj.getJSON());
+		
+		//Changes to nested elements are seen through their containers
+		obj.getObject("header").put("id", 2);
+		assertEquals(json.toString().replace("\"id\":1", "\"id\":2"), obj.getJSON());
+		obj.getArray("body").getObject(99).put("n", -1);
+		assertTrue(obj.getJSON().endsWith("{\"n\":-1}]}"));
+		obj.getArray("body").remove(0);
+		assertTrue(obj.getJSON().contains("[{\"n\":1},"));
+		
+		//Removed elements no longer affect the object
+		JsonObject header = obj.getObject("header");
+		obj.remove("header");
+		String removed = obj.getJSON();
+		header.put("id", 3);
+		assertSame(removed, obj.getJSON());
+		
+		//Elements in more than one container
+		JsonObject shared = new JsonObject();
+		JsonArray a = new JsonArray(), b = new JsonArray();
+		a.add(shared);
+		b.add(shared);
+		assertEquals("[{}]", a.getJSON());
+		assertEquals("[{}]", b.getJSON());
+		shared.put("x", true);
+		assertEquals("[{\"x\":true}]", a.getJSON());
+		assertEquals("[{\"x\":true}]", b.getJSON());
+		
+		JsonArray clone = (JsonArray)a.clone();
+		shared.put("x", false);
+		assertEquals("[{\"x\":false}]", clone.getJSON());
+		assertEquals("[{\"x\":false}]", a.getJSON());
+		a.clear();
+		assertEquals("[]", a.getJSON());
+	}
+	
+	@Test
+	public void testCachedRanges()
+	{
+		StringBuilder list = new StringBuilder("[");
+		for(int n = 0; n < 100; n++)
+			list.append(n == 0 ? "" : ",").append("{\"n\":").append(n).append('}');
+		list.append(']');
+		String json = "{\"a\":{\"list\":"+list+"},\"b\":{\"list\":"+list+"}}";
+		
+		//Nested elements are written from the range of the last output containing them
+		JsonObject obj = JsonParser.parseObject(json);
+		JsonObject a = obj.getObject("a"), b = obj.getObject("b");
+		assertEquals("{\"list\":"+list+"}", b.getJSON());
+		assertEquals(json, obj.getJSON());
+		assertEquals(list.toString(), a.getArray("list").getJSON());
+		assertEquals(a, b);
+		
+		a.getArray("list").getObject(0).put("n", -1);
+		String changed = json.replaceFirst("\"n\":0", "\"n\":-1");
+		assertEquals(changed, obj.getJSON());
+		assertEquals(changed, obj.getJSON());
+		assertEquals("{\"list\":"+list+"}", b.getJSON());
+		assertNotEquals(a, b);
+		
+		//Removed elements are written on their own again
+		obj.remove("b");
+		b.getArray("list").getObject(1).put("n", 0);
+		assertEquals("{\"list\":"+list.toString().replace("\"n\":1}", "\"n\":0}")+"}", b.getJSON());
+	}
+	
+	@Test
+	public void testKeySetRemoval()
+	{
+		for(boolean ordered : new boolean[] {false, true})
+		{
+			JsonParser parser = new JsonParser();
+			parser.setOrdered(ordered);
+			JsonObject obj = parser.processObject("{\"a\":1,\"b\":{\"c\":2},\"d\":3}");
+			JsonArray container = new JsonArray();
+			container.add(obj);
+			assertEquals("[{\"a\":1,\"b\":{\"c\":2},\"d\":3}]", container.getJSON());
+			int hash = obj.hashCode();
+			
+			//Removals through the key set clear the cached JSON and hash of the object and its containers
+			obj.keySet().remove("a");
+			assertEquals("{\"b\":{\"c\":2},\"d\":3}", obj.getJSON());
+			assertEquals("[{\"b\":{\"c\":2},\"d\":3}]", container.getJSON());
+			assertNotEquals(hash, obj.hashCode());
+			
+			JsonObject b = obj.getObject("b");
+			for(Iterator<String> keys = obj.keySet().iterator(); keys.hasNext();)
+				if(keys.next().equals("b"))
+					keys.remove();
+			assertEquals("{\"d\":3}", obj.getJSON());
+			assertEquals(JsonParser.parseObject("{\"d\":3}").hashCode(), obj.hashCode());
+			
+			//The removed element no longer affects the object
+			b.put("c", 4);
+			assertEquals("{\"d\":3}", obj.getJSON());
+			
+			obj.keySet().clear();
+			assertEquals("{}", obj.getJSON());
+			assertEquals("[{}]", container.getJSON());
+		}
+	}
+	
 	/*
 	 * Helper things
 	 */
@@ -0,0 +1,143 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+import org.junit.Test;
+
+import net.enigmablade.jsonic.*;
+
+public class OrderedObjectTest
+{
+	@Test
+	public void testParse()
+	{
+		String json = "{\"zebra\":1,\"apple\":[true,{\"y\":null,\"x\":\"b\"}],\"mango\":{\"3\":3,\"1\":1,\"2\":2}}";
+		
+		JsonParser strict = new JsonParser();
+		strict.setStrict(true);
+		JsonParser limited = new JsonParser();
+		limited.setMaxDepth(10);
+		for(JsonParser parser : new JsonParser[] {new JsonParser(), new JsonParser(true), strict, limited})
+		{
+			parser.setOrdered(true);
+			JsonObject object = parser.processObject(json);
+			assertTrue(object.isOrdered());
+			assertEquals(json, object.getJSON());
+			assertEquals(Arrays.asList("zebra", "apple", "mango"), new ArrayList<>(object.keySet()));
+			
+			//Same contents as an unordered object
+			assertEquals(JsonParser.parseObject(json), object);
+			assertEquals(JsonParser.parseObject(json).hashCode(), object.hashCode());
+		}
+		
+		assertFalse(JsonParser.parseObject(json).isOrdered());
+	}
+	
+	@Test
+	public void testLarge()
+	{
+		//Large enough to be indexed by a hash table
+		StringBuilder json = new StringBuilder("{");
+		for(int n = 99; n >= 0; n--)
+			json.append(n < 99 ? "," : "").append("\"k").append(n*7 % 100).append("\":").append(n);
+		json.append("}");
+		
+		JsonParser parser = new JsonParser();
+		parser.setOrdered(true);
+		JsonObject object = parser.processObject(json.toString());
+		assertEquals(json.toString(), object.getJSON());
+		for(int n = 0; n < 100; n++)
+			assertEquals(n, (long)object.getLong("k"+(n*7 % 100)));
+		
+		//Removing shifts the later keys down without losing any
+		for(int n = 0; n < 100; n += 2)
+			object.remove("k"+(n*7 % 100));
+		assertEquals(50, object.size());
+		for(int n = 1; n < 100; n += 2)
+			assertEquals(n, (long)object.getLong("k"+(n*7 % 100)));
+		Iterator<String> keys = object.keySet().iterator();
+		for(int n = 99; n > 0; n -= 2)
+			assertEquals("k"+(n*7 % 100), keys.next());
+	}
+	
+	@Test
+	public void testModify()
+	{
+		JsonObject object = new JsonObject(true);
+		object.put("b", 1);
+		object.put("a", 2);
+		object.put("c", "3");
+		object.put("a", 4);
+		assertEquals("{\"b\":1,\"a\":4,\"c\":\"3\"}", object.getJSON());
+		
+		object.remove("b");
+		object.put("b", 5);
+		assertEquals("{\"a\":4,\"c\":\"3\",\"b\":5}", object.getJSON());
+		
+		object.remove("c");
+		assertEquals("{\"a\":4,\"b\":5}", object.getJSON());
+		
+		//Copies keep the order
+		assertEquals("{\"a\":4,\"b\":5}", new JsonObject(object).getJSON());
+		assertTrue(new JsonObject(object).isOrdered());
+		
+		//Sorting still works
+		JsonWriter writer = new JsonWriter();
+		writer.setSortKeys(true);
+		object.put("0", 0);
+		assertEquals("{\"0\":0,\"a\":4,\"b\":5}", writer.toString(object));
+		assertEquals("{\"a\":4,\"b\":5,\"0\":0}", new JsonWriter().toString(object));
+	}
+	
+	@Test
+	public void testCopies() throws IOException, ClassNotFoundException
+	{
+		String json = "{\"z\":{\"y\":1,\"x\":2},\"b\":[],\"a\":3}";
+		JsonParser parser = new JsonParser();
+		parser.setOrdered(true);
+		
+		//Patching in place or on a copy, replaced members keep their place
+		JsonPatch patch = JsonPatch.parse("[{\"op\":\"replace\",\"path\":\"/b\",\"value\":0},{\"op\":\"copy\",\"from\":\"/z\",\"path\":\"/c\"},{\"op\":\"add\",\"path\":\"/z/w\",\"value\":4}]");
+		String patched = "{\"z\":{\"y\":1,\"x\":2,\"w\":4},\"b\":0,\"a\":3,\"c\":{\"y\":1,\"x\":2}}";
+		assertEquals(patched, patch.applyCopy(parser.processObject(json)).getJSON());
+		assertEquals(patched, patch.apply(parser.processObject(json)).getJSON());
+		
+		JsonMergePatch merge = JsonMergePatch.parse("{\"a\":4,\"z\":{\"x\":null,\"v\":5}}");
+		assertEquals("{\"z\":{\"y\":1,\"v\":5},\"b\":[],\"a\":4}", merge.applyCopy(parser.processObject(json)).getJSON());
+		
+		//Snapshots and serialization
+		JsonObject object = parser.processObject(json);
+		JsonObject read = (JsonObject)JsonElement.readFrom(new ByteArrayInputStream(JsonSnapshot.toBytes(object)));
+		assertTrue(read.isOrdered());
+		assertEquals(json, read.getJSON());
+		assertFalse(((JsonObject)JsonSnapshot.fromBytes(JsonSnapshot.toBytes(JsonParser.parseObject(json)))).isOrdered());
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(ObjectOutputStream out = new ObjectOutputStream(bytes))
+		{
+			out.writeObject(object);
+		}
+		try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+		{
+			read = (JsonObject)in.readObject();
+		}
+		assertEquals(json, read.getJSON());
+		assertTrue(read.getObject("z").isOrdered());
+	}
+	
+	@Test
+	public void testInterner()
+	{
+		JsonParser parser = new JsonParser();
+		parser.setOrdered(true);
+		parser.setInterner(new JsonInterner());
+		JsonArray array = parser.processArray("[{\"a\":1,\"b\":2},{\"b\":2,\"a\":1},{\"a\":1,\"b\":2}]");
+		
+		//Objects with the same keys in a different order aren't shared
+		assertSame(array.getObject(0), array.getObject(2));
+		assertNotSame(array.getObject(0), array.getObject(1));
+		assertEquals("[{\"a\":1,\"b\":2},{\"b\":2,\"a\":1},{\"a\":1,\"b\":2}]", array.getJSON());
+	}
+}
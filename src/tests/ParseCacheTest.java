@@ -0,0 +1,171 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.*;
+
+import org.junit.Test;
+
+import net.enigmablade.jsonic.*;
+
+public class ParseCacheTest
+{
+	@Test
+	public void testHits()
+	{
+		JsonParseCache cache = new JsonParseCache(1024);
+		String json = "{\"a\":[1,2,{\"b\":\"c\"}],\"d\":true}";
+		
+		JsonElement first = cache.parse(json);
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertTrue(first.isFrozen());
+		
+		//Equal content in a different string
+		JsonElement second = cache.parse(new String(json.toCharArray()));
+		assertSame(first, second);
+		assertEquals(1, cache.getHitCount());
+		assertEquals(0.5, cache.getHitRate(), 0);
+		
+		//Bytes are cached separately from strings
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		JsonElement third = cache.parse(bytes);
+		assertNotSame(first, third);
+		assertEquals(first, third);
+		assertSame(third, cache.parse(bytes.clone()));
+		
+		assertEquals(2, cache.size());
+		assertEquals(json.length()*2, cache.getWeight());
+		
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getWeight());
+		assertNotSame(first, cache.parse(json));
+	}
+	
+	@Test
+	public void testEviction()
+	{
+		JsonParseCache cache = new JsonParseCache(25);
+		String a = "[1,2,3,4,5]", b = "[6,7,8,9,0]", c = "{\"c\":1}";
+		
+		JsonElement parsedA = cache.parse(a);
+		cache.parse(b);
+		assertEquals(0, cache.getEvictionCount());
+		
+		//Using a makes b the least recently used
+		assertSame(parsedA, cache.parse(a));
+		cache.parse(c);
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(2, cache.size());
+		assertSame(parsedA, cache.parse(a));
+		
+		long misses = cache.getMissCount();
+		cache.parse(b);
+		assertEquals(misses+1, cache.getMissCount());
+		
+		//Inputs heavier than the cache are parsed but not cached
+		String large = "[\"aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa\"]";
+		assertNotNull(cache.parse(large));
+		assertNotSame(cache.parse(large), cache.parse(large));
+		assertTrue(cache.getWeight() <= 25);
+	}
+	
+	@Test
+	public void testFrozen()
+	{
+		JsonParseCache cache = new JsonParseCache(1024, new JsonParser(true));
+		JsonObject obj = (JsonObject)cache.parse("{\"a\":{\"b\":[1,2]},\"c\":\"d\"}");
+		assertFalse(obj.isParsingDelayed());
+		
+		try
+		{
+			obj.put("e", 1);
+			fail("Frozen object was changed");
+		}
+		catch(UnsupportedOperationException e)
+		{
+		}
+		try
+		{
+			obj.getObject("a").getArray("b").add(3);
+			fail("Frozen array was changed");
+		}
+		catch(UnsupportedOperationException e)
+		{
+		}
+		try
+		{
+			obj.keySet().remove("a");
+			fail("Frozen keys were changed");
+		}
+		catch(UnsupportedOperationException e)
+		{
+		}
+		try
+		{
+			JsonPatch.parse("[{\"op\":\"remove\",\"path\":\"/c\"}]").apply(obj);
+			fail("Frozen object was patched");
+		}
+		catch(UnsupportedOperationException e)
+		{
+		}
+		
+		//Copies can be changed, and share what wasn't changed
+		JsonObject copy = (JsonObject)JsonPatch.parse("[{\"op\":\"add\",\"path\":\"/a/b/-\",\"value\":3}]").applyCopy(obj);
+		assertFalse(copy.isFrozen());
+		assertEquals("[1,2,3]", copy.getObject("a").getArray("b").toString());
+		assertEquals("[1,2]", obj.getObject("a").getArray("b").toString());
+		copy.put("e", 1);
+		assertEquals(5, copy.getObject("a").getArray("b").size()+copy.size()-1);
+	}
+	
+	@Test
+	public void testThreads() throws Exception
+	{
+		JsonParser parser = new JsonParser();
+		JsonInterner interner = new JsonInterner();
+		parser.setInterner(interner);
+		JsonParseCache cache = new JsonParseCache(1 << 20, parser);
+		
+		//Later changes to the parser don't affect the cache
+		parser.setStrict(true);
+		assertEquals(1, ((JsonObject)cache.parse("{a:1}")).size());
+		
+		//Every thread parses different documents with the same keys through the shared interner
+		Thread[] threads = new Thread[4];
+		Throwable[] errors = new Throwable[threads.length];
+		for(int t = 0; t < threads.length; t++)
+		{
+			int thread = t;
+			threads[t] = new Thread(() ->
+			{
+				try
+				{
+					for(int n = 0; n < 500; n++)
+					{
+						String json = "{\"id\":"+(thread*1000+n)+",\"key"+(n % 20)+"\":[\"value"+(n % 10)+"\"]}";
+						JsonObject obj = (JsonObject)cache.parse(json);
+						assertEquals(thread*1000+n, (long)obj.getLong("id"));
+						assertEquals("value"+(n % 10), obj.getArray("key"+(n % 20)).getString(0));
+					}
+				}
+				catch(Throwable e)
+				{
+					errors[thread] = e;
+				}
+			});
+			threads[t].start();
+		}
+		for(int t = 0; t < threads.length; t++)
+		{
+			threads[t].join();
+			if(errors[t] != null)
+				throw new AssertionError(errors[t]);
+		}
+		assertEquals(2001, cache.size());
+		
+		//Keys, strings, arrays of a string, and the ids (the first of which is the same as the 1 parsed above)
+		assertEquals(2+20+10+10+2000, interner.size());
+	}
+}
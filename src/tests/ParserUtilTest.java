@@ -2,6 +2,7 @@ package tests;
 
 import org.junit.*;
 import static org.junit.Assert.*;
+import java.math.*;
 import java.util.*;
 import java.util.function.*;
 import net.enigmablade.jsonic.*;
@@ -42,6 +43,71 @@ public class ParserUtilTest extends ParserUtil
 		assertEquals(new Double(2.1e11), parseUnknown("2.1e11").value);
 		assertEquals(new Double(2e-1), parseUnknown("2e-1").value);
 		assertEquals(new Double(2e-11), parseUnknown("2e-11").value);
+		
+		//Limits of a long
+		assertEquals(new Long(Long.MAX_VALUE), parseUnknown("9223372036854775807").value);
+		assertEquals(new Long(Long.MIN_VALUE), parseUnknown("-9223372036854775808").value);
+		assertEquals(new Long(1_000_000), parseUnknown("1_000_000").value);
+		
+		//Promoted to big numbers
+		assertEquals(new BigInteger("9223372036854775808"), parseUnknown("9223372036854775808").value);
+		assertEquals(new BigInteger("-9223372036854775809"), parseUnknown("-9223372036854775809").value);
+		assertEquals(new BigInteger("123456789012345678901234567890"), parseUnknown("123456789012345678901234567890").value);
+		assertEquals(new BigDecimal("1e400"), parseUnknown("1e400").value);
+		assertEquals(new BigDecimal("1.5e400"), parseUnknown("1.5e400").value);
+		assertEquals(new BigDecimal("1e-400"), parseUnknown("1e-400").value);
+		assertEquals(new Double(0.0), parseUnknown("0e-400").value);
+		
+		//Exponents too large for a BigDecimal
+		assertEquals(new Double(0.0), parseUnknown("1e-2147483649").value);
+		assertEquals(new Double(-0.0), parseUnknown("-1e-99999999999").value);
+		assertEquals(new Long(0), parseUnknown("0e99999999999").value);
+		try
+		{
+			JsonParser.parseArray("[1e2147483648]");
+			fail("Number out of range was parsed");
+		}
+		catch(JsonParseException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().contains("number out of range"));
+			assertEquals(1, e.getLocation());
+		}
+	}
+	
+	@Test
+	public void testStringDecode()
+	{
+		//No escapes
+		assertEquals("", getStringBlock("\"\"", 0));
+		assertEquals("value", getStringBlock("\"value\"", 0));
+		assertEquals("value", getStringBlock("'value'", 0));
+		assertEquals("val\"ue", getStringBlock("'val\"ue'", 0));
+		
+		//Escapes
+		assertEquals("a\"b", getStringBlock("\"a\\\"b\"", 0));
+		assertEquals("a\\", getStringBlock("\"a\\\\\"", 0));
+		assertEquals("a'b", getStringBlock("'a\\'b'", 0));
+		assertEquals("\b\f\n\r\t/", getStringBlock("\"\\b\\f\\n\\r\\t\\/\"", 0));
+		assertEquals("A\u00e9", getStringBlock("\"\\u0041\\u00E9\"", 0));
+		assertEquals("\uD83D\uDE00", getStringBlock("\"\\uD83D\\uDE00\"", 0));
+		
+		//Block ends
+		assertEquals(5, getStringBlockEnd("\"a\\\"b\" ", 0));
+		assertEquals(4, getStringBlockEnd("\"a\\\\\"\"", 0));
+		
+		//Invalid
+		String[] invalidCases = {"\"\\x\"", "\"\\u12\"", "\"\\u12G4\"", "\"\\u\uFF11\uFF12\uFF13\uFF14\"", "\"unclosed"};
+		for(String invalid : invalidCases)
+		{
+			try
+			{
+				getStringBlock(invalid, 0);
+				fail("Invalid string decoded: "+invalid);
+			}
+			catch(JsonParseException e)
+			{
+			}
+		}
 	}
 	
 	@Test
@@ -0,0 +1,131 @@
+package tests;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+import net.enigmablade.jsonic.*;
+
+public class PatchTest
+{
+	@Test
+	public void testOperations()
+	{
+		assertPatch("{\"foo\":\"bar\"}", "[{\"op\":\"add\",\"path\":\"/baz\",\"value\":\"qux\"}]", "{\"baz\":\"qux\",\"foo\":\"bar\"}");
+		assertPatch("{\"foo\":[\"bar\",\"baz\"]}", "[{\"op\":\"add\",\"path\":\"/foo/1\",\"value\":\"qux\"}]", "{\"foo\":[\"bar\",\"qux\",\"baz\"]}");
+		assertPatch("{\"foo\":[\"bar\"]}", "[{\"op\":\"add\",\"path\":\"/foo/-\",\"value\":[\"abc\",\"def\"]}]", "{\"foo\":[\"bar\",[\"abc\",\"def\"]]}");
+		assertPatch("{\"baz\":\"qux\",\"foo\":\"bar\"}", "[{\"op\":\"remove\",\"path\":\"/baz\"}]", "{\"foo\":\"bar\"}");
+		assertPatch("{\"foo\":[\"bar\",\"qux\",\"baz\"]}", "[{\"op\":\"remove\",\"path\":\"/foo/1\"}]", "{\"foo\":[\"bar\",\"baz\"]}");
+		assertPatch("{\"baz\":\"qux\",\"foo\":\"bar\"}", "[{\"op\":\"replace\",\"path\":\"/baz\",\"value\":\"boo\"}]", "{\"baz\":\"boo\",\"foo\":\"bar\"}");
+		assertPatch("{\"foo\":{\"bar\":\"baz\",\"waldo\":\"fred\"},\"qux\":{\"corge\":\"grault\"}}", "[{\"op\":\"move\",\"from\":\"/foo/waldo\",\"path\":\"/qux/thud\"}]", "{\"foo\":{\"bar\":\"baz\"},\"qux\":{\"corge\":\"grault\",\"thud\":\"fred\"}}");
+		assertPatch("{\"foo\":[\"all\",\"grass\",\"cows\",\"eat\"]}", "[{\"op\":\"move\",\"from\":\"/foo/1\",\"path\":\"/foo/3\"}]", "{\"foo\":[\"all\",\"cows\",\"eat\",\"grass\"]}");
+		assertPatch("{\"a\":{\"b\":1}}", "[{\"op\":\"copy\",\"from\":\"/a\",\"path\":\"/c\"},{\"op\":\"replace\",\"path\":\"/c/b\",\"value\":2}]", "{\"a\":{\"b\":1},\"c\":{\"b\":2}}");
+		assertPatch("{\"a/b\":{\"m~n\":1}}", "[{\"op\":\"test\",\"path\":\"/a~1b/m~0n\",\"value\":1.0},{\"op\":\"add\",\"path\":\"/a~1b/x\",\"value\":null}]", "{\"a/b\":{\"m~n\":1,\"x\":null}}");
+		assertPatch("{\"foo\":\"bar\"}", "[{\"op\":\"replace\",\"path\":\"\",\"value\":[1]}]", "[1]");
+		
+		//Failures
+		assertFails("{\"foo\":\"bar\"}", "[{\"op\":\"test\",\"path\":\"/foo\",\"value\":\"baz\"}]");
+		assertFails("{\"foo\":\"bar\"}", "[{\"op\":\"remove\",\"path\":\"/missing\"}]");
+		assertFails("{\"foo\":\"bar\"}", "[{\"op\":\"add\",\"path\":\"/a/b\",\"value\":1}]");
+		assertFails("{\"foo\":[1]}", "[{\"op\":\"add\",\"path\":\"/foo/2\",\"value\":1}]");
+		assertFails("{\"foo\":[1]}", "[{\"op\":\"replace\",\"path\":\"/foo/01\",\"value\":1}]");
+		assertFails("{\"foo\":{}}", "[{\"op\":\"move\",\"from\":\"/foo\",\"path\":\"/foo/bar\"}]");
+		
+		String[] invalidPatches = {"[{\"path\":\"/a\"}]", "[{\"op\":\"jump\",\"path\":\"/a\"}]", "[{\"op\":\"add\",\"path\":\"/a\"}]", "[{\"op\":\"remove\",\"path\":\"a\"}]", "[{\"op\":\"remove\",\"path\":\"/a~2\"}]", "[1]"};
+		for(String invalid : invalidPatches)
+		{
+			try
+			{
+				JsonPatch.parse(invalid);
+				fail("Invalid patch was compiled: "+invalid);
+			}
+			catch(JsonPatchException e)
+			{
+			}
+		}
+	}
+	
+	@Test
+	public void testCopy()
+	{
+		JsonObject original = JsonParser.parseObject("{\"a\":{\"b\":1,\"c\":[1,2]},\"d\":{\"e\":true}}", true);
+		JsonPatch patch = JsonPatch.parse("[{\"op\":\"replace\",\"path\":\"/a/b\",\"value\":5},{\"op\":\"add\",\"path\":\"/a/c/0\",\"value\":0}]");
+		
+		JsonObject copy = (JsonObject)patch.applyCopy(original);
+		assertEquals(5, copy.getObject("a").getLong("b").longValue());
+		assertEquals(3, copy.getObject("a").getArray("c").size());
+		assertEquals(1, original.getObject("a").getLong("b").longValue());
+		assertEquals(2, original.getObject("a").getArray("c").size());
+		
+		//Untouched parts are shared and stay delayed
+		assertSame(original.getObject("d"), copy.getObject("d"));
+		assertTrue(copy.getObject("d").isParsingDelayed());
+		
+		//Failed copies leave the original untouched
+		try
+		{
+			JsonPatch.parse("[{\"op\":\"remove\",\"path\":\"/d\"},{\"op\":\"remove\",\"path\":\"/missing\"}]").applyCopy(original);
+			fail("Patch applied");
+		}
+		catch(JsonPatchException e)
+		{
+		}
+		assertTrue(original.containsKey("d"));
+		
+		//Values added by a patch aren't shared between applications
+		JsonPatch add = JsonPatch.parse("[{\"op\":\"add\",\"path\":\"/x\",\"value\":{\"y\":1}}]");
+		JsonObject first = (JsonObject)add.apply(new JsonObject()), second = (JsonObject)add.apply(new JsonObject());
+		first.getObject("x").put("y", 2);
+		assertEquals(1, second.getObject("x").getLong("y").longValue());
+	}
+	
+	@Test
+	public void testMergePatch()
+	{
+		JsonObject target = JsonParser.parseObject("{\"title\":\"Goodbye!\",\"author\":{\"givenName\":\"John\",\"familyName\":\"Doe\"},\"tags\":[\"example\",\"sample\"],\"content\":\"This will be unchanged\"}");
+		String before = target.toString();
+		JsonMergePatch patch = JsonMergePatch.parse("{\"title\":\"Hello!\",\"phoneNumber\":\"+01-123-456-7890\",\"author\":{\"familyName\":null},\"tags\":[\"example\"]}");
+		
+		JsonObject copy = (JsonObject)patch.applyCopy(target);
+		assertEquals(before, target.toString());
+		
+		assertSame(target, patch.apply(target));
+		for(JsonObject result : new JsonObject[]{target, copy})
+		{
+			assertEquals("Hello!", result.getString("title"));
+			assertEquals("+01-123-456-7890", result.getString("phoneNumber"));
+			assertEquals("{\"givenName\":\"John\"}", result.getObject("author").toString());
+			assertEquals("[\"example\"]", result.getArray("tags").toString());
+			assertEquals("This will be unchanged", result.getString("content"));
+		}
+		
+		assertEquals("{\"a\":{\"b\":1}}", JsonMergePatch.parse("{\"a\":{\"b\":1,\"c\":null}}").apply(null).toString());
+		assertEquals("[1]", JsonMergePatch.parse("[1]").apply(target).toString());
+	}
+	
+	/*
+	 * Helper things
+	 */
+	
+	private static void assertPatch(String target, String patch, String expected)
+	{
+		JsonWriter writer = new JsonWriter();
+		writer.setSortKeys(true);
+		
+		JsonPatch compiled = JsonPatch.parse(patch);
+		JsonElement inPlace = compiled.apply(JsonParser.parse(target));
+		JsonElement copy = compiled.applyCopy(JsonParser.parse(target, true));
+		assertEquals(writer.toString(JsonParser.parse(expected)), writer.toString(inPlace));
+		assertEquals(writer.toString(JsonParser.parse(expected)), writer.toString(copy));
+	}
+	
+	private static void assertFails(String target, String patch)
+	{
+		try
+		{
+			JsonPatch.parse(patch).apply(JsonParser.parse(target));
+			fail("Patch applied: "+patch);
+		}
+		catch(JsonPatchException e)
+		{
+		}
+	}
+}
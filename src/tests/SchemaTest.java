@@ -0,0 +1,194 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import net.enigmablade.jsonic.*;
+
+public class SchemaTest
+{
+	private static final String SCHEMA = "{\"type\":\"object\",\"required\":[\"id\",\"name\"],\"additionalProperties\":false,\"properties\":{"
+			+ "\"id\":{\"type\":\"integer\",\"minimum\":1},"
+			+ "\"name\":{\"type\":\"string\",\"minLength\":1,\"maxLength\":8,\"pattern\":\"^[a-z]+$\"},"
+			+ "\"price\":{\"type\":\"number\",\"exclusiveMinimum\":0,\"multipleOf\":0.01},"
+			+ "\"tags\":{\"type\":\"array\",\"items\":{\"type\":\"string\"},\"maxItems\":3,\"uniqueItems\":true},"
+			+ "\"kind\":{\"enum\":[\"a\",\"b\",null]},"
+			+ "\"size\":{\"anyOf\":[{\"type\":\"integer\"},{\"type\":\"string\",\"enum\":[\"small\",\"large\"]}]},"
+			+ "\"parent\":{\"$ref\":\"#\"}}}";
+	
+	@Test
+	public void testValid()
+	{
+		JsonSchema schema = JsonSchema.parse(SCHEMA);
+		String[] valid = {
+			"{\"id\":1,\"name\":\"abc\"}",
+			"{ \"id\" : 2.0 , \"name\" : \"abc\", \"price\": 1.25, \"tags\": [\"x\", \"y\"] }",
+			"{\"id\":3,\"name\":\"abc\",\"kind\":null,\"size\":\"small\"}",
+			"{\"id\":3,\"name\":\"abc\",\"size\":4,\"parent\":{\"id\":1,\"name\":\"p\"}}",
+		};
+		for(String json : valid)
+		{
+			schema.validate(json);
+			schema.validate(JsonParser.parse(json));
+		}
+	}
+	
+	@Test
+	public void testInvalid()
+	{
+		JsonSchema schema = JsonSchema.parse(SCHEMA);
+		String[][] invalid = {
+			{"[1]", ""},
+			{"{\"name\":\"abc\"}", ""},
+			{"{\"id\":0,\"name\":\"abc\"}", "/id"},
+			{"{\"id\":1.5,\"name\":\"abc\"}", "/id"},
+			{"{\"id\":1,\"name\":\"\"}", "/name"},
+			{"{\"id\":1,\"name\":\"abcdefghi\"}", "/name"},
+			{"{\"id\":1,\"name\":\"ABC\"}", "/name"},
+			{"{\"id\":1,\"name\":\"abc\",\"price\":0}", "/price"},
+			{"{\"id\":1,\"name\":\"abc\",\"price\":1.255}", "/price"},
+			{"{\"id\":1,\"name\":\"abc\",\"tags\":[\"x\",2]}", "/tags/1"},
+			{"{\"id\":1,\"name\":\"abc\",\"tags\":[\"x\",\"y\",\"z\",\"w\"]}", "/tags"},
+			{"{\"id\":1,\"name\":\"abc\",\"tags\":[\"x\",\"x\"]}", "/tags"},
+			{"{\"id\":1,\"name\":\"abc\",\"kind\":\"c\"}", "/kind"},
+			{"{\"id\":1,\"name\":\"abc\",\"size\":\"medium\"}", "/size"},
+			{"{\"id\":1,\"name\":\"abc\",\"other\":true}", "/other"},
+			{"{\"id\":1,\"name\":\"abc\",\"parent\":{\"id\":1,\"name\":\"p\",\"parent\":{\"id\":-1,\"name\":\"q\"}}}", "/parent/parent/id"},
+		};
+		for(String[] test : invalid)
+		{
+			assertFalse(test[0], schema.isValid(test[0]));
+			assertFalse(test[0], schema.isValid(JsonParser.parse(test[0])));
+			
+			//Both ways of validating stop at the same value
+			assertEquals(test[0], test[1], getPath(schema, test[0], false));
+			assertEquals(test[0], test[1], getPath(schema, test[0], true));
+		}
+	}
+	
+	private static String getPath(JsonSchema schema, String json, boolean parsed)
+	{
+		try
+		{
+			if(parsed)
+				schema.validate(JsonParser.parse(json));
+			else
+				schema.validate(json);
+		}
+		catch(JsonSchemaException e)
+		{
+			assertNotNull(e.getMessage());
+			return e.getPath();
+		}
+		fail("Invalid JSON passed: "+json);
+		return null;
+	}
+	
+	@Test
+	public void testParser()
+	{
+		JsonParser parser = new JsonParser();
+		parser.setSchema(JsonSchema.parse("{\"type\":\"array\",\"items\":{\"type\":\"integer\"}}"));
+		assertEquals(3, parser.processArray("[1, 2, 3]").size());
+		try
+		{
+			parser.processArray("[1, \"2\", 3]");
+			fail("Invalid array was parsed");
+		}
+		catch(JsonSchemaException e)
+		{
+			assertEquals("/1", e.getPath());
+		}
+		
+		//Schemas that check the whole document validate it once it's parsed
+		parser.setSchema(JsonSchema.parse("{\"oneOf\":[{\"maxItems\":1},{\"items\":{\"type\":\"string\"}}]}"));
+		assertEquals(1, parser.processArray("[1]").size());
+		assertEquals(2, parser.processArray("[\"a\", \"b\"]").size());
+		try
+		{
+			parser.processArray("[1, 2]");
+			fail("Invalid array was parsed");
+		}
+		catch(JsonSchemaException e)
+		{
+		}
+		try
+		{
+			parser.processArray("[1, 2");
+			fail("Invalid JSON was parsed");
+		}
+		catch(JsonParseException e)
+		{
+		}
+	}
+	
+	@Test
+	public void testSameAsParser()
+	{
+		//Invalid JSON throws the same error as parsing it
+		JsonSchema schema = JsonSchema.parse("{\"maxProperties\":1}");
+		String[] invalid = {"{\"a\":}", "{\"a\":1 \"b\":2}", "[1,]", "[1 2]", "{\"a\":[}", "[\"\\x\"]", "{\"a\":tru}", "[1"};
+		for(String json : invalid)
+		{
+			String expected = null;
+			try
+			{
+				JsonParser.parse(json);
+				fail("Invalid JSON was parsed: "+json);
+			}
+			catch(JsonParseException e)
+			{
+				expected = e.getMessage();
+			}
+			try
+			{
+				schema.validate(json);
+				fail("Invalid JSON was validated: "+json);
+			}
+			catch(JsonParseException e)
+			{
+				assertEquals(json, expected, e.getMessage());
+			}
+		}
+		
+		//Anything the parser accepts is scanned, and duplicate keys are only counted once
+		String[] valid = {"{\"a\":1,\"a\":2}", "[,1]", "{,a:1}", "{\"a\" :1}"};
+		for(String json : valid)
+		{
+			assertTrue(json, schema.isValid(JsonParser.parse(json)));
+			assertTrue(json, schema.isValid(json));
+		}
+		assertFalse(schema.isValid("{\"a\":1,\"b\":2}"));
+	}
+	
+	@Test
+	public void testMultipleOf()
+	{
+		JsonSchema three = JsonSchema.parse("{\"items\":{\"multipleOf\":3}}");
+		assertFalse(three.isValid("[1e3000000]"));
+		assertTrue(three.isValid("[3e3000000]"));
+		assertFalse(three.isValid("[1e-3000000]"));
+		assertTrue(three.isValid("[0, -6, 4.5e1]"));
+		JsonSchema half = JsonSchema.parse("{\"items\":{\"multipleOf\":0.5}}");
+		assertTrue(half.isValid("[1e3000000, 2.5, -1.5e0]"));
+		assertFalse(half.isValid("[0.25]"));
+	}
+	
+	@Test
+	public void testInvalidSchema()
+	{
+		String[] invalid = {"{\"type\":\"thing\"}", "{\"minLength\":-1}", "{\"required\":[1]}", "{\"$ref\":\"#/missing\"}", "{\"properties\":{\"a\":1}}", "{\"pattern\":\"(\"}"};
+		for(String json : invalid)
+		{
+			try
+			{
+				JsonSchema.parse(json);
+				fail("Invalid schema compiled: "+json);
+			}
+			catch(JsonSchemaException e)
+			{
+			}
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package tests;
+
+import static org.junit.Assert.*;
+import java.io.*;
+import java.math.*;
+import org.junit.*;
+import net.enigmablade.jsonic.*;
+
+public class SnapshotTest
+{
+	private static final String JSON = "{\"name\":\"Ahri\",\"tags\":[\"Mage\",\"Assassin\",\"Mage\"],\"stats\":{\"hp\":380,\"mp\":-250.5,\"big\":123456789012345678901234567890,\"precise\":1e400},\"free\":true,\"owner\":null}";
+	
+	@Test
+	public void testRoundTrip()
+	{
+		JsonObject obj = JsonParser.parseObject(JSON);
+		byte[] data = JsonSnapshot.toBytes(obj);
+		
+		JsonObject read = (JsonObject)JsonSnapshot.fromBytes(data);
+		assertTrue(read.isParsingDelayed());
+		checkContents(read);
+		
+		read = (JsonObject)JsonSnapshot.fromBytes(data, false);
+		assertFalse(read.isParsingDelayed());
+		assertFalse(read.getObject("stats").isParsingDelayed());
+		checkContents(read);
+	}
+	
+	@Test
+	public void testLazyAccess()
+	{
+		JsonObject read = (JsonObject)JsonSnapshot.fromBytes(JsonSnapshot.toBytes(JsonParser.parseObject(JSON)));
+		
+		//Nested elements are only decoded when used
+		assertEquals("Ahri", read.getString("name"));
+		JsonObject stats = read.getObject("stats");
+		assertTrue(stats.isParsingDelayed());
+		assertEquals(380, stats.getLong("hp").longValue());
+		assertFalse(stats.isParsingDelayed());
+		assertTrue(read.getArray("tags").isParsingDelayed());
+	}
+	
+	@Test
+	public void testStreams() throws IOException
+	{
+		JsonArray array = JsonParser.parseArray("[1, \"two\", [3, {\"four\": 4}]]");
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		array.writeTo(out);
+		JsonArray read = (JsonArray)JsonElement.readFrom(new ByteArrayInputStream(out.toByteArray()));
+		
+		assertEquals(3, read.size());
+		assertEquals(1, read.getLong(0).longValue());
+		assertEquals("two", read.getString(1));
+		assertEquals(4, read.getArray(2).getObject(1).getLong("four").longValue());
+	}
+	
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException
+	{
+		JsonObject obj = JsonParser.parseObject(JSON);
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(ObjectOutputStream out = new ObjectOutputStream(bytes))
+		{
+			out.writeObject(obj);
+		}
+		
+		try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+		{
+			JsonObject read = (JsonObject)in.readObject();
+			assertTrue(read.isParsingDelayed());
+			checkContents(read);
+		}
+	}
+	
+	@Test
+	public void testInvalid()
+	{
+		byte[][] invalidCases = {{}, {'J', 'S', 'O', 'N'}, {'J', 'S', 'N', 'P', 99},
+			//String table larger than the data
+			{'J', 'S', 'N', 'P', 1, (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x07, 10, 0, 0, 0, 0, 0},
+			//Key and string value outside the table
+			{'J', 'S', 'N', 'P', 1, 0, 9, 1, 0, 0, 0, 2, 5, 0},
+			{'J', 'S', 'N', 'P', 1, 1, 1, 'a', 10, 1, 0, 0, 0, 2, 8, 1}};
+		for(byte[] invalid : invalidCases)
+		{
+			try
+			{
+				JsonSnapshot.fromBytes(invalid, false);
+				fail("Invalid snapshot was read");
+			}
+			catch(JsonParseException e)
+			{
+			}
+		}
+		
+		//Truncated
+		byte[] data = JsonSnapshot.toBytes(JsonParser.parseObject(JSON));
+		try
+		{
+			((JsonObject)JsonSnapshot.fromBytes(java.util.Arrays.copyOf(data, data.length-3))).getObject("stats").size();
+			fail("Truncated snapshot was read");
+		}
+		catch(JsonParseException e)
+		{
+		}
+	}
+	
+	private void checkContents(JsonObject read)
+	{
+		assertEquals(5, read.size());
+		assertEquals("Ahri", read.getString("name"));
+		assertTrue(read.getBoolean("free"));
+		assertNull(read.get("owner"));
+		
+		JsonArray tags = read.getArray("tags");
+		assertEquals(3, tags.size());
+		assertEquals("Mage", tags.getString(0));
+		assertEquals("Assassin", tags.getString(1));
+		assertEquals("Mage", tags.getString(2));
+		
+		JsonObject stats = read.getObject("stats");
+		assertEquals(380, stats.getLong("hp").longValue());
+		assertEquals(-250.5, stats.getDouble("mp"), 0);
+		assertEquals(new BigInteger("123456789012345678901234567890"), stats.getBigInteger("big"));
+		assertEquals(new BigDecimal("1e400"), stats.getBigDecimal("precise"));
+	}
+}
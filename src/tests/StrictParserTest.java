@@ -0,0 +1,69 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import net.enigmablade.jsonic.*;
+
+public class StrictParserTest
+{
+	@Test
+	public void testStandard()
+	{
+		JsonParser strict = new JsonParser();
+		strict.setStrict(true);
+		
+		String[] valid = {
+			"{}", "[]", " { } ", "[ ]",
+			"{\"a\":1,\"b\":-2,\"c\":0,\"d\":-0.5,\"e\":1e3,\"f\":2.5E-3,\"g\":12345678901234567890,\"h\":-9223372036854775808}",
+			"[\"a\\\"b\\\\c\\/d\\b\\f\\n\\r\\t\\u00e9\",true,false,null]",
+			"{\"nested\":{\"array\":[[1,[2,{}]],{\"x\":[]}]},\"s\":\"}]\"}",
+			"\t\n\r [1 ,\n2 , 3] \r\n",
+		};
+		for(String json : valid)
+		{
+			JsonElement expected = JsonParser.parse(json);
+			assertEquals(json, expected, strict.process(json));
+			assertEquals(json, expected.toString(), strict.process(json).toString());
+		}
+		
+		//Strict parsing is just as lazy
+		strict.setLazyStrings(true);
+		strict.setLazyNumbers(true);
+		JsonObject lazy = strict.processObject("{\"a\":\"b\\n\",\"c\":1.50}");
+		assertEquals("b\n", lazy.getString("a"));
+		JsonWriter writer = new JsonWriter();
+		writer.setSortKeys(true);
+		assertEquals("{\"a\":\"b\\n\",\"c\":1.50}", writer.toString(lazy));
+	}
+	
+	@Test
+	public void testNonStandard()
+	{
+		JsonParser strict = new JsonParser();
+		strict.setStrict(true);
+		
+		String[] invalid = {
+			"{'a':1}", "{a:1}", "['a']", "[1_000]", "[NaN]", "[1.5f]", "[01]", "[1.]", "[.5]", "[+1]", "[1e]",
+			"[tru]", "[nulls]", "[1,]", "[,1]", "[1 2]", "{\"a\":1,}", "{\"a\" 1}", "{\"a\":1 \"b\":2}",
+			"[\"a\tb\"]", "[\"\\'\"]", "[\"\\x\"]", "[\"\\u12g4\"]", "[\"\\u\uFF11\uFF12\uFF13\uFF14\"]", "[\"abc]", "[1] x", "{\"a\":[1}", "[{]",
+		};
+		for(String json : invalid)
+		{
+			try
+			{
+				strict.process(json);
+				fail("Non-standard JSON was parsed: "+json);
+			}
+			catch(JsonParseException e)
+			{
+				assertNotNull(e.getMessage());
+			}
+		}
+		
+		//The lenient dialect is still available
+		assertEquals(1000L, (long)JsonParser.parseArray("[1_000]").getLong(0));
+		assertEquals("a", JsonParser.parseObject("{a:'a'}").getString("a"));
+	}
+}
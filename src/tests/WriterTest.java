@@ -0,0 +1,65 @@
+package tests;
+
+import static org.junit.Assert.*;
+import java.io.*;
+import org.junit.*;
+import net.enigmablade.jsonic.*;
+
+public class WriterTest
+{
+	@Test
+	public void testCompact()
+	{
+		JsonWriter writer = new JsonWriter();
+		assertEquals("[1,\"a\",true,null,{},[]]", writer.toString(JsonParser.parseArray("[ 1, 'a', true, null, {}, [] ]")));
+		
+		JsonObject obj = JsonParser.parseObject("{\"b\":1,\"a\":[2,3]}");
+		assertEquals(obj.toString(), writer.toString(obj));
+		
+		writer.setSortKeys(true);
+		assertEquals("{\"a\":[2,3],\"b\":1}", writer.toString(obj));
+	}
+	
+	@Test
+	public void testIndent()
+	{
+		JsonWriter writer = new JsonWriter(2);
+		writer.setSortKeys(true);
+		JsonObject obj = JsonParser.parseObject("{\"b\":{\"c\":[1,2],\"d\":{}},\"a\":\"x\"}", true);
+		assertEquals("{\n  \"a\": \"x\",\n  \"b\": {\n    \"c\": [\n      1,\n      2\n    ],\n    \"d\": {}\n  }\n}", writer.toString(obj));
+		
+		writer.setLineWidth(30);
+		assertEquals("{\n  \"a\": \"x\",\n  \"b\": {\"c\": [1, 2], \"d\": {}}\n}", writer.toString(obj));
+		
+		writer.setLineWidth(20);
+		assertEquals("{\n  \"a\": \"x\",\n  \"b\": {\n    \"c\": [1, 2],\n    \"d\": {}\n  }\n}", writer.toString(obj));
+		
+		writer.setLineWidth(80);
+		assertEquals("{\"a\": \"x\", \"b\": {\"c\": [1, 2], \"d\": {}}}", writer.toString(obj));
+	}
+	
+	@Test
+	public void testEscaping()
+	{
+		JsonArray array = new JsonArray();
+		array.add("quote\" slash\\ line\n tab\t control\u0001 caf\u00e9");
+		
+		JsonWriter writer = new JsonWriter();
+		assertEquals("[\"quote\\\" slash\\\\ line\\n tab\\t control\\u0001 caf\u00e9\"]", writer.toString(array));
+		assertEquals(array.getString(0), JsonParser.parseArray(writer.toString(array)).getString(0));
+		
+		writer.setAsciiEscape(true);
+		assertEquals("[\"quote\\\" slash\\\\ line\\n tab\\t control\\u0001 caf\\u00e9\"]", writer.toString(array));
+	}
+	
+	@Test
+	public void testStream() throws IOException
+	{
+		JsonObject obj = new JsonObject();
+		obj.put("caf\u00e9", "\ud83d\ude00");
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new JsonWriter(4).write(obj, out);
+		assertEquals("{\n    \"caf\u00e9\": \"\ud83d\ude00\"\n}", new String(out.toByteArray(), "UTF-8"));
+	}
+}